@@ -5,6 +5,7 @@ plugins {
     id("org.springframework.boot") version "3.4.6"
     id("io.spring.dependency-management") version "1.1.7"
     id("com.diffplug.spotless") version "7.0.3"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 tasks.register<Exec>("installGitHooks") {
@@ -89,6 +90,12 @@ dependencies {
     // AI Integration
     implementation("org.springframework.ai:spring-ai-openai-spring-boot-starter:1.0.0-M5")
 
+    // Cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
+    // Metrics：Prometheus 格式的 /actuator/prometheus，需在 exposure.include 中加入 prometheus 才会暴露
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+
     // HTTP Client for web search
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
 
@@ -112,6 +119,18 @@ spotless {
 
 tasks.withType<Test> {
     useJUnitPlatform()
+    // 聊天负载测试参数，例如 -Pchat.load.users=200，见 ChatLoadTest
+    listOf("chat.load.users", "chat.load.messages", "chat.load.ttft-ms", "chat.load.tokens-per-second")
+        .forEach { key -> project.findProperty(key)?.let { systemProperty(key, it) } }
+}
+
+jmh {
+    // 基准测试位于 src/jmh/java，运行：./gradlew jmh -Pjmh.includes=<类名>
+    includes.set(listOfNotNull(project.findProperty("jmh.includes") as String?))
+    includeTests.set(false)
+    fork.set(1)
+    warmupIterations.set(2)
+    iterations.set(3)
 }
 
 tasks.named<org.springframework.boot.gradle.tasks.bundling.BootJar>("bootJar") {
@@ -5,6 +5,7 @@ DROP TABLE IF EXISTS `dietitem`;
 DROP TABLE IF EXISTS `exerciseitem`;
 DROP TABLE IF EXISTS `sleepitem`;
 DROP TABLE IF EXISTS `users`;
+DROP TABLE IF EXISTS `chat_message`;
 
 CREATE TABLE `users` (
   `UserID` char(36) COLLATE utf8mb4_unicode_ci NOT NULL,
@@ -65,4 +66,14 @@ CREATE TABLE `sleepitem` (
   CONSTRAINT `FK_SleepItem_User` FOREIGN KEY (`UserID`) REFERENCES `users` (`UserID`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+CREATE TABLE `chat_message` (
+  `MessageID` bigint NOT NULL AUTO_INCREMENT,
+  `ConversationID` varchar(64) COLLATE utf8mb4_unicode_ci NOT NULL,
+  `MessageType` varchar(16) COLLATE utf8mb4_unicode_ci NOT NULL,
+  `Content` mediumtext COLLATE utf8mb4_unicode_ci NOT NULL,
+  `CreatedAt` datetime(3) NOT NULL,
+  PRIMARY KEY (`MessageID`),
+  KEY `IDX_ChatMessage_Conversation` (`ConversationID`, `MessageID`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- End of schema definition
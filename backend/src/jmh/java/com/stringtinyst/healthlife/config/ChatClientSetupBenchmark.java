@@ -0,0 +1,116 @@
+package com.stringtinyst.healthlife.config;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.InMemoryChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.function.FunctionCallback;
+import reactor.core.publisher.Flux;
+
+/**
+ * 对比每次请求的 ChatClient 准备开销：旧实现每条消息重新 builder().build() 并注册全部函数，新实现复用启动时构建的共享客户端
+ *
+ * <p>200 个线程模拟 200 个并发 SSE 会话；只构建到返回惰性的 {@code Flux} 为止，不订阅，测得的是控制器在发起模型调用前的准备开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(200)
+public class ChatClientSetupBenchmark {
+
+  private static final String[] FUNCTION_NAMES = AiConfig.FUNCTION_TOOLBOX.toArray(String[]::new);
+
+  private ChatModel chatModel;
+  private ChatClient shared;
+
+  /** 与真实函数一样的单参数入参，桩回调只用于生成 schema */
+  public record QueryRequest(String userId, String startDate, String endDate) {}
+
+  @State(Scope.Thread)
+  public static class Session {
+    String userId;
+    ChatMemory memory;
+
+    @Setup
+    public void setUp() {
+      userId = UUID.randomUUID().toString();
+      memory = new InMemoryChatMemory();
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    ChatResponse response =
+        new ChatResponse(List.of(new Generation(new AssistantMessage("好的，已为您记录"))));
+    chatModel =
+        new ChatModel() {
+          @Override
+          public ChatResponse call(Prompt prompt) {
+            return response;
+          }
+
+          @Override
+          public Flux<ChatResponse> stream(Prompt prompt) {
+            return Flux.just(response);
+          }
+        };
+
+    FunctionCallback[] callbacks =
+        AiConfig.FUNCTION_TOOLBOX.stream()
+            .map(
+                name ->
+                    FunctionCallback.builder()
+                        .function(name, (QueryRequest request) -> "ok")
+                        .description(name)
+                        .inputType(QueryRequest.class)
+                        .build())
+            .toArray(FunctionCallback[]::new);
+    shared =
+        ChatClient.builder(chatModel)
+            .defaultSystem(AiPromptTemplate.systemPrompt())
+            .defaultFunctions(callbacks)
+            .build();
+  }
+
+  @Benchmark
+  public Flux<String> perRequestBuilder(Session session) {
+    ChatClient chatClient =
+        ChatClient.builder(chatModel)
+            .defaultSystem(AiPromptTemplate.systemPrompt())
+            .defaultAdvisors(new MessageChatMemoryAdvisor(session.memory))
+            .defaultFunctions(FUNCTION_NAMES)
+            .build();
+    return chatClient
+        .prompt()
+        .user(AiPromptTemplate.buildUserMessage("今天早餐吃了两个鸡蛋"))
+        .advisors(spec -> spec.param("conversation_id", session.userId))
+        .stream()
+        .content();
+  }
+
+  @Benchmark
+  public Flux<String> sharedClient(Session session) {
+    return shared
+        .prompt()
+        .user(AiPromptTemplate.buildUserMessage("今天早餐吃了两个鸡蛋"))
+        .advisors(new MessageChatMemoryAdvisor(session.memory, session.userId, 10))
+        .stream()
+        .content();
+  }
+}
@@ -0,0 +1,94 @@
+package com.stringtinyst.healthlife.function;
+
+import com.stringtinyst.healthlife.function.WebSearchFunction.SearchResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 对比 DuckDuckGo 结果页的解析开销：旧实现先把整页解码成字符串（对应 {@code body().string()}）再按 {@code result__a}
+ * 切分、逐块跑正则清理，新实现从字节流边解码边提取（对应 {@code body().charStream()}）
+ *
+ * <p>样例页 {@code duckduckgo/results.html} 按 html.duckduckgo.com 的结果页结构整理，含头部样式与脚本、一条广告和 12 条结果；配合
+ * {@code -prof gc} 可以看到每次解析的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DuckDuckGoHtmlExtractorBenchmark {
+
+  @Param({"5", "10"})
+  public int maxResults;
+
+  private byte[] page;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream in =
+        DuckDuckGoHtmlExtractorBenchmark.class.getResourceAsStream("/duckduckgo/results.html")) {
+      page = in.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public List<SearchResult> splitAndRegex() {
+    return legacyParse(new String(page, StandardCharsets.UTF_8), maxResults);
+  }
+
+  @Benchmark
+  public List<SearchResult> streaming() throws IOException {
+    return DuckDuckGoHtmlExtractor.extract(
+        new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8), maxResults);
+  }
+
+  /** 原 WebSearchFunction.parseDuckDuckGoHtml 的实现，仅用于对比 */
+  private static List<SearchResult> legacyParse(String html, int maxResults) {
+    List<SearchResult> results = new ArrayList<>();
+    String[] resultBlocks = html.split("result__a");
+    for (int i = 1; i < Math.min(resultBlocks.length, maxResults + 1); i++) {
+      String block = resultBlocks[i];
+      SearchResult result = new SearchResult();
+      int titleStart = block.indexOf(">") + 1;
+      int titleEnd = block.indexOf("</a>");
+      if (titleStart > 0 && titleEnd > titleStart) {
+        result.setTitle(cleanHtml(block.substring(titleStart, titleEnd)));
+      }
+      int urlStart = block.indexOf("href=\"") + 6;
+      int urlEnd = block.indexOf("\"", urlStart);
+      if (urlStart > 5 && urlEnd > urlStart) {
+        String url = block.substring(urlStart, urlEnd);
+        if (url.startsWith("//duckduckgo.com/l/?uddg=")) {
+          url = URLDecoder.decode(url.substring(25), StandardCharsets.UTF_8);
+        }
+        result.setUrl(url);
+      }
+      result.setSnippet("搜索结果摘要");
+      if (result.getTitle() != null && result.getUrl() != null) {
+        results.add(result);
+      }
+    }
+    return results;
+  }
+
+  private static String cleanHtml(String html) {
+    return html.replaceAll("<[^>]*>", "")
+        .replaceAll("&nbsp;", " ")
+        .replaceAll("&amp;", "&")
+        .replaceAll("&quot;", "\"")
+        .trim();
+  }
+}
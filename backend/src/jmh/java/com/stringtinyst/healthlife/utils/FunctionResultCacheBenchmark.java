@@ -0,0 +1,101 @@
+package com.stringtinyst.healthlife.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 对比写操作后按用户失效缓存的开销：旧实现对整个 Map 做 removeIf 扫描，新实现摘下 domain:userID 分段
+ *
+ * <p>每个用户在同一领域下有 {@link #KEYS_PER_USER} 个查询结果，每次调用失效一个用户后重新写回，保持缓存规模不变
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FunctionResultCacheBenchmark {
+
+  private static final int KEYS_PER_USER = 10;
+  private static final String DOMAIN = "diet.query";
+  private static final String VALUE = "查询成功，共找到 1 条饮食记录。";
+
+  @Param({"10000", "100000", "1000000"})
+  public int entries;
+
+  private FunctionResultCache segmented;
+  private ScanningCache scanning;
+  private int users;
+  private int cursor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    users = entries / KEYS_PER_USER;
+    segmented = new FunctionResultCache(3600, 0, Long.MAX_VALUE / 4, null);
+    scanning = new ScanningCache();
+    for (int u = 0; u < users; u++) {
+      fillUser(u);
+    }
+  }
+
+  @Benchmark
+  public int segmentedEvictUser() {
+    int user = nextUser();
+    segmented.evictByPrefix(prefix(user));
+    for (int i = 0; i < KEYS_PER_USER; i++) {
+      segmented.getOrCompute(key(user, i), () -> VALUE);
+    }
+    return user;
+  }
+
+  @Benchmark
+  public int scanningEvictUser() {
+    int user = nextUser();
+    scanning.evictByPrefix(prefix(user));
+    for (int i = 0; i < KEYS_PER_USER; i++) {
+      scanning.put(key(user, i), VALUE);
+    }
+    return user;
+  }
+
+  private void fillUser(int user) {
+    for (int i = 0; i < KEYS_PER_USER; i++) {
+      String key = key(user, i);
+      segmented.getOrCompute(key, () -> VALUE);
+      scanning.put(key, VALUE);
+    }
+  }
+
+  private int nextUser() {
+    cursor = (cursor + 1) % users;
+    return cursor;
+  }
+
+  private static String prefix(int user) {
+    return DOMAIN + String.format(":user-%07d", user);
+  }
+
+  private static String key(int user, int page) {
+    return prefix(user) + ":null:null:null:" + page + ":10";
+  }
+
+  /** 改造前的实现：单层 ConcurrentHashMap，按前缀失效时扫描全部键 */
+  static final class ScanningCache {
+    private final ConcurrentMap<String, String> cache = new ConcurrentHashMap<>();
+
+    void put(String key, String value) {
+      cache.put(key, value);
+    }
+
+    void evictByPrefix(String prefix) {
+      cache.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+  }
+}
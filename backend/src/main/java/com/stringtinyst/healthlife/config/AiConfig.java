@@ -1,14 +1,13 @@
 package com.stringtinyst.healthlife.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
-import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
@@ -19,10 +18,32 @@ import reactor.netty.resources.ConnectionProvider;
 @Configuration
 public class AiConfig {
 
-  @Bean
-  public ChatMemory chatMemory() {
-    return new InMemoryChatMemory();
-  }
+  /** 对话中可调用的函数，名称与 function 包中注册的 Bean 名一致 */
+  public static final List<String> FUNCTION_TOOLBOX =
+      List.of(
+          "queryBodyMetrics",
+          "addBodyMetric",
+          "getBodyMetricDetail",
+          "updateBodyMetric",
+          "deleteBodyMetric",
+          "querySleepRecords",
+          "addSleepRecord",
+          "updateSleepRecord",
+          "getSleepRecordDetail",
+          "deleteSleepRecord",
+          "queryDietRecords",
+          "addDietRecord",
+          "updateDietRecord",
+          "getDietRecordDetail",
+          "deleteDietRecord",
+          "lookupFoodCalories",
+          "queryExerciseRecords",
+          "addExerciseRecord",
+          "updateExerciseRecord",
+          "getExerciseRecordDetail",
+          "deleteExerciseRecord",
+          "searchHealthKnowledge",
+          "webSearch");
 
   @Bean
   public WebClient.Builder webClientBuilder() {
@@ -47,37 +68,17 @@ public class AiConfig {
     return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient));
   }
 
+  /**
+   * 全局共享的 ChatClient，线程安全，应用内只构建一次
+   *
+   * <p>静态系统提示只设置一次；函数不作为默认项注册，由 {@link ToolSelector} 按轮次挑选后在 prompt() 中指定，会话记忆等按请求变化的部分同样由调用方指定
+   */
   @Bean
-  public ChatClient chatClient(ChatClient.Builder builder, ChatMemory chatMemory) {
-    String[] functionNames =
-        new String[] {
-          "queryBodyMetrics",
-          "addBodyMetric",
-          "getBodyMetricDetail",
-          "updateBodyMetric",
-          "deleteBodyMetric",
-          "querySleepRecords",
-          "addSleepRecord",
-          "updateSleepRecord",
-          "getSleepRecordDetail",
-          "deleteSleepRecord",
-          "queryDietRecords",
-          "addDietRecord",
-          "updateDietRecord",
-          "getDietRecordDetail",
-          "deleteDietRecord",
-          "queryExerciseRecords",
-          "addExerciseRecord",
-          "updateExerciseRecord",
-          "getExerciseRecordDetail",
-          "deleteExerciseRecord",
-          "webSearch"
-        };
-
+  public ChatClient chatClient(
+      ChatClient.Builder builder, MeterRegistry meterRegistry, ChatMetrics chatMetrics) {
     return builder
-        .defaultSystem(AiPromptTemplate.buildSystemPrompt())
-        .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory))
-        .defaultFunctions(functionNames)
+        .defaultSystem(AiPromptTemplate.systemPrompt())
+        .defaultAdvisors(new PromptCacheMetricsAdvisor(meterRegistry), chatMetrics.advisor())
         .build();
   }
 }
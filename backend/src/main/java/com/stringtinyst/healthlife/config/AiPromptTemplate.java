@@ -1,14 +1,20 @@
 package com.stringtinyst.healthlife.config;
 
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * 对话提示词
+ *
+ * <p>系统提示完全静态，每次请求逐字节相同，模型服务商的前缀缓存（DeepSeek context caching）才能命中系统提示与函数定义； 随时间变化的服务器时间放在用户消息开头
+ */
 public final class AiPromptTemplate {
 
   private AiPromptTemplate() {}
 
-  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
   private static final DateTimeFormatter DATE_TIME_FORMATTER =
       DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -24,17 +30,18 @@ public final class AiPromptTemplate {
           7. 始终保持通俗精准、可量化、强调安全边界，如遇高危信号提醒及时就医，并声明"此建议仅供日常健康管理参考，不替代专业诊疗"
 
           ### 使用原则
-          1. 当用户未指定日期时，请使用系统提示提供的服务器日期
+          1. 每条用户消息开头的 [服务器时间: yyyy-MM-dd HH:mm:ss] 为发送时的服务器时间；当用户未指定日期时，记录健康数据默认使用其中的日期
           2. 当用户要求记录数据时，使用对应的 add 函数自动帮助用户添加
           3. 当用户询问历史数据或趋势时，使用对应的 query / getDetail 函数获取数据
           4. 当用户要求修改某条记录时，若已提供记录 ID 直接使用 update；若未提供再进行询问
           5. 当用户要求删除记录时，使用对应的 delete 函数，并在回复中说明删除的记录 ID 与关键字段
-          6. 当需要最新的健康知识、营养信息或运动指导时，使用 webSearch 工具
+          6. 当需要健康知识、食物营养成分或运动指导时，先用 searchHealthKnowledge 检索本地知识库；本地没有结果或需要最新信息时再使用 webSearch 工具
           7. 在添加、更新或删除数据后，主动提供数据分析和健康建议
           8. 日期格式统一使用 yyyy-MM-dd，时间格式使用 yyyy-MM-dd HH:mm:ss
-          9. 餐次类型限定为：早餐、午餐、晚餐、加餐
+          9. 餐次类型限定为：早餐、午餐、晚餐、加餐；记录饮食前先用 lookupFoodCalories 查询食物热量并按份量换算 estimatedCalories，查不到时再自行估算
           10. 运动类型必须是以下之一：跑步、游泳、骑行、徒步、爬山、跳绳、篮球、足球、羽毛球、乒乓球、网球、健身房训练、瑜伽、普拉提、力量训练
           11. 如果用户提到不支持的运动类型，请建议最接近的支持类型
+          12. 用户消息开头的 [健康快照: …] 是系统附带的该用户最新数据（最近一次身高体重与 BMI、近 7 天饮食摄入与运动消耗、最近一次睡眠）；回答概况类问题时直接使用，需要逐条明细或更早的数据时再调用 query 函数
 
           ### 运动热量计算规则
           运动消耗热量使用科学的 MET（代谢当量）公式计算：**热量 (kcal) = MET × 体重 (kg) × 时间 (小时)**
@@ -50,19 +57,64 @@ public final class AiPromptTemplate {
           """
           .strip();
 
-  public static String buildSystemPrompt() {
-    return buildSystemPrompt(LocalDate.now(), LocalDateTime.now());
+  public static String systemPrompt() {
+    return BASE_PROMPT;
   }
 
-  public static String buildSystemPrompt(LocalDate today, LocalDateTime now) {
-    String date = today.format(DATE_FORMATTER);
-    String dateTime = now.format(DATE_TIME_FORMATTER);
-    return BASE_PROMPT
-        + "\n\n## 当前服务器时间\n"
-        + "- 今日日期: "
-        + date
-        + "\n- 当前时间: "
-        + dateTime
-        + "\n- 记录健康数据时请默认使用此日期，除非用户明确指定其他日期";
+  public static String buildUserMessage(String message) {
+    return buildUserMessage(message, LocalDateTime.now());
+  }
+
+  public static String buildUserMessage(String message, LocalDateTime now) {
+    return "[服务器时间: " + now.format(DATE_TIME_FORMATTER) + "] " + message;
+  }
+
+  /** 附带健康快照的用户消息，快照紧跟在服务器时间之后 */
+  public static String buildUserMessage(
+      String message, LocalDateTime now, HealthSnapshot snapshot) {
+    if (snapshot == null) {
+      return buildUserMessage(message, now);
+    }
+    return buildUserMessage(formatSnapshot(snapshot) + " " + message, now);
+  }
+
+  /** 快照的紧凑文本，缺失的部分写明“无记录”，避免模型再去查询确认 */
+  static String formatSnapshot(HealthSnapshot snapshot) {
+    StringBuilder text = new StringBuilder("[健康快照: ");
+    if (snapshot.getWeightKG() != null) {
+      text.append("身高 ")
+          .append(plain(snapshot.getHeightCM()))
+          .append("cm 体重 ")
+          .append(plain(snapshot.getWeightKG()))
+          .append("kg");
+      if (snapshot.getBmi() != null) {
+        text.append(" BMI ").append(plain(snapshot.getBmi()));
+      }
+      text.append("（").append(shortDate(snapshot.getBodyRecordDate())).append("）");
+    } else {
+      text.append("身体数据无记录");
+    }
+    text.append("；近 7 天摄入 ")
+        .append(snapshot.getCaloriesIn7d() == null ? "无记录" : snapshot.getCaloriesIn7d() + " kcal")
+        .append("，运动消耗 ")
+        .append(snapshot.getCaloriesOut7d() == null ? "无记录" : snapshot.getCaloriesOut7d() + " kcal")
+        .append("；最近睡眠 ");
+    if (snapshot.getLastSleepHours() != null) {
+      text.append(plain(snapshot.getLastSleepHours()))
+          .append("h（")
+          .append(shortDate(snapshot.getLastSleepDate()))
+          .append("）");
+    } else {
+      text.append("无记录");
+    }
+    return text.append("]").toString();
+  }
+
+  private static String plain(BigDecimal value) {
+    return value == null ? "?" : value.stripTrailingZeros().toPlainString();
+  }
+
+  private static String shortDate(LocalDate date) {
+    return date == null ? "?" : date.toString();
   }
 }
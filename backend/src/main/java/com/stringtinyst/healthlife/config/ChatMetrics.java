@@ -0,0 +1,290 @@
+package com.stringtinyst.healthlife.config;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 聊天链路的耗时指标
+ *
+ * <ul>
+ *   <li>{@code ai.chat.setup}：获得调度槽位后构建请求（读取会话记忆、健康快照、挑选函数）的耗时
+ *   <li>{@code ai.chat.ttft}：从调用模型到收到第一个非空片段的耗时，含中途执行函数的时间
+ *   <li>{@code ai.chat.stream.duration}：一次流式调用的总耗时，tag outcome=success|error|cancel
+ *   <li>{@code ai.chat.tokens-per-second}：首个片段之后的生成速度，按 usage 中的生成 token 数计算
+ *   <li>{@code ai.function.duration}：每个函数的执行耗时，tag function 与 outcome=success|error
+ *   <li>{@code ai.chat.errors}：以错误结束的对话，tag class 见 {@link ErrorClass}
+ * </ul>
+ *
+ * <p>函数结果缓存的命中率见 {@code cache.gets}（cache=function.result）
+ */
+@Component
+public class ChatMetrics {
+
+  static final String SETUP_METRIC = "ai.chat.setup";
+  static final String TTFT_METRIC = "ai.chat.ttft";
+  static final String DURATION_METRIC = "ai.chat.stream.duration";
+  static final String TOKENS_PER_SECOND_METRIC = "ai.chat.tokens-per-second";
+  static final String FUNCTION_METRIC = "ai.function.duration";
+  static final String ERRORS_METRIC = "ai.chat.errors";
+
+  /** 上游错误的分类，决定展示给用户的提示 */
+  public enum ErrorClass {
+    /** 调度器排队已满或等待超时 */
+    BUSY,
+    RATE_LIMITED,
+    UNAVAILABLE,
+    TIMEOUT,
+    OTHER;
+
+    private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+  }
+
+  private final MeterRegistry meterRegistry;
+  private final Clock clock;
+  private final Timer setup;
+  private final Timer ttft;
+  private final DistributionSummary tokensPerSecond;
+  private final Map<ErrorClass, Counter> errors = new EnumMap<>(ErrorClass.class);
+
+  public ChatMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.clock = meterRegistry.config().clock();
+    this.setup =
+        Timer.builder(SETUP_METRIC).description("获得调度槽位后构建模型请求的耗时").register(meterRegistry);
+    this.ttft =
+        Timer.builder(TTFT_METRIC)
+            .description("从调用模型到收到第一个非空片段的耗时")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.tokensPerSecond =
+        DistributionSummary.builder(TOKENS_PER_SECOND_METRIC)
+            .description("首个片段之后每秒生成的 token 数")
+            .baseUnit("tokens")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    for (ErrorClass errorClass : ErrorClass.values()) {
+      errors.put(
+          errorClass,
+          Counter.builder(ERRORS_METRIC)
+              .description("以错误结束的对话")
+              .tag("class", errorClass.tag)
+              .register(meterRegistry));
+    }
+  }
+
+  /** 计时构建模型请求的过程 */
+  public <T> T timeSetup(Supplier<T> supplier) {
+    return setup.record(supplier);
+  }
+
+  /** 归类并计数一次以错误结束的对话 */
+  public ErrorClass recordError(Throwable error) {
+    ErrorClass errorClass = classify(error);
+    errors.get(errorClass).increment();
+    return errorClass;
+  }
+
+  static ErrorClass classify(Throwable error) {
+    if (error instanceof LlmCallScheduler.BusyException) {
+      return ErrorClass.BUSY;
+    }
+    if (error instanceof TimeoutException) {
+      return ErrorClass.TIMEOUT;
+    }
+    if (error instanceof WebClientResponseException response) {
+      int status = response.getStatusCode().value();
+      if (status == 429) {
+        return ErrorClass.RATE_LIMITED;
+      }
+      if (status == 502 || status == 503 || status == 504) {
+        return ErrorClass.UNAVAILABLE;
+      }
+    }
+    // Spring AI 的重试模板会把 HTTP 错误包装成只带状态码文本的异常
+    String message = error == null || error.getMessage() == null ? "" : error.getMessage();
+    if (message.contains("429")) {
+      return ErrorClass.RATE_LIMITED;
+    }
+    if (message.contains("503")) {
+      return ErrorClass.UNAVAILABLE;
+    }
+    if (message.contains("Did not observe any item")) {
+      return ErrorClass.TIMEOUT;
+    }
+    return ErrorClass.OTHER;
+  }
+
+  /** 包装函数以记录执行耗时；成功与失败分别计时 */
+  public FunctionCallback timed(FunctionCallback callback) {
+    return new TimedFunctionCallback(callback);
+  }
+
+  /** 记录首字延迟、总耗时与生成速度的 advisor，注册为 ChatClient 的默认 advisor */
+  public StreamAroundAdvisor advisor() {
+    return new StreamMetricsAdvisor();
+  }
+
+  private final class TimedFunctionCallback implements FunctionCallback {
+
+    private final FunctionCallback delegate;
+    private final Timer success;
+    private final Timer error;
+
+    private TimedFunctionCallback(FunctionCallback delegate) {
+      this.delegate = delegate;
+      this.success = functionTimer(delegate.getName(), "success");
+      this.error = functionTimer(delegate.getName(), "error");
+    }
+
+    @Override
+    public String getName() {
+      return delegate.getName();
+    }
+
+    @Override
+    public String getDescription() {
+      return delegate.getDescription();
+    }
+
+    @Override
+    public String getInputTypeSchema() {
+      return delegate.getInputTypeSchema();
+    }
+
+    @Override
+    public String call(String functionInput) {
+      return time(() -> delegate.call(functionInput));
+    }
+
+    @Override
+    public String call(String functionInput, ToolContext toolContext) {
+      return time(() -> delegate.call(functionInput, toolContext));
+    }
+
+    private String time(Supplier<String> call) {
+      long start = clock.monotonicTime();
+      try {
+        String result = call.get();
+        success.record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+      } catch (RuntimeException e) {
+        error.record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+        throw e;
+      }
+    }
+  }
+
+  private Timer functionTimer(String function, String outcome) {
+    return Timer.builder(FUNCTION_METRIC)
+        .description("函数执行耗时")
+        .tag("function", function)
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private final class StreamMetricsAdvisor implements StreamAroundAdvisor {
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(
+        AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+      return Flux.defer(
+          () -> {
+            StreamStats stats = new StreamStats(clock.monotonicTime());
+            return chain
+                .nextAroundStream(advisedRequest)
+                .doOnNext(response -> stats.onResponse(response.response()))
+                .doFinally(stats::finish);
+          });
+    }
+
+    @Override
+    public String getName() {
+      return ChatMetrics.class.getSimpleName();
+    }
+
+    /** 排在最外层，计时覆盖其他 advisor */
+    @Override
+    public int getOrder() {
+      return HIGHEST_PRECEDENCE;
+    }
+  }
+
+  private final class StreamStats {
+
+    private final long startNanos;
+    private long firstTokenNanos;
+
+    /** 执行函数时一次流式调用包含多次模型请求，每次请求的最后一个片段各带一份 usage，累加得到总数 */
+    private long generationTokens;
+
+    private StreamStats(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    private void onResponse(ChatResponse response) {
+      if (response == null) {
+        return;
+      }
+      if (firstTokenNanos == 0 && hasText(response)) {
+        firstTokenNanos = clock.monotonicTime();
+        ttft.record(firstTokenNanos - startNanos, TimeUnit.NANOSECONDS);
+      }
+      if (response.getMetadata() != null) {
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getGenerationTokens() != null) {
+          generationTokens += usage.getGenerationTokens();
+        }
+      }
+    }
+
+    private void finish(SignalType signal) {
+      long end = clock.monotonicTime();
+      String outcome =
+          switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancel";
+          };
+      Timer.builder(DURATION_METRIC)
+          .description("一次流式模型调用的总耗时")
+          .tag("outcome", outcome)
+          .register(meterRegistry)
+          .record(end - startNanos, TimeUnit.NANOSECONDS);
+      if (signal == SignalType.ON_COMPLETE
+          && firstTokenNanos != 0
+          && end > firstTokenNanos
+          && generationTokens > 0) {
+        tokensPerSecond.record(generationTokens * 1e9 / (end - firstTokenNanos));
+      }
+    }
+  }
+
+  private static boolean hasText(ChatResponse response) {
+    return response.getResult() != null
+        && response.getResult().getOutput() != null
+        && response.getResult().getOutput().getText() != null
+        && !response.getResult().getOutput().getText().isEmpty();
+  }
+}
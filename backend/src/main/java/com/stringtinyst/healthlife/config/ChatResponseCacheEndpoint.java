@@ -0,0 +1,33 @@
+package com.stringtinyst.healthlife.config;
+
+import com.stringtinyst.healthlife.utils.ChatResponseCache;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 回复缓存的管理端点：{@code GET /actuator/chatcache} 查看条目数，{@code DELETE /actuator/chatcache} 清空
+ *
+ * <p>应用没有管理员角色，借助 Actuator 的暴露配置控制访问：默认不暴露，需要时加入 {@code
+ * management.endpoints.web.exposure.include}，并只对运维网络开放
+ */
+@Component
+@Endpoint(id = "chatcache")
+@RequiredArgsConstructor
+public class ChatResponseCacheEndpoint {
+
+  private final ChatResponseCache chatResponseCache;
+
+  @ReadOperation
+  public Map<String, Object> stats() {
+    return Map.of("size", chatResponseCache.size());
+  }
+
+  @DeleteOperation
+  public Map<String, Object> purge() {
+    return Map.of("purged", chatResponseCache.purge());
+  }
+}
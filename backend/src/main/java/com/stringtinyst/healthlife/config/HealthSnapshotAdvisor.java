@@ -0,0 +1,68 @@
+package com.stringtinyst.healthlife.config;
+
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import java.time.LocalDateTime;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import reactor.core.publisher.Flux;
+
+/**
+ * 单次请求的健康快照注入
+ *
+ * <p>排在会话记忆之后执行：记忆里保存的是不带快照的用户消息，只有本轮发给模型的消息才带上最新快照
+ *
+ * <p>快照若直接写在用户消息里，每轮的旧快照都会写入记忆并随历史窗口重复发送，历史中的快照文字还会让 {@link ToolSelector} 把追问误判为涉及全部数据领域
+ */
+public class HealthSnapshotAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+  static final int ORDER = Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 1;
+
+  private final String message;
+  private final LocalDateTime now;
+  private final HealthSnapshot snapshot;
+
+  /**
+   * @param message 不含服务器时间的用户消息，与记忆中保存的内容一致
+   * @param now 与记忆中保存的消息使用同一个服务器时间
+   */
+  public HealthSnapshotAdvisor(String message, LocalDateTime now, HealthSnapshot snapshot) {
+    this.message = message;
+    this.now = now;
+    this.snapshot = snapshot;
+  }
+
+  @Override
+  public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+    return chain.nextAroundCall(withSnapshot(advisedRequest));
+  }
+
+  @Override
+  public Flux<AdvisedResponse> aroundStream(
+      AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+    return chain.nextAroundStream(withSnapshot(advisedRequest));
+  }
+
+  AdvisedRequest withSnapshot(AdvisedRequest advisedRequest) {
+    if (snapshot == null) {
+      return advisedRequest;
+    }
+    return AdvisedRequest.from(advisedRequest)
+        .userText(AiPromptTemplate.buildUserMessage(message, now, snapshot))
+        .build();
+  }
+
+  @Override
+  public String getName() {
+    return getClass().getSimpleName();
+  }
+
+  @Override
+  public int getOrder() {
+    return ORDER;
+  }
+}
@@ -0,0 +1,288 @@
+package com.stringtinyst.healthlife.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 模型调用的准入控制
+ *
+ * <p>连接池允许 100 个并发连接，但上游真正能承受的并发随负载变化，一个用户连发消息也会占满槽位。所有流式调用在这里排队：
+ *
+ * <ul>
+ *   <li>每个用户同时进行的调用不超过 {@code ai.chat.scheduler.per-user-limit}，排队中的不超过 {@code
+ *       max-queued-per-user}，再多直接拒绝
+ *   <li>有空闲槽位时在有排队请求的用户之间轮转放行，连发的用户不会挤占其他用户
+ *   <li>全局并发上限按上游表现调整：首字延迟明显高于观测到的最低值或收到 429 时按比例下调，延迟正常且上限被用满时缓慢上调
+ * </ul>
+ *
+ * <p>指标：{@code ai.chat.scheduler.limit}、{@code ai.chat.scheduler.in-flight}、{@code
+ * ai.chat.scheduler.queued}、{@code ai.chat.scheduler.rejected}
+ */
+@Slf4j
+@Component
+public class LlmCallScheduler {
+
+  /** 首字延迟超过最低值的倍数即视为上游过载 */
+  private static final double LATENCY_TOLERANCE = 2.0;
+
+  /** 每隔若干个样本用最新样本重置最低延迟，基线可以随上游变化上移 */
+  private static final int MIN_LATENCY_RESET_SAMPLES = 200;
+
+  private final int perUserLimit;
+  private final int maxQueuedPerUser;
+  private final int minLimit;
+  private final int maxLimit;
+  private final Duration queueTimeout;
+  private final LongSupplier nanoTime;
+  private final Counter rejected;
+
+  /** 排队中的请求，按用户首次排队的顺序轮转 */
+  private final LinkedHashMap<String, Deque<Ticket>> waiting = new LinkedHashMap<>();
+
+  private final Map<String, Integer> inFlightByUser = new HashMap<>();
+  private int inFlight;
+  private int queued;
+  private double limit;
+  private long minLatencyNanos;
+  private long samples;
+
+  @Autowired
+  public LlmCallScheduler(
+      @Value("${ai.chat.scheduler.per-user-limit:1}") int perUserLimit,
+      @Value("${ai.chat.scheduler.max-queued-per-user:3}") int maxQueuedPerUser,
+      @Value("${ai.chat.scheduler.initial-limit:16}") int initialLimit,
+      @Value("${ai.chat.scheduler.min-limit:2}") int minLimit,
+      @Value("${ai.chat.scheduler.max-limit:100}") int maxLimit,
+      @Value("${ai.chat.scheduler.queue-timeout-seconds:30}") long queueTimeoutSeconds,
+      MeterRegistry meterRegistry) {
+    this(
+        perUserLimit,
+        maxQueuedPerUser,
+        initialLimit,
+        minLimit,
+        maxLimit,
+        Duration.ofSeconds(queueTimeoutSeconds),
+        meterRegistry,
+        System::nanoTime);
+  }
+
+  LlmCallScheduler(
+      int perUserLimit,
+      int maxQueuedPerUser,
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      Duration queueTimeout,
+      MeterRegistry meterRegistry,
+      LongSupplier nanoTime) {
+    this.perUserLimit = Math.max(1, perUserLimit);
+    this.maxQueuedPerUser = Math.max(1, maxQueuedPerUser);
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    this.queueTimeout = queueTimeout;
+    this.nanoTime = nanoTime;
+    this.rejected =
+        Counter.builder("ai.chat.scheduler.rejected")
+            .description("排队已满或等待超时被拒绝的模型调用")
+            .register(meterRegistry);
+    Gauge.builder("ai.chat.scheduler.limit", this, LlmCallScheduler::currentLimit)
+        .description("当前全局并发上限")
+        .register(meterRegistry);
+    Gauge.builder("ai.chat.scheduler.in-flight", this, s -> s.snapshot()[0])
+        .description("进行中的模型调用")
+        .register(meterRegistry);
+    Gauge.builder("ai.chat.scheduler.queued", this, s -> s.snapshot()[1])
+        .description("排队中的模型调用")
+        .register(meterRegistry);
+  }
+
+  /**
+   * 排队执行一次模型调用，获得槽位后才订阅 call
+   *
+   * <p>排队已满或等待超时以 {@link BusyException} 结束；调用结束、出错或被取消时释放槽位
+   */
+  public <T> Flux<T> submit(String userId, Supplier<Flux<T>> call) {
+    return Flux.defer(
+        () -> {
+          Ticket ticket = enqueue(userId);
+          if (ticket == null) {
+            rejected.increment();
+            return Flux.error(new BusyException("您还有消息正在处理，请稍后再发送"));
+          }
+          return Mono.fromFuture(ticket.granted)
+              .timeout(
+                  queueTimeout,
+                  Mono.fromRunnable(rejected::increment)
+                      .then(Mono.error(new BusyException("AI 服务繁忙，请稍后重试"))))
+              // 放行可能发生在释放槽位的 I/O 线程上，构建请求（读取会话记忆、健康快照）换到弹性线程
+              .publishOn(Schedulers.boundedElastic())
+              .thenMany(Flux.defer(call))
+              .doOnNext(
+                  item -> {
+                    if (ticket.firstItemNanos == 0) {
+                      ticket.firstItemNanos = nanoTime.getAsLong();
+                    }
+                  })
+              .doOnError(error -> ticket.error = error)
+              .doFinally(signal -> finish(ticket));
+        });
+  }
+
+  private synchronized Ticket enqueue(String userId) {
+    Deque<Ticket> queue = waiting.get(userId);
+    if (queue != null && queue.size() >= maxQueuedPerUser) {
+      return null;
+    }
+    Ticket ticket = new Ticket(userId);
+    waiting.computeIfAbsent(userId, key -> new ArrayDeque<>()).addLast(ticket);
+    queued++;
+    dispatch();
+    return ticket;
+  }
+
+  /** 在有排队请求的用户之间轮转，每轮每个用户最多放行一个 */
+  private void dispatch() {
+    boolean progressed = true;
+    while (progressed && inFlight < currentLimitLocked() && !waiting.isEmpty()) {
+      progressed = false;
+      Iterator<Map.Entry<String, Deque<Ticket>>> users = waiting.entrySet().iterator();
+      Map<String, Deque<Ticket>> requeue = new LinkedHashMap<>();
+      while (users.hasNext() && inFlight < currentLimitLocked()) {
+        Map.Entry<String, Deque<Ticket>> entry = users.next();
+        if (!hasCapacity(entry.getKey())) {
+          continue;
+        }
+        Ticket ticket = entry.getValue().pollFirst();
+        users.remove();
+        if (!entry.getValue().isEmpty()) {
+          // 放行过的用户排到队尾
+          requeue.put(entry.getKey(), entry.getValue());
+        }
+        queued--;
+        inFlight++;
+        inFlightByUser.merge(ticket.userId, 1, Integer::sum);
+        ticket.state = TicketState.GRANTED;
+        ticket.grantedNanos = nanoTime.getAsLong();
+        ticket.granted.complete(null);
+        progressed = true;
+      }
+      waiting.putAll(requeue);
+    }
+  }
+
+  private boolean hasCapacity(String userId) {
+    return inFlightByUser.getOrDefault(userId, 0) < perUserLimit;
+  }
+
+  private synchronized void finish(Ticket ticket) {
+    if (ticket.state == TicketState.WAITING) {
+      Deque<Ticket> queue = waiting.get(ticket.userId);
+      if (queue != null && queue.remove(ticket)) {
+        queued--;
+        if (queue.isEmpty()) {
+          waiting.remove(ticket.userId);
+        }
+      }
+    } else if (ticket.state == TicketState.GRANTED) {
+      inFlight--;
+      inFlightByUser.computeIfPresent(ticket.userId, (key, count) -> count > 1 ? count - 1 : null);
+      adjustLimit(ticket);
+    }
+    ticket.state = TicketState.DONE;
+    dispatch();
+  }
+
+  /** 429 时下调 30%；首字延迟超过基线的容忍倍数时下调 10%；延迟正常且上限已用过半时每轮约加 1 */
+  private void adjustLimit(Ticket ticket) {
+    if (isRateLimited(ticket.error)) {
+      limit = Math.max(minLimit, limit * 0.7);
+      log.warn("上游返回 429，模型调用并发上限下调为 {}", currentLimitLocked());
+      return;
+    }
+    if (ticket.firstItemNanos == 0) {
+      return;
+    }
+    long latency = ticket.firstItemNanos - ticket.grantedNanos;
+    if (minLatencyNanos == 0
+        || latency < minLatencyNanos
+        || ++samples % MIN_LATENCY_RESET_SAMPLES == 0) {
+      minLatencyNanos = latency;
+    }
+    if (latency > minLatencyNanos * LATENCY_TOLERANCE) {
+      limit = Math.max(minLimit, limit * 0.9);
+    } else if (inFlight + 1 >= limit / 2) {
+      limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+  }
+
+  private static boolean isRateLimited(Throwable error) {
+    if (error == null) {
+      return false;
+    }
+    if (error instanceof WebClientResponseException response) {
+      return response.getStatusCode().value() == 429;
+    }
+    return error.getMessage() != null && error.getMessage().contains("429");
+  }
+
+  private int currentLimitLocked() {
+    return (int) limit;
+  }
+
+  synchronized int currentLimit() {
+    return currentLimitLocked();
+  }
+
+  /** [进行中, 排队中] */
+  synchronized int[] snapshot() {
+    return new int[] {inFlight, queued};
+  }
+
+  /** 排队已满或等待超时，消息可直接展示给用户 */
+  public static final class BusyException extends IllegalStateException {
+
+    public BusyException(String message) {
+      super(message);
+    }
+  }
+
+  private enum TicketState {
+    WAITING,
+    GRANTED,
+    DONE
+  }
+
+  private static final class Ticket {
+
+    private final String userId;
+    private final CompletableFuture<Void> granted = new CompletableFuture<>();
+    private TicketState state = TicketState.WAITING;
+    private long grantedNanos;
+    private volatile long firstItemNanos;
+    private volatile Throwable error;
+
+    private Ticket(String userId) {
+      this.userId = userId;
+    }
+  }
+}
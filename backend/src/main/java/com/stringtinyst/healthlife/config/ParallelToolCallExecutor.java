@@ -0,0 +1,225 @@
+package com.stringtinyst.healthlife.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 同一条助手消息中多个函数调用的并行执行
+ *
+ * <p>Spring AI 按顺序逐个执行助手消息里的函数调用，“给我做个周报”这类请求会依次执行身体、睡眠、饮食、运动的分页查询。这里把注册给模型的函数包一层：
+ *
+ * <ul>
+ *   <li>某条助手消息的第一个函数被执行时，从 {@link ToolContext#getToolCallHistory()}
+ *       取出该消息的全部调用，把第一个写操作之前的只读调用一起提交到线程池
+ *   <li>Spring AI 随后按原顺序逐个调用，每个只读调用只需等待已提交的结果，返回顺序不变
+ *   <li>写操作（add/update/delete）以及排在写操作之后的查询仍在调用线程上按顺序执行，查询不会读到写入前的数据；同一用户的写操作另外按用户加锁，多个标签页同时对话时也不会交错
+ * </ul>
+ *
+ * <p>只有请求设置了 toolContext 时 Spring AI 才会提供调用历史，因此请求需带上 {@link #USER_ID_KEY}；缺少时退化为顺序执行
+ */
+@Slf4j
+@Component
+public class ParallelToolCallExecutor {
+
+  /** toolContext 中的用户 ID，写操作按它串行 */
+  public static final String USER_ID_KEY = "userId";
+
+  /** toolContext 中可选的 {@code Set<String>}，记录本轮实际调用过的函数名 */
+  public static final String TOOL_CALLS_KEY = "toolCalls";
+
+  private static final int WRITE_LOCK_STRIPES = 64;
+
+  private final ThreadPoolExecutor executor;
+
+  /** 按助手消息（按引用）记录已提交的只读调用；消息不再被引用后自动清理 */
+  private final Cache<AssistantMessage, Map<String, CompletableFuture<String>>> batches =
+      Caffeine.newBuilder().weakKeys().build();
+
+  private final ReentrantLock[] writeLocks = new ReentrantLock[WRITE_LOCK_STRIPES];
+
+  public ParallelToolCallExecutor(@Value("${ai.function.parallel.threads:8}") int threads) {
+    int poolSize = Math.max(1, threads);
+    AtomicInteger sequence = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(poolSize * 16),
+            runnable -> {
+              Thread thread = new Thread(runnable, "tool-call-" + sequence.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.executor.allowCoreThreadTimeOut(true);
+    for (int i = 0; i < WRITE_LOCK_STRIPES; i++) {
+      writeLocks[i] = new ReentrantLock();
+    }
+  }
+
+  /** 把全部函数包装为支持并行预取的版本，顺序与入参一致 */
+  public List<FunctionCallback> wrap(List<FunctionCallback> callbacks) {
+    Map<String, FunctionCallback> byName = new HashMap<>();
+    callbacks.forEach(callback -> byName.put(callback.getName(), callback));
+    return callbacks.stream()
+        .map(callback -> (FunctionCallback) new ParallelFunctionCallback(callback, byName))
+        .toList();
+  }
+
+  static boolean isReadOnly(String functionName) {
+    return functionName.startsWith("query")
+        || functionName.startsWith("get")
+        || functionName.equals("lookupFoodCalories")
+        || functionName.equals("searchHealthKnowledge")
+        || functionName.equals("webSearch");
+  }
+
+  private static String batchKey(String name, String arguments) {
+    return name + '\u0000' + arguments;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private final class ParallelFunctionCallback implements FunctionCallback {
+
+    private final FunctionCallback delegate;
+    private final Map<String, FunctionCallback> toolbox;
+
+    private ParallelFunctionCallback(
+        FunctionCallback delegate, Map<String, FunctionCallback> toolbox) {
+      this.delegate = delegate;
+      this.toolbox = toolbox;
+    }
+
+    @Override
+    public String getName() {
+      return delegate.getName();
+    }
+
+    @Override
+    public String getDescription() {
+      return delegate.getDescription();
+    }
+
+    @Override
+    public String getInputTypeSchema() {
+      return delegate.getInputTypeSchema();
+    }
+
+    @Override
+    public String call(String functionInput) {
+      return delegate.call(functionInput);
+    }
+
+    @Override
+    public String call(String functionInput, ToolContext toolContext) {
+      String name = delegate.getName();
+      record(name, toolContext);
+      if (!isReadOnly(name)) {
+        return callSerialized(functionInput, toolContext);
+      }
+      AssistantMessage message = currentMessage(toolContext);
+      if (message == null) {
+        return delegate.call(functionInput);
+      }
+      CompletableFuture<String> prefetched =
+          batches.get(message, this::dispatch).get(batchKey(name, functionInput));
+      if (prefetched == null) {
+        return delegate.call(functionInput);
+      }
+      try {
+        return prefetched.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+
+    /** 提交第一个写操作之前的只读调用；相同函数与参数的调用共用一次执行 */
+    private Map<String, CompletableFuture<String>> dispatch(AssistantMessage message) {
+      Map<String, CompletableFuture<String>> futures = new HashMap<>();
+      for (AssistantMessage.ToolCall toolCall : message.getToolCalls()) {
+        FunctionCallback target = toolbox.get(toolCall.name());
+        if (target == null || !isReadOnly(toolCall.name())) {
+          break;
+        }
+        String key = batchKey(toolCall.name(), toolCall.arguments());
+        if (futures.containsKey(key)) {
+          continue;
+        }
+        try {
+          futures.put(
+              key,
+              CompletableFuture.supplyAsync(() -> target.call(toolCall.arguments()), executor));
+        } catch (RejectedExecutionException e) {
+          // 线程池已满，剩余调用留在调用线程上顺序执行
+          log.debug("函数并行队列已满，{} 改为顺序执行", toolCall.name());
+          break;
+        }
+      }
+      if (futures.size() > 1) {
+        log.debug("并行执行 {} 个函数调用", futures.size());
+      }
+      return futures;
+    }
+
+    private String callSerialized(String functionInput, ToolContext toolContext) {
+      Object userId = toolContext == null ? null : toolContext.getContext().get(USER_ID_KEY);
+      if (userId == null) {
+        return delegate.call(functionInput);
+      }
+      ReentrantLock lock = writeLocks[Math.floorMod(userId.hashCode(), WRITE_LOCK_STRIPES)];
+      lock.lock();
+      try {
+        return delegate.call(functionInput);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void record(String name, ToolContext toolContext) {
+    if (toolContext != null
+        && toolContext.getContext().get(TOOL_CALLS_KEY) instanceof Set<?> calls) {
+      ((Set<String>) calls).add(name);
+    }
+  }
+
+  private static AssistantMessage currentMessage(ToolContext toolContext) {
+    if (toolContext == null) {
+      return null;
+    }
+    List<Message> history = toolContext.getToolCallHistory();
+    if (history == null || history.isEmpty()) {
+      return null;
+    }
+    return history.get(history.size() - 1) instanceof AssistantMessage message
+            && message.hasToolCalls()
+        ? message
+        : null;
+  }
+}
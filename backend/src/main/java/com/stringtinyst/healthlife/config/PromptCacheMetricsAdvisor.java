@@ -0,0 +1,83 @@
+package com.stringtinyst.healthlife.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.metadata.OpenAiUsage;
+import reactor.core.publisher.Flux;
+
+/**
+ * 统计模型返回的提示词 token 中命中服务商前缀缓存的部分
+ *
+ * <p>指标 {@code ai.prompt.tokens}，tag {@code cache=hit|miss}；命中数取自 usage 中的 {@code
+ * prompt_tokens_details.cached_tokens}。流式响应只有开启 {@code spring.ai.openai.chat.options.stream-usage}
+ * 时才会在最后一个片段带上 usage
+ */
+public class PromptCacheMetricsAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+  static final String METRIC_NAME = "ai.prompt.tokens";
+
+  private final Counter hitTokens;
+  private final Counter missTokens;
+
+  public PromptCacheMetricsAdvisor(MeterRegistry meterRegistry) {
+    this.hitTokens =
+        Counter.builder(METRIC_NAME)
+            .tag("cache", "hit")
+            .description("命中模型前缀缓存的提示词 token 数")
+            .register(meterRegistry);
+    this.missTokens =
+        Counter.builder(METRIC_NAME)
+            .tag("cache", "miss")
+            .description("未命中模型前缀缓存的提示词 token 数")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+    AdvisedResponse response = chain.nextAroundCall(advisedRequest);
+    record(response.response());
+    return response;
+  }
+
+  @Override
+  public Flux<AdvisedResponse> aroundStream(
+      AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+    return chain.nextAroundStream(advisedRequest).doOnNext(response -> record(response.response()));
+  }
+
+  @Override
+  public String getName() {
+    return getClass().getSimpleName();
+  }
+
+  @Override
+  public int getOrder() {
+    return 0;
+  }
+
+  private void record(ChatResponse response) {
+    if (response == null || response.getMetadata() == null) {
+      return;
+    }
+    Usage usage = response.getMetadata().getUsage();
+    if (usage == null || usage.getPromptTokens() == null || usage.getPromptTokens() <= 0) {
+      return;
+    }
+    long cached = 0;
+    if (usage instanceof OpenAiUsage openAiUsage
+        && openAiUsage.getPromptTokensDetails() != null
+        && openAiUsage.getPromptTokensDetails().cachedTokens() != null) {
+      cached = openAiUsage.getPromptTokensDetails().cachedTokens();
+    }
+    hitTokens.increment(cached);
+    missTokens.increment(Math.max(0, usage.getPromptTokens() - cached));
+  }
+}
@@ -0,0 +1,242 @@
+package com.stringtinyst.healthlife.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.model.function.FunctionCallbackResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按轮次挑选注册给模型的函数
+ *
+ * <p>每个函数的 JSON Schema 都会随请求发送，全部 23 个函数约占数千 token。这里用本地关键词规则判断本轮涉及的数据领域，只注册相关的函数组：
+ *
+ * <ul>
+ *   <li>先看当前消息；没有命中时再看最近几条用户消息，覆盖“把它删掉”“改成 300”这类承接上文的追问
+ *   <li>仍无法判断时回退到全部函数，宁可多带 schema 也不让模型无函数可用
+ *   <li>运动热量依赖体重，选中运动组时一并带上身体数据组
+ *   <li>选中联网搜索时一并带上本地知识库，让模型先查本地
+ * </ul>
+ *
+ * <p>函数始终按 {@link AiConfig#FUNCTION_TOOLBOX} 的顺序注册，同一组合的请求前缀逐字节相同，仍能命中模型服务商的前缀缓存
+ *
+ * <p>指标：{@code ai.tools.selected}（tag groups，如 {@code DIET+EXERCISE}，回退时为 {@code ALL}）与 {@code
+ * ai.tools.registered}（每轮注册的函数个数）
+ */
+@Slf4j
+@Component
+public class ToolSelector {
+
+  static final String SELECTED_METRIC = "ai.tools.selected";
+  static final String REGISTERED_METRIC = "ai.tools.registered";
+
+  /** 判断上文领域时回看的历史消息条数 */
+  private static final int HISTORY_LOOKBACK = 4;
+
+  public enum ToolGroup {
+    BODY("身高|体重|bmi|体脂|胖|瘦|减肥|公斤|斤|kg|身体数据|围度"),
+    SLEEP("睡|失眠|入睡|起床|熬夜|醒|作息|午休"),
+    DIET("吃|喝|餐|饮食|食物|食谱|卡路里|热量|kcal|大卡|千卡|营养|蛋白|碳水|零食|水果"),
+    EXERCISE("运动|跑|游泳|骑行|徒步|爬山|跳绳|篮球|足球|羽毛球|乒乓|网球|健身|瑜伽|普拉提|力量|锻炼|训练|散步|步数|走路|消耗"),
+    KNOWLEDGE("怎么|如何|为什么|多少|多久|哪些|是什么|建议|推荐|标准|正常|含量|营养成分|知识|注意|危害|好处|区别|适合"),
+    WEB_SEARCH("搜索|搜一下|搜搜|上网|网上|最新|研究|指南|新闻|资料");
+
+    private final Pattern pattern;
+
+    ToolGroup(String keywords) {
+      this.pattern = Pattern.compile(keywords);
+    }
+
+    boolean matches(String text) {
+      return pattern.matcher(text).find();
+    }
+
+    /** 函数名前缀与组的对应关系，与 function 包中的 Bean 命名保持一致 */
+    static ToolGroup of(String functionName) {
+      if (functionName.contains("Body")) {
+        return BODY;
+      }
+      if (functionName.contains("Sleep")) {
+        return SLEEP;
+      }
+      if (functionName.contains("Diet")) {
+        return DIET;
+      }
+      if (functionName.contains("Exercise")) {
+        return EXERCISE;
+      }
+      if (functionName.equals("lookupFoodCalories")) {
+        return DIET;
+      }
+      if (functionName.equals("searchHealthKnowledge")) {
+        return KNOWLEDGE;
+      }
+      if (functionName.equals("webSearch")) {
+        return WEB_SEARCH;
+      }
+      throw new IllegalArgumentException("函数未归入任何分组: " + functionName);
+    }
+  }
+
+  /** 函数是否读写用户数据；食物热量查询、本地知识库、联网搜索等只取公共信息的函数返回 false */
+  public static boolean readsUserData(String functionName) {
+    ToolGroup group = ToolGroup.of(functionName);
+    return group != ToolGroup.KNOWLEDGE
+        && group != ToolGroup.WEB_SEARCH
+        && !functionName.equals("lookupFoodCalories");
+  }
+
+  /** 第一人称、日期指代、记录或 ID 等指向提问者本人的说法 */
+  private static final Pattern PERSONAL_REFERENCE =
+      Pattern.compile(
+          "我|咱|俺|本人|自己|今天|昨天|前天|今早|今晚|昨晚|刚才|刚刚|这周|本周|上周|这个月|本月|上个月|最近|记录|id|编号|第\\s*\\d+\\s*条|#\\d");
+
+  /**
+   * 消息是否指向提问者本人，如“我昨天睡了多久”“把记录 3 删掉”；“跑步前应该吃什么”这类只谈话题、不指代本人的问题返回 false
+   *
+   * <p>只按说法判断，不按领域判断：饮食、运动等关键词几乎出现在所有健康问题里，不能说明问题与提问者有关
+   */
+  public boolean refersToUser(String message) {
+    return message != null && PERSONAL_REFERENCE.matcher(message.toLowerCase(Locale.ROOT)).find();
+  }
+
+  /** 本轮的选择结果；{@code fallback} 为 true 时注册了全部函数 */
+  public record Selection(Set<ToolGroup> groups, FunctionCallback[] callbacks, boolean fallback) {}
+
+  private final List<FunctionCallback> toolbox;
+  private final FunctionCallback[] allCallbacks;
+  private final Map<Set<ToolGroup>, FunctionCallback[]> subsets = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final MeterRegistry meterRegistry;
+  private final DistributionSummary registered;
+
+  @Autowired
+  public ToolSelector(
+      FunctionCallbackResolver functionCallbackResolver,
+      ParallelToolCallExecutor toolCallExecutor,
+      ChatMetrics chatMetrics,
+      @Value("${ai.chat.tool-selection.enabled:true}") boolean enabled,
+      MeterRegistry meterRegistry) {
+    // 启动时一次性解析全部函数，缺少对应 Bean 或函数未归组时启动即失败；计时包在并行预取之内，只计函数本身的执行时间
+    this.toolbox =
+        toolCallExecutor.wrap(
+            AiConfig.FUNCTION_TOOLBOX.stream()
+                .map(functionCallbackResolver::resolve)
+                .map(chatMetrics::timed)
+                .toList());
+    this.allCallbacks = toolbox.toArray(FunctionCallback[]::new);
+    toolbox.forEach(callback -> ToolGroup.of(callback.getName()));
+    this.enabled = enabled;
+    this.meterRegistry = meterRegistry;
+    this.registered =
+        DistributionSummary.builder(REGISTERED_METRIC)
+            .description("每轮对话注册给模型的函数个数")
+            .register(meterRegistry);
+  }
+
+  /**
+   * 为本轮对话挑选函数
+   *
+   * @param message 用户本轮的原始消息
+   * @param history 会话中最近的消息，用于判断承接上文的追问
+   */
+  public Selection select(String message, List<Message> history) {
+    Set<ToolGroup> groups = enabled ? classify(message) : EnumSet.noneOf(ToolGroup.class);
+    if (enabled && groups.isEmpty() && history != null) {
+      int from = Math.max(0, history.size() - HISTORY_LOOKBACK);
+      for (Message previous : history.subList(from, history.size())) {
+        if (previous.getMessageType() == MessageType.USER) {
+          groups.addAll(classify(stripAnnotations(previous.getText())));
+        }
+      }
+    }
+    Selection selection =
+        groups.isEmpty()
+            ? new Selection(EnumSet.allOf(ToolGroup.class), allCallbacks, true)
+            : new Selection(
+                Collections.unmodifiableSet(groups),
+                subsets.computeIfAbsent(groups, this::assemble),
+                false);
+    record(selection);
+    return selection;
+  }
+
+  /** 去掉历史用户消息开头由系统附加的 [服务器时间: …]、[用户ID: …]、[健康快照: …] 等标注，只按用户原话判断；快照里的身高、体重、热量、睡眠字样会命中几乎所有数据组 */
+  static String stripAnnotations(String text) {
+    if (text == null) {
+      return null;
+    }
+    int start = 0;
+    while (start < text.length()) {
+      while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+        start++;
+      }
+      if (start >= text.length() || text.charAt(start) != '[') {
+        break;
+      }
+      int end = text.indexOf(']', start);
+      if (end < 0) {
+        break;
+      }
+      start = end + 1;
+    }
+    return text.substring(start);
+  }
+
+  Set<ToolGroup> classify(String text) {
+    Set<ToolGroup> groups = EnumSet.noneOf(ToolGroup.class);
+    if (text == null || text.isBlank()) {
+      return groups;
+    }
+    String normalized = text.toLowerCase(Locale.ROOT);
+    for (ToolGroup group : ToolGroup.values()) {
+      if (group.matches(normalized)) {
+        groups.add(group);
+      }
+    }
+    if (groups.contains(ToolGroup.EXERCISE)) {
+      groups.add(ToolGroup.BODY);
+    }
+    if (groups.contains(ToolGroup.WEB_SEARCH)) {
+      groups.add(ToolGroup.KNOWLEDGE);
+    }
+    return groups;
+  }
+
+  private FunctionCallback[] assemble(Set<ToolGroup> groups) {
+    return toolbox.stream()
+        .filter(callback -> groups.contains(ToolGroup.of(callback.getName())))
+        .toArray(FunctionCallback[]::new);
+  }
+
+  private void record(Selection selection) {
+    String tag = selection.fallback() ? "ALL" : join(selection.groups());
+    Counter.builder(SELECTED_METRIC)
+        .description("每轮对话选中的函数组")
+        .tag("groups", tag)
+        .register(meterRegistry)
+        .increment();
+    registered.record(selection.callbacks().length);
+    log.debug("本轮注册函数组: {}，共 {} 个函数", tag, selection.callbacks().length);
+  }
+
+  private static String join(Collection<ToolGroup> groups) {
+    return groups.stream().map(Enum::name).collect(Collectors.joining("+"));
+  }
+}
@@ -1,8 +1,11 @@
 package com.stringtinyst.healthlife.config;
 
+import com.stringtinyst.healthlife.interceptor.CurrentUserArgumentResolver;
 import com.stringtinyst.healthlife.interceptor.LoginCheckInterceptor;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -24,6 +27,7 @@ public class WebConfig implements WebMvcConfigurer {
   };
 
   private final LoginCheckInterceptor loginCheckInterceptor;
+  private final CurrentUserArgumentResolver currentUserArgumentResolver;
 
   @Override
   public void addInterceptors(InterceptorRegistry registry) {
@@ -33,6 +37,11 @@ public class WebConfig implements WebMvcConfigurer {
         .excludePathPatterns(AUTH_WHITELIST);
   }
 
+  @Override
+  public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(currentUserArgumentResolver);
+  }
+
   @Override
   public void addCorsMappings(CorsRegistry registry) {
     registry
@@ -1,6 +1,7 @@
 package com.stringtinyst.healthlife.controller;
 
 import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.pojo.Result;
 import com.stringtinyst.healthlife.service.BodyService;
@@ -21,6 +22,10 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/body-metrics")
 public class BodyController {
 
+  private static final String[] CSV_HEADERS = {
+    "ID", "User ID", "Height (cm)", "Weight (kg)", "Record Date"
+  };
+
   @Autowired private BodyService bodyService;
 
   @GetMapping
@@ -34,6 +39,18 @@ public class BodyController {
     return Result.success(pageBean);
   }
 
+  @GetMapping("/cursor")
+  public Result pageByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") Integer pageSize,
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
+    CursorPageBean<Body> pageBean =
+        bodyService.pageByCursor(cursor, pageSize, userID, startDate, endDate);
+    return Result.success(pageBean);
+  }
+
   @GetMapping("/export")
   public void export(
       @RequestParam(defaultValue = "1") Integer page,
@@ -46,19 +63,33 @@ public class BodyController {
     PageBean<Body> pageBean = bodyService.page(page, pageSize, userID, startDate, endDate);
     List<Body> list = pageBean.getRows();
 
-    String[] headers = {"ID", "User ID", "Height (cm)", "Weight (kg)", "Record Date"};
-    CsvUtils.exportCsv(
+    CsvUtils.exportCsv(response, "body-metrics.csv", CSV_HEADERS, list, BodyController::toCsvRow);
+  }
+
+  @GetMapping("/export/all")
+  public void exportAll(
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response)
+      throws IOException {
+    CsvUtils.exportCsvStream(
         response,
         "body-metrics.csv",
-        headers,
-        list,
-        item ->
-            Arrays.asList(
-                item.getBodyMetricID(),
-                item.getUserID(),
-                item.getHeightCM(),
-                item.getWeightKG(),
-                item.getRecordDate()));
+        CSV_HEADERS,
+        gzip,
+        sink -> bodyService.streamAll(userID, startDate, endDate, sink),
+        BodyController::toCsvRow);
+  }
+
+  private static List<Object> toCsvRow(Body item) {
+    return Arrays.asList(
+        item.getBodyMetricID(),
+        item.getUserID(),
+        item.getHeightCM(),
+        item.getWeightKG(),
+        item.getRecordDate());
   }
 
   @GetMapping("/{bodyMetricID}")
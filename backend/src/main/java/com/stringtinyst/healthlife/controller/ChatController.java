@@ -1,19 +1,37 @@
 package com.stringtinyst.healthlife.controller;
 
 import com.stringtinyst.healthlife.config.AiPromptTemplate;
+import com.stringtinyst.healthlife.config.ChatMetrics;
+import com.stringtinyst.healthlife.config.HealthSnapshotAdvisor;
+import com.stringtinyst.healthlife.config.LlmCallScheduler;
+import com.stringtinyst.healthlife.config.ParallelToolCallExecutor;
+import com.stringtinyst.healthlife.config.ToolSelector;
+import com.stringtinyst.healthlife.function.QuickCommandHandler;
+import com.stringtinyst.healthlife.interceptor.CurrentUser;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
 import com.stringtinyst.healthlife.pojo.Result;
-import com.stringtinyst.healthlife.utils.JwtUtils;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import com.stringtinyst.healthlife.utils.ChatResponseCache;
+import com.stringtinyst.healthlife.utils.ChatStreamManager;
+import com.stringtinyst.healthlife.utils.SseFrameEncoder;
 import com.stringtinyst.healthlife.utils.UserChatSessionManager;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
@@ -22,150 +40,195 @@ import reactor.core.publisher.Flux;
 @RequestMapping("/chat")
 public class ChatController {
 
-  private static final String[] FUNCTION_TOOLBOX = {
-    "queryBodyMetrics",
-    "addBodyMetric",
-    "getBodyMetricDetail",
-    "updateBodyMetric",
-    "deleteBodyMetric",
-    "querySleepRecords",
-    "addSleepRecord",
-    "updateSleepRecord",
-    "getSleepRecordDetail",
-    "deleteSleepRecord",
-    "queryDietRecords",
-    "addDietRecord",
-    "updateDietRecord",
-    "getDietRecordDetail",
-    "deleteDietRecord",
-    "queryExerciseRecords",
-    "addExerciseRecord",
-    "updateExerciseRecord",
-    "getExerciseRecordDetail",
-    "deleteExerciseRecord",
-    "webSearch"
-  };
-
-  @Autowired private ChatModel chatModel;
-  @Autowired private UserChatSessionManager sessionManager;
-  @Autowired private JwtUtils jwtUtils;
-
-  @GetMapping(produces = "text/html;charset=UTF-8")
-  public Flux<String> chat(
-      @RequestParam("msg") String message, @RequestHeader("token") String token) {
+  /** 每轮对话携带的历史消息条数 */
+  private static final int CHAT_HISTORY_WINDOW = 10;
 
-    String userId = extractUserIdFromToken(token);
-    ChatMemory chatMemory = sessionManager.getChatMemory(userId);
-    String systemPrompt = AiPromptTemplate.buildSystemPrompt();
+  private static final String STREAM_OFFSET_HEADER = "X-Stream-Offset";
 
-    ChatClient chatClient =
-        ChatClient.builder(chatModel)
-            .defaultSystem(systemPrompt)
-            .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory))
-            .defaultFunctions(FUNCTION_TOOLBOX)
-            .build();
+  @Autowired private ChatClient chatClient;
+  @Autowired private UserChatSessionManager sessionManager;
+  @Autowired private ToolSelector toolSelector;
+  @Autowired private QuickCommandHandler quickCommandHandler;
+  @Autowired private HealthSnapshotService healthSnapshotService;
+  @Autowired private SseFrameEncoder sseFrameEncoder;
+  @Autowired private ChatStreamManager chatStreamManager;
+  @Autowired private LlmCallScheduler llmCallScheduler;
+  @Autowired private ChatResponseCache chatResponseCache;
+  @Autowired private ChatMetrics chatMetrics;
 
-    return chatClient
-        .prompt()
-        .user(message)
-        .advisors(spec -> spec.param("conversation_id", userId).param("retrieve_size", 10))
+  @GetMapping(produces = "text/html;charset=UTF-8")
+  public Flux<String> chat(@RequestParam("msg") String message, @CurrentUser String userId) {
+    return prompt(
+            userId,
+            message,
+            message,
+            healthSnapshotService.getSnapshot(userId),
+            ConcurrentHashMap.newKeySet())
         .stream()
         .content();
   }
 
   @DeleteMapping("/memory")
-  public Result clearChatMemory(@RequestHeader("Authorization") String authorization) {
-    String token = authorization.replace("Bearer ", "");
-    String userId = extractUserIdFromToken(token);
+  public Result clearChatMemory(@CurrentUser String userId) {
     sessionManager.clearChatMemory(userId);
     return Result.success("已开始新对话");
   }
 
   @PostMapping(value = "/stream")
-  public ResponseEntity<Flux<String>> chatStream(
+  public ResponseEntity<Flux<?>> chatStream(
       @RequestBody Map<String, Object> request,
-      @RequestHeader("Authorization") String authorization) {
-
-    String token = authorization.replace("Bearer ", "");
-    String userId = extractUserIdFromToken(token);
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+      @CurrentUser String userId) {
     String message = (String) request.get("query");
 
     if (message == null || message.trim().isEmpty()) {
-      return ResponseEntity.ok()
-          .contentType(MediaType.TEXT_EVENT_STREAM)
-          .header("Cache-Control", "no-cache, no-store, must-revalidate")
-          .header("X-Accel-Buffering", "no") // 禁用 Nginx 代理缓冲
-          .header("Connection", "keep-alive")
-          .body(Flux.just("data: {\"content\":\"消息不能为空\"}\n\n", "event: close\n\n"));
+      return sse(
+          Flux.just(
+              ServerSentEvent.builder(SseFrameEncoder.frame("消息不能为空")).build(),
+              ServerSentEvent.<byte[]>builder().event("close").build()));
     }
 
-    ChatMemory chatMemory = sessionManager.getChatMemory(userId);
+    // 断线重连：同一问题的上一次生成仍在进行或刚结束，从断点续传而不是重新生成
+    Optional<ChatStreamManager.ChatStream> resumed =
+        chatStreamManager.resume(userId, message, lastEventId);
+    if (resumed.isPresent()) {
+      long offset = Long.parseLong(lastEventId.trim());
+      return sse(sseFrameEncoder.encodeEvents(resumed.get().read(offset), offset), offset);
+    }
 
     // 在用户消息中注入用户 ID，供 Function 使用
     String enhancedMessage = String.format("[用户ID: %s] %s", userId, message);
-    String systemPrompt = AiPromptTemplate.buildSystemPrompt();
 
-    ChatClient chatClient =
-        ChatClient.builder(chatModel)
-            .defaultSystem(systemPrompt)
-            .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory))
-            .defaultFunctions(FUNCTION_TOOLBOX)
-            .build();
+    // 结构固定的记录指令直接执行，不经过模型
+    Optional<String> quickReply = quickCommandHandler.tryHandle(userId, message);
+    if (quickReply.isPresent()) {
+      remember(userId, enhancedMessage, quickReply.get());
+      return sse(stream(userId, message, Flux.just(quickReply.get())));
+    }
+
+    // 新对话的第一条消息不依赖上文，与用户数据无关的通用问题可直接回放缓存的回复
+    boolean freshConversation = sessionManager.getChatMemory(userId).get(userId, 1).isEmpty();
+    if (freshConversation) {
+      Optional<String> cached = chatResponseCache.lookup(message);
+      if (cached.isPresent()) {
+        remember(userId, enhancedMessage, cached.get());
+        return sse(stream(userId, message, Flux.just(cached.get())));
+      }
+    }
+
+    // 新对话中不指向提问者本人的问题不附带健康快照，回复与提问者无关；若也没有调用读写用户数据的函数，才缓存给其他用户
+    boolean generic = freshConversation && !toolSelector.refersToUser(message);
+    HealthSnapshot snapshot = generic ? null : healthSnapshotService.getSnapshot(userId);
 
+    // 经调度器排队后才构建请求并调用模型
+    Set<String> toolCalls = ConcurrentHashMap.newKeySet();
+    StringBuilder answer = new StringBuilder();
     Flux<String> responseStream =
-        chatClient
-            .prompt()
-            .user(enhancedMessage)
-            .advisors(spec -> spec.param("conversation_id", userId).param("retrieve_size", 10))
-            .stream()
-            .content()
+        llmCallScheduler
+            .submit(
+                userId,
+                () ->
+                    chatMetrics
+                        .timeSetup(
+                            () -> prompt(userId, message, enhancedMessage, snapshot, toolCalls))
+                        .stream()
+                        .content())
             .timeout(Duration.ofSeconds(60))
-            .filter(content -> content != null && !content.isEmpty())
-            .map(content -> "{\"content\":\"" + escapeJson(content) + "\"}")
+            .doOnNext(
+                content -> {
+                  if (content != null) {
+                    answer.append(content);
+                  }
+                })
+            .doOnComplete(
+                () -> {
+                  if (generic && toolCalls.stream().noneMatch(ToolSelector::readsUserData)) {
+                    chatResponseCache.put(message, answer.toString(), snapshot);
+                  }
+                })
             .onErrorResume(
                 error -> {
                   log.error("流式聊天错误 - 用户ID: {}, 错误: {}", userId, error.getMessage(), error);
-                  String errorRaw = error.getMessage() == null ? "" : error.getMessage();
-                  String errorMessage;
-                  if (errorRaw.contains("503")) {
-                    errorMessage = "AI 服务暂时不可用，请稍后重试";
-                  } else if (errorRaw.contains("429")) {
-                    errorMessage = "请求过于频繁，请稍后重试";
-                  } else if (errorRaw.contains("Did not observe any item")) {
-                    errorMessage = "AI 服务响应超时，请稍后重试";
-                  } else {
-                    errorMessage = "抱歉，处理您的请求时出现错误，请稍后重试";
-                  }
-                  return Flux.just("{\"content\":\"" + escapeJson(errorMessage) + "\"}");
+                  String errorMessage =
+                      switch (chatMetrics.recordError(error)) {
+                        case BUSY -> error.getMessage();
+                        case UNAVAILABLE -> "AI 服务暂时不可用，请稍后重试";
+                        case RATE_LIMITED -> "请求过于频繁，请稍后重试";
+                        case TIMEOUT -> "AI 服务响应超时，请稍后重试";
+                        case OTHER -> "抱歉，处理您的请求时出现错误，请稍后重试";
+                      };
+                  return Flux.just(errorMessage);
                 });
 
+    return sse(stream(userId, message, responseStream));
+  }
+
+  /** 生成登记为可续传的流后从头读取；增量合并成帧输出，客户端读得慢时由编码器承担背压 */
+  private Flux<ServerSentEvent<byte[]>> stream(
+      String userId, String message, Flux<String> generation) {
+    return sseFrameEncoder.encodeEvents(
+        chatStreamManager.start(userId, message, generation).read(0), 0);
+  }
+
+  /** 每个元素是一帧已编码的 {"content":"..."}，由 SseEmitter 加上 id 与 data: 前缀输出 */
+  private static ResponseEntity<Flux<?>> sse(Flux<?> body) {
+    return sse(body, 0);
+  }
+
+  /**
+   * @param offset 本次响应第一帧在整段回复中的字符偏移，通过 X-Stream-Offset 告诉客户端；续传失败、重新生成时为 0，客户端据此丢弃上次连接收到的部分
+   */
+  private static ResponseEntity<Flux<?>> sse(Flux<?> body, long offset) {
     return ResponseEntity.ok()
         .contentType(MediaType.TEXT_EVENT_STREAM)
+        .header(STREAM_OFFSET_HEADER, Long.toString(offset))
         .header("Cache-Control", "no-cache, no-store, must-revalidate")
         .header("X-Accel-Buffering", "no") // 禁用 Nginx 代理缓冲
         .header("Connection", "keep-alive")
-        .body(responseStream);
+        .body(body);
   }
 
-  private String escapeJson(String str) {
-    if (str == null) return "";
-    return str.replace("\\", "\\\\")
-        .replace("\"", "\\\"")
-        .replace("\n", "\\n")
-        .replace("\r", "\\r")
-        .replace("\t", "\\t");
+  /** 未经模型的回复同样写入会话记忆，后续追问可以承接 */
+  private void remember(String userId, String enhancedMessage, String reply) {
+    sessionManager
+        .getChatMemory(userId)
+        .add(
+            userId,
+            List.of(
+                new UserMessage(AiPromptTemplate.buildUserMessage(enhancedMessage)),
+                new AssistantMessage(reply)));
   }
 
-  private String extractUserIdFromToken(String token) {
-    try {
-      Map<String, Object> claims = jwtUtils.parseJWT(token);
-      Object userId = claims.get("userID");
-      if (userId == null || userId.toString().isEmpty()) {
-        throw new IllegalArgumentException("Token 中未包含 userID");
-      }
-      return userId.toString();
-    } catch (Exception e) {
-      throw new IllegalArgumentException("无效的 token 或 token 中无 userId");
-    }
+  /**
+   * 共享 ChatClient 之上的单次请求：服务器时间与健康快照放在用户消息开头，系统提示保持不变以命中前缀缓存；快照只随本轮请求发送，不写入会话记忆；函数按用户原话与最近上文挑选
+   *
+   * @param userText 用户原话，用于挑选函数
+   * @param message 实际发给模型的消息
+   * @param snapshot 随本轮请求发送的健康快照，null 表示不附带
+   * @param toolCalls 收集本轮实际调用过的函数名
+   */
+  private ChatClient.ChatClientRequestSpec prompt(
+      String userId,
+      String userText,
+      String message,
+      HealthSnapshot snapshot,
+      Set<String> toolCalls) {
+    ChatMemory chatMemory = sessionManager.getChatMemory(userId);
+    ToolSelector.Selection tools =
+        toolSelector.select(userText, chatMemory.get(userId, CHAT_HISTORY_WINDOW));
+    LocalDateTime now = LocalDateTime.now();
+    return chatClient
+        .prompt()
+        .user(AiPromptTemplate.buildUserMessage(message, now))
+        .functions(tools.callbacks())
+        .toolContext(
+            Map.of(
+                ParallelToolCallExecutor.USER_ID_KEY,
+                userId,
+                ParallelToolCallExecutor.TOOL_CALLS_KEY,
+                toolCalls))
+        .advisors(
+            new MessageChatMemoryAdvisor(chatMemory, userId, CHAT_HISTORY_WINDOW),
+            new HealthSnapshotAdvisor(message, now, snapshot));
   }
 }
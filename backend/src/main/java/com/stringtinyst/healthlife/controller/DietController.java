@@ -1,5 +1,6 @@
 package com.stringtinyst.healthlife.controller;
 
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.Diet;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.pojo.Result;
@@ -20,6 +21,11 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/diet-items")
 public class DietController {
+
+  private static final String[] CSV_HEADERS = {
+    "ID", "User ID", "Record Date", "Food Name", "Meal Type", "Estimated Calories"
+  };
+
   @Autowired private DietService dietService;
 
   @GetMapping
@@ -35,6 +41,19 @@ public class DietController {
     return Result.success(pageBean);
   }
 
+  @GetMapping("/cursor")
+  public Result pageByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") Integer pageSize,
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @RequestParam(required = false) String mealType) {
+    CursorPageBean<Diet> pageBean =
+        dietService.pageByCursor(cursor, pageSize, userID, startDate, endDate, mealType);
+    return Result.success(pageBean);
+  }
+
   @GetMapping("/export")
   public void export(
       @RequestParam(defaultValue = "1") Integer page,
@@ -49,22 +68,35 @@ public class DietController {
         dietService.page(page, pageSize, userID, startDate, endDate, mealType);
     List<Diet> list = pageBean.getRows();
 
-    String[] headers = {
-      "ID", "User ID", "Record Date", "Food Name", "Meal Type", "Estimated Calories"
-    };
-    CsvUtils.exportCsv(
+    CsvUtils.exportCsv(response, "diet-items.csv", CSV_HEADERS, list, DietController::toCsvRow);
+  }
+
+  @GetMapping("/export/all")
+  public void exportAll(
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @RequestParam(required = false) String mealType,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response)
+      throws IOException {
+    CsvUtils.exportCsvStream(
         response,
         "diet-items.csv",
-        headers,
-        list,
-        item ->
-            Arrays.asList(
-                item.getDietItemID(),
-                item.getUserID(),
-                item.getRecordDate(),
-                item.getFoodName(),
-                item.getMealType(),
-                item.getEstimatedCalories()));
+        CSV_HEADERS,
+        gzip,
+        sink -> dietService.streamAll(userID, startDate, endDate, mealType, sink),
+        DietController::toCsvRow);
+  }
+
+  private static List<Object> toCsvRow(Diet item) {
+    return Arrays.asList(
+        item.getDietItemID(),
+        item.getUserID(),
+        item.getRecordDate(),
+        item.getFoodName(),
+        item.getMealType(),
+        item.getEstimatedCalories());
   }
 
   @GetMapping("/{dietItemID}")
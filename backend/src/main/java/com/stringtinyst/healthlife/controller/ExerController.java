@@ -1,5 +1,6 @@
 package com.stringtinyst.healthlife.controller;
 
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.Exer;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.pojo.Result;
@@ -20,6 +21,11 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/exercise-items")
 public class ExerController {
+
+  private static final String[] CSV_HEADERS = {
+    "ID", "User ID", "Record Date", "Exercise Type", "Duration (min)", "Calories Burned"
+  };
+
   @Autowired private ExerService exerService;
 
   @GetMapping
@@ -35,6 +41,19 @@ public class ExerController {
     return Result.success(pageBean);
   }
 
+  @GetMapping("/cursor")
+  public Result pageByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") Integer pageSize,
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @RequestParam(required = false) String exerciseType) {
+    CursorPageBean<Exer> pageBean =
+        exerService.pageByCursor(cursor, pageSize, userID, startDate, endDate, exerciseType);
+    return Result.success(pageBean);
+  }
+
   @GetMapping("/export")
   public void export(
       @RequestParam(defaultValue = "1") Integer page,
@@ -49,22 +68,35 @@ public class ExerController {
         exerService.page(page, pageSize, userID, startDate, endDate, exerciseType);
     List<Exer> list = pageBean.getRows();
 
-    String[] headers = {
-      "ID", "User ID", "Record Date", "Exercise Type", "Duration (min)", "Calories Burned"
-    };
-    CsvUtils.exportCsv(
+    CsvUtils.exportCsv(response, "exercise-items.csv", CSV_HEADERS, list, ExerController::toCsvRow);
+  }
+
+  @GetMapping("/export/all")
+  public void exportAll(
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @RequestParam(required = false) String exerciseType,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response)
+      throws IOException {
+    CsvUtils.exportCsvStream(
         response,
         "exercise-items.csv",
-        headers,
-        list,
-        item ->
-            Arrays.asList(
-                item.getExerciseItemID(),
-                item.getUserID(),
-                item.getRecordDate(),
-                item.getExerciseType(),
-                item.getDurationMinutes(),
-                item.getEstimatedCaloriesBurned()));
+        CSV_HEADERS,
+        gzip,
+        sink -> exerService.streamAll(userID, startDate, endDate, exerciseType, sink),
+        ExerController::toCsvRow);
+  }
+
+  private static List<Object> toCsvRow(Exer item) {
+    return Arrays.asList(
+        item.getExerciseItemID(),
+        item.getUserID(),
+        item.getRecordDate(),
+        item.getExerciseType(),
+        item.getDurationMinutes(),
+        item.getEstimatedCaloriesBurned());
   }
 
   @GetMapping("/{exerciseItemID}")
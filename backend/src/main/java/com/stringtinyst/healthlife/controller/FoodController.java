@@ -0,0 +1,23 @@
+package com.stringtinyst.healthlife.controller;
+
+import com.stringtinyst.healthlife.pojo.Result;
+import com.stringtinyst.healthlife.service.FoodDictionaryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/foods")
+public class FoodController {
+
+  @Autowired private FoodDictionaryService foodDictionaryService;
+
+  /** 录入饮食时的食物名称补全，支持汉字与拼音前缀，如 "鸡"、"jidan" */
+  @GetMapping("/suggest")
+  public Result suggest(
+      @RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "10") Integer limit) {
+    return Result.success(foodDictionaryService.suggest(q, limit));
+  }
+}
@@ -1,5 +1,6 @@
 package com.stringtinyst.healthlife.controller;
 
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.pojo.Result;
 import com.stringtinyst.healthlife.pojo.Sleep;
@@ -29,6 +30,10 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/sleep-items")
 public class SleepController {
 
+  private static final String[] CSV_HEADERS = {
+    "ID", "User ID", "Record Date", "Bed Time", "Wake Time"
+  };
+
   @Autowired private SleepService sleepService;
 
   @GetMapping
@@ -42,6 +47,18 @@ public class SleepController {
     return Result.success(pageBean);
   }
 
+  @GetMapping("/cursor")
+  public Result pageByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") Integer pageSize,
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
+    CursorPageBean<Sleep> pageBean =
+        sleepService.pageByCursor(cursor, pageSize, userID, startDate, endDate);
+    return Result.success(pageBean);
+  }
+
   @GetMapping("/export")
   public void export(
       @RequestParam(defaultValue = "1") Integer page,
@@ -54,19 +71,33 @@ public class SleepController {
     PageBean<Sleep> pageBean = sleepService.page(page, pageSize, userID, startDate, endDate);
     List<Sleep> list = pageBean.getRows();
 
-    String[] headers = {"ID", "User ID", "Record Date", "Bed Time", "Wake Time"};
-    CsvUtils.exportCsv(
+    CsvUtils.exportCsv(response, "sleep-items.csv", CSV_HEADERS, list, SleepController::toCsvRow);
+  }
+
+  @GetMapping("/export/all")
+  public void exportAll(
+      @RequestParam String userID,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response)
+      throws IOException {
+    CsvUtils.exportCsvStream(
         response,
         "sleep-items.csv",
-        headers,
-        list,
-        item ->
-            Arrays.asList(
-                item.getSleepItemID(),
-                item.getUserID(),
-                item.getRecordDate(),
-                item.getBedTime(),
-                item.getWakeTime()));
+        CSV_HEADERS,
+        gzip,
+        sink -> sleepService.streamAll(userID, startDate, endDate, sink),
+        SleepController::toCsvRow);
+  }
+
+  private static List<Object> toCsvRow(Sleep item) {
+    return Arrays.asList(
+        item.getSleepItemID(),
+        item.getUserID(),
+        item.getRecordDate(),
+        item.getBedTime(),
+        item.getWakeTime());
   }
 
   @GetMapping("/{sleepItemID}")
@@ -1,16 +1,12 @@
 package com.stringtinyst.healthlife.controller;
 
+import com.stringtinyst.healthlife.interceptor.CurrentUser;
 import com.stringtinyst.healthlife.pojo.Result;
-import com.stringtinyst.healthlife.utils.JwtUtils;
-import jakarta.servlet.http.Cookie;
-import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -27,13 +23,9 @@ public class UploadController {
 
   private static final String[] SUPPORTED_AVATAR_EXTENSIONS = {".jpg", ".png", ".gif"};
 
-  @Autowired private JwtUtils jwtUtils;
-
   @PostMapping("/avatar")
   public Result uploadAvatar(
-      @RequestParam("avatar") MultipartFile avatar, @RequestHeader("token") String token) {
-    String userId = extractUserIdFromToken(token);
-
+      @RequestParam("avatar") MultipartFile avatar, @CurrentUser String userId) {
     if (avatar.isEmpty()) {
       return Result.error("上传的头像文件为空");
     }
@@ -72,16 +64,12 @@ public class UploadController {
   }
 
   @GetMapping("/avatar")
-  public ResponseEntity<Resource> getAvatar(
-      HttpServletRequest request,
-      @RequestHeader(value = "token", required = false) String tokenHeader) {
-    String token = resolveToken(request, tokenHeader);
-    if (!StringUtils.hasLength(token)) {
+  public ResponseEntity<Resource> getAvatar(@CurrentUser(required = false) String userId) {
+    if (userId == null) {
       log.warn("获取头像失败: 未提供 token");
       return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 
-    String userId = extractUserIdFromToken(token);
     Path foundFile = findAvatarFile(userId);
 
     if (foundFile == null) {
@@ -104,16 +92,12 @@ public class UploadController {
   }
 
   @RequestMapping(value = "/avatar", method = RequestMethod.HEAD)
-  public ResponseEntity<Void> checkAvatar(
-      HttpServletRequest request,
-      @RequestHeader(value = "token", required = false) String tokenHeader) {
-    String token = resolveToken(request, tokenHeader);
-    if (!StringUtils.hasLength(token)) {
+  public ResponseEntity<Void> checkAvatar(@CurrentUser(required = false) String userId) {
+    if (userId == null) {
       log.warn("探测头像失败: 未提供 token");
       return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 
-    String userId = extractUserIdFromToken(token);
     Path avatarFile = findAvatarFile(userId);
 
     if (avatarFile == null) {
@@ -128,19 +112,6 @@ public class UploadController {
     return ResponseEntity.ok().build();
   }
 
-  private String extractUserIdFromToken(String token) {
-    try {
-      Map<String, Object> claims = jwtUtils.parseJWT(token);
-      Object userId = claims.get("userID");
-      if (userId == null || userId.toString().isEmpty()) {
-        throw new IllegalArgumentException("Token 中未包含 userID");
-      }
-      return userId.toString();
-    } catch (Exception e) {
-      throw new IllegalArgumentException("无效的 token 或 token 中无 userId");
-    }
-  }
-
   private Path resolveUploadDir() {
     String uploadDir = System.getenv("AVATAR_UPLOAD_DIR");
     if (!StringUtils.hasLength(uploadDir)) {
@@ -159,22 +130,4 @@ public class UploadController {
     }
     return null;
   }
-
-  private String resolveToken(HttpServletRequest request, String tokenHeader) {
-    String token = tokenHeader;
-    if (StringUtils.hasLength(token)) {
-      return token;
-    }
-
-    Cookie[] cookies = request.getCookies();
-    if (cookies != null) {
-      for (Cookie cookie : cookies) {
-        if ("token".equals(cookie.getName())) {
-          return cookie.getValue();
-        }
-      }
-    }
-
-    return null;
-  }
 }
@@ -1,10 +1,9 @@
 package com.stringtinyst.healthlife.controller;
 
+import com.stringtinyst.healthlife.interceptor.CurrentUser;
 import com.stringtinyst.healthlife.pojo.Result;
 import com.stringtinyst.healthlife.pojo.User;
 import com.stringtinyst.healthlife.service.UserService;
-import com.stringtinyst.healthlife.utils.JwtUtils;
-import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -14,13 +13,9 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/user")
 public class UserProfileController {
   @Autowired private UserService userService;
-  @Autowired private JwtUtils jwtUtils;
 
   @GetMapping("/profile")
-  public Result getUserProfile(@RequestHeader("Authorization") String authorization) {
-    String jwtToken = authorization.replace("Bearer ", "");
-    String userId = extractUserIdFromToken(jwtToken);
-
+  public Result getUserProfile(@CurrentUser String userId) {
     User userInfo = userService.getUser(userId);
     if (userInfo == null) {
       return Result.error("用户不存在");
@@ -29,11 +24,7 @@ public class UserProfileController {
   }
 
   @PutMapping("/profile")
-  public Result updateUserProfile(
-      @RequestHeader("Authorization") String authorization, @RequestBody User user) {
-    String jwtToken = authorization.replace("Bearer ", "");
-    String userId = extractUserIdFromToken(jwtToken);
-
+  public Result updateUserProfile(@CurrentUser String userId, @RequestBody User user) {
     user.setUserID(userId);
     boolean flag = userService.updateUser(user);
     if (!flag) {
@@ -60,18 +51,4 @@ public class UserProfileController {
     }
     return Result.success(user);
   }
-
-  private String extractUserIdFromToken(String token) {
-    try {
-      Map<String, Object> claims = jwtUtils.parseJWT(token);
-      Object userId = claims.get("userID");
-      if (userId == null || userId.toString().isEmpty()) {
-        throw new IllegalArgumentException("Token 中未包含 userID");
-      }
-      return userId.toString();
-    } catch (Exception e) {
-      log.error("提取 userID 失败: {}", e.getMessage());
-      throw new IllegalArgumentException("无效的 token 或 token 中无 userId");
-    }
-  }
 }
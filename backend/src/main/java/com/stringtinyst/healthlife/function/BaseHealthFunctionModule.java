@@ -2,6 +2,7 @@ package com.stringtinyst.healthlife.function;
 
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.utils.FunctionResultCache;
+import com.stringtinyst.healthlife.utils.ToolResultTable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -17,6 +18,9 @@ abstract class BaseHealthFunctionModule {
   protected static final DateTimeFormatter DATE_TIME_FORMATTER =
       DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+  /** 单次查询返回给模型的数据部分字符上限，超出的行汇总成一行 */
+  protected static final int RESULT_BUDGET_CHARS = 1500;
+
   protected final FunctionResultCache resultCache;
 
   protected BaseHealthFunctionModule(FunctionResultCache resultCache) {
@@ -63,6 +67,17 @@ abstract class BaseHealthFunctionModule {
     return weightKG / (heightMeter * heightMeter);
   }
 
+  /** 查询结果的统一返回格式：总数 + 紧凑表格 */
+  protected <T> String formatPage(
+      String recordLabel, PageBean<T> pageBean, ToolResultTable<T> table) {
+    return "查询成功，共找到 "
+        + pageBean.getTotal()
+        + " 条"
+        + recordLabel
+        + "。数据:\n"
+        + table.encode(pageBean.getRows(), RESULT_BUDGET_CHARS);
+  }
+
   protected <T> String runCachedQuery(
       String domain,
       String userID,
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.stringtinyst.healthlife.pojo.Body;
 import com.stringtinyst.healthlife.service.BodyService;
 import com.stringtinyst.healthlife.utils.FunctionResultCache;
+import com.stringtinyst.healthlife.utils.ToolResultTable;
+import com.stringtinyst.healthlife.utils.ToolResultTable.Column;
 import java.math.BigDecimal;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
@@ -20,6 +22,14 @@ import org.springframework.stereotype.Component;
 @Component
 public class BodyFunctions extends BaseHealthFunctionModule {
 
+  /** 返回给模型的列，不含 userID */
+  private static final ToolResultTable<Body> BODY_TABLE =
+      ToolResultTable.of(
+          Column.of("ID", Body::getBodyMetricID),
+          Column.range("日期", Body::getRecordDate),
+          Column.range("身高cm", Body::getHeightCM),
+          Column.range("体重kg", Body::getWeightKG));
+
   private final BodyService bodyService;
 
   public BodyFunctions(BodyService bodyService, FunctionResultCache resultCache) {
@@ -63,7 +73,7 @@ public class BodyFunctions extends BaseHealthFunctionModule {
                     request.getUserID(),
                     parseDateOrNull(request.getStartDate()),
                     parseDateOrNull(request.getEndDate())),
-            pageBean -> "查询成功，共找到 " + pageBean.getTotal() + " 条身体数据记录。数据: " + pageBean.getRows(),
+            pageBean -> formatPage("身体数据记录", pageBean, BODY_TABLE),
             "查询身体数据",
             request.getStartDate(),
             request.getEndDate(),
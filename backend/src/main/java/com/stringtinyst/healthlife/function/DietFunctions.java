@@ -3,8 +3,13 @@ package com.stringtinyst.healthlife.function;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Food;
 import com.stringtinyst.healthlife.service.DietService;
+import com.stringtinyst.healthlife.service.FoodDictionaryService;
 import com.stringtinyst.healthlife.utils.FunctionResultCache;
+import com.stringtinyst.healthlife.utils.ToolResultTable;
+import com.stringtinyst.healthlife.utils.ToolResultTable.Column;
+import java.math.BigDecimal;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -19,11 +24,25 @@ import org.springframework.stereotype.Component;
 @Component
 public class DietFunctions extends BaseHealthFunctionModule {
 
+  /** 返回给模型的列，不含 userID */
+  private static final ToolResultTable<Diet> DIET_TABLE =
+      ToolResultTable.of(
+          Column.of("ID", Diet::getDietItemID),
+          Column.range("日期", Diet::getRecordDate),
+          Column.of("食物", Diet::getFoodName),
+          Column.count("餐次", Diet::getMealType),
+          Column.sum("热量kcal", Diet::getEstimatedCalories));
+
   private final DietService dietService;
+  private final FoodDictionaryService foodDictionaryService;
 
-  public DietFunctions(DietService dietService, FunctionResultCache resultCache) {
+  public DietFunctions(
+      DietService dietService,
+      FoodDictionaryService foodDictionaryService,
+      FunctionResultCache resultCache) {
     super(resultCache);
     this.dietService = dietService;
+    this.foodDictionaryService = foodDictionaryService;
   }
 
   /** 饮食数据查询请求 */
@@ -66,7 +85,7 @@ public class DietFunctions extends BaseHealthFunctionModule {
                     parseDateOrNull(request.getStartDate()),
                     parseDateOrNull(request.getEndDate()),
                     request.getMealType()),
-            pageBean -> "查询成功，共找到 " + pageBean.getTotal() + " 条饮食记录。数据: " + pageBean.getRows(),
+            pageBean -> formatPage("饮食记录", pageBean, DIET_TABLE),
             "查询饮食记录",
             request.getStartDate(),
             request.getEndDate(),
@@ -97,7 +116,7 @@ public class DietFunctions extends BaseHealthFunctionModule {
     private String mealType;
 
     @JsonProperty(required = true)
-    @JsonPropertyDescription("预估卡路里（必须大于 0）")
+    @JsonPropertyDescription("预估卡路里（必须大于 0），可先用 lookupFoodCalories 按份量换算")
     private Integer estimatedCalories;
   }
 
@@ -264,4 +283,80 @@ public class DietFunctions extends BaseHealthFunctionModule {
       }
     };
   }
+
+  /** 食物热量查询请求 */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class FoodCaloriesRequest {
+    @JsonProperty(required = true)
+    @JsonPropertyDescription("食物名称或拼音，如：米饭、鸡胸肉、jidan")
+    private String foodName;
+
+    @JsonPropertyDescription("食用的克数，可选")
+    private Integer grams;
+
+    @JsonPropertyDescription("按常见份量计的份数，如 2 碗米饭填 2，可选")
+    private Double servings;
+  }
+
+  @Bean
+  @Description("查询食物的热量与营养成分并按克数或份数换算；添加或修改饮食记录前用它确定 estimatedCalories，查不到时再自行估算")
+  public Function<FoodCaloriesRequest, String> lookupFoodCalories() {
+    return request -> {
+      if (request.getFoodName() == null || request.getFoodName().isBlank()) {
+        return "食物名称不能为空";
+      }
+      Food food = foodDictionaryService.lookup(request.getFoodName());
+      if (food == null) {
+        return String.format("食物成分表中未找到「%s」，请根据食材与份量自行估算热量", request.getFoodName());
+      }
+      StringBuilder response = new StringBuilder();
+      if (!isSameFood(food, request.getFoodName())) {
+        response.append(String.format("未找到「%s」，最接近的是「%s」。", request.getFoodName(), food.getName()));
+      }
+      if (!food.hasNutrition()) {
+        response.append(
+            String.format(
+                "「%s」不在食物成分表中；饮食记录里出现过 %d 次，平均每次 %d 千卡，可参考该值或按份量自行估算",
+                food.getName(), food.getLoggedCount(), food.getLoggedCalories()));
+        return response.toString();
+      }
+      response.append(
+          String.format(
+              "%s（%s）：每 100 克 %d 千卡，蛋白质 %s 克、脂肪 %s 克、碳水化合物 %s 克；常见份量 %s 约 %d 克，约 %d 千卡",
+              food.getName(),
+              food.getCategory(),
+              food.getKcal(),
+              food.getProtein(),
+              food.getFat(),
+              food.getCarbohydrate(),
+              food.getServing(),
+              food.getServingGrams(),
+              calories(food, food.getServingGrams())));
+      if (request.getGrams() != null && request.getGrams() > 0) {
+        response.append(
+            String.format("；%d 克约 %d 千卡", request.getGrams(), calories(food, request.getGrams())));
+      }
+      if (request.getServings() != null && request.getServings() > 0) {
+        response.append(
+            String.format(
+                "；%s 份约 %d 千卡",
+                BigDecimal.valueOf(request.getServings()).stripTrailingZeros().toPlainString(),
+                calories(food, food.getServingGrams() * request.getServings())));
+      }
+      return response.toString();
+    };
+  }
+
+  private static boolean isSameFood(Food food, String requested) {
+    String name = requested.strip();
+    return food.getName().equals(name)
+        || (food.getPinyin() != null
+            && food.getPinyin().equalsIgnoreCase(name.replaceAll("\\s+", "")));
+  }
+
+  private static long calories(Food food, double grams) {
+    return Math.round(food.getKcal() * grams / 100.0);
+  }
 }
@@ -0,0 +1,527 @@
+package com.stringtinyst.healthlife.function;
+
+import com.stringtinyst.healthlife.function.WebSearchFunction.SearchResult;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DuckDuckGo HTML 搜索结果页的单遍流式提取
+ *
+ * <p>按块读取响应，边读边用一个小状态机识别标签：{@code a.result__a} 的文本与 href 为标题和链接，随后的 {@code .result__snippet}
+ * 为摘要；广告结果（{@code div.result--ad}）跳过，script/style 内容跳过。凑够 maxResults 条即停止读取，剩余内容不再下载
+ *
+ * <p>只为最终字段创建字符串，标签与文本缓冲区在整次提取中复用；标签内容整段拷贝，标签外与 script/style 中只找下一个 {@code <}
+ */
+final class DuckDuckGoHtmlExtractor {
+
+  private static final int CHUNK_CHARS = 8192;
+
+  /** 超过该长度的实体引用按普通文本处理 */
+  private static final int MAX_ENTITY_LENGTH = 10;
+
+  private static final String REDIRECT_PARAM = "uddg=";
+
+  private enum Field {
+    NONE,
+    TITLE,
+    SNIPPET
+  }
+
+  private final int maxResults;
+  private final List<SearchResult> results = new ArrayList<>();
+
+  /** 当前标签 {@code <} 与 {@code >} 之间的内容，按需扩容 */
+  private char[] tag = new char[256];
+
+  private int tagLength;
+
+  private final StringBuilder text = new StringBuilder(256);
+  private final StringBuilder entity = new StringBuilder(MAX_ENTITY_LENGTH);
+
+  private boolean inTag;
+  private char quote;
+  private boolean inEntity;
+
+  /** 正在跳过的 script/style 结束标签，如 {@code </script} */
+  private String rawTextEnd;
+
+  private int rawTextMatched;
+
+  private Field capturing = Field.NONE;
+
+  /** 捕获中的元素嵌套层数，遇到同名结束标签且层数归零时结束 */
+  private int captureDepth;
+
+  private String captureTag;
+  private boolean skippingAd;
+  private SearchResult current;
+
+  private DuckDuckGoHtmlExtractor(int maxResults) {
+    this.maxResults = maxResults;
+  }
+
+  /** 从 reader 中提取最多 maxResults 条结果；提前凑够时不再读取剩余内容 */
+  static List<SearchResult> extract(Reader reader, int maxResults) throws IOException {
+    DuckDuckGoHtmlExtractor extractor = new DuckDuckGoHtmlExtractor(maxResults);
+    char[] chunk = new char[CHUNK_CHARS];
+    int read;
+    while (!extractor.done() && (read = reader.read(chunk)) != -1) {
+      extractor.process(chunk, read);
+    }
+    extractor.flush();
+    return extractor.results;
+  }
+
+  private boolean done() {
+    return results.size() >= maxResults;
+  }
+
+  /** 处理一块字符；标签外与 script/style 中的内容直接扫到下一个 '<'，标签整段追加，只有捕获中的文本逐字符处理 */
+  private void process(char[] chunk, int end) {
+    int i = 0;
+    while (i < end && !done()) {
+      if (rawTextEnd != null) {
+        i = skipRawText(chunk, i, end);
+      } else if (inTag) {
+        i = readTag(chunk, i, end);
+      } else if (capturing != Field.NONE) {
+        char c = chunk[i++];
+        if (c == '<') {
+          openTag();
+        } else {
+          acceptText(c);
+        }
+      } else {
+        i = indexOf(chunk, '<', i, end);
+        if (i < end) {
+          i++;
+          openTag();
+        }
+      }
+    }
+  }
+
+  private void openTag() {
+    inTag = true;
+    tagLength = 0;
+  }
+
+  /** 在 script/style 中匹配结束标签，不区分大小写 */
+  private int skipRawText(char[] chunk, int i, int end) {
+    while (i < end) {
+      if (rawTextMatched == 0) {
+        i = indexOf(chunk, '<', i, end);
+        if (i == end) {
+          return end;
+        }
+      }
+      char c = Character.toLowerCase(chunk[i++]);
+      if (c == rawTextEnd.charAt(rawTextMatched)) {
+        if (++rawTextMatched == rawTextEnd.length()) {
+          rawTextEnd = null;
+          rawTextMatched = 0;
+          // 结束标签剩余部分（'>' 之前）按普通标签读完
+          openTag();
+          tag[tagLength++] = '/';
+          return i;
+        }
+      } else {
+        rawTextMatched = c == '<' ? 1 : 0;
+      }
+    }
+    return end;
+  }
+
+  /** 读到标签结束的 '>' 为止，引号中的 '>' 不算；标签跨块时下一块接着读 */
+  private int readTag(char[] chunk, int i, int end) {
+    int start = i;
+    while (i < end) {
+      char c = chunk[i];
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        appendTag(chunk, start, i - start);
+        inTag = false;
+        handleTag();
+        return i + 1;
+      }
+      i++;
+    }
+    appendTag(chunk, start, end - start);
+    return end;
+  }
+
+  private void appendTag(char[] chunk, int start, int length) {
+    if (tagLength + length > tag.length) {
+      tag = Arrays.copyOf(tag, Math.max(tag.length * 2, tagLength + length));
+    }
+    System.arraycopy(chunk, start, tag, tagLength, length);
+    tagLength += length;
+  }
+
+  private static int indexOf(char[] chunk, char target, int from, int end) {
+    int i = from;
+    while (i < end && chunk[i] != target) {
+      i++;
+    }
+    return i;
+  }
+
+  private void handleTag() {
+    if (tagLength == 0 || tag[0] == '!' || tag[0] == '?') {
+      return;
+    }
+    boolean closing = tag[0] == '/';
+    int nameStart = closing ? 1 : 0;
+    int nameEnd = nameStart;
+    while (nameEnd < tagLength && isNameChar(tag[nameEnd])) {
+      nameEnd++;
+    }
+    if (closing) {
+      handleEndTag(nameStart, nameEnd);
+    } else {
+      handleStartTag(nameStart, nameEnd);
+    }
+  }
+
+  private void handleStartTag(int nameStart, int nameEnd) {
+    if (nameIs(nameStart, nameEnd, "script")) {
+      rawTextEnd = "</script";
+      return;
+    }
+    if (nameIs(nameStart, nameEnd, "style")) {
+      rawTextEnd = "</style";
+      return;
+    }
+    if (capturing != Field.NONE) {
+      if (nameIs(nameStart, nameEnd, captureTag)) {
+        captureDepth++;
+      } else if (nameIs(nameStart, nameEnd, "br")) {
+        appendSpace();
+      }
+      return;
+    }
+    // 结果容器是 div，标题与摘要是 a，其余标签不必解析属性
+    boolean anchor = nameIs(nameStart, nameEnd, "a");
+    if (!anchor && !nameIs(nameStart, nameEnd, "div")) {
+      return;
+    }
+    int classStart = attributeStart("class", nameEnd);
+    if (classStart < 0) {
+      return;
+    }
+    if (attributeContains(classStart, "result")) {
+      // 新的结果容器，上一条结果到此为止
+      emit();
+      skippingAd = attributeContains(classStart, "result--ad");
+    } else if (anchor && attributeContains(classStart, "result__a")) {
+      // 新结果开始，上一条没有摘要也照样输出
+      emit();
+      current = new SearchResult();
+      current.setUrl(resolveUrl(rawAttributeValue("href", nameEnd)));
+      startCapture(Field.TITLE, "a");
+    } else if (attributeContains(classStart, "result__snippet") && current != null) {
+      startCapture(Field.SNIPPET, anchor ? "a" : "div");
+    }
+  }
+
+  private void handleEndTag(int nameStart, int nameEnd) {
+    if (capturing == Field.NONE || !nameIs(nameStart, nameEnd, captureTag)) {
+      return;
+    }
+    if (--captureDepth > 0) {
+      return;
+    }
+    String value = finishText();
+    if (capturing == Field.TITLE) {
+      current.setTitle(value);
+    } else {
+      current.setSnippet(value);
+      emit();
+    }
+    capturing = Field.NONE;
+  }
+
+  private void startCapture(Field field, String tagName) {
+    capturing = field;
+    captureTag = tagName;
+    captureDepth = 1;
+    text.setLength(0);
+    inEntity = false;
+  }
+
+  private void emit() {
+    SearchResult result = current;
+    current = null;
+    if (result == null) {
+      return;
+    }
+    if (skippingAd
+        || result.getTitle() == null
+        || result.getTitle().isEmpty()
+        || result.getUrl() == null) {
+      return;
+    }
+    if (result.getSnippet() == null) {
+      result.setSnippet("");
+    }
+    results.add(result);
+  }
+
+  private void flush() {
+    if (!done() && capturing == Field.NONE) {
+      emit();
+    }
+  }
+
+  private void acceptText(char c) {
+    if (inEntity) {
+      if (c == ';') {
+        inEntity = false;
+        appendDecoded(entity);
+      } else if (entity.length() < MAX_ENTITY_LENGTH && (isNameChar(c) || c == '#')) {
+        entity.append(c);
+      } else {
+        inEntity = false;
+        text.append('&').append(entity);
+        acceptText(c);
+      }
+      return;
+    }
+    if (c == '&') {
+      inEntity = true;
+      entity.setLength(0);
+    } else if (c <= ' ' || (c > 0x7F && Character.isWhitespace(c))) {
+      appendSpace();
+    } else {
+      text.append(c);
+    }
+  }
+
+  /** 合并连续空白，开头不留空白 */
+  private void appendSpace() {
+    if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+      text.append(' ');
+    }
+  }
+
+  private String finishText() {
+    if (inEntity) {
+      text.append('&').append(entity);
+      inEntity = false;
+    }
+    int end = text.length();
+    if (end > 0 && text.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return text.substring(0, end);
+  }
+
+  private void appendDecoded(CharSequence name) {
+    int codePoint = decodeEntity(name);
+    if (codePoint == ' ' || codePoint == 0xA0) {
+      appendSpace();
+    } else if (codePoint >= 0) {
+      text.appendCodePoint(codePoint);
+    } else {
+      text.append('&').append(name).append(';');
+    }
+  }
+
+  /** 返回实体对应的码点，不认识的实体返回 -1 */
+  static int decodeEntity(CharSequence name) {
+    if (name.length() > 1 && name.charAt(0) == '#') {
+      boolean hex = name.charAt(1) == 'x' || name.charAt(1) == 'X';
+      int value = 0;
+      for (int i = hex ? 2 : 1; i < name.length(); i++) {
+        int digit = Character.digit(name.charAt(i), hex ? 16 : 10);
+        if (digit < 0 || value > 0x10FFFF) {
+          return -1;
+        }
+        value = value * (hex ? 16 : 10) + digit;
+      }
+      return Character.isValidCodePoint(value) ? value : -1;
+    }
+    return switch (name.toString()) {
+      case "amp" -> '&';
+      case "lt" -> '<';
+      case "gt" -> '>';
+      case "quot" -> '"';
+      case "apos" -> '\'';
+      case "nbsp" -> 0xA0;
+      case "ndash" -> 0x2013;
+      case "mdash" -> 0x2014;
+      case "lsquo" -> 0x2018;
+      case "rsquo" -> 0x2019;
+      case "ldquo" -> 0x201C;
+      case "rdquo" -> 0x201D;
+      case "middot" -> 0xB7;
+      case "hellip" -> 0x2026;
+      default -> -1;
+    };
+  }
+
+  /** 属性值在 tag 中的起始下标（引号之后），没有该属性时返回 -1 */
+  private int attributeStart(String attribute, int from) {
+    int i = from;
+    while (i < tagLength) {
+      while (i < tagLength && !isNameChar(tag[i])) {
+        i++;
+      }
+      int nameStart = i;
+      while (i < tagLength && isNameChar(tag[i])) {
+        i++;
+      }
+      boolean matches = nameIs(nameStart, i, attribute);
+      while (i < tagLength && tag[i] == ' ') {
+        i++;
+      }
+      if (i >= tagLength || tag[i] != '=') {
+        continue;
+      }
+      i++;
+      while (i < tagLength && tag[i] == ' ') {
+        i++;
+      }
+      if (i < tagLength && (tag[i] == '"' || tag[i] == '\'')) {
+        char q = tag[i++];
+        if (matches) {
+          return i;
+        }
+        while (i < tagLength && tag[i] != q) {
+          i++;
+        }
+        i++;
+      } else {
+        if (matches) {
+          return i;
+        }
+        while (i < tagLength && tag[i] != ' ') {
+          i++;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private int attributeEnd(int start) {
+    char q = start > 0 ? tag[start - 1] : ' ';
+    char terminator = q == '"' || q == '\'' ? q : ' ';
+    int end = start;
+    while (end < tagLength && tag[end] != terminator) {
+      end++;
+    }
+    return end;
+  }
+
+  /** 属性值按空白切分后是否含有 token，用于判断 class */
+  private boolean attributeContains(int start, String token) {
+    int end = attributeEnd(start);
+    int i = start;
+    while (i < end) {
+      while (i < end && tag[i] == ' ') {
+        i++;
+      }
+      int tokenStart = i;
+      while (i < end && tag[i] != ' ') {
+        i++;
+      }
+      if (i - tokenStart == token.length() && regionMatches(tokenStart, token)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean regionMatches(int start, String token) {
+    for (int k = 0; k < token.length(); k++) {
+      if (tag[start + k] != token.charAt(k)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** 未做实体解码的属性值 */
+  private String rawAttributeValue(String attribute, int from) {
+    int start = attributeStart(attribute, from);
+    if (start < 0) {
+      return null;
+    }
+    return new String(tag, start, attributeEnd(start) - start);
+  }
+
+  private static String decodeAttribute(String raw) {
+    StringBuilder decoded = new StringBuilder(raw.length());
+    int i = 0;
+    while (i < raw.length()) {
+      char c = raw.charAt(i);
+      int semicolon = c == '&' ? raw.indexOf(';', i) : -1;
+      if (semicolon > i && semicolon - i <= MAX_ENTITY_LENGTH + 1) {
+        int codePoint = decodeEntity(raw.subSequence(i + 1, semicolon));
+        if (codePoint >= 0) {
+          decoded.appendCodePoint(codePoint);
+          i = semicolon + 1;
+          continue;
+        }
+      }
+      decoded.append(c);
+      i++;
+    }
+    return decoded.toString();
+  }
+
+  /**
+   * DuckDuckGo 的结果链接是跳转地址，真实地址在 uddg 参数中
+   *
+   * <p>uddg 的值经过百分号编码，不含实体，取到下一个 '&'（即 {@code &amp;}）为止直接解码；其他链接才做实体解码
+   */
+  static String resolveUrl(String rawHref) {
+    if (rawHref == null) {
+      return null;
+    }
+    int param = rawHref.indexOf(REDIRECT_PARAM);
+    if (param < 0 || !rawHref.contains("duckduckgo.com/l/")) {
+      String href = rawHref.indexOf('&') < 0 ? rawHref : decodeAttribute(rawHref);
+      return href.startsWith("//") ? "https:" + href : href;
+    }
+    int start = param + REDIRECT_PARAM.length();
+    int end = rawHref.indexOf('&', start);
+    String encoded = end < 0 ? rawHref.substring(start) : rawHref.substring(start, end);
+    try {
+      return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      return encoded;
+    }
+  }
+
+  private boolean nameIs(int start, int end, String name) {
+    if (end - start != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (Character.toLowerCase(tag[start + i]) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isNameChar(char c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '-'
+        || c == '_'
+        || c == ':';
+  }
+}
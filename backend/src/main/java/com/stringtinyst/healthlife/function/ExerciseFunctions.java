@@ -2,12 +2,13 @@ package com.stringtinyst.healthlife.function;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
-import com.stringtinyst.healthlife.pojo.Body;
 import com.stringtinyst.healthlife.pojo.Exer;
-import com.stringtinyst.healthlife.pojo.PageBean;
-import com.stringtinyst.healthlife.service.BodyService;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
 import com.stringtinyst.healthlife.service.ExerService;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
 import com.stringtinyst.healthlife.utils.FunctionResultCache;
+import com.stringtinyst.healthlife.utils.ToolResultTable;
+import com.stringtinyst.healthlife.utils.ToolResultTable.Column;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +26,7 @@ import org.springframework.stereotype.Component;
 @Component
 public class ExerciseFunctions extends BaseHealthFunctionModule {
 
-  private static final List<String> VALID_EXERCISE_TYPES =
+  static final List<String> VALID_EXERCISE_TYPES =
       Arrays.asList(
           "跑步", "游泳", "骑行", "徒步", "爬山", "跳绳", "篮球", "足球", "羽毛球", "乒乓球", "网球", "健身房训练", "瑜伽", "普拉提",
           "力量训练");
@@ -50,14 +51,25 @@ public class ExerciseFunctions extends BaseHealthFunctionModule {
 
   private static final double DEFAULT_WEIGHT_KG = 65.0;
 
+  /** 返回给模型的列，不含 userID */
+  private static final ToolResultTable<Exer> EXERCISE_TABLE =
+      ToolResultTable.of(
+          Column.of("ID", Exer::getExerciseItemID),
+          Column.range("日期", Exer::getRecordDate),
+          Column.count("类型", Exer::getExerciseType),
+          Column.sum("时长min", Exer::getDurationMinutes),
+          Column.sum("消耗kcal", Exer::getEstimatedCaloriesBurned));
+
   private final ExerService exerService;
-  private final BodyService bodyService;
+  private final HealthSnapshotService healthSnapshotService;
 
   public ExerciseFunctions(
-      ExerService exerService, BodyService bodyService, FunctionResultCache resultCache) {
+      ExerService exerService,
+      HealthSnapshotService healthSnapshotService,
+      FunctionResultCache resultCache) {
     super(resultCache);
     this.exerService = exerService;
-    this.bodyService = bodyService;
+    this.healthSnapshotService = healthSnapshotService;
   }
 
   /** 运动数据查询请求 */
@@ -100,7 +112,7 @@ public class ExerciseFunctions extends BaseHealthFunctionModule {
                     parseDateOrNull(request.getStartDate()),
                     parseDateOrNull(request.getEndDate()),
                     request.getExerciseType()),
-            pageBean -> "查询成功，共找到 " + pageBean.getTotal() + " 条运动记录。数据: " + pageBean.getRows(),
+            pageBean -> formatPage("运动记录", pageBean, EXERCISE_TABLE),
             "查询运动记录",
             request.getStartDate(),
             request.getEndDate(),
@@ -343,12 +355,9 @@ public class ExerciseFunctions extends BaseHealthFunctionModule {
 
   private Double getUserLatestWeight(String userID) {
     try {
-      PageBean<Body> pageBean = bodyService.page(1, 1, userID, null, null);
-      if (pageBean.getRows() != null && !pageBean.getRows().isEmpty()) {
-        Object firstRow = pageBean.getRows().get(0);
-        if (firstRow instanceof Body body) {
-          return body.getWeightKG().doubleValue();
-        }
+      HealthSnapshot snapshot = healthSnapshotService.getSnapshot(userID);
+      if (snapshot.getWeightKG() != null) {
+        return snapshot.getWeightKG().doubleValue();
       }
     } catch (Exception e) {
       log.warn("获取用户体重失败: {}", e.getMessage());
@@ -0,0 +1,185 @@
+package com.stringtinyst.healthlife.function;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.stringtinyst.healthlife.pojo.Food;
+import com.stringtinyst.healthlife.utils.FoodTable;
+import com.stringtinyst.healthlife.utils.HealthKnowledgeIndex;
+import com.stringtinyst.healthlife.utils.HealthKnowledgeIndex.Document;
+import com.stringtinyst.healthlife.utils.HealthKnowledgeIndex.Hit;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Description;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地健康知识库检索
+ *
+ * <p>语料随应用打包在 {@code knowledge/} 下：健康科普文章（articles.md）与常见食物营养成分表（foods.csv）。营养、运动、睡眠这类稳定的常识先在本地检索，
+ * 不经过公网，检索耗时在亚毫秒级；本地没有结果或需要最新信息时模型再调用 webSearch
+ */
+@Slf4j
+@Component
+public class HealthKnowledgeFunction {
+
+  static final String ARTICLES_RESOURCE = "knowledge/articles.md";
+
+  /** 得分低于最高分该比例的结果只是零星字词命中，不返回 */
+  private static final double MIN_RELATIVE_SCORE = 0.3;
+
+  private final boolean enabled;
+  private final HealthKnowledgeIndex index;
+
+  public HealthKnowledgeFunction(
+      @Value("${ai.knowledge.enabled:true}") boolean enabled,
+      @Value("${ai.knowledge.segment-dir:data/knowledge}") String segmentDir) {
+    this.enabled = enabled;
+    if (!enabled) {
+      this.index = HealthKnowledgeIndex.inMemory(List.of());
+      return;
+    }
+    byte[] articles = readResource(ARTICLES_RESOURCE);
+    byte[] foods = FoodTable.readBytes();
+    CRC32 checksum = new CRC32();
+    checksum.update(articles);
+    checksum.update(foods);
+    long start = System.nanoTime();
+    List<Document> documents = new ArrayList<>(parseArticles(articles));
+    documents.addAll(parseFoods(foods));
+    this.index = HealthKnowledgeIndex.open(Path.of(segmentDir), documents, checksum.getValue());
+    log.info(
+        "本地知识库已加载: {} 条语料，{}，耗时 {} ms",
+        index.size(),
+        index.isMapped() ? "内存映射段文件" : "堆内存索引",
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /** 知识库检索请求 */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class KnowledgeRequest {
+    @JsonProperty(required = true)
+    @JsonPropertyDescription("检索关键词或问题，如：成年人每天睡多久、米饭热量、高血压饮食")
+    private String query;
+
+    @JsonPropertyDescription("最多返回的条数，默认 3，最多 5")
+    private Integer maxResults = 3;
+  }
+
+  @Bean
+  @Description(
+      "检索本地健康知识库（营养与膳食指南、常见食物营养成分、运动与睡眠建议、慢病生活方式干预等常识）。"
+          + "回答健康知识、营养信息或运动指导类问题时优先使用，本地无结果或需要最新信息时再使用 webSearch。")
+  public Function<KnowledgeRequest, String> searchHealthKnowledge() {
+    return this::search;
+  }
+
+  String search(KnowledgeRequest request) {
+    if (!enabled) {
+      return "本地知识库当前未启用";
+    }
+    if (request.getQuery() == null || request.getQuery().isBlank()) {
+      return "检索关键词不能为空";
+    }
+    int maxResults =
+        Math.max(1, Math.min(request.getMaxResults() == null ? 3 : request.getMaxResults(), 5));
+    List<Hit> hits = index.search(request.getQuery(), maxResults);
+    if (hits.isEmpty()) {
+      return "本地知识库未找到相关内容，可使用 webSearch 联网搜索";
+    }
+    double threshold = hits.get(0).score() * MIN_RELATIVE_SCORE;
+    StringBuilder response = new StringBuilder("本地知识库检索结果:\n\n");
+    int shown = 0;
+    for (Hit hit : hits) {
+      if (hit.score() < threshold) {
+        break;
+      }
+      Document document = hit.document();
+      response.append(String.format("%d. **%s**\n", ++shown, document.title()));
+      response.append(String.format("   %s\n", document.content()));
+      response.append(String.format("   来源: %s\n\n", document.source()));
+    }
+    return response.toString();
+  }
+
+  private static byte[] readResource(String name) {
+    try (InputStream in =
+        HealthKnowledgeFunction.class.getClassLoader().getResourceAsStream(name)) {
+      if (in == null) {
+        throw new IllegalStateException("缺少知识库语料: " + name);
+      }
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** 每篇以 "## 标题" 开头，下一行 "来源: ..."，其余行为正文；以单个 # 开头的行为注释 */
+  static List<Document> parseArticles(byte[] content) {
+    List<Document> documents = new ArrayList<>();
+    String title = null;
+    String source = "";
+    StringBuilder body = new StringBuilder();
+    for (String line : new String(content, StandardCharsets.UTF_8).split("\r?\n")) {
+      if (line.startsWith("## ")) {
+        addArticle(documents, title, source, body);
+        title = line.substring(3).trim();
+        source = "";
+        body.setLength(0);
+      } else if (line.startsWith("#")) {
+        continue;
+      } else if (title != null && source.isEmpty() && line.startsWith("来源:")) {
+        source = line.substring("来源:".length()).trim();
+      } else if (title != null && !line.isBlank()) {
+        body.append(line.trim());
+      }
+    }
+    addArticle(documents, title, source, body);
+    return documents;
+  }
+
+  private static void addArticle(
+      List<Document> documents, String title, String source, StringBuilder body) {
+    if (title != null && body.length() > 0) {
+      documents.add(new Document(title, source, body.toString()));
+    }
+  }
+
+  /** 每种食物一条语料，营养成分按每 100 克可食部计 */
+  static List<Document> parseFoods(byte[] content) {
+    List<Document> documents = new ArrayList<>();
+    for (Food food : FoodTable.parse(content)) {
+      documents.add(
+          new Document(
+              food.getName() + " 热量与营养成分",
+              "食物成分表（每 100 克可食部）",
+              String.format(
+                  "%s（%s）每 100 克约含热量 %d 千卡、蛋白质 %s 克、脂肪 %s 克、碳水化合物 %s 克；"
+                      + "常见份量 %s 约 %d 克，约 %d 千卡。",
+                  food.getName(),
+                  food.getCategory(),
+                  food.getKcal(),
+                  food.getProtein(),
+                  food.getFat(),
+                  food.getCarbohydrate(),
+                  food.getServing(),
+                  food.getServingGrams(),
+                  Math.round(food.getKcal() * food.getServingGrams() / 100.0))));
+    }
+    return documents;
+  }
+}
@@ -0,0 +1,193 @@
+package com.stringtinyst.healthlife.function;
+
+import com.stringtinyst.healthlife.function.BodyFunctions.AddBodyRequest;
+import com.stringtinyst.healthlife.function.DietFunctions.AddDietRequest;
+import com.stringtinyst.healthlife.function.ExerciseFunctions.AddExerciseRequest;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 简单记录指令的本地快速通道
+ *
+ * <p>“记录体重 70kg”“午餐吃了米饭 300 大卡”“跑步 30 分钟”这类消息结构固定，交给模型也只是调用一次 add 函数。这里用正则整句匹配，命中后直接调用同一个函数 Bean
+ * 并把函数返回的确认文本作为回复，省掉一次模型往返
+ *
+ * <p>只处理没有歧义的整句：多出任何词、缺少必填数值（如饮食未给热量、尚无身高记录时只报体重）或数值越界，都返回空，交给模型处理
+ *
+ * <p>指标：{@code ai.chat.quick-commands}（tag type=body|diet|exercise）
+ */
+@Slf4j
+@Component
+public class QuickCommandHandler {
+
+  static final String METRIC_NAME = "ai.chat.quick-commands";
+
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+  private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[。.!！~～\\s]+$");
+  private static final Pattern LEADING_DAY = Pattern.compile("^(今天|昨天|前天)[，,\\s]*");
+  private static final Pattern LEADING_VERB =
+      Pattern.compile("^(?:帮我)?(?:记录|记一下|记)(?:一下)?[:：，,\\s]*");
+
+  private static final Pattern BODY =
+      Pattern.compile(
+          "(?:我的)?体重(?:是|为)?\\s*(\\d{2,3}(?:\\.\\d{1,2})?)\\s*(kg|公斤|千克|斤)",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern DIET =
+      Pattern.compile(
+          "(早餐|午餐|晚餐|加餐|早饭|午饭|晚饭|夜宵|宵夜)(?:吃了|喝了|吃)\\s*([^\\d\\s,，、;；:：]{1,20})[\\s,，]*"
+              + "(\\d{1,4})\\s*(?:kcal|大卡|千卡|卡路里|卡)",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern EXERCISE =
+      Pattern.compile(
+          "("
+              + String.join("|", ExerciseFunctions.VALID_EXERCISE_TYPES)
+              + ")了?\\s*(\\d{1,3}(?:\\.\\d)?)\\s*(分钟|min|小时|h)"
+              + "(?:[\\s,，]*(?:消耗)?\\s*(\\d{1,4})\\s*(?:kcal|大卡|千卡|卡))?",
+          Pattern.CASE_INSENSITIVE);
+
+  private static final Map<String, String> MEAL_ALIASES =
+      Map.of("早饭", "早餐", "午饭", "午餐", "晚饭", "晚餐", "夜宵", "加餐", "宵夜", "加餐");
+
+  private final BodyFunctions bodyFunctions;
+  private final DietFunctions dietFunctions;
+  private final ExerciseFunctions exerciseFunctions;
+  private final HealthSnapshotService healthSnapshotService;
+  private final MeterRegistry meterRegistry;
+
+  public QuickCommandHandler(
+      BodyFunctions bodyFunctions,
+      DietFunctions dietFunctions,
+      ExerciseFunctions exerciseFunctions,
+      HealthSnapshotService healthSnapshotService,
+      MeterRegistry meterRegistry) {
+    this.bodyFunctions = bodyFunctions;
+    this.dietFunctions = dietFunctions;
+    this.exerciseFunctions = exerciseFunctions;
+    this.healthSnapshotService = healthSnapshotService;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /** 尝试直接执行记录指令，返回给用户的回复；无法确定时返回空，由模型处理 */
+  public Optional<String> tryHandle(String userID, String message) {
+    return tryHandle(userID, message, LocalDate.now());
+  }
+
+  Optional<String> tryHandle(String userID, String message, LocalDate today) {
+    if (userID == null || message == null || message.length() > 64) {
+      return Optional.empty();
+    }
+    String text = TRAILING_PUNCTUATION.matcher(message.strip()).replaceAll("");
+    LocalDate date = today;
+    Matcher day = LEADING_DAY.matcher(text);
+    if (day.find()) {
+      date = shift(today, day.group(1));
+      text = text.substring(day.end());
+    }
+    text = LEADING_VERB.matcher(text).replaceFirst("");
+    day = LEADING_DAY.matcher(text);
+    if (day.find()) {
+      date = shift(today, day.group(1));
+      text = text.substring(day.end());
+    }
+    String recordDate = date.format(DATE_FORMATTER);
+
+    Matcher matcher;
+    if ((matcher = BODY.matcher(text)).matches()) {
+      return recordBody(userID, matcher, recordDate);
+    }
+    if ((matcher = DIET.matcher(text)).matches()) {
+      return recordDiet(userID, matcher, recordDate);
+    }
+    if ((matcher = EXERCISE.matcher(text)).matches()) {
+      return recordExercise(userID, matcher, recordDate);
+    }
+    return Optional.empty();
+  }
+
+  private Optional<String> recordBody(String userID, Matcher matcher, String recordDate) {
+    double weight = Double.parseDouble(matcher.group(1));
+    if ("斤".equals(matcher.group(2))) {
+      weight = weight / 2;
+    }
+    if (weight < 30 || weight > 300) {
+      return Optional.empty();
+    }
+    // 函数要求同时提供身高，沿用最近一次记录的身高；从未记录过时交给模型询问
+    BigDecimal height = latestHeight(userID);
+    if (height == null) {
+      return Optional.empty();
+    }
+    String result =
+        bodyFunctions
+            .addBodyMetric()
+            .apply(new AddBodyRequest(userID, height.doubleValue(), weight, recordDate));
+    return handled("body", result);
+  }
+
+  private Optional<String> recordDiet(String userID, Matcher matcher, String recordDate) {
+    String mealType = MEAL_ALIASES.getOrDefault(matcher.group(1), matcher.group(1));
+    int calories = Integer.parseInt(matcher.group(3));
+    if (calories <= 0 || calories > 5000) {
+      return Optional.empty();
+    }
+    String result =
+        dietFunctions
+            .addDietRecord()
+            .apply(new AddDietRequest(userID, recordDate, matcher.group(2), mealType, calories));
+    return handled("diet", result);
+  }
+
+  private Optional<String> recordExercise(String userID, Matcher matcher, String recordDate) {
+    double amount = Double.parseDouble(matcher.group(2));
+    String unit = matcher.group(3).toLowerCase(Locale.ROOT);
+    int minutes = (int) Math.round(unit.equals("小时") || unit.equals("h") ? amount * 60 : amount);
+    if (minutes < 1 || minutes > 600) {
+      return Optional.empty();
+    }
+    Integer calories = matcher.group(4) == null ? null : Integer.parseInt(matcher.group(4));
+    String result =
+        exerciseFunctions
+            .addExerciseRecord()
+            .apply(new AddExerciseRequest(userID, recordDate, matcher.group(1), minutes, calories));
+    return handled("exercise", result);
+  }
+
+  private BigDecimal latestHeight(String userID) {
+    try {
+      return healthSnapshotService.getSnapshot(userID).getHeightCM();
+    } catch (Exception e) {
+      log.warn("获取用户身高失败: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private Optional<String> handled(String type, String result) {
+    Counter.builder(METRIC_NAME)
+        .description("未经模型直接执行的记录指令")
+        .tag("type", type)
+        .register(meterRegistry)
+        .increment();
+    log.debug("快速通道执行 {} 记录: {}", type, result);
+    return Optional.of(result);
+  }
+
+  private static LocalDate shift(LocalDate today, String day) {
+    return switch (day) {
+      case "昨天" -> today.minusDays(1);
+      case "前天" -> today.minusDays(2);
+      default -> today;
+    };
+  }
+}
@@ -5,6 +5,11 @@ import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.stringtinyst.healthlife.pojo.Sleep;
 import com.stringtinyst.healthlife.service.SleepService;
 import com.stringtinyst.healthlife.utils.FunctionResultCache;
+import com.stringtinyst.healthlife.utils.ToolResultTable;
+import com.stringtinyst.healthlife.utils.ToolResultTable.Column;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
@@ -20,6 +25,15 @@ import org.springframework.stereotype.Component;
 @Component
 public class SleepFunctions extends BaseHealthFunctionModule {
 
+  /** 返回给模型的列，不含 userID；附带换算好的睡眠时长，省去模型自行计算 */
+  private static final ToolResultTable<Sleep> SLEEP_TABLE =
+      ToolResultTable.of(
+          Column.of("ID", Sleep::getSleepItemID),
+          Column.range("日期", Sleep::getRecordDate),
+          Column.of("入睡", Sleep::getBedTime),
+          Column.of("起床", Sleep::getWakeTime),
+          Column.sum("时长h", SleepFunctions::sleepHours));
+
   private final SleepService sleepService;
 
   public SleepFunctions(SleepService sleepService, FunctionResultCache resultCache) {
@@ -63,7 +77,7 @@ public class SleepFunctions extends BaseHealthFunctionModule {
                     request.getUserID(),
                     parseDateOrNull(request.getStartDate()),
                     parseDateOrNull(request.getEndDate())),
-            pageBean -> "查询成功，共找到 " + pageBean.getTotal() + " 条睡眠记录。数据: " + pageBean.getRows(),
+            pageBean -> formatPage("睡眠记录", pageBean, SLEEP_TABLE),
             "查询睡眠记录",
             request.getStartDate(),
             request.getEndDate(),
@@ -264,4 +278,12 @@ public class SleepFunctions extends BaseHealthFunctionModule {
       }
     };
   }
+
+  private static BigDecimal sleepHours(Sleep sleep) {
+    if (sleep.getBedTime() == null || sleep.getWakeTime() == null) {
+      return null;
+    }
+    long minutes = Duration.between(sleep.getBedTime(), sleep.getWakeTime()).toMinutes();
+    return BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 1, RoundingMode.HALF_UP);
+  }
 }
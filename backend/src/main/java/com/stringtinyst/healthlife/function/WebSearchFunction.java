@@ -5,18 +5,37 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Description;
@@ -25,23 +44,77 @@ import org.springframework.stereotype.Component;
 /**
  * 联网搜索功能
  *
- * <p>使用搜索引擎为 AI 提供实时网络搜索能力
+ * <p>使用搜索引擎为 AI 提供实时网络搜索能力。搜索在模型的函数调用轮次中同步等待，慢一次就拖住整条聊天流，因此：
+ *
+ * <ul>
+ *   <li>结果按归一化后的关键词缓存（{@code web.search.cache.*}），同一关键词同时只发起一次搜索，其余调用共用结果
+ *   <li>HTML 搜索在 {@code web.search.hedge-millis} 内没有结果或失败时，并行发起 Instant Answer API
+ *       请求，先拿到结果的一方为准；整体不超过 {@code web.search.timeout-millis}，超时即取消请求并计为一次失败
+ *   <li>连续失败 {@code web.search.circuit.failure-threshold} 次后熔断 {@code
+ *       web.search.circuit.open-seconds} 秒，期间直接返回搜索不可用，之后放行一次试探请求
+ * </ul>
+ *
+ * <p>指标：{@code cache.*}（cache=web.search）与 {@code ai.web-search.short-circuited}
  */
 @Slf4j
 @Component
 public class WebSearchFunction {
 
-  @Value("${web.search.enabled:true}")
-  private boolean searchEnabled;
+  static final String CACHE_NAME = "web.search";
+  static final String SHORT_CIRCUITED_METRIC = "ai.web-search.short-circuited";
 
-  private final OkHttpClient httpClient;
+  /** 每个关键词固定取满 10 条结果缓存，不同 maxResults 的调用共用一份 */
+  private static final int FETCH_RESULTS = 10;
 
-  public WebSearchFunction() {
+  private static final String USER_AGENT =
+      "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+  private final boolean searchEnabled;
+  private final String htmlUrl;
+  private final String apiUrl;
+  private final long timeoutMillis;
+  private final long hedgeMillis;
+  private final OkHttpClient httpClient;
+  private final AsyncCache<String, List<SearchResult>> cache;
+  private final CircuitBreaker circuitBreaker;
+  private final Counter shortCircuited;
+
+  @Autowired
+  public WebSearchFunction(
+      @Value("${web.search.enabled:true}") boolean searchEnabled,
+      @Value("${web.search.html-url:https://html.duckduckgo.com/html/}") String htmlUrl,
+      @Value("${web.search.api-url:https://api.duckduckgo.com/}") String apiUrl,
+      @Value("${web.search.cache.max-entries:500}") long maxEntries,
+      @Value("${web.search.cache.ttl-minutes:30}") long ttlMinutes,
+      @Value("${web.search.timeout-millis:2000}") long timeoutMillis,
+      @Value("${web.search.hedge-millis:800}") long hedgeMillis,
+      @Value("${web.search.circuit.failure-threshold:5}") int failureThreshold,
+      @Value("${web.search.circuit.open-seconds:30}") long openSeconds,
+      MeterRegistry meterRegistry) {
+    this.searchEnabled = searchEnabled;
+    this.htmlUrl = htmlUrl;
+    this.apiUrl = apiUrl;
+    this.timeoutMillis = timeoutMillis > 0 ? timeoutMillis : 2000;
+    this.hedgeMillis = Math.max(0, Math.min(hedgeMillis, this.timeoutMillis));
     this.httpClient =
         new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
+            .connectTimeout(this.timeoutMillis, TimeUnit.MILLISECONDS)
+            .callTimeout(this.timeoutMillis, TimeUnit.MILLISECONDS)
             .build();
+    AsyncCache<String, List<SearchResult>> built =
+        Caffeine.newBuilder()
+            .maximumSize(maxEntries > 0 ? maxEntries : 500)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes > 0 ? ttlMinutes : 30))
+            .recordStats()
+            .buildAsync();
+    this.cache = built;
+    CaffeineCacheMetrics.monitor(meterRegistry, built, CACHE_NAME);
+    this.circuitBreaker =
+        new CircuitBreaker(Math.max(1, failureThreshold), TimeUnit.SECONDS.toNanos(openSeconds));
+    this.shortCircuited =
+        Counter.builder(SHORT_CIRCUITED_METRIC)
+            .description("熔断期间直接返回的网络搜索")
+            .register(meterRegistry);
   }
 
   /** 搜索请求 */
@@ -68,186 +141,288 @@ public class WebSearchFunction {
   @Bean
   @Description("在互联网上搜索信息，获取最新的健康、营养、运动等相关知识。当用户询问需要最新信息或实时数据的问题时使用此功能。")
   public Function<SearchRequest, String> webSearch() {
-    return request -> {
-      if (!searchEnabled) {
-        return "网络搜索功能当前未启用";
+    return this::search;
+  }
+
+  String search(SearchRequest request) {
+    if (!searchEnabled) {
+      return "网络搜索功能当前未启用";
+    }
+    if (request.getQuery() == null || request.getQuery().isBlank()) {
+      return "搜索关键词不能为空";
+    }
+    int maxResults =
+        Math.max(1, Math.min(request.getMaxResults() == null ? 5 : request.getMaxResults(), 10));
+    String key = normalize(request.getQuery());
+
+    CompletableFuture<List<SearchResult>> future = cache.getIfPresent(key);
+    if (future == null) {
+      if (!circuitBreaker.allowRequest()) {
+        shortCircuited.increment();
+        return "网络搜索暂时不可用，请根据已有知识回答";
       }
+      future = cache.get(key, (k, executor) -> fetch(request.getQuery()));
+    }
 
-      try {
-        int maxResults = Math.min(request.getMaxResults(), 10);
-        List<SearchResult> results = searchDuckDuckGo(request.getQuery(), maxResults);
+    List<SearchResult> results;
+    try {
+      results = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.warn("网络搜索超时: query={}", request.getQuery());
+      return "网络搜索超时，请根据已有知识回答";
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return "网络搜索被中断";
+    } catch (ExecutionException e) {
+      Throwable cause =
+          e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+      if (cause instanceof TimeoutException) {
+        // 搜索自身的预算与这里的等待几乎同时到期
+        log.warn("网络搜索超时: query={}", request.getQuery());
+        return "网络搜索超时，请根据已有知识回答";
+      }
+      log.error("网络搜索失败: query={}", request.getQuery(), cause);
+      return "网络搜索失败: " + cause.getMessage();
+    }
 
-        if (results.isEmpty()) {
-          return "未找到相关搜索结果";
-        }
+    if (results.isEmpty()) {
+      return "未找到相关搜索结果";
+    }
+    List<SearchResult> shown = results.subList(0, Math.min(maxResults, results.size()));
+    StringBuilder response = new StringBuilder();
+    response.append(String.format("找到 %d 条搜索结果:\n\n", shown.size()));
+    for (int i = 0; i < shown.size(); i++) {
+      SearchResult result = shown.get(i);
+      response.append(String.format("%d. **%s**\n", i + 1, result.getTitle()));
+      response.append(String.format("   %s\n", result.getSnippet()));
+      response.append(String.format("   来源: %s\n\n", result.getUrl()));
+    }
+    return response.toString();
+  }
 
-        StringBuilder response = new StringBuilder();
-        response.append(String.format("找到 %d 条搜索结果:\n\n", results.size()));
+  /** NFKC、小写并合并连续空白，大小写或全半角不同的同一问题共用缓存 */
+  static String normalize(String query) {
+    return Normalizer.normalize(query, Normalizer.Form.NFKC)
+        .toLowerCase(Locale.ROOT)
+        .trim()
+        .replaceAll("\\s+", " ");
+  }
 
-        for (int i = 0; i < results.size(); i++) {
-          SearchResult result = results.get(i);
-          response.append(String.format("%d. **%s**\n", i + 1, result.getTitle()));
-          response.append(String.format("   %s\n", result.getSnippet()));
-          response.append(String.format("   来源: %s\n\n", result.getUrl()));
-        }
+  /** 发起一次搜索；超过总预算仍未完成时取消全部请求，结果计入熔断统计 */
+  private CompletableFuture<List<SearchResult>> fetch(String query) {
+    HedgedSearch search = new HedgedSearch(query);
+    search.start();
+    return search
+        .result
+        .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+        .whenComplete(
+            (results, error) -> {
+              search.cancel();
+              if (error == null) {
+                circuitBreaker.onSuccess();
+              } else {
+                circuitBreaker.onFailure();
+              }
+            });
+  }
 
-        return response.toString();
-      } catch (Exception e) {
-        log.error("网络搜索失败: query={}", request.getQuery(), e);
-        return "网络搜索失败: " + e.getMessage();
-      }
-    };
+  private Request htmlRequest(String query) {
+    return new Request.Builder()
+        .url(htmlUrl + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8))
+        .header("User-Agent", USER_AGENT)
+        .build();
   }
 
-  /**
-   * 使用 DuckDuckGo Instant Answer API 进行搜索
-   *
-   * @param query 搜索关键词
-   * @param maxResults 最大结果数
-   * @return 搜索结果列表
-   */
-  private List<SearchResult> searchDuckDuckGo(String query, int maxResults) throws IOException {
-    List<SearchResult> results = new ArrayList<>();
+  private Request apiRequest(String query) {
+    return new Request.Builder()
+        .url(
+            apiUrl
+                + "?q="
+                + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                + "&format=json&no_html=1&skip_disambig=1")
+        .build();
+  }
 
-    // 使用 DuckDuckGo HTML 搜索
-    String searchUrl =
-        String.format(
-            "https://html.duckduckgo.com/html/?q=%s", java.net.URLEncoder.encode(query, "UTF-8"));
+  /** 响应体解析，HTML 与 Instant Answer 两条路径各自实现 */
+  @FunctionalInterface
+  private interface BodyParser {
+    List<SearchResult> parse(ResponseBody body) throws IOException;
+  }
 
-    Request request =
-        new Request.Builder()
-            .url(searchUrl)
-            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-            .build();
+  /** 一次对冲搜索：先发 HTML 搜索，失败、结果为空或超过对冲延迟仍未返回时再发 Instant Answer API，先得到非空结果的一方为准；两边都失败才算失败 */
+  private final class HedgedSearch {
 
-    try (Response response = httpClient.newCall(request).execute()) {
-      if (!response.isSuccessful()) {
-        log.warn("DuckDuckGo 搜索请求失败: {}", response.code());
-        return searchDuckDuckGoAPI(query, maxResults);
-      }
+    private final String query;
+    private final CompletableFuture<List<SearchResult>> result = new CompletableFuture<>();
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+    private boolean apiStarted;
+    private int pending;
 
-      String html = response.body().string();
-      results = parseDuckDuckGoHtml(html, maxResults);
-    }
+    /** 有一方正常返回了空结果，两边都没有结果时按“未找到”而不是失败处理 */
+    private boolean answered;
 
-    return results;
-  }
+    private Throwable lastError;
 
-  /**
-   * 使用 DuckDuckGo Instant Answer API
-   *
-   * @param query 搜索关键词
-   * @param maxResults 最大结果数
-   * @return 搜索结果列表
-   */
-  private List<SearchResult> searchDuckDuckGoAPI(String query, int maxResults) throws IOException {
-    List<SearchResult> results = new ArrayList<>();
-
-    String apiUrl =
-        String.format(
-            "https://api.duckduckgo.com/?q=%s&format=json&no_html=1&skip_disambig=1",
-            java.net.URLEncoder.encode(query, "UTF-8"));
+    private HedgedSearch(String query) {
+      this.query = query;
+    }
 
-    Request request = new Request.Builder().url(apiUrl).build();
+    private void start() {
+      launch(
+          htmlRequest(query),
+          body -> DuckDuckGoHtmlExtractor.extract(body.charStream(), FETCH_RESULTS));
+      CompletableFuture.delayedExecutor(hedgeMillis, TimeUnit.MILLISECONDS).execute(this::hedge);
+    }
 
-    try (Response response = httpClient.newCall(request).execute()) {
-      if (!response.isSuccessful()) {
-        throw new IOException("DuckDuckGo API 请求失败: " + response.code());
+    private synchronized void hedge() {
+      if (apiStarted || result.isDone()) {
+        return;
       }
+      apiStarted = true;
+      launch(apiRequest(query), body -> parseInstantAnswer(body.string(), FETCH_RESULTS));
+    }
 
-      String jsonData = response.body().string();
-      JSONObject json = JSON.parseObject(jsonData);
-
-      // 提取摘要信息
-      String abstractText = json.getString("Abstract");
-      String abstractSource = json.getString("AbstractSource");
-      String abstractUrl = json.getString("AbstractURL");
+    private synchronized void launch(Request request, BodyParser parser) {
+      pending++;
+      Call call = httpClient.newCall(request);
+      calls.add(call);
+      call.enqueue(
+          new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+              try (response) {
+                if (!response.isSuccessful()) {
+                  throw new IOException(
+                      "DuckDuckGo 请求失败: " + response.code() + " " + request.url().host());
+                }
+                // HTML 结果边下载边解析，凑够条数后关闭响应即不再读取剩余内容
+                finished(parser.parse(response.body()), null);
+              } catch (IOException | RuntimeException e) {
+                finished(null, e);
+              }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+              finished(null, e);
+            }
+          });
+    }
 
-      if (abstractText != null && !abstractText.isEmpty()) {
-        SearchResult result = new SearchResult();
-        result.setTitle(abstractSource != null ? abstractSource : "DuckDuckGo");
-        result.setSnippet(abstractText);
-        result.setUrl(abstractUrl != null ? abstractUrl : "");
-        results.add(result);
+    private synchronized void finished(List<SearchResult> results, Throwable error) {
+      pending--;
+      if (results != null && !results.isEmpty()) {
+        result.complete(results);
+        return;
       }
-
-      // 提取相关主题
-      JSONArray relatedTopics = json.getJSONArray("RelatedTopics");
-      if (relatedTopics != null) {
-        for (int i = 0; i < Math.min(relatedTopics.size(), maxResults - results.size()); i++) {
-          JSONObject topic = relatedTopics.getJSONObject(i);
-          if (topic != null && topic.containsKey("Text")) {
-            SearchResult result = new SearchResult();
-            result.setTitle(topic.getString("FirstURL") != null ? "相关主题" : "DuckDuckGo");
-            result.setSnippet(topic.getString("Text"));
-            result.setUrl(topic.getString("FirstURL"));
-            results.add(result);
-          }
+      if (results != null) {
+        answered = true;
+      } else {
+        lastError = error;
+      }
+      // HTML 搜索失败或无结果时不必等到对冲延迟
+      hedge();
+      if (pending == 0 && apiStarted) {
+        if (answered) {
+          result.complete(List.of());
+        } else {
+          result.completeExceptionally(lastError);
         }
       }
     }
 
-    return results;
+    private void cancel() {
+      calls.forEach(Call::cancel);
+    }
   }
 
   /**
-   * 解析 DuckDuckGo HTML 搜索结果
+   * 解析 DuckDuckGo Instant Answer API 的 JSON 响应
    *
-   * @param html HTML 内容
+   * @param jsonData JSON 内容
    * @param maxResults 最大结果数
    * @return 搜索结果列表
    */
-  private List<SearchResult> parseDuckDuckGoHtml(String html, int maxResults) {
+  private List<SearchResult> parseInstantAnswer(String jsonData, int maxResults) {
     List<SearchResult> results = new ArrayList<>();
+    JSONObject json = JSON.parseObject(jsonData);
+    if (json == null) {
+      return results;
+    }
 
-    // 简单的 HTML 解析
-    try {
-      String[] resultBlocks = html.split("result__a");
+    // 提取摘要信息
+    String abstractText = json.getString("Abstract");
+    String abstractSource = json.getString("AbstractSource");
+    String abstractUrl = json.getString("AbstractURL");
+
+    if (abstractText != null && !abstractText.isEmpty()) {
+      SearchResult result = new SearchResult();
+      result.setTitle(abstractSource != null ? abstractSource : "DuckDuckGo");
+      result.setSnippet(abstractText);
+      result.setUrl(abstractUrl != null ? abstractUrl : "");
+      results.add(result);
+    }
 
-      for (int i = 1; i < Math.min(resultBlocks.length, maxResults + 1); i++) {
-        String block = resultBlocks[i];
+    // 提取相关主题
+    JSONArray relatedTopics = json.getJSONArray("RelatedTopics");
+    if (relatedTopics != null) {
+      for (int i = 0; i < Math.min(relatedTopics.size(), maxResults - results.size()); i++) {
+        JSONObject topic = relatedTopics.getJSONObject(i);
+        if (topic != null && topic.containsKey("Text")) {
+          SearchResult result = new SearchResult();
+          result.setTitle(topic.getString("FirstURL") != null ? "相关主题" : "DuckDuckGo");
+          result.setSnippet(topic.getString("Text"));
+          result.setUrl(topic.getString("FirstURL"));
+          results.add(result);
+        }
+      }
+    }
 
-        SearchResult result = new SearchResult();
+    return results;
+  }
 
-        // 提取标题
-        int titleStart = block.indexOf(">") + 1;
-        int titleEnd = block.indexOf("</a>");
-        if (titleStart > 0 && titleEnd > titleStart) {
-          result.setTitle(cleanHtml(block.substring(titleStart, titleEnd)));
-        }
+  /** 连续失败达到阈值后熔断，冷却期过后只放行一次试探请求，成功即恢复 */
+  static final class CircuitBreaker {
 
-        // 提取 URL
-        int urlStart = block.indexOf("href=\"") + 6;
-        int urlEnd = block.indexOf("\"", urlStart);
-        if (urlStart > 5 && urlEnd > urlStart) {
-          String url = block.substring(urlStart, urlEnd);
-          // DuckDuckGo 使用重定向 URL
-          if (url.startsWith("//duckduckgo.com/l/?uddg=")) {
-            url = java.net.URLDecoder.decode(url.substring(25), "UTF-8");
-          }
-          result.setUrl(url);
-        }
+    private final int failureThreshold;
+    private final long openNanos;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean open;
+    private boolean probing;
 
-        // 提取摘要
-        result.setSnippet("搜索结果摘要");
+    CircuitBreaker(int failureThreshold, long openNanos) {
+      this.failureThreshold = failureThreshold;
+      this.openNanos = openNanos;
+    }
 
-        if (result.getTitle() != null && result.getUrl() != null) {
-          results.add(result);
-        }
+    synchronized boolean allowRequest() {
+      if (!open) {
+        return true;
+      }
+      if (probing || System.nanoTime() - openedAt < openNanos) {
+        return false;
       }
-    } catch (Exception e) {
-      log.error("解析 DuckDuckGo HTML 失败", e);
+      probing = true;
+      return true;
     }
 
-    return results;
-  }
+    synchronized void onSuccess() {
+      consecutiveFailures = 0;
+      open = false;
+      probing = false;
+    }
 
-  /** 清理 HTML 标签 */
-  private String cleanHtml(String html) {
-    return html.replaceAll("<[^>]*>", "")
-        .replaceAll("&nbsp;", " ")
-        .replaceAll("&amp;", "&")
-        .replaceAll("&quot;", "\"")
-        .trim();
+    synchronized void onFailure() {
+      consecutiveFailures++;
+      if (probing || consecutiveFailures >= failureThreshold) {
+        if (!open) {
+          log.warn("网络搜索连续失败 {} 次，熔断 {} 秒", consecutiveFailures, openNanos / 1_000_000_000);
+        }
+        open = true;
+        probing = false;
+        openedAt = System.nanoTime();
+      }
+    }
   }
 }
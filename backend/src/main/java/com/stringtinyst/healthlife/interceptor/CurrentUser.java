@@ -0,0 +1,22 @@
+package com.stringtinyst.healthlife.interceptor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 注入当前登录用户
+ *
+ * <p>参数类型为 {@code String} 时注入 userID，为 {@link io.jsonwebtoken.Claims} 时注入完整负载。数据来自 {@link
+ * LoginCheckInterceptor} 校验令牌后写入的请求属性，控制器无需再次解析 token
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+
+  /** 为 false 时未登录注入 null，由控制器自行处理 */
+  boolean required() default true;
+}
@@ -0,0 +1,52 @@
+package com.stringtinyst.healthlife.interceptor;
+
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/** 解析 {@link CurrentUser} 参数，只读取拦截器写入的请求属性，不重复校验令牌 */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    if (!parameter.hasParameterAnnotation(CurrentUser.class)) {
+      return false;
+    }
+    Class<?> type = parameter.getParameterType();
+    return type == String.class || Claims.class.isAssignableFrom(type);
+  }
+
+  @Override
+  public Object resolveArgument(
+      MethodParameter parameter,
+      ModelAndViewContainer mavContainer,
+      NativeWebRequest webRequest,
+      WebDataBinderFactory binderFactory) {
+    HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+    Object attribute =
+        request == null ? null : request.getAttribute(LoginCheckInterceptor.CLAIMS_ATTRIBUTE);
+    Claims claims = attribute instanceof Claims ? (Claims) attribute : null;
+
+    Object value = null;
+    if (claims != null) {
+      if (parameter.getParameterType() == String.class) {
+        Object userId = claims.get("userID");
+        value = userId == null || userId.toString().isEmpty() ? null : userId.toString();
+      } else {
+        value = claims;
+      }
+    }
+
+    CurrentUser annotation = parameter.getParameterAnnotation(CurrentUser.class);
+    if (value == null && annotation != null && annotation.required()) {
+      throw new IllegalArgumentException("无效的 token 或 token 中无 userId");
+    }
+    return value;
+  }
+}
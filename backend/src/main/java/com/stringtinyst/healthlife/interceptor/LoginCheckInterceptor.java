@@ -3,6 +3,7 @@ package com.stringtinyst.healthlife.interceptor;
 import com.alibaba.fastjson.JSONObject;
 import com.stringtinyst.healthlife.pojo.Result;
 import com.stringtinyst.healthlife.utils.JwtUtils;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,6 +19,9 @@ import org.springframework.web.servlet.ModelAndView;
 @Component
 public class LoginCheckInterceptor implements HandlerInterceptor {
 
+  /** 校验通过的 {@link Claims} 存放在该请求属性中，供 {@link CurrentUser} 参数注入 */
+  public static final String CLAIMS_ATTRIBUTE = LoginCheckInterceptor.class.getName() + ".claims";
+
   private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
   private static final String[] AUTH_WHITELIST = {
     "/actuator/health",
@@ -42,27 +46,7 @@ public class LoginCheckInterceptor implements HandlerInterceptor {
       return true;
     }
 
-    // 支持三种格式：1. token header  2. Authorization: Bearer <token>  3. Cookie 中的 token
-    String jwt = req.getHeader("token");
-    if (!StringUtils.hasLength(jwt)) {
-      String authorization = req.getHeader("Authorization");
-      if (StringUtils.hasLength(authorization) && authorization.startsWith("Bearer ")) {
-        jwt = authorization.substring(7); // 移除 "Bearer " 前缀
-      }
-    }
-
-    // 如果 header 中没有 token，尝试从 Cookie 中获取
-    if (!StringUtils.hasLength(jwt)) {
-      Cookie[] cookies = req.getCookies();
-      if (cookies != null) {
-        for (Cookie cookie : cookies) {
-          if ("token".equals(cookie.getName())) {
-            jwt = cookie.getValue();
-            break;
-          }
-        }
-      }
-    }
+    String jwt = resolveToken(req);
 
     if (!StringUtils.hasLength(jwt)) {
       log.warn("请求未携带 token (header/cookie): {}", url);
@@ -74,7 +58,8 @@ public class LoginCheckInterceptor implements HandlerInterceptor {
     }
 
     try {
-      jwtUtils.parseJWT(jwt);
+      Claims claims = jwtUtils.parseJWT(jwt);
+      req.setAttribute(CLAIMS_ATTRIBUTE, claims);
     } catch (Exception e) {
       log.error("Token 验证失败: {}", e.getMessage());
       Result error = Result.error("登录已过期，请重新登录");
@@ -86,6 +71,29 @@ public class LoginCheckInterceptor implements HandlerInterceptor {
     return true;
   }
 
+  /** 支持三种格式：1. token header 2. Authorization: Bearer <token> 3. Cookie 中的 token */
+  private static String resolveToken(HttpServletRequest req) {
+    String jwt = req.getHeader("token");
+    if (StringUtils.hasLength(jwt)) {
+      return jwt;
+    }
+
+    String authorization = req.getHeader("Authorization");
+    if (StringUtils.hasLength(authorization) && authorization.startsWith("Bearer ")) {
+      return authorization.substring(7); // 移除 "Bearer " 前缀
+    }
+
+    Cookie[] cookies = req.getCookies();
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if ("token".equals(cookie.getName())) {
+          return cookie.getValue();
+        }
+      }
+    }
+    return null;
+  }
+
   private boolean isWhitelisted(String url) {
     for (String pattern : AUTH_WHITELIST) {
       if (PATH_MATCHER.match(pattern, url)) {
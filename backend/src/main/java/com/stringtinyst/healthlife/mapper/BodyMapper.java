@@ -4,6 +4,7 @@ import com.stringtinyst.healthlife.pojo.Body;
 import java.time.LocalDate;
 import java.util.List;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface BodyMapper {
@@ -31,6 +32,21 @@ public interface BodyMapper {
 
   List<Body> list(String userID, LocalDate begin, LocalDate end);
 
+  /**
+   * 按 (RecordDate, BodyMetricID) 倒序游标查询，cursorDate 为空时从第一行开始
+   *
+   * @param limit 最多返回的行数
+   */
+  List<Body> listAfter(
+      String userID,
+      LocalDate begin,
+      LocalDate end,
+      LocalDate cursorDate,
+      Integer cursorId,
+      int limit);
+
+  Cursor<Body> streamList(String userID, LocalDate begin, LocalDate end);
+
   @Delete("DELETE FROM bodymetrics WHERE BodyMetricID = #{bodyMetricID}")
   void removeBody(int bodyMetricID);
 }
@@ -0,0 +1,26 @@
+package com.stringtinyst.healthlife.mapper;
+
+import com.stringtinyst.healthlife.pojo.ChatMessage;
+import java.util.List;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface ChatMessageMapper {
+
+  int insertBatch(List<ChatMessage> messages);
+
+  /** 取会话最近的 limit 条消息，按写入顺序返回 */
+  @Select(
+      "SELECT * FROM (SELECT * FROM chat_message WHERE ConversationID = #{conversationID} ORDER BY MessageID DESC LIMIT #{limit}) recent ORDER BY MessageID")
+  List<ChatMessage> listRecent(String conversationID, int limit);
+
+  /** 会话最后一条消息的 ID，没有消息时为 0 */
+  @Select(
+      "SELECT COALESCE(MAX(MessageID), 0) FROM chat_message WHERE ConversationID = #{conversationID}")
+  long lastMessageId(String conversationID);
+
+  @Delete("DELETE FROM chat_message WHERE ConversationID = #{conversationID}")
+  int deleteByConversation(String conversationID);
+}
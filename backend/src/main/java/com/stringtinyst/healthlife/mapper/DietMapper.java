@@ -1,9 +1,11 @@
 package com.stringtinyst.healthlife.mapper;
 
 import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Food;
 import java.time.LocalDate;
 import java.util.List;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface DietMapper {
@@ -15,6 +17,17 @@ public interface DietMapper {
 
   List<Diet> list(String userID, LocalDate startDate, LocalDate endDate, String mealType);
 
+  List<Diet> listAfter(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String mealType,
+      LocalDate cursorDate,
+      Integer cursorId,
+      int limit);
+
+  Cursor<Diet> streamList(String userID, LocalDate startDate, LocalDate endDate, String mealType);
+
   @Select("SELECT * FROM dietitem WHERE DietItemID = #{dietItemID}")
   Diet getByDietItemByID(int dietItemID);
 
@@ -24,4 +37,9 @@ public interface DietMapper {
 
   @Delete("DELETE FROM dietitem WHERE DietItemID = #{dietItemID}")
   void deleteDiet(int dietItemID);
+
+  /** 至少 minUsers 个不同用户记录过的食物名称，按出现次数取前 limit 个，附带平均热量 */
+  @Select(
+      "SELECT FoodName AS name, COUNT(*) AS loggedCount, ROUND(AVG(EstimatedCalories)) AS loggedCalories FROM dietitem GROUP BY FoodName HAVING COUNT(DISTINCT UserID) >= #{minUsers} ORDER BY loggedCount DESC LIMIT #{limit}")
+  List<Food> listLoggedFoods(int minUsers, int limit);
 }
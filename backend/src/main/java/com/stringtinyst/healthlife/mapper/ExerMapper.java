@@ -9,11 +9,24 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface ExerMapper {
   List<Exer> list(String userID, LocalDate startDate, LocalDate endDate, String exerciseType);
 
+  List<Exer> listAfter(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String exerciseType,
+      LocalDate cursorDate,
+      Integer cursorId,
+      int limit);
+
+  Cursor<Exer> streamList(
+      String userID, LocalDate startDate, LocalDate endDate, String exerciseType);
+
   @Insert(
       "INSERT INTO exerciseitem(UserID, RecordDate, ExerciseType, DurationMinutes, EstimatedCaloriesBurned) VALUES (#{userID}, #{recordDate}, #{exerciseType}, #{durationMinutes}, #{estimatedCaloriesBurned})")
   @Options(useGeneratedKeys = true, keyProperty = "exerciseItemID", keyColumn = "ExerciseItemID")
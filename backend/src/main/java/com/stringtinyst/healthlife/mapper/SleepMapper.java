@@ -9,12 +9,23 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface SleepMapper {
 
   List<Sleep> list(String userID, LocalDate startDate, LocalDate endDate);
 
+  List<Sleep> listAfter(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      LocalDate cursorDate,
+      Integer cursorId,
+      int limit);
+
+  Cursor<Sleep> streamList(String userID, LocalDate startDate, LocalDate endDate);
+
   @Insert(
       "INSERT INTO sleepitem(UserID, RecordDate, BedTime, WakeTime) VALUES (#{userID}, #{recordDate}, #{bedTime}, #{wakeTime})")
   @Options(useGeneratedKeys = true, keyProperty = "sleepItemID", keyColumn = "SleepItemID")
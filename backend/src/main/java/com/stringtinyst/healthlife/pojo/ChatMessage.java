@@ -0,0 +1,17 @@
+package com.stringtinyst.healthlife.pojo;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatMessage {
+  private long messageID;
+  private String conversationID;
+  private String messageType;
+  private String content;
+  private LocalDateTime createdAt;
+}
@@ -0,0 +1,32 @@
+package com.stringtinyst.healthlife.pojo;
+
+import java.util.List;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** 游标分页结果：不返回总数，只返回下一页的不透明游标，末页时 nextCursor 为 null */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageBean<T> {
+  private List<T> rows;
+  private String nextCursor;
+
+  /**
+   * 由多取一行的查询结果构造分页结果
+   *
+   * @param fetched 按 pageSize + 1 查询得到的数据
+   * @param pageSize 每页大小
+   * @param cursorOf 根据一页的最后一行生成游标
+   */
+  public static <T> CursorPageBean<T> of(
+      List<T> fetched, int pageSize, Function<T, String> cursorOf) {
+    if (fetched.size() <= pageSize) {
+      return new CursorPageBean<>(fetched, null);
+    }
+    List<T> rows = fetched.subList(0, pageSize);
+    return new CursorPageBean<>(rows, cursorOf.apply(rows.get(pageSize - 1)));
+  }
+}
@@ -0,0 +1,41 @@
+package com.stringtinyst.healthlife.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 食物词典条目
+ *
+ * <p>内置食物成分表的条目带有每 100 克营养成分；仅出现在用户饮食记录中的食物只有名称与记录统计，营养字段为 null
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Food {
+  private String name;
+  private String pinyin;
+  private String category;
+
+  /** 每 100 克可食部 */
+  private Integer kcal;
+
+  private Double protein;
+  private Double fat;
+  private Double carbohydrate;
+
+  /** 常见份量，如 "1碗" 约 150 克 */
+  private Integer servingGrams;
+
+  private String serving;
+
+  /** 饮食记录中出现的次数 */
+  private int loggedCount;
+
+  /** 饮食记录中每次的平均热量 */
+  private Integer loggedCalories;
+
+  public boolean hasNutrition() {
+    return kcal != null;
+  }
+}
@@ -0,0 +1,27 @@
+package com.stringtinyst.healthlife.pojo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** 用户健康数据快照：最新身体数据、近 7 天热量收支与最近一次睡眠，没有记录的字段为 null */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthSnapshot {
+  /** 快照对应的日期，近 7 天指截至该日（含）的 7 天 */
+  private LocalDate asOf;
+
+  private BigDecimal heightCM;
+  private BigDecimal weightKG;
+  private BigDecimal bmi;
+  private LocalDate bodyRecordDate;
+
+  private Integer caloriesIn7d;
+  private Integer caloriesOut7d;
+
+  private BigDecimal lastSleepHours;
+  private LocalDate lastSleepDate;
+}
@@ -1,8 +1,10 @@
 package com.stringtinyst.healthlife.service;
 
 import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 public interface BodyService {
   Body getByUserID(String userID);
@@ -12,6 +14,11 @@ public interface BodyService {
   PageBean<Body> page(
       Integer page, Integer pageSize, String userID, LocalDate begin, LocalDate end);
 
+  CursorPageBean<Body> pageByCursor(
+      String cursor, Integer pageSize, String userID, LocalDate begin, LocalDate end);
+
+  void streamAll(String userID, LocalDate begin, LocalDate end, Consumer<Body> consumer);
+
   Body getByBodyID(int bodyMetricID);
 
   void updateBody(Body body);
@@ -0,0 +1,31 @@
+package com.stringtinyst.healthlife.service;
+
+import java.util.List;
+import org.springframework.ai.chat.messages.Message;
+
+/**
+ * 会话消息的持久化存储，由 {@code ai.chat.memory.store} 选择实现（jdbc / file），未配置时会话只保存在内存中
+ *
+ * <p>热数据由 {@link com.stringtinyst.healthlife.utils.UserChatSessionManager}
+ * 的内存尾部提供，会话冷启动时读取一次；多个实例共享的存储另外提供 {@link #lastSequence}，用于发现其它实例的写入
+ */
+public interface ChatMessageStore {
+
+  /** 异步追加，不阻塞流式响应 */
+  void append(String conversationId, List<Message> messages);
+
+  /** 按写入顺序返回最近的 limit 条消息，包含本实例已提交的追加 */
+  List<Message> loadRecent(String conversationId, int limit);
+
+  /** 排在已提交的追加之后执行，返回时已删除 */
+  void clear(String conversationId);
+
+  /**
+   * 会话最后一条消息的序号，任何实例追加或清空后都会变化；-1 表示存储只供单个实例使用，不需要校验
+   *
+   * <p>包含本实例已提交的追加
+   */
+  default long lastSequence(String conversationId) {
+    return -1;
+  }
+}
@@ -1,8 +1,10 @@
 package com.stringtinyst.healthlife.service;
 
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.Diet;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 public interface DietService {
   void addDiet(Diet diet);
@@ -15,6 +17,21 @@ public interface DietService {
       LocalDate endDate,
       String mealType);
 
+  CursorPageBean<Diet> pageByCursor(
+      String cursor,
+      Integer pageSize,
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String mealType);
+
+  void streamAll(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String mealType,
+      Consumer<Diet> consumer);
+
   Diet getByDietItemByID(int dietItemID);
 
   void updateDiet(Diet diet);
@@ -1,8 +1,10 @@
 package com.stringtinyst.healthlife.service;
 
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.Exer;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 public interface ExerService {
   PageBean<Exer> page(
@@ -13,6 +15,21 @@ public interface ExerService {
       LocalDate endDate,
       String exerciseType);
 
+  CursorPageBean<Exer> pageByCursor(
+      String cursor,
+      Integer pageSize,
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String exerciseType);
+
+  void streamAll(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String exerciseType,
+      Consumer<Exer> consumer);
+
   void addExer(Exer exer);
 
   Exer getByExerItemID(int exerciseItemID);
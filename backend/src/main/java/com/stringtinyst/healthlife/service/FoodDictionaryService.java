@@ -0,0 +1,18 @@
+package com.stringtinyst.healthlife.service;
+
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Food;
+import java.util.List;
+
+/** 食物词典：内置食物成分表加上用户记录过的食物名称，提供输入补全与热量查询 */
+public interface FoodDictionaryService {
+
+  /** 按名称或拼音前缀补全，常用的排在前面 */
+  List<Food> suggest(String prefix, int limit);
+
+  /** 名称或拼音完全一致的条目；没有时退回前缀补全的第一条，仍没有返回 null */
+  Food lookup(String name);
+
+  /** 新增饮食记录后调用，把食物名称与热量计入词典；修改与删除不回调，统计在下次启动从饮食记录重新加载时更正 */
+  void onFoodLogged(Diet diet);
+}
@@ -0,0 +1,24 @@
+package com.stringtinyst.healthlife.service;
+
+import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Exer;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import com.stringtinyst.healthlife.pojo.Sleep;
+
+/** 按用户维护的健康数据快照，新增记录时增量更新，修改或删除记录时重新加载 */
+public interface HealthSnapshotService {
+
+  HealthSnapshot getSnapshot(String userID);
+
+  void onBodyAdded(Body body);
+
+  void onDietAdded(Diet diet);
+
+  void onExerciseAdded(Exer exer);
+
+  void onSleepAdded(Sleep sleep);
+
+  /** 记录被修改或删除后调用，下次读取时从数据库重新加载 */
+  void invalidate(String userID);
+}
@@ -1,8 +1,10 @@
 package com.stringtinyst.healthlife.service;
 
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.pojo.Sleep;
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 public interface SleepService {
   void addSleep(Sleep sleep);
@@ -10,6 +12,11 @@ public interface SleepService {
   PageBean<Sleep> page(
       Integer page, Integer pageSize, String userID, LocalDate startDate, LocalDate endDate);
 
+  CursorPageBean<Sleep> pageByCursor(
+      String cursor, Integer pageSize, String userID, LocalDate startDate, LocalDate endDate);
+
+  void streamAll(String userID, LocalDate startDate, LocalDate endDate, Consumer<Sleep> consumer);
+
   Sleep getBySleepItemID(int sleepItemID);
 
   void updateSleep(Sleep sleep);
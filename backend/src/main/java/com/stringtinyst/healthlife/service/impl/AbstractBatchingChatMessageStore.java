@@ -0,0 +1,214 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import com.stringtinyst.healthlife.pojo.ChatMessage;
+import com.stringtinyst.healthlife.service.ChatMessageStore;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+/**
+ * 后台单线程批量写入：追加与清空按提交顺序进入同一队列，写线程每次取出队列中已积压的操作合并为一批
+ *
+ * <p>队列满时丢弃追加并记录告警（内存中的会话不受影响），清空操作则阻塞等待入队，保证不会漏删
+ *
+ * <p>读取（{@link #loadRecent}、{@link
+ * #lastSequence}）先等待该会话已提交的操作写完，清空则等到删除执行完才返回：刚清空或刚追加后的读取不会拿到旧数据，排队中的删除也不会删掉之后写入的消息
+ */
+@Slf4j
+public abstract class AbstractBatchingChatMessageStore implements ChatMessageStore {
+
+  /** message 为 null 表示清空该会话 */
+  private record Pending(String conversationId, ChatMessage message) {}
+
+  /** 等待写入时最多阻塞的时间，写线程卡住时读取照常进行 */
+  private static final long AWAIT_MILLIS = 5_000;
+
+  private final BlockingQueue<Pending> queue;
+
+  /** 各会话已入队、尚未写完的操作数 */
+  private final Map<String, Integer> pending = new HashMap<>();
+
+  private final int batchSize;
+  private final long pollMillis;
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  protected AbstractBatchingChatMessageStore(
+      String name, int batchSize, long flushIntervalMillis, int queueCapacity) {
+    this.batchSize = batchSize > 0 ? batchSize : 100;
+    this.pollMillis = flushIntervalMillis > 0 ? flushIntervalMillis : 200;
+    this.queue = new LinkedBlockingQueue<>(queueCapacity > 0 ? queueCapacity : 10_000);
+    this.writer = new Thread(this::drainLoop, name);
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /** 写入同一批消息，可能包含多个会话 */
+  protected abstract void writeBatch(List<ChatMessage> batch) throws Exception;
+
+  /** 按写入顺序读取最近的 limit 条消息，调用前已写完该会话排队中的操作 */
+  protected abstract List<Message> readRecent(String conversationId, int limit);
+
+  protected abstract void deleteConversation(String conversationId) throws Exception;
+
+  @Override
+  public void append(String conversationId, List<Message> messages) {
+    LocalDateTime now = LocalDateTime.now();
+    for (Message message : messages) {
+      ChatMessage record = toRecord(conversationId, message, now);
+      if (record == null) {
+        continue;
+      }
+      enqueued(conversationId);
+      if (!queue.offer(new Pending(conversationId, record))) {
+        completed(conversationId);
+        log.warn("会话消息写入队列已满，丢弃一条消息: conversationId={}", conversationId);
+      }
+    }
+  }
+
+  @Override
+  public List<Message> loadRecent(String conversationId, int limit) {
+    awaitPending(conversationId);
+    return readRecent(conversationId, limit);
+  }
+
+  @Override
+  public void clear(String conversationId) {
+    enqueued(conversationId);
+    try {
+      queue.put(new Pending(conversationId, null));
+    } catch (InterruptedException e) {
+      completed(conversationId);
+      Thread.currentThread().interrupt();
+      return;
+    }
+    awaitPending(conversationId);
+  }
+
+  /** 等待该会话此前提交的追加与清空全部写完 */
+  protected void awaitPending(String conversationId) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AWAIT_MILLIS);
+    synchronized (pending) {
+      while (pending.containsKey(conversationId)) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+          log.warn("等待会话消息写入超时: conversationId={}", conversationId);
+          return;
+        }
+        try {
+          pending.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void enqueued(String conversationId) {
+    synchronized (pending) {
+      pending.merge(conversationId, 1, Integer::sum);
+    }
+  }
+
+  private void completed(String conversationId) {
+    synchronized (pending) {
+      pending.computeIfPresent(conversationId, (k, count) -> count == 1 ? null : count - 1);
+      pending.notifyAll();
+    }
+  }
+
+  /** 停止接收新的批次，并把队列中剩余的操作全部写完 */
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drainLoop() {
+    List<Pending> drained = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        drained.add(first);
+        queue.drainTo(drained, batchSize - 1);
+        flush(drained);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        drained.clear();
+      }
+    }
+  }
+
+  private void flush(List<Pending> drained) {
+    List<ChatMessage> batch = new ArrayList<>(drained.size());
+    for (Pending op : drained) {
+      if (op.message() != null) {
+        batch.add(op.message());
+        continue;
+      }
+      writeQuietly(batch);
+      batch = new ArrayList<>();
+      try {
+        deleteConversation(op.conversationId());
+      } catch (Exception e) {
+        log.error("清空会话消息失败: conversationId={}", op.conversationId(), e);
+      } finally {
+        completed(op.conversationId());
+      }
+    }
+    writeQuietly(batch);
+  }
+
+  private void writeQuietly(List<ChatMessage> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      writeBatch(batch);
+    } catch (Exception e) {
+      log.error("批量写入会话消息失败，丢弃 {} 条", batch.size(), e);
+    } finally {
+      batch.forEach(message -> completed(message.getConversationID()));
+    }
+  }
+
+  /** 只持久化对话文本，工具调用的中间消息不参与回放 */
+  static ChatMessage toRecord(String conversationId, Message message, LocalDateTime createdAt) {
+    MessageType type = message.getMessageType();
+    if (type == MessageType.TOOL || message.getText() == null) {
+      return null;
+    }
+    return new ChatMessage(0, conversationId, type.name(), message.getText(), createdAt);
+  }
+
+  static Message toMessage(String messageType, String content) {
+    return switch (MessageType.valueOf(messageType)) {
+      case USER -> new UserMessage(content);
+      case SYSTEM -> new SystemMessage(content);
+      default -> new AssistantMessage(content);
+    };
+  }
+}
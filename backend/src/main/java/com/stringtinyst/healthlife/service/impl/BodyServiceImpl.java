@@ -4,16 +4,25 @@ import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.stringtinyst.healthlife.mapper.BodyMapper;
 import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.service.BodyService;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import com.stringtinyst.healthlife.utils.PageCursor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class BodyServiceImpl implements BodyService {
   @Autowired private BodyMapper bodyMapper;
+  @Autowired private HealthSnapshotService healthSnapshotService;
 
   @Override
   public Body getByUserID(String userID) {
@@ -23,6 +32,7 @@ public class BodyServiceImpl implements BodyService {
   @Override
   public void addBody(Body body) {
     bodyMapper.insertBody(body);
+    healthSnapshotService.onBodyAdded(body);
   }
 
   @Override
@@ -35,6 +45,33 @@ public class BodyServiceImpl implements BodyService {
     return new PageBean<>(p.getTotal(), p.getResult());
   }
 
+  @Override
+  public CursorPageBean<Body> pageByCursor(
+      String cursor, Integer pageSize, String userID, LocalDate begin, LocalDate end) {
+    PageCursor after = PageCursor.decode(cursor);
+    int size = PageCursor.normalizePageSize(pageSize);
+    List<Body> bodyList =
+        bodyMapper.listAfter(
+            userID,
+            begin,
+            end,
+            after == null ? null : after.recordDate(),
+            after == null ? null : after.id(),
+            size + 1);
+    return CursorPageBean.of(
+        bodyList, size, last -> PageCursor.encode(last.getRecordDate(), last.getBodyMetricID()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void streamAll(String userID, LocalDate begin, LocalDate end, Consumer<Body> consumer) {
+    try (Cursor<Body> cursor = bodyMapper.streamList(userID, begin, end)) {
+      cursor.forEach(consumer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   @Override
   public Body getByBodyID(int bodyMetricID) {
     return bodyMapper.getByBodyID(bodyMetricID);
@@ -43,10 +80,15 @@ public class BodyServiceImpl implements BodyService {
   @Override
   public void updateBody(Body body) {
     bodyMapper.updateBody(body);
+    healthSnapshotService.invalidate(body.getUserID());
   }
 
   @Override
   public void deleteBody(int bodyMetricID) {
+    Body existing = bodyMapper.getByBodyID(bodyMetricID);
     bodyMapper.removeBody(bodyMetricID);
+    if (existing != null) {
+      healthSnapshotService.invalidate(existing.getUserID());
+    }
   }
 }
@@ -3,22 +3,35 @@ package com.stringtinyst.healthlife.service.impl;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.stringtinyst.healthlife.mapper.DietMapper;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.Diet;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.service.DietService;
+import com.stringtinyst.healthlife.service.FoodDictionaryService;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import com.stringtinyst.healthlife.utils.PageCursor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class DietServiceImpl implements DietService {
 
   @Autowired private DietMapper dietMapper;
+  @Autowired private HealthSnapshotService healthSnapshotService;
+  @Autowired private FoodDictionaryService foodDictionaryService;
 
   @Override
   public void addDiet(Diet diet) {
     dietMapper.insertDiet(diet);
+    healthSnapshotService.onDietAdded(diet);
+    foodDictionaryService.onFoodLogged(diet);
   }
 
   @Override
@@ -35,6 +48,45 @@ public class DietServiceImpl implements DietService {
     return new PageBean<>(dietPage.getTotal(), dietPage.getResult());
   }
 
+  @Override
+  public CursorPageBean<Diet> pageByCursor(
+      String cursor,
+      Integer pageSize,
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String mealType) {
+    PageCursor after = PageCursor.decode(cursor);
+    int size = PageCursor.normalizePageSize(pageSize);
+    List<Diet> dietList =
+        dietMapper.listAfter(
+            userID,
+            startDate,
+            endDate,
+            mealType,
+            after == null ? null : after.recordDate(),
+            after == null ? null : after.id(),
+            size + 1);
+    return CursorPageBean.of(
+        dietList, size, last -> PageCursor.encode(last.getRecordDate(), last.getDietItemID()));
+  }
+
+  /** Cursor 只在事务内保持打开，因此逐行回调必须在本方法内完成 */
+  @Override
+  @Transactional(readOnly = true)
+  public void streamAll(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String mealType,
+      Consumer<Diet> consumer) {
+    try (Cursor<Diet> cursor = dietMapper.streamList(userID, startDate, endDate, mealType)) {
+      cursor.forEach(consumer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   @Override
   public Diet getByDietItemByID(int dietItemID) {
     return dietMapper.getByDietItemByID(dietItemID);
@@ -43,10 +95,15 @@ public class DietServiceImpl implements DietService {
   @Override
   public void updateDiet(Diet diet) {
     dietMapper.updateDiet(diet);
+    healthSnapshotService.invalidate(diet.getUserID());
   }
 
   @Override
   public void deleteDiet(int dietItemID) {
+    Diet existing = dietMapper.getByDietItemByID(dietItemID);
     dietMapper.deleteDiet(dietItemID);
+    if (existing != null) {
+      healthSnapshotService.invalidate(existing.getUserID());
+    }
   }
 }
@@ -3,17 +3,26 @@ package com.stringtinyst.healthlife.service.impl;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.stringtinyst.healthlife.mapper.ExerMapper;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.Exer;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.service.ExerService;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import com.stringtinyst.healthlife.utils.PageCursor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ExerServiceImpl implements ExerService {
   @Autowired private ExerMapper exerMapper;
+  @Autowired private HealthSnapshotService healthSnapshotService;
 
   @Override
   public PageBean<Exer> page(
@@ -29,9 +38,48 @@ public class ExerServiceImpl implements ExerService {
     return new PageBean<>(p.getTotal(), p.getResult());
   }
 
+  @Override
+  public CursorPageBean<Exer> pageByCursor(
+      String cursor,
+      Integer pageSize,
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String exerciseType) {
+    PageCursor after = PageCursor.decode(cursor);
+    int size = PageCursor.normalizePageSize(pageSize);
+    List<Exer> exerList =
+        exerMapper.listAfter(
+            userID,
+            startDate,
+            endDate,
+            exerciseType,
+            after == null ? null : after.recordDate(),
+            after == null ? null : after.id(),
+            size + 1);
+    return CursorPageBean.of(
+        exerList, size, last -> PageCursor.encode(last.getRecordDate(), last.getExerciseItemID()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void streamAll(
+      String userID,
+      LocalDate startDate,
+      LocalDate endDate,
+      String exerciseType,
+      Consumer<Exer> consumer) {
+    try (Cursor<Exer> cursor = exerMapper.streamList(userID, startDate, endDate, exerciseType)) {
+      cursor.forEach(consumer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   @Override
   public void addExer(Exer exer) {
     exerMapper.insertExer(exer);
+    healthSnapshotService.onExerciseAdded(exer);
   }
 
   @Override
@@ -42,10 +90,15 @@ public class ExerServiceImpl implements ExerService {
   @Override
   public void updateExer(Exer exer) {
     exerMapper.updateExer(exer);
+    healthSnapshotService.invalidate(exer.getUserID());
   }
 
   @Override
   public void deleteExer(int exerciseItemID) {
+    Exer existing = exerMapper.getByExerItemID(exerciseItemID);
     exerMapper.deleteExer(exerciseItemID);
+    if (existing != null) {
+      healthSnapshotService.invalidate(existing.getUserID());
+    }
   }
 }
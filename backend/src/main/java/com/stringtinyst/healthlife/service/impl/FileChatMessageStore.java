@@ -0,0 +1,141 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import com.stringtinyst.healthlife.pojo.ChatMessage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * 单机部署时的本地存储：每个会话一个只追加的 JSON Lines 文件，文件超过上限时压缩为最近的若干条
+ *
+ * <p>仅适用于单实例，多实例请使用 jdbc
+ */
+@Service
+@ConditionalOnProperty(name = "ai.chat.memory.store", havingValue = "file")
+public class FileChatMessageStore extends AbstractBatchingChatMessageStore {
+
+  private static final Pattern SAFE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+  private static final long MAX_FILE_BYTES = 4L * 1024 * 1024;
+  private static final int COMPACT_KEEP_LINES = 1_000;
+
+  private final Path directory;
+
+  public FileChatMessageStore(
+      @Value("${ai.chat.memory.file-dir:data/chat-memory}") String directory,
+      @Value("${ai.chat.memory.batch-size:100}") int batchSize,
+      @Value("${ai.chat.memory.flush-interval-ms:200}") long flushIntervalMillis,
+      @Value("${ai.chat.memory.queue-capacity:10000}") int queueCapacity)
+      throws IOException {
+    super("chat-memory-file-writer", batchSize, flushIntervalMillis, queueCapacity);
+    this.directory = Files.createDirectories(Paths.get(directory));
+  }
+
+  @Override
+  protected List<Message> readRecent(String conversationId, int limit) {
+    List<Message> messages = new ArrayList<>();
+    for (String line : readTail(fileOf(conversationId), limit)) {
+      JSONObject json = JSONObject.parseObject(line);
+      messages.add(toMessage(json.getString("t"), json.getString("m")));
+    }
+    return messages;
+  }
+
+  @Override
+  protected void writeBatch(List<ChatMessage> batch) throws IOException {
+    Map<String, List<String>> linesByConversation = new LinkedHashMap<>();
+    for (ChatMessage message : batch) {
+      JSONObject json = new JSONObject(true);
+      json.put("t", message.getMessageType());
+      json.put("m", message.getContent());
+      json.put("ts", message.getCreatedAt().toString());
+      linesByConversation
+          .computeIfAbsent(message.getConversationID(), k -> new ArrayList<>())
+          .add(json.toJSONString());
+    }
+    for (Map.Entry<String, List<String>> entry : linesByConversation.entrySet()) {
+      Path file = fileOf(entry.getKey());
+      Files.write(
+          file,
+          entry.getValue(),
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      if (Files.size(file) > MAX_FILE_BYTES) {
+        compact(file);
+      }
+    }
+  }
+
+  @Override
+  protected void deleteConversation(String conversationId) throws IOException {
+    Files.deleteIfExists(fileOf(conversationId));
+  }
+
+  private void compact(Path file) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.write(temp, readTail(file, COMPACT_KEEP_LINES), StandardCharsets.UTF_8);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static List<String> readTail(Path file, int limit) {
+    if (limit <= 0) {
+      return List.of();
+    }
+    Deque<String> tail = new ArrayDeque<>(Math.max(1, limit));
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        if (tail.size() == limit) {
+          tail.removeFirst();
+        }
+        tail.addLast(line);
+      }
+    } catch (NoSuchFileException e) {
+      return List.of();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new ArrayList<>(tail);
+  }
+
+  /** 会话 ID 一般是 UUID，其它字符一律转为摘要，避免拼出目录外的路径 */
+  private Path fileOf(String conversationId) {
+    String name =
+        SAFE_ID.matcher(conversationId).matches() ? conversationId : sha256(conversationId);
+    return directory.resolve(name + ".jsonl");
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 不可用", e);
+    }
+  }
+}
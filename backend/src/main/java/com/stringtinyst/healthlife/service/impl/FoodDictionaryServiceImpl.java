@@ -0,0 +1,251 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import com.stringtinyst.healthlife.mapper.DietMapper;
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Food;
+import com.stringtinyst.healthlife.service.FoodDictionaryService;
+import com.stringtinyst.healthlife.utils.FoodTable;
+import com.stringtinyst.healthlife.utils.FoodTrie;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 食物词典的内存实现
+ *
+ * <p>启动时加载内置食物成分表与饮食记录中出现次数最多的食物名称（food.dictionary.max-logged-names），构建成只读的 {@link FoodTrie}；
+ * 之后新记录只更新内存中的统计并标记过期，读取时发现过期且距上次构建超过 food.dictionary.refresh-seconds 才在后台重建，请求线程始终读旧的前缀树，不等待构建
+ *
+ * <p>饮食记录中的名称是自由文本，只有至少 food.dictionary.min-distinct-users 个不同用户记录过的名称及其平均热量才会进入词典，
+ * 单个用户的记录不会经补全或热量查询暴露给其他用户；启动时未达到门槛的名称不加载，其记录人从启动后重新计数
+ *
+ * <p>排序按被记录次数，内置条目额外计 {@link #BUNDLED_WEIGHT} 次，偶尔记错的名称不会排到常见食物前面
+ */
+@Slf4j
+@Service
+public class FoodDictionaryServiceImpl implements FoodDictionaryService {
+
+  static final int BUNDLED_WEIGHT = 5;
+
+  /** 超过该长度的多半是一句描述而不是食物名称，不收录 */
+  static final int MAX_NAME_LENGTH = 32;
+
+  private static final Comparator<Food> RANKING =
+      Comparator.comparingInt(FoodDictionaryServiceImpl::weight)
+          .reversed()
+          .thenComparingInt(food -> food.getName().length())
+          .thenComparing(Food::getName);
+
+  /** 饮食记录中某个名称的统计；users 为尚未达到公开门槛时记录过它的用户，达到后为 null */
+  private record LoggedFood(int count, Integer calories, Set<String> users) {
+    boolean shared() {
+      return users == null;
+    }
+  }
+
+  private final List<Food> bundled;
+  private final Map<String, LoggedFood> logged = new ConcurrentHashMap<>();
+  private final int maxLoggedNames;
+  private final int minDistinctUsers;
+  private final long refreshNanos;
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+  private volatile boolean stale;
+  private volatile long builtAt;
+  private volatile FoodTrie trie;
+
+  @Autowired
+  public FoodDictionaryServiceImpl(
+      DietMapper dietMapper,
+      @Value("${food.dictionary.max-logged-names:20000}") int maxLoggedNames,
+      @Value("${food.dictionary.min-distinct-users:3}") int minDistinctUsers,
+      @Value("${food.dictionary.refresh-seconds:60}") long refreshSeconds) {
+    this(
+        FoodTable.load(),
+        loadLogged(dietMapper, Math.max(minDistinctUsers, 1), maxLoggedNames),
+        maxLoggedNames,
+        minDistinctUsers,
+        refreshSeconds);
+  }
+
+  /**
+   * @param loggedFoods 已达到公开门槛的记录名称
+   */
+  FoodDictionaryServiceImpl(
+      List<Food> bundled,
+      List<Food> loggedFoods,
+      int maxLoggedNames,
+      int minDistinctUsers,
+      long refreshSeconds) {
+    this.bundled = List.copyOf(bundled);
+    this.maxLoggedNames = maxLoggedNames;
+    this.minDistinctUsers = Math.max(minDistinctUsers, 1);
+    this.refreshNanos = TimeUnit.SECONDS.toNanos(Math.max(refreshSeconds, 0));
+    for (Food food : loggedFoods) {
+      String name = cleanName(food.getName());
+      if (name != null && logged.size() < maxLoggedNames) {
+        logged.put(name, new LoggedFood(food.getLoggedCount(), food.getLoggedCalories(), null));
+      }
+    }
+    rebuild();
+    log.info("食物词典已加载: 内置 {} 种，饮食记录中 {} 种", this.bundled.size(), logged.size());
+  }
+
+  private static List<Food> loadLogged(
+      DietMapper dietMapper, int minDistinctUsers, int maxLoggedNames) {
+    try {
+      return dietMapper.listLoggedFoods(minDistinctUsers, maxLoggedNames);
+    } catch (RuntimeException e) {
+      log.warn("加载饮食记录中的食物名称失败，仅使用内置食物成分表: {}", e.getMessage());
+      return List.of();
+    }
+  }
+
+  @Override
+  public List<Food> suggest(String prefix, int limit) {
+    refreshIfStale();
+    return trie.suggest(prefix, Math.min(limit, FoodTrie.MAX_SUGGESTIONS));
+  }
+
+  @Override
+  public Food lookup(String name) {
+    refreshIfStale();
+    FoodTrie current = trie;
+    Food food = current.get(name);
+    if (food != null) {
+      return food;
+    }
+    List<Food> candidates = current.suggest(name, 1);
+    return candidates.isEmpty() ? null : candidates.get(0);
+  }
+
+  @Override
+  public void onFoodLogged(Diet diet) {
+    String name = cleanName(diet.getFoodName());
+    Integer calories = diet.getEstimatedCalories();
+    if (name == null || calories == null || diet.getUserID() == null) {
+      return;
+    }
+    LoggedFood updated =
+        logged.compute(
+            name,
+            (key, food) -> {
+              if (food == null) {
+                return logged.size() < maxLoggedNames
+                    ? withUser(new LoggedFood(1, calories, Set.of()), diet.getUserID())
+                    : null;
+              }
+              int count = food.count();
+              int average = food.calories() == null ? calories : food.calories();
+              return withUser(
+                  new LoggedFood(
+                      count + 1,
+                      (int) Math.round((average * (double) count + calories) / (count + 1)),
+                      food.users()),
+                  diet.getUserID());
+            });
+    // 未公开的名称不影响前缀树，无需重建
+    if (updated != null && updated.shared()) {
+      stale = true;
+    }
+  }
+
+  /** 记下记录人，不同用户数达到门槛后转为公开 */
+  private LoggedFood withUser(LoggedFood food, String userID) {
+    if (food.shared()) {
+      return food;
+    }
+    Set<String> users = new HashSet<>(food.users());
+    users.add(userID);
+    return new LoggedFood(
+        food.count(), food.calories(), users.size() >= minDistinctUsers ? null : Set.copyOf(users));
+  }
+
+  private void refreshIfStale() {
+    if (stale
+        && System.nanoTime() - builtAt >= refreshNanos
+        && rebuilding.compareAndSet(false, true)) {
+      CompletableFuture.runAsync(
+          () -> {
+            try {
+              rebuild();
+            } catch (RuntimeException e) {
+              log.warn("重建食物词典失败", e);
+            } finally {
+              rebuilding.set(false);
+            }
+          });
+    }
+  }
+
+  /** 合并内置条目与记录统计后重建前缀树；先清除过期标记，构建期间的新记录会再次标记 */
+  void rebuild() {
+    stale = false;
+    Map<String, Food> merged = new HashMap<>();
+    for (Food food : bundled) {
+      Food entry = copy(food);
+      LoggedFood stats = logged.get(food.getName());
+      if (stats != null && stats.shared()) {
+        entry.setLoggedCount(stats.count());
+        entry.setLoggedCalories(stats.calories());
+      }
+      merged.put(food.getName(), entry);
+    }
+    logged.forEach(
+        (name, stats) -> {
+          if (stats.shared()) {
+            merged.putIfAbsent(name, loggedEntry(name, stats.count(), stats.calories()));
+          }
+        });
+    List<Food> ranked = new ArrayList<>(merged.values());
+    ranked.sort(RANKING);
+    trie = FoodTrie.build(ranked);
+    builtAt = System.nanoTime();
+  }
+
+  private static int weight(Food food) {
+    return food.getLoggedCount() + (food.hasNutrition() ? BUNDLED_WEIGHT : 0);
+  }
+
+  private static String cleanName(String name) {
+    if (name == null) {
+      return null;
+    }
+    String trimmed = name.strip();
+    return trimmed.isEmpty() || trimmed.length() > MAX_NAME_LENGTH ? null : trimmed;
+  }
+
+  private static Food loggedEntry(String name, int count, Integer calories) {
+    Food food = new Food();
+    food.setName(name);
+    food.setLoggedCount(count);
+    food.setLoggedCalories(calories);
+    return food;
+  }
+
+  private static Food copy(Food food) {
+    return new Food(
+        food.getName(),
+        food.getPinyin(),
+        food.getCategory(),
+        food.getKcal(),
+        food.getProtein(),
+        food.getFat(),
+        food.getCarbohydrate(),
+        food.getServingGrams(),
+        food.getServing(),
+        food.getLoggedCount(),
+        food.getLoggedCalories());
+  }
+}
@@ -0,0 +1,231 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stringtinyst.healthlife.mapper.BodyMapper;
+import com.stringtinyst.healthlife.mapper.DietMapper;
+import com.stringtinyst.healthlife.mapper.ExerMapper;
+import com.stringtinyst.healthlife.mapper.SleepMapper;
+import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Exer;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import com.stringtinyst.healthlife.pojo.Sleep;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 健康快照的内存实现
+ *
+ * <p>首次读取时用 4 次查询加载最新身体数据、近 7 天的饮食与运动记录和最近一次睡眠；之后新增记录直接累加到内存状态，修改与删除涉及旧值，直接丢弃状态等下次重新加载
+ *
+ * <p>热量按天保存，跨天后窗口自动后移；过期时间（ai.chat.snapshot.ttl-minutes）兜底多实例部署时其他实例的写入
+ */
+@Service
+public class HealthSnapshotServiceImpl implements HealthSnapshotService {
+
+  private static final int WINDOW_DAYS = 7;
+
+  private final BodyMapper bodyMapper;
+  private final DietMapper dietMapper;
+  private final ExerMapper exerMapper;
+  private final SleepMapper sleepMapper;
+  private final Clock clock;
+  private final Cache<String, UserState> states;
+
+  @Autowired
+  public HealthSnapshotServiceImpl(
+      BodyMapper bodyMapper,
+      DietMapper dietMapper,
+      ExerMapper exerMapper,
+      SleepMapper sleepMapper,
+      @Value("${ai.chat.snapshot.max-users:10000}") long maxUsers,
+      @Value("${ai.chat.snapshot.ttl-minutes:10}") long ttlMinutes) {
+    this(
+        bodyMapper,
+        dietMapper,
+        exerMapper,
+        sleepMapper,
+        maxUsers,
+        ttlMinutes,
+        Clock.systemDefaultZone());
+  }
+
+  HealthSnapshotServiceImpl(
+      BodyMapper bodyMapper,
+      DietMapper dietMapper,
+      ExerMapper exerMapper,
+      SleepMapper sleepMapper,
+      long maxUsers,
+      long ttlMinutes,
+      Clock clock) {
+    this.bodyMapper = bodyMapper;
+    this.dietMapper = dietMapper;
+    this.exerMapper = exerMapper;
+    this.sleepMapper = sleepMapper;
+    this.clock = clock;
+    this.states =
+        Caffeine.newBuilder()
+            .maximumSize(maxUsers > 0 ? maxUsers : 10_000)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes > 0 ? ttlMinutes : 10))
+            .build();
+  }
+
+  @Override
+  public HealthSnapshot getSnapshot(String userID) {
+    return states.get(userID, this::load).toSnapshot(LocalDate.now(clock));
+  }
+
+  @Override
+  public void onBodyAdded(Body body) {
+    UserState state = stateOf(body.getUserID());
+    if (state != null) {
+      state.addBody(body);
+    }
+  }
+
+  @Override
+  public void onDietAdded(Diet diet) {
+    UserState state = stateOf(diet.getUserID());
+    if (state != null) {
+      state.addCalories(state.caloriesIn, diet.getRecordDate(), diet.getEstimatedCalories());
+    }
+  }
+
+  @Override
+  public void onExerciseAdded(Exer exer) {
+    UserState state = stateOf(exer.getUserID());
+    if (state != null) {
+      state.addCalories(state.caloriesOut, exer.getRecordDate(), exer.getEstimatedCaloriesBurned());
+    }
+  }
+
+  @Override
+  public void onSleepAdded(Sleep sleep) {
+    UserState state = stateOf(sleep.getUserID());
+    if (state != null) {
+      state.addSleep(sleep);
+    }
+  }
+
+  @Override
+  public void invalidate(String userID) {
+    if (userID != null) {
+      states.invalidate(userID);
+    }
+  }
+
+  /** 尚未加载的用户不需要增量更新；同时清掉可能正在进行、读到写入前数据的加载 */
+  private UserState stateOf(String userID) {
+    if (userID == null) {
+      return null;
+    }
+    UserState state = states.getIfPresent(userID);
+    if (state == null) {
+      states.invalidate(userID);
+    }
+    return state;
+  }
+
+  private UserState load(String userID) {
+    LocalDate today = LocalDate.now(clock);
+    LocalDate from = today.minusDays(WINDOW_DAYS - 1);
+    UserState state = new UserState();
+    List<Body> bodies = bodyMapper.listAfter(userID, null, null, null, null, 1);
+    if (!bodies.isEmpty()) {
+      state.addBody(bodies.get(0));
+    }
+    for (Diet diet : dietMapper.list(userID, from, today, null)) {
+      state.addCalories(state.caloriesIn, diet.getRecordDate(), diet.getEstimatedCalories());
+    }
+    for (Exer exer : exerMapper.list(userID, from, today, null)) {
+      state.addCalories(state.caloriesOut, exer.getRecordDate(), exer.getEstimatedCaloriesBurned());
+    }
+    List<Sleep> sleeps = sleepMapper.listAfter(userID, null, null, null, null, 1);
+    if (!sleeps.isEmpty()) {
+      state.addSleep(sleeps.get(0));
+    }
+    return state;
+  }
+
+  private static final class UserState {
+
+    private Body latestBody;
+    private Sleep lastSleep;
+    private final NavigableMap<LocalDate, Integer> caloriesIn = new TreeMap<>();
+    private final NavigableMap<LocalDate, Integer> caloriesOut = new TreeMap<>();
+
+    private synchronized void addBody(Body body) {
+      if (body.getRecordDate() == null || body.getWeightKG() == null) {
+        return;
+      }
+      if (latestBody == null || !body.getRecordDate().isBefore(latestBody.getRecordDate())) {
+        latestBody = body;
+      }
+    }
+
+    private synchronized void addSleep(Sleep sleep) {
+      if (sleep.getRecordDate() == null) {
+        return;
+      }
+      if (lastSleep == null || !sleep.getRecordDate().isBefore(lastSleep.getRecordDate())) {
+        lastSleep = sleep;
+      }
+    }
+
+    private synchronized void addCalories(
+        NavigableMap<LocalDate, Integer> daily, LocalDate date, Integer calories) {
+      if (date != null && calories != null) {
+        daily.merge(date, calories, Integer::sum);
+      }
+    }
+
+    private synchronized HealthSnapshot toSnapshot(LocalDate today) {
+      LocalDate from = today.minusDays(WINDOW_DAYS - 1);
+      // 跨天后丢弃移出窗口的日期
+      caloriesIn.headMap(from, false).clear();
+      caloriesOut.headMap(from, false).clear();
+
+      HealthSnapshot snapshot = new HealthSnapshot();
+      snapshot.setAsOf(today);
+      if (latestBody != null) {
+        snapshot.setHeightCM(latestBody.getHeightCM());
+        snapshot.setWeightKG(latestBody.getWeightKG());
+        snapshot.setBodyRecordDate(latestBody.getRecordDate());
+        snapshot.setBmi(bmi(latestBody.getHeightCM(), latestBody.getWeightKG()));
+      }
+      snapshot.setCaloriesIn7d(sum(caloriesIn.subMap(from, true, today, true)));
+      snapshot.setCaloriesOut7d(sum(caloriesOut.subMap(from, true, today, true)));
+      if (lastSleep != null && lastSleep.getBedTime() != null && lastSleep.getWakeTime() != null) {
+        long minutes =
+            Duration.between(lastSleep.getBedTime(), lastSleep.getWakeTime()).toMinutes();
+        snapshot.setLastSleepHours(
+            BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 1, RoundingMode.HALF_UP));
+        snapshot.setLastSleepDate(lastSleep.getRecordDate());
+      }
+      return snapshot;
+    }
+
+    private static Integer sum(NavigableMap<LocalDate, Integer> daily) {
+      return daily.isEmpty() ? null : daily.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static BigDecimal bmi(BigDecimal heightCM, BigDecimal weightKG) {
+      if (heightCM == null || heightCM.signum() <= 0) {
+        return null;
+      }
+      BigDecimal meters = heightCM.divide(BigDecimal.valueOf(100));
+      return weightKG.divide(meters.multiply(meters), 1, RoundingMode.HALF_UP);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import com.stringtinyst.healthlife.mapper.ChatMessageMapper;
+import com.stringtinyst.healthlife.pojo.ChatMessage;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/** 会话消息写入 chat_message 表，多个后端实例共享同一份历史 */
+@Service
+@ConditionalOnProperty(name = "ai.chat.memory.store", havingValue = "jdbc")
+public class JdbcChatMessageStore extends AbstractBatchingChatMessageStore {
+
+  private final ChatMessageMapper chatMessageMapper;
+
+  public JdbcChatMessageStore(
+      ChatMessageMapper chatMessageMapper,
+      @Value("${ai.chat.memory.batch-size:100}") int batchSize,
+      @Value("${ai.chat.memory.flush-interval-ms:200}") long flushIntervalMillis,
+      @Value("${ai.chat.memory.queue-capacity:10000}") int queueCapacity) {
+    super("chat-memory-jdbc-writer", batchSize, flushIntervalMillis, queueCapacity);
+    this.chatMessageMapper = chatMessageMapper;
+  }
+
+  @Override
+  public long lastSequence(String conversationId) {
+    awaitPending(conversationId);
+    return chatMessageMapper.lastMessageId(conversationId);
+  }
+
+  @Override
+  protected List<Message> readRecent(String conversationId, int limit) {
+    List<ChatMessage> rows = chatMessageMapper.listRecent(conversationId, limit);
+    List<Message> messages = new ArrayList<>(rows.size());
+    for (ChatMessage row : rows) {
+      messages.add(toMessage(row.getMessageType(), row.getContent()));
+    }
+    return messages;
+  }
+
+  @Override
+  protected void writeBatch(List<ChatMessage> batch) {
+    chatMessageMapper.insertBatch(batch);
+  }
+
+  @Override
+  protected void deleteConversation(String conversationId) {
+    chatMessageMapper.deleteByConversation(conversationId);
+  }
+}
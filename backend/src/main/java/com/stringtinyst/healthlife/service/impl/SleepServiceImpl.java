@@ -3,22 +3,32 @@ package com.stringtinyst.healthlife.service.impl;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.stringtinyst.healthlife.mapper.SleepMapper;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
 import com.stringtinyst.healthlife.pojo.Sleep;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
 import com.stringtinyst.healthlife.service.SleepService;
+import com.stringtinyst.healthlife.utils.PageCursor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class SleepServiceImpl implements SleepService {
 
   @Autowired private SleepMapper sleepMapper;
+  @Autowired private HealthSnapshotService healthSnapshotService;
 
   @Override
   public void addSleep(Sleep sleep) {
     sleepMapper.insertSleep(sleep);
+    healthSnapshotService.onSleepAdded(sleep);
   }
 
   @Override
@@ -30,6 +40,34 @@ public class SleepServiceImpl implements SleepService {
     return new PageBean<>(sleepPage.getTotal(), sleepPage.getResult());
   }
 
+  @Override
+  public CursorPageBean<Sleep> pageByCursor(
+      String cursor, Integer pageSize, String userID, LocalDate startDate, LocalDate endDate) {
+    PageCursor after = PageCursor.decode(cursor);
+    int size = PageCursor.normalizePageSize(pageSize);
+    List<Sleep> sleepList =
+        sleepMapper.listAfter(
+            userID,
+            startDate,
+            endDate,
+            after == null ? null : after.recordDate(),
+            after == null ? null : after.id(),
+            size + 1);
+    return CursorPageBean.of(
+        sleepList, size, last -> PageCursor.encode(last.getRecordDate(), last.getSleepItemID()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void streamAll(
+      String userID, LocalDate startDate, LocalDate endDate, Consumer<Sleep> consumer) {
+    try (Cursor<Sleep> cursor = sleepMapper.streamList(userID, startDate, endDate)) {
+      cursor.forEach(consumer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   @Override
   public Sleep getBySleepItemID(int sleepItemID) {
     return sleepMapper.getBySleepItemID(sleepItemID);
@@ -38,10 +76,15 @@ public class SleepServiceImpl implements SleepService {
   @Override
   public void updateSleep(Sleep sleep) {
     sleepMapper.updateSleep(sleep);
+    healthSnapshotService.invalidate(sleep.getUserID());
   }
 
   @Override
   public void deleteSleep(int sleepItemID) {
+    Sleep existing = sleepMapper.getBySleepItemID(sleepItemID);
     sleepMapper.deleteSleep(sleepItemID);
+    if (existing != null) {
+      healthSnapshotService.invalidate(existing.getUserID());
+    }
   }
 }
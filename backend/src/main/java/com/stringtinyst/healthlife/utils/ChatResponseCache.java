@@ -0,0 +1,266 @@
+package com.stringtinyst.healthlife.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 通用知识问答的回复缓存
+ *
+ * <p>“跑步前应该吃什么”这类问题与用户数据无关，每次都从头生成。满足以下条件的回复会被缓存，之后相同或相近的问题直接回放：
+ *
+ * <ul>
+ *   <li>新对话的第一条消息（追问依赖上文，不能脱离上文复用），且不指向提问者本人（见 {@code ToolSelector#refersToUser}）
+ *   <li>请求没有附带健康快照：模型会结合快照评估，回复即使不出现具体数值（“您的 BMI 偏高”“最近睡眠不足”）也是针对提问者的，不能回放给其他用户
+ *   <li>本轮没有调用读写用户数据的函数
+ * </ul>
+ *
+ * <p>键为归一化后的消息（NFKC、小写、去掉空白和标点）；开启相似匹配时另按字符二元组计算 MinHash 签名并分段建立 LSH 索引，候选项的二元组 Jaccard 相似度不低于
+ * {@code ai.chat.response-cache.similarity-threshold} 时视为命中
+ *
+ * <p>指标：{@code cache.*}（cache=chat.responses）与 {@code ai.chat.response-cache.hits}（tag
+ * match=exact|similar）
+ */
+@Slf4j
+@Component
+public class ChatResponseCache {
+
+  static final String CACHE_NAME = "chat.responses";
+  static final String HITS_METRIC = "ai.chat.response-cache.hits";
+
+  private static final int SIGNATURE_SIZE = 64;
+  private static final int BANDS = 16;
+  private static final int ROWS_PER_BAND = SIGNATURE_SIZE / BANDS;
+
+  /** 归一化后短于该长度的消息不缓存，太短的问题几乎总是依赖上文 */
+  private static final int MIN_KEY_LENGTH = 4;
+
+  private static final long[] SEEDS = new SplittableRandom(0x5eed).longs(SIGNATURE_SIZE).toArray();
+
+  private record Entry(String answer, Set<Integer> shingles, long[] signature) {}
+
+  private final Cache<String, Entry> cache;
+
+  /** LSH 分段桶：桶键 -> 归一化消息 */
+  private final Map<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+
+  private final boolean enabled;
+  private final double similarityThreshold;
+  private final Counter exactHits;
+  private final Counter similarHits;
+
+  @Autowired
+  public ChatResponseCache(
+      @Value("${ai.chat.response-cache.enabled:true}") boolean enabled,
+      @Value("${ai.chat.response-cache.max-entries:2000}") long maxEntries,
+      @Value("${ai.chat.response-cache.ttl-minutes:60}") long ttlMinutes,
+      @Value("${ai.chat.response-cache.similarity-threshold:0.8}") double similarityThreshold,
+      MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.similarityThreshold = similarityThreshold;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maxEntries > 0 ? maxEntries : 2000)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes > 0 ? ttlMinutes : 60))
+            .scheduler(Scheduler.systemScheduler())
+            .evictionListener((String key, Entry entry, RemovalCause cause) -> unindex(key, entry))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    this.exactHits =
+        Counter.builder(HITS_METRIC)
+            .description("直接回放缓存的回复")
+            .tag("match", "exact")
+            .register(meterRegistry);
+    this.similarHits =
+        Counter.builder(HITS_METRIC)
+            .description("直接回放缓存的回复")
+            .tag("match", "similar")
+            .register(meterRegistry);
+  }
+
+  /** 查找相同或相近问题的缓存回复 */
+  public Optional<String> lookup(String message) {
+    String key = normalize(message);
+    if (!enabled || key.length() < MIN_KEY_LENGTH) {
+      return Optional.empty();
+    }
+    Entry exact = cache.getIfPresent(key);
+    if (exact != null) {
+      exactHits.increment();
+      return Optional.of(exact.answer);
+    }
+    if (similarityThreshold <= 0 || similarityThreshold > 1) {
+      return Optional.empty();
+    }
+    Set<Integer> shingles = shingles(key);
+    long[] signature = signature(shingles);
+    Set<String> candidates = new HashSet<>();
+    for (int band = 0; band < BANDS; band++) {
+      Set<String> bucket = buckets.get(bandKey(band, signature));
+      if (bucket != null) {
+        candidates.addAll(bucket);
+      }
+    }
+    Entry best = null;
+    double bestSimilarity = similarityThreshold;
+    for (String candidate : candidates) {
+      Entry entry = cache.getIfPresent(candidate);
+      if (entry == null) {
+        continue;
+      }
+      double similarity = jaccard(shingles, entry.shingles);
+      if (similarity >= bestSimilarity) {
+        best = entry;
+        bestSimilarity = similarity;
+      }
+    }
+    if (best == null) {
+      return Optional.empty();
+    }
+    similarHits.increment();
+    log.debug("相似问题命中回复缓存，相似度 {}", bestSimilarity);
+    return Optional.of(best.answer);
+  }
+
+  /**
+   * 缓存一轮回复；调用方负责确认本轮满足其余缓存条件
+   *
+   * @param promptSnapshot 本轮随请求发给模型的健康快照，没有附带时为 null；含有任何数据时不缓存
+   */
+  public void put(String message, String answer, HealthSnapshot promptSnapshot) {
+    String key = normalize(message);
+    if (!enabled
+        || key.length() < MIN_KEY_LENGTH
+        || answer == null
+        || answer.isBlank()
+        || hasPersonalData(promptSnapshot)) {
+      return;
+    }
+    Set<Integer> shingles = shingles(key);
+    long[] signature = signature(shingles);
+    cache.put(key, new Entry(answer, shingles, signature));
+    for (int band = 0; band < BANDS; band++) {
+      buckets
+          .computeIfAbsent(bandKey(band, signature), k -> ConcurrentHashMap.newKeySet())
+          .add(key);
+    }
+  }
+
+  /** 清空全部缓存，返回清除的条目数 */
+  public long purge() {
+    long size = cache.estimatedSize();
+    cache.invalidateAll();
+    buckets.clear();
+    return size;
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  private void unindex(String key, Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    for (int band = 0; band < BANDS; band++) {
+      long bandKey = bandKey(band, entry.signature);
+      buckets.computeIfPresent(
+          bandKey,
+          (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+          });
+    }
+  }
+
+  static String normalize(String message) {
+    if (message == null) {
+      return "";
+    }
+    String text = Normalizer.normalize(message, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    StringBuilder key = new StringBuilder(text.length());
+    text.codePoints().filter(Character::isLetterOrDigit).forEach(key::appendCodePoint);
+    return key.toString();
+  }
+
+  /** 相邻两个字符组成的二元组，按两个 char 拼成一个 int */
+  static Set<Integer> shingles(String key) {
+    Set<Integer> shingles = new HashSet<>();
+    for (int i = 0; i + 1 < key.length(); i++) {
+      shingles.add((key.charAt(i) << 16) | key.charAt(i + 1));
+    }
+    return shingles;
+  }
+
+  static double jaccard(Set<Integer> a, Set<Integer> b) {
+    if (a.isEmpty() && b.isEmpty()) {
+      return 1;
+    }
+    int intersection = 0;
+    for (Integer shingle : a) {
+      if (b.contains(shingle)) {
+        intersection++;
+      }
+    }
+    return (double) intersection / (a.size() + b.size() - intersection);
+  }
+
+  private static long[] signature(Set<Integer> shingles) {
+    long[] signature = new long[SIGNATURE_SIZE];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    for (int shingle : shingles) {
+      for (int i = 0; i < SIGNATURE_SIZE; i++) {
+        long hash = mix(shingle ^ SEEDS[i]);
+        if (hash < signature[i]) {
+          signature[i] = hash;
+        }
+      }
+    }
+    return signature;
+  }
+
+  private static long bandKey(int band, long[] signature) {
+    long hash = band;
+    for (int row = 0; row < ROWS_PER_BAND; row++) {
+      hash = mix(hash * 31 + signature[band * ROWS_PER_BAND + row]);
+    }
+    return hash;
+  }
+
+  /** SplitMix64 的混合函数 */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static boolean hasPersonalData(HealthSnapshot snapshot) {
+    return snapshot != null
+        && (snapshot.getHeightCM() != null
+            || snapshot.getWeightKG() != null
+            || snapshot.getBmi() != null
+            || snapshot.getCaloriesIn7d() != null
+            || snapshot.getCaloriesOut7d() != null
+            || snapshot.getLastSleepHours() != null);
+  }
+}
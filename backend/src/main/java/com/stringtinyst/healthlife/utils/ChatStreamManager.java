@@ -0,0 +1,306 @@
+package com.stringtinyst.healthlife.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 可续传的聊天流
+ *
+ * <p>移动端网络切换时 SSE 连接会中断，前端重连后重新发送同一问题。如果每次都重新生成，不仅多花一轮模型调用，模型还可能再执行一遍 add 函数写出重复记录。这里让生成与连接解耦：
+ *
+ * <ul>
+ *   <li>每个用户同时只保留一条生成中的流，模型输出写入按字符计的环形缓冲区（{@code
+ *       ai.chat.stream.resume-buffer-chars}）；同一用户开始新的生成时取消上一条，释放其调度槽位
+ *   <li>每帧的 id 是该帧末尾的字符偏移；重连请求带上 Last-Event-ID 且问题相同时，从该偏移补发缺失的内容，再接上仍在生成的部分
+ *   <li>连接断开不会立即取消生成；最后一个读取方断开后 {@code ai.chat.stream.orphan-seconds}
+ *       秒内没有重连，才取消生成，前端“停止”因此也会停下模型与其函数调用
+ *   <li>生成结束后流再保留 {@code ai.chat.stream.resume-seconds} 秒供重连，之后移除
+ * </ul>
+ *
+ * <p>读得太慢、未发送的内容已被环形缓冲区覆盖的连接直接以错误结束，客户端重连时偏移已不可续传，会重新生成
+ *
+ * <p>指标：{@code ai.chat.stream.resumed}、{@code ai.chat.stream.cancelled}（tag
+ * reason=superseded|abandoned）
+ */
+@Component
+public class ChatStreamManager {
+
+  static final String RESUMED_METRIC = "ai.chat.stream.resumed";
+  static final String CANCELLED_METRIC = "ai.chat.stream.cancelled";
+
+  private final ConcurrentMap<String, ChatStream> streams = new ConcurrentHashMap<>();
+  private final int bufferChars;
+  private final long retentionMillis;
+  private final long orphanMillis;
+  private final Scheduler scheduler;
+  private final Counter resumed;
+  private final Counter superseded;
+  private final Counter abandoned;
+
+  @Autowired
+  public ChatStreamManager(
+      @Value("${ai.chat.stream.resume-buffer-chars:65536}") int bufferChars,
+      @Value("${ai.chat.stream.resume-seconds:60}") long retentionSeconds,
+      @Value("${ai.chat.stream.orphan-seconds:15}") long orphanSeconds,
+      MeterRegistry meterRegistry) {
+    this(
+        bufferChars,
+        TimeUnit.SECONDS.toMillis(retentionSeconds),
+        TimeUnit.SECONDS.toMillis(orphanSeconds),
+        meterRegistry,
+        Schedulers.parallel());
+  }
+
+  ChatStreamManager(
+      int bufferChars,
+      long retentionMillis,
+      long orphanMillis,
+      MeterRegistry meterRegistry,
+      Scheduler scheduler) {
+    this.bufferChars = bufferChars > 0 ? bufferChars : 65_536;
+    this.retentionMillis = Math.max(0, retentionMillis);
+    this.orphanMillis = Math.max(0, orphanMillis);
+    this.scheduler = scheduler;
+    this.resumed =
+        Counter.builder(RESUMED_METRIC).description("断线重连后续传、未重新生成的聊天流").register(meterRegistry);
+    this.superseded =
+        Counter.builder(CANCELLED_METRIC)
+            .description("被取消的聊天流")
+            .tag("reason", "superseded")
+            .register(meterRegistry);
+    this.abandoned =
+        Counter.builder(CANCELLED_METRIC)
+            .description("被取消的聊天流")
+            .tag("reason", "abandoned")
+            .register(meterRegistry);
+  }
+
+  /**
+   * 开始一次生成并登记为该用户当前的流，取消该用户上一条仍在进行的生成
+   *
+   * <p>生成在后台进行，读取它的连接断开后仍会继续一段时间等待重连
+   */
+  public ChatStream start(String userId, String query, Flux<String> generation) {
+    ChatStream stream = new ChatStream(query, bufferChars);
+    stream.onIdle = () -> cancelIfAbandoned(userId, stream);
+    ChatStream previous = streams.put(userId, stream);
+    // 先取消旧的生成再订阅新的，旧生成占用的调度槽位先释放
+    if (previous != null && previous.cancel()) {
+      superseded.increment();
+    }
+    stream.attach(
+        generation.subscribe(
+            stream::append,
+            error -> {
+              stream.finish(error);
+              expire(userId, stream);
+            },
+            () -> {
+              stream.finish(null);
+              expire(userId, stream);
+            }));
+    // 连接在开始读取前就已断开时同样回收
+    cancelIfAbandoned(userId, stream);
+    return stream;
+  }
+
+  /**
+   * 查找可续传的流：同一用户、同一问题，且偏移仍在缓冲区内
+   *
+   * @param lastEventId 客户端收到的最后一帧 id
+   */
+  public Optional<ChatStream> resume(String userId, String query, String lastEventId) {
+    ChatStream stream = streams.get(userId);
+    if (stream == null || lastEventId == null || !stream.query.equals(query)) {
+      return Optional.empty();
+    }
+    long offset;
+    try {
+      offset = Long.parseLong(lastEventId.trim());
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+    if (!stream.canResumeFrom(offset)) {
+      return Optional.empty();
+    }
+    resumed.increment();
+    return Optional.of(stream);
+  }
+
+  /** 宽限期过后仍没有读取方且生成未结束时取消生成 */
+  private void cancelIfAbandoned(String userId, ChatStream stream) {
+    scheduler.schedule(
+        () -> {
+          if (stream.abandoned() && stream.cancel()) {
+            streams.remove(userId, stream);
+            abandoned.increment();
+          }
+        },
+        orphanMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void expire(String userId, ChatStream stream) {
+    scheduler.schedule(
+        () -> streams.remove(userId, stream), retentionMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** 一次生成的输出；读取方按字符偏移从环形缓冲区取内容 */
+  public static final class ChatStream {
+
+    private final String query;
+    private final char[] ring;
+    private final List<Reader> readers = new CopyOnWriteArrayList<>();
+
+    /** 已写入的总字符数，缓冲区保存 [end - ring.length, end) */
+    private long end;
+
+    private boolean done;
+    private Throwable error;
+    private Disposable generation;
+
+    /** 最后一个读取方断开时调用 */
+    private Runnable onIdle = () -> {};
+
+    private ChatStream(String query, int capacity) {
+      this.query = query;
+      this.ring = new char[capacity];
+    }
+
+    /**
+     * 从指定偏移读取：先给出缓冲区中已有的内容，再跟随后续输出，生成结束后完成
+     *
+     * <p>每次有需求时把当前可读的内容合成一个字符串给出，由下游再按帧切分
+     */
+    public Flux<String> read(long offset) {
+      return Flux.create(
+          sink -> {
+            Reader reader = new Reader(sink, offset);
+            readers.add(reader);
+            sink.onRequest(n -> reader.pump());
+            sink.onDispose(
+                () -> {
+                  readers.remove(reader);
+                  if (readers.isEmpty()) {
+                    onIdle.run();
+                  }
+                });
+          });
+    }
+
+    synchronized boolean canResumeFrom(long offset) {
+      return offset >= Math.max(0, end - ring.length) && offset <= end;
+    }
+
+    private synchronized void append(String delta) {
+      if (delta == null || delta.isEmpty() || done) {
+        return;
+      }
+      // 超出容量时只保留末尾
+      int skip = Math.max(0, delta.length() - ring.length);
+      end += skip;
+      for (int i = skip; i < delta.length(); i++) {
+        ring[(int) (end++ % ring.length)] = delta.charAt(i);
+      }
+      readers.forEach(Reader::pump);
+    }
+
+    private synchronized void attach(Disposable subscription) {
+      if (done) {
+        // 订阅返回前已被取消（或已结束），dispose 对已结束的订阅没有影响
+        subscription.dispose();
+      }
+      generation = subscription;
+    }
+
+    private synchronized boolean abandoned() {
+      return !done && readers.isEmpty();
+    }
+
+    /**
+     * 取消仍在进行的生成，仍在读取的连接按已生成的内容正常结束
+     *
+     * @return 生成此前仍在进行时返回 true
+     */
+    private boolean cancel() {
+      Disposable subscription;
+      synchronized (this) {
+        if (done) {
+          return false;
+        }
+        finish(null);
+        subscription = generation;
+      }
+      // 在锁外取消，上游的 doFinally 会释放调度槽位
+      if (subscription != null) {
+        subscription.dispose();
+      }
+      return true;
+    }
+
+    private synchronized void finish(Throwable throwable) {
+      done = true;
+      error = throwable;
+      readers.forEach(Reader::pump);
+    }
+
+    private String slice(long from, long to) {
+      StringBuilder chunk = new StringBuilder((int) (to - from));
+      int start = (int) (from % ring.length);
+      int length = (int) (to - from);
+      int first = Math.min(length, ring.length - start);
+      chunk.append(ring, start, first);
+      chunk.append(ring, 0, length - first);
+      return chunk.toString();
+    }
+
+    private final class Reader {
+
+      private final FluxSink<String> sink;
+      private long cursor;
+
+      private Reader(FluxSink<String> sink, long offset) {
+        this.sink = sink;
+        this.cursor = offset;
+      }
+
+      private void pump() {
+        synchronized (ChatStream.this) {
+          if (cursor < end - ring.length) {
+            readers.remove(this);
+            sink.error(new IllegalStateException("未发送的内容已被续传缓冲区覆盖"));
+            return;
+          }
+          while (cursor < end && sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+            long to = end;
+            String chunk = slice(cursor, to);
+            cursor = to;
+            sink.next(chunk);
+          }
+          if (done && cursor >= end) {
+            readers.remove(this);
+            if (error != null) {
+              sink.error(error);
+            } else {
+              sink.complete();
+            }
+          }
+        }
+      }
+    }
+  }
+}
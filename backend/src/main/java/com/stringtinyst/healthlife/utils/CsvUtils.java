@@ -1,16 +1,32 @@
 package com.stringtinyst.healthlife.utils;
 
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
 public class CsvUtils {
 
+  private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+  /** 流式导出时每写出多少行刷新一次，保证客户端尽早收到数据 */
+  public static final int DEFAULT_FLUSH_ROWS = 500;
+
+  /** 按行推送数据的来源，例如基于 MyBatis Cursor 的全量查询 */
+  @FunctionalInterface
+  public interface RowSource<T> {
+    void forEach(Consumer<T> sink);
+  }
+
   public static <T> void exportCsv(
       HttpServletResponse response,
       String filename,
@@ -18,11 +34,9 @@ public class CsvUtils {
       List<T> dataList,
       Function<T, List<Object>> mapper)
       throws IOException {
-    response.setContentType("text/csv; charset=UTF-8");
-    response.setCharacterEncoding("UTF-8");
-    response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+    prepareResponse(response, filename);
 
-    response.getOutputStream().write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+    response.getOutputStream().write(UTF8_BOM);
 
     try (CSVPrinter printer =
         new CSVPrinter(
@@ -33,4 +47,69 @@ public class CsvUtils {
       }
     }
   }
+
+  public static <T> void exportCsvStream(
+      HttpServletResponse response,
+      String filename,
+      String[] headers,
+      boolean gzip,
+      RowSource<T> source,
+      Function<T, List<Object>> mapper)
+      throws IOException {
+    exportCsvStream(response, filename, headers, gzip, DEFAULT_FLUSH_ROWS, source, mapper);
+  }
+
+  /**
+   * 边查询边写出 CSV，内存占用与总行数无关
+   *
+   * @param gzip 是否以 Content-Encoding: gzip 压缩输出，压缩流使用 syncFlush 以便分批刷新
+   * @param flushRows 每写出多少行刷新一次输出
+   */
+  public static <T> void exportCsvStream(
+      HttpServletResponse response,
+      String filename,
+      String[] headers,
+      boolean gzip,
+      int flushRows,
+      RowSource<T> source,
+      Function<T, List<Object>> mapper)
+      throws IOException {
+    prepareResponse(response, filename);
+
+    OutputStream out = response.getOutputStream();
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+      out = new GZIPOutputStream(out, 8192, true);
+    }
+    out.write(UTF8_BOM);
+
+    int flushEvery = flushRows > 0 ? flushRows : DEFAULT_FLUSH_ROWS;
+    try (CSVPrinter printer =
+        new CSVPrinter(
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)),
+            CSVFormat.DEFAULT.builder().setHeader(headers).build())) {
+      int[] written = {0};
+      try {
+        source.forEach(
+            item -> {
+              try {
+                printer.printRecord(mapper.apply(item));
+                if (++written[0] % flushEvery == 0) {
+                  printer.flush();
+                }
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  private static void prepareResponse(HttpServletResponse response, String filename) {
+    response.setContentType("text/csv; charset=UTF-8");
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+  }
 }
@@ -0,0 +1,61 @@
+package com.stringtinyst.healthlife.utils;
+
+import com.stringtinyst.healthlife.pojo.Food;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+/** 随应用打包的常见食物营养成分表（knowledge/foods.csv），营养成分按每 100 克可食部计 */
+public final class FoodTable {
+
+  public static final String RESOURCE = "knowledge/foods.csv";
+
+  private static final CSVFormat FORMAT =
+      CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build();
+
+  private FoodTable() {}
+
+  public static byte[] readBytes() {
+    try (InputStream in = FoodTable.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+      if (in == null) {
+        throw new IllegalStateException("缺少食物成分表: " + RESOURCE);
+      }
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static List<Food> load() {
+    return parse(readBytes());
+  }
+
+  public static List<Food> parse(byte[] content) {
+    List<Food> foods = new ArrayList<>();
+    try {
+      for (CSVRecord record :
+          FORMAT.parse(new StringReader(new String(content, StandardCharsets.UTF_8)))) {
+        Food food = new Food();
+        food.setName(record.get("name"));
+        food.setPinyin(record.get("pinyin"));
+        food.setCategory(record.get("category"));
+        food.setKcal(Integer.parseInt(record.get("kcal")));
+        food.setProtein(Double.parseDouble(record.get("protein")));
+        food.setFat(Double.parseDouble(record.get("fat")));
+        food.setCarbohydrate(Double.parseDouble(record.get("carbohydrate")));
+        food.setServingGrams(Integer.parseInt(record.get("serving_grams")));
+        food.setServing(record.get("serving"));
+        foods.add(food);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return foods;
+  }
+}
@@ -0,0 +1,235 @@
+package com.stringtinyst.healthlife.utils;
+
+import com.stringtinyst.healthlife.pojo.Food;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 食物名称与拼音的只读前缀树
+ *
+ * <p>节点按层序存放在几个平行数组里，同一节点的子节点连续且按字符排序，逐字符二分查找；每个节点预先保存该前缀下排名最靠前的 {@link #MAX_SUGGESTIONS}
+ * 个条目，补全只需走完前缀，耗时只与前缀长度有关，与词典大小无关
+ *
+ * <p>条目排名由构建时传入的顺序决定，越靠前越优先
+ */
+public final class FoodTrie {
+
+  public static final int MAX_SUGGESTIONS = 10;
+
+  private static final int ROOT = 0;
+
+  private final List<Food> foods;
+  private final char[] labels;
+
+  /** 节点 i 的子节点为 [firstChild[i], firstChild[i + 1]) */
+  private final int[] firstChild;
+
+  /** 以该节点结尾的键对应的条目，-1 表示没有 */
+  private final int[] exact;
+
+  /** 节点 i 的补全结果为 top[topStart[i] .. topStart[i + 1]) */
+  private final int[] topStart;
+
+  private final int[] top;
+
+  private FoodTrie(
+      List<Food> foods, char[] labels, int[] firstChild, int[] exact, int[] topStart, int[] top) {
+    this.foods = foods;
+    this.labels = labels;
+    this.firstChild = firstChild;
+    this.exact = exact;
+    this.topStart = topStart;
+    this.top = top;
+  }
+
+  private record Key(String text, int food) {}
+
+  /** 以名称与拼音为键构建，{@code rankedFoods} 需已按排名排好序 */
+  public static FoodTrie build(List<Food> rankedFoods) {
+    List<Food> foods = List.copyOf(rankedFoods);
+    List<Key> keys = new ArrayList<>(foods.size() * 2);
+    for (int i = 0; i < foods.size(); i++) {
+      String name = normalize(foods.get(i).getName());
+      if (!name.isEmpty()) {
+        keys.add(new Key(name, i));
+      }
+      String pinyin = normalize(foods.get(i).getPinyin());
+      if (!pinyin.isEmpty() && !pinyin.equals(name)) {
+        keys.add(new Key(pinyin, i));
+      }
+    }
+    keys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::food));
+
+    int capacity = 1;
+    for (Key key : keys) {
+      capacity += key.text().length();
+    }
+    char[] labels = new char[capacity];
+    int[] lo = new int[capacity];
+    int[] hi = new int[capacity];
+    int[] firstChild = new int[capacity + 1];
+    int[] exact = new int[capacity];
+    int[] topStart = new int[capacity + 1];
+    int[] top = new int[capacity * Math.min(MAX_SUGGESTIONS, Math.max(foods.size(), 1))];
+    int[] best = new int[MAX_SUGGESTIONS];
+
+    // 层序遍历：处理节点时把子节点追加到末尾，因此同一节点的子节点连续，firstChild 单调递增
+    hi[ROOT] = keys.size();
+    int nodes = 1;
+    int topSize = 0;
+    int depth = 0;
+    int levelEnd = 1;
+    for (int node = 0; node < nodes; node++) {
+      if (node == levelEnd) {
+        depth++;
+        levelEnd = nodes;
+      }
+      int from = lo[node];
+      int to = hi[node];
+
+      exact[node] = -1;
+      while (from < to && keys.get(from).text().length() == depth) {
+        if (exact[node] < 0) {
+          exact[node] = keys.get(from).food();
+        }
+        from++;
+      }
+
+      int found = 0;
+      for (int i = lo[node]; i < to; i++) {
+        found = insertTop(best, found, keys.get(i).food());
+      }
+      topStart[node] = topSize;
+      System.arraycopy(best, 0, top, topSize, found);
+      topSize += found;
+
+      firstChild[node] = nodes;
+      while (from < to) {
+        char label = keys.get(from).text().charAt(depth);
+        int end = from + 1;
+        while (end < to && keys.get(end).text().charAt(depth) == label) {
+          end++;
+        }
+        labels[nodes] = label;
+        lo[nodes] = from;
+        hi[nodes] = end;
+        nodes++;
+        from = end;
+      }
+    }
+    firstChild[nodes] = nodes;
+    topStart[nodes] = topSize;
+
+    return new FoodTrie(
+        foods,
+        Arrays.copyOf(labels, nodes),
+        Arrays.copyOf(firstChild, nodes + 1),
+        Arrays.copyOf(exact, nodes),
+        Arrays.copyOf(topStart, nodes + 1),
+        Arrays.copyOf(top, topSize));
+  }
+
+  /** 把条目插入按排名升序的前 K 个结果中，已存在时跳过 */
+  private static int insertTop(int[] best, int found, int food) {
+    if (found == best.length && food >= best[found - 1]) {
+      return found;
+    }
+    int position = found;
+    while (position > 0 && best[position - 1] >= food) {
+      if (best[position - 1] == food) {
+        return found;
+      }
+      position--;
+    }
+    int last = Math.min(found, best.length - 1);
+    System.arraycopy(best, position, best, position + 1, last - position);
+    best[position] = food;
+    return Math.min(found + 1, best.length);
+  }
+
+  /** 按名称或拼音前缀补全，最多 {@link #MAX_SUGGESTIONS} 条 */
+  public List<Food> suggest(String prefix, int limit) {
+    String key = normalize(prefix);
+    if (key.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    int node = find(key);
+    if (node < 0) {
+      return List.of();
+    }
+    int from = topStart[node];
+    int to = Math.min(topStart[node + 1], from + limit);
+    List<Food> result = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      result.add(foods.get(top[i]));
+    }
+    return result;
+  }
+
+  /** 名称或拼音完全一致的条目，没有返回 null */
+  public Food get(String name) {
+    String key = normalize(name);
+    if (key.isEmpty()) {
+      return null;
+    }
+    int node = find(key);
+    return node < 0 || exact[node] < 0 ? null : foods.get(exact[node]);
+  }
+
+  public int size() {
+    return foods.size();
+  }
+
+  private int find(String key) {
+    int node = ROOT;
+    for (int i = 0; i < key.length(); i++) {
+      node = child(node, key.charAt(i));
+      if (node < 0) {
+        return -1;
+      }
+    }
+    return node;
+  }
+
+  private int child(int node, char label) {
+    int low = firstChild[node];
+    int high = firstChild[node + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char current = labels[mid];
+      if (current < label) {
+        low = mid + 1;
+      } else if (current > label) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /** 全角转半角、转小写并去掉空白，拼音 "Mi Fan" 与 "mifan" 视为同一个键 */
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String normalized =
+        Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).strip();
+    StringBuilder key = null;
+    for (int i = 0; i < normalized.length(); i++) {
+      char c = normalized.charAt(i);
+      if (Character.isWhitespace(c)) {
+        if (key == null) {
+          key = new StringBuilder(normalized.length()).append(normalized, 0, i);
+        }
+      } else if (key != null) {
+        key.append(c);
+      }
+    }
+    return key == null ? normalized : key.toString();
+  }
+}
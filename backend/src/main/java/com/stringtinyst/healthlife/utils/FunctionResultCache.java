@@ -1,35 +1,102 @@
 package com.stringtinyst.healthlife.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-/** 轻量级函数结果缓存，减少同一轮对话内的重复函数调用 */
+/**
+ * 轻量级函数结果缓存，减少同一轮对话内的重复函数调用
+ *
+ * <p>基于 Caffeine（W-TinyLFU 淘汰策略）实现：按缓存字符串估算的字节数限制总容量，过期条目由后台调度主动清理，命中/未命中/淘汰计数通过 Actuator 的 {@code
+ * cache.*} 指标暴露（cache=function.result）
+ *
+ * <p>缓存键形如 {@code domain:userID:参数...}，额外维护一层 {@code domain:userID}
+ * 分段索引，写操作失效某个用户某一领域的缓存时只需摘下该分段并删除其中的 k 个条目，无需扫描全部缓存
+ *
+ * <p>同一个键的并发未命中只执行一次计算，其余调用等待同一结果；开启 stale-seconds 后，过期不久的条目会先返回旧值，同时在后台刷新一次
+ */
+@Slf4j
 @Component
 public class FunctionResultCache {
 
-  private static final class CacheEntry {
-    private final String value;
-    private final long timestamp;
+  static final String CACHE_NAME = "function.result";
 
-    CacheEntry(String value, long timestamp) {
-      this.value = value;
-      this.timestamp = timestamp;
-    }
-  }
+  /** 每个条目的固定开销估算（对象头、引用等），避免大量短字符串绕过容量限制 */
+  private static final int ENTRY_OVERHEAD_BYTES = 64;
 
-  private final ConcurrentMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
-  private final long ttlMillis;
+  private record CacheEntry(String value, long writtenAtNanos) {}
 
-  public FunctionResultCache(@Value("${ai.function.cache.ttl-seconds:10}") long ttlSeconds) {
+  private final Cache<String, CacheEntry> cache;
+  private final Map<String, Set<String>> segments = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+  private final ExecutorService refreshExecutor;
+  private final long ttlNanos;
+
+  public FunctionResultCache(
+      @Value("${ai.function.cache.ttl-seconds:10}") long ttlSeconds,
+      @Value("${ai.function.cache.stale-seconds:0}") long staleSeconds,
+      @Value("${ai.function.cache.max-weight-bytes:16777216}") long maxWeightBytes,
+      MeterRegistry meterRegistry) {
     if (ttlSeconds <= 0) {
       ttlSeconds = 10;
     }
-    this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+    if (staleSeconds < 0) {
+      staleSeconds = 0;
+    }
+    if (maxWeightBytes <= 0) {
+      maxWeightBytes = 16L * 1024 * 1024;
+    }
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxWeightBytes)
+            .weigher(
+                (String key, CacheEntry entry) ->
+                    FunctionResultCache.estimateBytes(key, entry.value))
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds + staleSeconds))
+            .scheduler(Scheduler.systemScheduler())
+            .evictionListener(this::onEvicted)
+            .recordStats()
+            .build();
+    this.refreshExecutor =
+        staleSeconds > 0
+            ? new ThreadPoolExecutor(
+                1,
+                2,
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64),
+                runnable -> {
+                  Thread thread = new Thread(runnable, "function-cache-refresh");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+    if (meterRegistry != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
   }
 
   /** 返回缓存结果或重新计算；TTL 过期后自动刷新 */
@@ -37,15 +104,17 @@ public class FunctionResultCache {
     Objects.requireNonNull(key, "key must not be null");
     Objects.requireNonNull(supplier, "supplier must not be null");
 
-    long now = System.currentTimeMillis();
-    CacheEntry hit = cache.get(key);
-    if (hit != null && now - hit.timestamp <= ttlMillis) {
-      return hit.value;
+    CacheEntry hit = cache.getIfPresent(key);
+    if (hit != null) {
+      if (isFresh(hit)) {
+        return hit.value;
+      }
+      if (refreshExecutor != null) {
+        refreshInBackground(key, supplier);
+        return hit.value;
+      }
     }
-
-    String value = supplier.get();
-    cache.put(key, new CacheEntry(value, now));
-    return value;
+    return loadOnce(key, supplier);
   }
 
   /** 根据前缀清理缓存，用于写操作后快速失效相关查询 */
@@ -53,6 +122,177 @@ public class FunctionResultCache {
     if (prefix == null || prefix.isEmpty()) {
       return;
     }
-    cache.keySet().removeIf(key -> key.startsWith(prefix));
+    // 写操作之前发起的计算结果可能已过时，摘掉后不再写回缓存，后续调用重新计算
+    inFlight.keySet().removeIf(key -> matches(segmentOf(key), prefix));
+
+    Set<String> detached = segments.remove(prefix);
+    if (detached != null) {
+      cache.invalidateAll(detached);
+      return;
+    }
+
+    // 非 domain:userID 形式的前缀（如整个领域）退化为按分段扫描，仍无需遍历全部条目
+    List<String> matched = new ArrayList<>();
+    for (String segment : segments.keySet()) {
+      if (matches(segment, prefix)) {
+        matched.add(segment);
+      }
+    }
+    for (String segment : matched) {
+      Set<String> keys = segments.remove(segment);
+      if (keys != null) {
+        cache.invalidateAll(keys);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (refreshExecutor != null) {
+      refreshExecutor.shutdownNow();
+    }
+  }
+
+  long estimatedSize() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  private boolean isFresh(CacheEntry entry) {
+    return System.nanoTime() - entry.writtenAtNanos <= ttlNanos;
+  }
+
+  /** 同一个键同时只执行一次计算，后到的调用直接等待进行中的结果 */
+  private String loadOnce(String key, Supplier<String> supplier) {
+    CompletableFuture<String> mine = new CompletableFuture<>();
+    CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      return await(running);
+    }
+    try {
+      CacheEntry hit = cache.getIfPresent(key);
+      String value = hit != null && isFresh(hit) ? hit.value : compute(key, supplier, mine);
+      mine.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  private void refreshInBackground(String key, Supplier<String> supplier) {
+    CompletableFuture<String> mine = new CompletableFuture<>();
+    if (inFlight.putIfAbsent(key, mine) != null) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(
+          () -> {
+            try {
+              mine.complete(compute(key, supplier, mine));
+            } catch (RuntimeException e) {
+              log.warn("后台刷新函数缓存失败: key={}", key, e);
+              mine.completeExceptionally(e);
+            } finally {
+              inFlight.remove(key, mine);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // 刷新队列已满时放弃本次刷新，旧值过了宽限期后会自然过期
+      inFlight.remove(key, mine);
+      mine.cancel(false);
+    }
+  }
+
+  private String compute(String key, Supplier<String> supplier, CompletableFuture<String> owner) {
+    String value = supplier.get();
+    if (value != null) {
+      put(key, value, owner);
+    }
+    return value;
+  }
+
+  private static String await(CompletableFuture<String> running) {
+    try {
+      return running.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 在 Caffeine 的键锁内登记分段并写入，保证与同一键的淘汰回调串行执行
+   *
+   * <p>先登记分段再确认计算未被 evictByPrefix 摘掉：摘除发生在确认之前则放弃写入；发生在确认之后，evictByPrefix 随后取到的分段里已有该键，
+   * 会在本次写入完成后将其失效
+   */
+  private void put(String key, String value, CompletableFuture<String> owner) {
+    String segment = segmentOf(key);
+    CacheEntry entry = new CacheEntry(value, System.nanoTime());
+    cache
+        .asMap()
+        .compute(
+            key,
+            (k, old) -> {
+              segments.compute(
+                  segment,
+                  (s, keys) -> {
+                    Set<String> indexed = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                    indexed.add(k);
+                    return indexed;
+                  });
+              if (inFlight.get(k) != owner) {
+                if (old == null) {
+                  unindex(k);
+                }
+                return old;
+              }
+              return entry;
+            });
+  }
+
+  private void onEvicted(String key, CacheEntry entry, RemovalCause cause) {
+    if (key != null) {
+      unindex(key);
+    }
+  }
+
+  private void unindex(String key) {
+    segments.computeIfPresent(
+        segmentOf(key),
+        (segment, keys) -> {
+          keys.remove(key);
+          return keys.isEmpty() ? null : keys;
+        });
+  }
+
+  /** 不含 ':' 的前缀表示整个领域，否则按完整的 domain:userID 分段匹配 */
+  private static boolean matches(String segment, String prefix) {
+    return prefix.indexOf(':') < 0 ? segment.startsWith(prefix) : segment.equals(prefix);
+  }
+
+  /** 取键的前两段 domain:userID 作为分段 */
+  static String segmentOf(String key) {
+    int first = key.indexOf(':');
+    if (first < 0) {
+      return key;
+    }
+    int second = key.indexOf(':', first + 1);
+    return second < 0 ? key : key.substring(0, second);
+  }
+
+  /** Java 字符串按 UTF-16 估算，每个字符 2 字节 */
+  static int estimateBytes(String key, String value) {
+    long bytes = ENTRY_OVERHEAD_BYTES + 2L * key.length() + 2L * value.length();
+    return (int) Math.min(Integer.MAX_VALUE, bytes);
   }
 }
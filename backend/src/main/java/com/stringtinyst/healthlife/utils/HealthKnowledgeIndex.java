@@ -0,0 +1,378 @@
+package com.stringtinyst.healthlife.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 本地知识库的只读倒排索引
+ *
+ * <p>中文按相邻两字切分（单字成段时保留单字），字母与数字按连续串切分并转小写，查询与建索引使用同一切分；标题词频计两次。检索按 BM25 打分，只访问查询词命中的倒排表
+ *
+ * <p>索引整体是一个段文件：文件头、文档表、按字典序排列的词表、词的字符、倒排表与存储的原文依次排列，按下标直接读取，不反序列化成对象。
+ * 段文件名带语料校验和，启动时同一份语料直接内存映射已有文件，语料变化时重建并清理旧文件；目录不可写时在堆内存中使用
+ */
+@Slf4j
+public final class HealthKnowledgeIndex {
+
+  /** 一条语料 */
+  public record Document(String title, String source, String content) {}
+
+  /** 一条检索结果 */
+  public record Hit(Document document, double score) {}
+
+  private static final int MAGIC = 0x484B4958;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 48;
+  private static final int DOC_ENTRY_BYTES = 12;
+  private static final int TERM_ENTRY_BYTES = 16;
+  private static final int POSTING_BYTES = 8;
+  private static final char FIELD_SEPARATOR = 0x1F;
+  private static final String SEGMENT_PREFIX = "health-knowledge-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private final ByteBuffer segment;
+  private final boolean mapped;
+  private final int docCount;
+  private final int termCount;
+  private final float avgDocLength;
+  private final int docsOffset;
+  private final int termsOffset;
+  private final int termCharsOffset;
+
+  private HealthKnowledgeIndex(ByteBuffer segment, boolean mapped) {
+    this.segment = segment;
+    this.mapped = mapped;
+    this.docCount = segment.getInt(16);
+    this.termCount = segment.getInt(20);
+    this.avgDocLength = segment.getFloat(24);
+    this.docsOffset = segment.getInt(28);
+    this.termsOffset = segment.getInt(32);
+    this.termCharsOffset = segment.getInt(36);
+  }
+
+  /**
+   * 打开 directory 下与 checksum 对应的段文件，不存在或已损坏时由 documents 重建
+   *
+   * @param checksum 语料的校验和，语料变化时必须随之变化
+   */
+  public static HealthKnowledgeIndex open(Path directory, List<Document> documents, long checksum) {
+    Path file = directory.resolve(SEGMENT_PREFIX + Long.toHexString(checksum) + SEGMENT_SUFFIX);
+    if (Files.isRegularFile(file)) {
+      try {
+        ByteBuffer mapped = map(file);
+        if (isValid(mapped, checksum)) {
+          return new HealthKnowledgeIndex(mapped, true);
+        }
+        log.warn("知识库索引段文件已损坏，重新构建: {}", file);
+      } catch (IOException e) {
+        log.warn("读取知识库索引段文件失败，重新构建: {}", file, e);
+      }
+    }
+    byte[] built = build(documents, checksum);
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, SEGMENT_PREFIX, ".tmp");
+      Files.write(temp, built);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      deleteStaleSegments(directory, file);
+      return new HealthKnowledgeIndex(map(file), true);
+    } catch (IOException e) {
+      log.warn("知识库索引段文件写入失败，使用内存中的索引: {}", directory, e);
+      return new HealthKnowledgeIndex(ByteBuffer.wrap(built).asReadOnlyBuffer(), false);
+    }
+  }
+
+  /** 不落盘，直接在堆内存中建索引 */
+  public static HealthKnowledgeIndex inMemory(List<Document> documents) {
+    return new HealthKnowledgeIndex(ByteBuffer.wrap(build(documents, 0)).asReadOnlyBuffer(), false);
+  }
+
+  private static ByteBuffer map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static boolean isValid(ByteBuffer segment, long checksum) {
+    return segment.capacity() >= HEADER_BYTES
+        && segment.getInt(0) == MAGIC
+        && segment.getInt(4) == VERSION
+        && segment.getLong(8) == checksum;
+  }
+
+  private static void deleteStaleSegments(Path directory, Path current) {
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path stale : stream) {
+        if (!stale.equals(current)) {
+          Files.deleteIfExists(stale);
+        }
+      }
+    } catch (IOException e) {
+      log.debug("清理旧的知识库索引段文件失败: {}", directory, e);
+    }
+  }
+
+  static byte[] build(List<Document> documents, long checksum) {
+    Map<String, List<int[]>> postings = new TreeMap<>();
+    int[] docLengths = new int[documents.size()];
+    long totalLength = 0;
+    for (int doc = 0; doc < documents.size(); doc++) {
+      Document document = documents.get(doc);
+      List<String> titleTokens = tokenize(document.title());
+      List<String> contentTokens = tokenize(document.content());
+      Map<String, Integer> frequencies = new HashMap<>();
+      titleTokens.forEach(token -> frequencies.merge(token, 2, Integer::sum));
+      contentTokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+      docLengths[doc] = titleTokens.size() * 2 + contentTokens.size();
+      totalLength += docLengths[doc];
+      int docId = doc;
+      frequencies.forEach(
+          (term, tf) ->
+              postings.computeIfAbsent(term, key -> new ArrayList<>()).add(new int[] {docId, tf}));
+    }
+
+    List<byte[]> stored = new ArrayList<>(documents.size());
+    int storedBytes = 0;
+    for (Document document : documents) {
+      byte[] bytes =
+          (document.title()
+                  + FIELD_SEPARATOR
+                  + document.source()
+                  + FIELD_SEPARATOR
+                  + document.content())
+              .getBytes(StandardCharsets.UTF_8);
+      stored.add(bytes);
+      storedBytes += bytes.length;
+    }
+    int termChars = postings.keySet().stream().mapToInt(String::length).sum();
+    int postingCount = postings.values().stream().mapToInt(List::size).sum();
+
+    int docsOffset = HEADER_BYTES;
+    int termsOffset = docsOffset + documents.size() * DOC_ENTRY_BYTES;
+    int termCharsOffset = termsOffset + postings.size() * TERM_ENTRY_BYTES;
+    int postingsOffset = termCharsOffset + termChars * 2;
+    int storedOffset = postingsOffset + postingCount * POSTING_BYTES;
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(storedOffset + storedBytes);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(checksum);
+      out.writeInt(documents.size());
+      out.writeInt(postings.size());
+      out.writeFloat(documents.isEmpty() ? 0 : (float) totalLength / documents.size());
+      out.writeInt(docsOffset);
+      out.writeInt(termsOffset);
+      out.writeInt(termCharsOffset);
+      out.writeInt(postingsOffset);
+      out.writeInt(storedOffset);
+
+      int storedPosition = storedOffset;
+      for (int doc = 0; doc < documents.size(); doc++) {
+        out.writeInt(storedPosition);
+        out.writeInt(stored.get(doc).length);
+        out.writeInt(docLengths[doc]);
+        storedPosition += stored.get(doc).length;
+      }
+      int charPosition = 0;
+      int postingPosition = postingsOffset;
+      for (Map.Entry<String, List<int[]>> entry : postings.entrySet()) {
+        out.writeInt(charPosition);
+        out.writeInt(entry.getKey().length());
+        out.writeInt(postingPosition);
+        out.writeInt(entry.getValue().size());
+        charPosition += entry.getKey().length();
+        postingPosition += entry.getValue().size() * POSTING_BYTES;
+      }
+      for (String term : postings.keySet()) {
+        out.writeChars(term);
+      }
+      for (List<int[]> list : postings.values()) {
+        for (int[] posting : list) {
+          out.writeInt(posting[0]);
+          out.writeInt(posting[1]);
+        }
+      }
+      for (byte[] document : stored) {
+        out.write(document);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** 按 BM25 返回得分最高的 limit 条结果，没有任何查询词命中时返回空列表 */
+  public List<Hit> search(String query, int limit) {
+    if (query == null || limit <= 0 || docCount == 0) {
+      return List.of();
+    }
+    float[] scores = new float[docCount];
+    boolean matched = false;
+    for (String term : new LinkedHashSet<>(tokenize(query))) {
+      int entry = findTerm(term);
+      if (entry < 0) {
+        continue;
+      }
+      matched = true;
+      int postings = segment.getInt(entry + 8);
+      int docFrequency = segment.getInt(entry + 12);
+      double idf = Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+      for (int i = 0; i < docFrequency; i++) {
+        int doc = segment.getInt(postings + i * POSTING_BYTES);
+        int tf = segment.getInt(postings + i * POSTING_BYTES + 4);
+        double norm = K1 * (1 - B + B * docLength(doc) / avgDocLength);
+        scores[doc] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+      }
+    }
+    if (!matched) {
+      return List.of();
+    }
+    return topHits(scores, limit);
+  }
+
+  private List<Hit> topHits(float[] scores, int limit) {
+    int[] top = new int[Math.min(limit, docCount)];
+    int size = 0;
+    for (int doc = 0; doc < docCount; doc++) {
+      if (scores[doc] <= 0) {
+        continue;
+      }
+      if (size < top.length) {
+        size++;
+      } else if (scores[doc] <= scores[top[size - 1]]) {
+        continue;
+      }
+      // 插入排序维护得分降序的前 limit 名
+      int i = size - 1;
+      while (i > 0 && scores[top[i - 1]] < scores[doc]) {
+        top[i] = top[i - 1];
+        i--;
+      }
+      top[i] = doc;
+    }
+    List<Hit> hits = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      hits.add(new Hit(document(top[i]), scores[top[i]]));
+    }
+    return hits;
+  }
+
+  /** 在词表中二分查找，返回词条目的偏移，未找到返回 -1 */
+  private int findTerm(String term) {
+    int low = 0;
+    int high = termCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int entry = termsOffset + middle * TERM_ENTRY_BYTES;
+      int comparison = compareTerm(entry, term);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  /** 与 {@link String#compareTo} 相同的按字符比较，建索引时 TreeMap 也按此排序 */
+  private int compareTerm(int entry, String term) {
+    int chars = termCharsOffset + segment.getInt(entry) * 2;
+    int length = segment.getInt(entry + 4);
+    int common = Math.min(length, term.length());
+    for (int i = 0; i < common; i++) {
+      int difference = segment.getChar(chars + i * 2) - term.charAt(i);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - term.length();
+  }
+
+  private int docLength(int doc) {
+    return segment.getInt(docsOffset + doc * DOC_ENTRY_BYTES + 8);
+  }
+
+  private Document document(int doc) {
+    int entry = docsOffset + doc * DOC_ENTRY_BYTES;
+    byte[] bytes = new byte[segment.getInt(entry + 4)];
+    segment.get(segment.getInt(entry), bytes);
+    String[] fields =
+        new String(bytes, StandardCharsets.UTF_8).split(String.valueOf(FIELD_SEPARATOR), 3);
+    return new Document(fields[0], fields[1], fields[2]);
+  }
+
+  public int size() {
+    return docCount;
+  }
+
+  /** 是否直接映射段文件，false 表示在堆内存中 */
+  public boolean isMapped() {
+    return mapped;
+  }
+
+  /** 建索引与查询共用的切分：中文相邻两字，字母数字连续串 */
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null || text.isEmpty()) {
+      return tokens;
+    }
+    String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    int i = 0;
+    while (i < normalized.length()) {
+      char c = normalized.charAt(i);
+      if (isHan(c)) {
+        int start = i;
+        while (i < normalized.length() && isHan(normalized.charAt(i))) {
+          i++;
+        }
+        if (i - start == 1) {
+          tokens.add(normalized.substring(start, i));
+        }
+        for (int k = start; k + 2 <= i; k++) {
+          tokens.add(normalized.substring(k, k + 2));
+        }
+      } else if (Character.isLetterOrDigit(c)) {
+        int start = i;
+        while (i < normalized.length()
+            && Character.isLetterOrDigit(normalized.charAt(i))
+            && !isHan(normalized.charAt(i))) {
+          i++;
+        }
+        tokens.add(normalized.substring(start, i));
+      } else {
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isHan(char c) {
+    return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+  }
+}
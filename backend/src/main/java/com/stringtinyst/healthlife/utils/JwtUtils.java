@@ -1,22 +1,61 @@
 package com.stringtinyst.healthlife.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUtils {
 
+  /** 最近验证通过的令牌数量上限 */
+  private static final int VERIFIED_CACHE_SIZE = 10_000;
+
+  /** 未声明过期时间的令牌最多缓存 5 分钟 */
+  private static final long DEFAULT_CACHE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
   @Value("${jwt.sign-key}")
   private String signKey;
 
   @Value("${jwt.expire-time}")
   private Long expire;
 
+  /** 令牌 SHA-256 摘要 -> 已验证的负载，条目在令牌过期时失效，内存中不保留原始令牌 */
+  private final Cache<String, Claims> verified =
+      Caffeine.newBuilder()
+          .maximumSize(VERIFIED_CACHE_SIZE)
+          .expireAfter(
+              new Expiry<String, Claims>() {
+                @Override
+                public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                  return remainingNanos(claims);
+                }
+
+                @Override
+                public long expireAfterUpdate(
+                    String key, Claims claims, long currentTime, long currentDuration) {
+                  return remainingNanos(claims);
+                }
+
+                @Override
+                public long expireAfterRead(
+                    String key, Claims claims, long currentTime, long currentDuration) {
+                  return currentDuration;
+                }
+              })
+          .build();
+
   /**
    * 生成 JWT 令牌
    *
@@ -36,6 +75,8 @@ public class JwtUtils {
   /**
    * 解析 JWT 令牌
    *
+   * <p>同一令牌在有效期内重复请求时直接返回缓存的负载，跳过签名校验
+   *
    * @param jwt JWT 令牌
    * @return JWT 第二部分负载 payload 中存储的内容
    */
@@ -44,10 +85,42 @@ public class JwtUtils {
       throw new IllegalArgumentException("token 不能为空");
     }
 
+    String digest = sha256(jwt);
+    Claims cached = verified.getIfPresent(digest);
+    if (cached != null) {
+      return cached;
+    }
+
+    Claims claims;
     try {
-      return Jwts.parser().setSigningKey(signKey).parseClaimsJws(jwt).getBody();
+      claims = Jwts.parser().setSigningKey(signKey).parseClaimsJws(jwt).getBody();
     } catch (Exception e) {
       throw new IllegalArgumentException("无效的 token", e);
     }
+    verified.put(digest, claims);
+    return claims;
+  }
+
+  long verifiedCacheSize() {
+    verified.cleanUp();
+    return verified.estimatedSize();
+  }
+
+  private static long remainingNanos(Claims claims) {
+    Date expiration = claims.getExpiration();
+    if (expiration == null) {
+      return DEFAULT_CACHE_NANOS;
+    }
+    long remainingMillis = expiration.getTime() - System.currentTimeMillis();
+    return Math.max(0, TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+  }
+
+  private static String sha256(String jwt) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 不可用", e);
+    }
   }
 }
@@ -0,0 +1,54 @@
+package com.stringtinyst.healthlife.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 记录列表的游标，按 (RecordDate, id) 倒序定位上一页最后一行
+ *
+ * <p>对外以 Base64URL 编码的不透明字符串传递，客户端只需原样回传
+ */
+public record PageCursor(LocalDate recordDate, int id) {
+
+  private static final int DEFAULT_PAGE_SIZE = 10;
+  private static final int MAX_PAGE_SIZE = 100;
+
+  public String encode() {
+    String raw = recordDate + "|" + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String encode(LocalDate recordDate, int id) {
+    return new PageCursor(recordDate, id).encode();
+  }
+
+  /** 解析游标，空值表示第一页并返回 null */
+  public static PageCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int sep = raw.indexOf('|');
+      if (sep < 0) {
+        throw new IllegalArgumentException("无效的分页游标");
+      }
+      return new PageCursor(
+          LocalDate.parse(raw.substring(0, sep)), Integer.parseInt(raw.substring(sep + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new IllegalArgumentException("无效的分页游标");
+    }
+  }
+
+  /** 规范化每页大小，避免一次拉取过多数据 */
+  public static int normalizePageSize(Integer pageSize) {
+    if (pageSize == null || pageSize <= 0) {
+      return DEFAULT_PAGE_SIZE;
+    }
+    return Math.min(pageSize, MAX_PAGE_SIZE);
+  }
+}
@@ -0,0 +1,291 @@
+package com.stringtinyst.healthlife.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * /chat/stream 的 SSE 帧编码
+ *
+ * <p>模型每个增量只有一两个字，逐个写成 SSE 帧意味着每个字一次字符串拼接和一次网络写出。这里把增量攒成帧：待发内容达到 {@code ai.chat.stream.frame-bytes}
+ * 字节，或第一个增量等待超过 {@code ai.chat.stream.frame-millis} 毫秒时输出一帧 {@code {"content":"..."}}，帧内容一次遍历完成
+ * JSON 转义和 UTF-8 编码
+ *
+ * <p>客户端读得慢时，下游没有需求就不输出，新增量继续并入待发内容，下一帧一次带走；待发内容超过 {@code ai.chat.stream.max-pending-bytes}
+ * 后停止向上游请求，由上游（模型响应流）承担背压，内存占用有上限
+ */
+@Component
+public class SseFrameEncoder {
+
+  private static final byte[] FRAME_PREFIX = "{\"content\":\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] FRAME_SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final int frameBytes;
+  private final long frameMillis;
+  private final int maxPendingBytes;
+  private final Scheduler scheduler;
+
+  @Autowired
+  public SseFrameEncoder(
+      @Value("${ai.chat.stream.frame-bytes:32}") int frameBytes,
+      @Value("${ai.chat.stream.frame-millis:20}") long frameMillis,
+      @Value("${ai.chat.stream.max-pending-bytes:65536}") int maxPendingBytes) {
+    this(frameBytes, frameMillis, maxPendingBytes, Schedulers.parallel());
+  }
+
+  SseFrameEncoder(int frameBytes, long frameMillis, int maxPendingBytes, Scheduler scheduler) {
+    this.frameBytes = Math.max(1, frameBytes);
+    this.frameMillis = Math.max(0, frameMillis);
+    this.maxPendingBytes = Math.max(this.frameBytes, maxPendingBytes);
+    this.scheduler = scheduler;
+  }
+
+  /** 把模型增量合并为 SSE 帧；上游的错误在已收到的内容输出后继续向下游传递 */
+  public Flux<byte[]> encode(Flux<String> deltas) {
+    return coalesce(deltas, 0, (frame, endOffset) -> frame);
+  }
+
+  /**
+   * 同 {@link #encode}，每帧带上 id：该帧末尾在整段回复中的字符偏移，断线重连时作为 Last-Event-ID 传回
+   *
+   * @param startOffset 第一个增量在整段回复中的字符偏移
+   */
+  public Flux<ServerSentEvent<byte[]>> encodeEvents(Flux<String> deltas, long startOffset) {
+    return coalesce(
+        deltas,
+        startOffset,
+        (frame, endOffset) -> ServerSentEvent.builder(frame).id(Long.toString(endOffset)).build());
+  }
+
+  private <T> Flux<T> coalesce(
+      Flux<String> deltas, long startOffset, BiFunction<byte[], Long, T> frameFactory) {
+    return Flux.create(
+        sink -> {
+          Coalescer<T> coalescer = new Coalescer<>(sink, startOffset, frameFactory);
+          sink.onRequest(n -> coalescer.drainAndResume());
+          sink.onDispose(coalescer::cancelAll);
+          deltas.subscribe(coalescer);
+        });
+  }
+
+  /** 单条完整消息的帧（错误提示、快速指令回复等） */
+  public static byte[] frame(CharSequence content) {
+    int length = content.length();
+    byte[] out = new byte[FRAME_PREFIX.length + length * 3 + FRAME_SUFFIX.length];
+    System.arraycopy(FRAME_PREFIX, 0, out, 0, FRAME_PREFIX.length);
+    int pos = FRAME_PREFIX.length;
+    for (int i = 0; i < length; i++) {
+      // 单个字符最多写出 6 字节（控制字符转义为 6 位的 unicode 转义）
+      if (pos + 6 + FRAME_SUFFIX.length > out.length) {
+        out = Arrays.copyOf(out, out.length * 2);
+      }
+      char c = content.charAt(i);
+      switch (c) {
+        case '"' -> pos = escape(out, pos, '"');
+        case '\\' -> pos = escape(out, pos, '\\');
+        case '\n' -> pos = escape(out, pos, 'n');
+        case '\r' -> pos = escape(out, pos, 'r');
+        case '\t' -> pos = escape(out, pos, 't');
+        default -> {
+          if (c < 0x20) {
+            out[pos++] = '\\';
+            out[pos++] = 'u';
+            out[pos++] = '0';
+            out[pos++] = '0';
+            out[pos++] = HEX[c >> 4];
+            out[pos++] = HEX[c & 0xF];
+          } else if (c < 0x80) {
+            out[pos++] = (byte) c;
+          } else if (c < 0x800) {
+            out[pos++] = (byte) (0xC0 | (c >> 6));
+            out[pos++] = (byte) (0x80 | (c & 0x3F));
+          } else if (Character.isHighSurrogate(c)
+              && i + 1 < length
+              && Character.isLowSurrogate(content.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, content.charAt(++i));
+            out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+            out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+          } else if (Character.isSurrogate(c)) {
+            // 不成对的代理字符与 String#getBytes 一样替换为 '?'
+            out[pos++] = '?';
+          } else {
+            out[pos++] = (byte) (0xE0 | (c >> 12));
+            out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            out[pos++] = (byte) (0x80 | (c & 0x3F));
+          }
+        }
+      }
+    }
+    System.arraycopy(FRAME_SUFFIX, 0, out, pos, FRAME_SUFFIX.length);
+    return Arrays.copyOf(out, pos + FRAME_SUFFIX.length);
+  }
+
+  private static int escape(byte[] out, int pos, char escaped) {
+    out[pos++] = '\\';
+    out[pos++] = (byte) escaped;
+    return pos;
+  }
+
+  /** 按 UTF-8 估算的字节数，只用于判断是否该出帧 */
+  private static int utf8Length(String text) {
+    int bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+    return bytes;
+  }
+
+  /** 每次只向上游请求一个增量；状态变更都在自身锁内，出帧顺序与增量顺序一致 */
+  private final class Coalescer<T> extends BaseSubscriber<String> {
+
+    private final FluxSink<T> sink;
+    private final BiFunction<byte[], Long, T> frameFactory;
+    private long offset;
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingBytes;
+    private boolean ready;
+    private boolean paused;
+    private boolean done;
+    private Throwable error;
+    private Disposable window;
+    private long frameSequence;
+
+    private Coalescer(
+        FluxSink<T> sink, long startOffset, BiFunction<byte[], Long, T> frameFactory) {
+      this.sink = sink;
+      this.offset = startOffset;
+      this.frameFactory = frameFactory;
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      request(1);
+    }
+
+    @Override
+    protected void hookOnNext(String delta) {
+      boolean requestMore;
+      synchronized (this) {
+        if (delta != null && !delta.isEmpty()) {
+          pending.append(delta);
+          pendingBytes += utf8Length(delta);
+          if (pendingBytes >= frameBytes || frameMillis == 0) {
+            ready = true;
+          } else if (window == null) {
+            long sequence = frameSequence;
+            window =
+                scheduler.schedule(
+                    () -> onWindowElapsed(sequence), frameMillis, TimeUnit.MILLISECONDS);
+          }
+          drain();
+        }
+        requestMore = pendingBytes < maxPendingBytes;
+        paused = !requestMore;
+      }
+      if (requestMore) {
+        request(1);
+      }
+    }
+
+    @Override
+    protected void hookOnComplete() {
+      finish(null);
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+      finish(throwable);
+    }
+
+    private void finish(Throwable throwable) {
+      synchronized (this) {
+        done = true;
+        error = throwable;
+        ready = true;
+        drain();
+      }
+    }
+
+    /** 计时期间这一帧可能已因攒够字节输出，此时忽略 */
+    private void onWindowElapsed(long sequence) {
+      synchronized (this) {
+        if (sequence != frameSequence) {
+          return;
+        }
+        window = null;
+        ready = true;
+      }
+      drainAndResume();
+    }
+
+    private void drainAndResume() {
+      boolean resume;
+      synchronized (this) {
+        resume = drain();
+      }
+      if (resume) {
+        request(1);
+      }
+    }
+
+    /**
+     * 下游有需求且已到出帧条件时输出待发内容
+     *
+     * @return 之前因待发内容过多暂停了上游、现在应恢复请求时返回 true
+     */
+    private boolean drain() {
+      boolean resume = false;
+      if (ready && pending.length() > 0 && sink.requestedFromDownstream() > 0) {
+        byte[] frame = frame(pending);
+        offset += pending.length();
+        pending.setLength(0);
+        pendingBytes = 0;
+        ready = false;
+        frameSequence++;
+        if (window != null) {
+          window.dispose();
+          window = null;
+        }
+        if (paused && !done) {
+          paused = false;
+          resume = true;
+        }
+        sink.next(frameFactory.apply(frame, offset));
+      }
+      if (done && pending.length() == 0) {
+        if (error != null) {
+          sink.error(error);
+        } else {
+          sink.complete();
+        }
+      }
+      return resume;
+    }
+
+    private void cancelAll() {
+      dispose();
+      synchronized (this) {
+        if (window != null) {
+          window.dispose();
+          window = null;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package com.stringtinyst.healthlife.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 把查询结果编码成紧凑的表格文本，作为 AI 函数的返回值交给模型
+ *
+ * <p>表头只输出一次，之后每行按列顺序输出值，以 {@code |} 分隔；不输出 userID 等对模型无用的字段。超出字符预算的行不再逐行列出，而是按列汇总（计数、合计、范围），
+ * 让模型仍能回答“总共多少”“最多的一次”这类问题
+ *
+ * <pre>
+ * ID|日期|食物|餐次|热量
+ * 12|2024-05-01|鸡蛋|早餐|150
+ * 另有 8 条未逐行列出：日期 2024-04-20~2024-04-28；餐次 早餐×3、午餐×5；热量 合计 3200，范围 80~600
+ * </pre>
+ */
+public final class ToolResultTable<T> {
+
+  private static final char SEPARATOR = '|';
+  private static final DateTimeFormatter DATE_TIME_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+  /** 为汇总行预留的字符数，避免列出的行占满预算后汇总放不下 */
+  private static final int SUMMARY_RESERVE = 160;
+
+  /** 溢出行的汇总方式 */
+  public enum Aggregate {
+    /** 不汇总，如记录 ID */
+    NONE,
+    /** 最小值~最大值，适用于日期、身高体重等 */
+    RANGE,
+    /** 合计与范围，适用于热量、时长等可累加的数值 */
+    SUM,
+    /** 各取值出现次数，适用于餐次、运动类型等分类字段 */
+    COUNT
+  }
+
+  public record Column<T>(String name, Function<T, ?> extractor, Aggregate aggregate) {
+
+    public static <T> Column<T> of(String name, Function<T, ?> extractor) {
+      return new Column<>(name, extractor, Aggregate.NONE);
+    }
+
+    public static <T> Column<T> range(String name, Function<T, ?> extractor) {
+      return new Column<>(name, extractor, Aggregate.RANGE);
+    }
+
+    public static <T> Column<T> sum(String name, Function<T, ?> extractor) {
+      return new Column<>(name, extractor, Aggregate.SUM);
+    }
+
+    public static <T> Column<T> count(String name, Function<T, ?> extractor) {
+      return new Column<>(name, extractor, Aggregate.COUNT);
+    }
+  }
+
+  private final List<Column<T>> columns;
+  private final String header;
+
+  private ToolResultTable(List<Column<T>> columns) {
+    this.columns = columns;
+    StringBuilder header = new StringBuilder();
+    for (Column<T> column : columns) {
+      if (!header.isEmpty()) {
+        header.append(SEPARATOR);
+      }
+      header.append(column.name());
+    }
+    this.header = header.toString();
+  }
+
+  @SafeVarargs
+  public static <T> ToolResultTable<T> of(Column<T>... columns) {
+    if (columns == null || columns.length == 0) {
+      throw new IllegalArgumentException("至少需要一列");
+    }
+    return new ToolResultTable<>(List.of(columns));
+  }
+
+  /**
+   * 编码行数据
+   *
+   * @param rows 查询结果
+   * @param budgetChars 返回文本的字符上限（近似），超出部分汇总为一行
+   */
+  public String encode(List<T> rows, int budgetChars) {
+    if (rows == null || rows.isEmpty()) {
+      return "（无记录）";
+    }
+    StringBuilder out = new StringBuilder(Math.min(budgetChars, 4096)).append(header);
+    int limit = budgetChars - SUMMARY_RESERVE;
+    int listed = 0;
+    for (T row : rows) {
+      String line = encodeRow(row);
+      boolean last = listed == rows.size() - 1;
+      // 最后一行无需再给汇总留位置
+      if (out.length() + 1 + line.length() > (last ? budgetChars : limit)) {
+        break;
+      }
+      out.append('\n').append(line);
+      listed++;
+    }
+    if (listed < rows.size()) {
+      out.append('\n').append(summarize(rows.subList(listed, rows.size())));
+    }
+    return out.toString();
+  }
+
+  private String encodeRow(T row) {
+    StringBuilder line = new StringBuilder();
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        line.append(SEPARATOR);
+      }
+      line.append(format(columns.get(i).extractor().apply(row)));
+    }
+    return line.toString();
+  }
+
+  private String summarize(List<T> overflow) {
+    StringBuilder out = new StringBuilder("另有 ").append(overflow.size()).append(" 条未逐行列出");
+    String separator = "：";
+    for (Column<T> column : columns) {
+      String part =
+          switch (column.aggregate()) {
+            case NONE -> null;
+            case RANGE -> range(column, overflow, false);
+            case SUM -> range(column, overflow, true);
+            case COUNT -> counts(column, overflow);
+          };
+      if (part != null) {
+        out.append(separator).append(column.name()).append(' ').append(part);
+        separator = "；";
+      }
+    }
+    return out.toString();
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private String range(Column<T> column, List<T> overflow, boolean withSum) {
+    Comparable min = null;
+    Comparable max = null;
+    BigDecimal sum = BigDecimal.ZERO;
+    for (T row : overflow) {
+      Object value = column.extractor().apply(row);
+      if (!(value instanceof Comparable comparable)) {
+        continue;
+      }
+      if (min == null || comparable.compareTo(min) < 0) {
+        min = comparable;
+      }
+      if (max == null || comparable.compareTo(max) > 0) {
+        max = comparable;
+      }
+      if (withSum && value instanceof Number number) {
+        sum = sum.add(new BigDecimal(number.toString()));
+      }
+    }
+    if (min == null) {
+      return null;
+    }
+    String range = format(min) + "~" + format(max);
+    return withSum ? "合计 " + format(sum) + "，范围 " + range : range;
+  }
+
+  private String counts(Column<T> column, List<T> overflow) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (T row : overflow) {
+      counts.merge(format(column.extractor().apply(row)), 1, Integer::sum);
+    }
+    List<String> parts = new ArrayList<>(counts.size());
+    counts.forEach((value, count) -> parts.add((value.isEmpty() ? "未知" : value) + "×" + count));
+    return String.join("、", parts);
+  }
+
+  private static String format(Object value) {
+    if (value == null) {
+      return "";
+    }
+    if (value instanceof LocalDateTime dateTime) {
+      return dateTime.format(DATE_TIME_FORMATTER);
+    }
+    if (value instanceof BigDecimal decimal) {
+      return decimal
+          .setScale(Math.min(decimal.scale(), 2), RoundingMode.HALF_UP)
+          .stripTrailingZeros()
+          .toPlainString();
+    }
+    if (value instanceof Double || value instanceof Float) {
+      return format(BigDecimal.valueOf(((Number) value).doubleValue()));
+    }
+    String text = value.toString();
+    if (text.indexOf(SEPARATOR) < 0 && text.indexOf('\n') < 0) {
+      return text;
+    }
+    return text.replace(SEPARATOR, '/').replace('\n', ' ');
+  }
+}
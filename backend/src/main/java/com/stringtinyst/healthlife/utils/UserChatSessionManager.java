@@ -1,21 +1,280 @@
 package com.stringtinyst.healthlife.utils;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.stringtinyst.healthlife.service.ChatMessageStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * 用户会话记忆存储
+ *
+ * <p>四重上限：会话数、空闲时间（expireAfterAccess）、单个会话保留的消息条数、全部会话估算占用的堆内存。后两者超限时分别丢弃最早的消息和最久未用的会话
+ *
+ * <p>会话数与内存共用 Caffeine 的权重淘汰：每个会话的权重取估算字节数与 {@code 总内存 / 会话数} 中的较大者，总权重不超限即同时保证两项上限
+ *
+ * <p>配置了 {@link ChatMessageStore}
+ * 时，内存中的会话只是持久化历史的热尾部：会话首次加载时从存储读取最近的消息，新消息异步追加。多实例共享的存储（jdbc）每次取会话时先比对 {@link
+ * ChatMessageStore#lastSequence}，其它实例追加或清空过该会话时重新加载，因此不需要粘性会话；单实例存储（file）与纯内存模式之后的读取都不访问存储
+ *
+ * <p>指标：{@code cache.size}/{@code cache.evictions}（cache=chat.sessions）与 {@code
+ * chat.sessions.bytes}
+ */
 @Component
 public class UserChatSessionManager {
 
-  private final Map<String, ChatMemory> userSessions = new ConcurrentHashMap<>();
+  static final String CACHE_NAME = "chat.sessions";
+  static final String BYTES_GAUGE = "chat.sessions.bytes";
+
+  /** 每条消息的固定开销估算（对象头、元数据 Map 等） */
+  private static final int MESSAGE_OVERHEAD_BYTES = 128;
+
+  private final Cache<String, SessionMemory> sessions;
+  private final int maxMessages;
+  private final long minWeight;
+  private final AtomicLong bytesHeld = new AtomicLong();
+  private final ChatMessageStore store;
+
+  @Autowired
+  public UserChatSessionManager(
+      @Value("${ai.chat.session.max-sessions:10000}") long maxSessions,
+      @Value("${ai.chat.session.idle-minutes:30}") long idleMinutes,
+      @Value("${ai.chat.session.max-messages:50}") int maxMessages,
+      @Value("${ai.chat.session.max-weight-bytes:67108864}") long maxWeightBytes,
+      MeterRegistry meterRegistry,
+      ObjectProvider<ChatMessageStore> storeProvider) {
+    this(
+        maxSessions,
+        idleMinutes,
+        maxMessages,
+        maxWeightBytes,
+        meterRegistry,
+        storeProvider.getIfAvailable(),
+        Ticker.systemTicker());
+  }
+
+  UserChatSessionManager(
+      long maxSessions,
+      long idleMinutes,
+      int maxMessages,
+      long maxWeightBytes,
+      MeterRegistry meterRegistry,
+      ChatMessageStore store,
+      Ticker ticker) {
+    if (maxSessions <= 0) {
+      maxSessions = 10_000;
+    }
+    if (idleMinutes <= 0) {
+      idleMinutes = 30;
+    }
+    if (maxWeightBytes <= 0) {
+      maxWeightBytes = 64L * 1024 * 1024;
+    }
+    this.maxMessages = maxMessages > 0 ? maxMessages : 50;
+    this.store = store;
+    this.minWeight = Math.max(1, maxWeightBytes / maxSessions);
+    this.sessions =
+        Caffeine.newBuilder()
+            .maximumWeight(maxWeightBytes)
+            .weigher((String id, SessionMemory memory) -> weightOf(memory))
+            .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+            .ticker(ticker)
+            .scheduler(Scheduler.systemScheduler())
+            .evictionListener(this::onEvicted)
+            .recordStats()
+            .build();
+    if (meterRegistry != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, sessions, CACHE_NAME);
+      Gauge.builder(BYTES_GAUGE, bytesHeld, AtomicLong::get)
+          .description("会话记忆估算占用的堆内存")
+          .baseUnit("bytes")
+          .register(meterRegistry);
+    }
+  }
 
   public void clearChatMemory(String sessionId) {
-    userSessions.remove(sessionId);
+    SessionMemory removed = sessions.asMap().remove(sessionId);
+    if (removed != null) {
+      removed.detach();
+    }
+    if (store != null) {
+      store.clear(sessionId);
+    }
   }
 
   public ChatMemory getChatMemory(String sessionId) {
-    return userSessions.computeIfAbsent(sessionId, k -> new InMemoryChatMemory());
+    SessionMemory memory = sessions.get(sessionId, this::load);
+    if (store != null) {
+      memory.revalidate();
+    }
+    return memory;
+  }
+
+  private SessionMemory load(String sessionId) {
+    SessionMemory memory = new SessionMemory(sessionId);
+    if (store != null) {
+      // 先取序号再读消息，两者之间有新的写入时下次校验会再加载一次
+      long sequence = store.lastSequence(sessionId);
+      memory.restore(store.loadRecent(sessionId, maxMessages), sequence);
+    }
+    return memory;
+  }
+
+  long sessionCount() {
+    sessions.cleanUp();
+    return sessions.estimatedSize();
+  }
+
+  long bytesHeld() {
+    sessions.cleanUp();
+    return bytesHeld.get();
+  }
+
+  private int weightOf(SessionMemory memory) {
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(memory.bytes, minWeight));
+  }
+
+  private void onEvicted(String sessionId, SessionMemory memory, RemovalCause cause) {
+    if (memory != null) {
+      memory.detach();
+    }
+  }
+
+  static long estimateBytes(Message message) {
+    String text = message.getText();
+    return MESSAGE_OVERHEAD_BYTES + 2L * (text == null ? 0 : text.length());
+  }
+
+  /** 单个用户的会话记忆，超过条数上限时丢弃最早的消息；会话已被淘汰后的写入不再计入内存统计 */
+  private final class SessionMemory implements ChatMemory {
+
+    private final String sessionId;
+    private final Deque<Message> messages = new ArrayDeque<>();
+    private volatile long bytes;
+    private boolean detached;
+
+    /** 内存中的消息对应的存储序号 */
+    private long sequence = -1;
+
+    private SessionMemory(String sessionId) {
+      this.sessionId = sessionId;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> added) {
+      boolean live;
+      synchronized (this) {
+        long before = bytes;
+        long after = before;
+        for (Message message : added) {
+          messages.addLast(message);
+          after += estimateBytes(message);
+        }
+        while (messages.size() > maxMessages) {
+          after -= estimateBytes(messages.removeFirst());
+        }
+        bytes = after;
+        live = !detached;
+        if (live) {
+          bytesHeld.addAndGet(after - before);
+        }
+      }
+      if (live) {
+        // 原值替换自身，让 Caffeine 按新的大小重新计算权重
+        sessions.asMap().replace(sessionId, this, this);
+      }
+      if (store != null) {
+        store.append(sessionId, added);
+      }
+    }
+
+    /** 载入持久化的历史，此时会话尚未放入缓存，权重在放入时计算 */
+    private synchronized void restore(List<Message> history, long sequence) {
+      for (Message message : history) {
+        messages.addLast(message);
+        bytes += estimateBytes(message);
+      }
+      this.sequence = sequence;
+      bytesHeld.addAndGet(bytes);
+    }
+
+    /** 存储中的序号与内存不一致（其它实例写入或清空过，或本实例的追加已落库）时，用存储中的最近消息替换内存尾部 */
+    private void revalidate() {
+      long latest = store.lastSequence(sessionId);
+      synchronized (this) {
+        if (latest < 0 || latest == sequence) {
+          return;
+        }
+      }
+      List<Message> history = store.loadRecent(sessionId, maxMessages);
+      synchronized (this) {
+        long before = bytes;
+        messages.clear();
+        long after = 0;
+        for (Message message : history) {
+          messages.addLast(message);
+          after += estimateBytes(message);
+        }
+        bytes = after;
+        sequence = latest;
+        if (!detached) {
+          bytesHeld.addAndGet(after - before);
+        }
+      }
+      sessions.asMap().replace(sessionId, this, this);
+    }
+
+    @Override
+    public synchronized List<Message> get(String conversationId, int lastN) {
+      int skip = Math.max(0, messages.size() - lastN);
+      List<Message> recent = new ArrayList<>(messages.size() - skip);
+      Iterator<Message> iterator = messages.iterator();
+      for (int i = 0; iterator.hasNext(); i++) {
+        Message message = iterator.next();
+        if (i >= skip) {
+          recent.add(message);
+        }
+      }
+      return recent;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+      synchronized (this) {
+        if (!detached) {
+          bytesHeld.addAndGet(-bytes);
+        }
+        messages.clear();
+        bytes = 0;
+      }
+      sessions.asMap().replace(sessionId, this, this);
+      if (store != null) {
+        store.clear(sessionId);
+      }
+    }
+
+    private synchronized void detach() {
+      if (!detached) {
+        detached = true;
+        bytesHeld.addAndGet(-bytes);
+      }
+    }
   }
 }
@@ -0,0 +1,157 @@
+package com.stringtinyst.healthlife.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.metadata.OpenAiUsage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ChatMetricsTest {
+
+  private final MockClock clock = new MockClock();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+  private final ChatMetrics metrics = new ChatMetrics(registry);
+
+  /** 每个片段到达前时钟前进 advanceMillis */
+  private AdvisedResponse chunk(String text, Integer completionTokens, long advanceMillis) {
+    clock.add(Duration.ofMillis(advanceMillis));
+    ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+    if (completionTokens != null) {
+      metadata.usage(
+          OpenAiUsage.from(
+              new OpenAiApi.Usage(completionTokens, 100, 100 + completionTokens, null, null)));
+    }
+    return new AdvisedResponse(
+        new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build()),
+        Map.of());
+  }
+
+  @Test
+  void streamShouldRecordFirstTokenDurationAndSpeed() {
+    Flux<AdvisedResponse> upstream =
+        Flux.concat(
+            Mono.fromSupplier(() -> chunk("", null, 300)),
+            Mono.fromSupplier(() -> chunk("你好", null, 200)),
+            Mono.fromSupplier(() -> chunk("，今天不错", null, 500)),
+            Mono.fromSupplier(() -> chunk("", 40, 500)));
+
+    metrics.advisor().aroundStream(null, request -> upstream).blockLast();
+
+    assertThat(registry.get(ChatMetrics.TTFT_METRIC).timer().totalTime(TimeUnit.MILLISECONDS))
+        .isEqualTo(500);
+    assertThat(
+            registry
+                .get(ChatMetrics.DURATION_METRIC)
+                .tag("outcome", "success")
+                .timer()
+                .totalTime(TimeUnit.MILLISECONDS))
+        .isEqualTo(1500);
+    // 首个片段之后 1 秒生成 40 个 token
+    assertThat(registry.get(ChatMetrics.TOKENS_PER_SECOND_METRIC).summary().mean()).isEqualTo(40.0);
+  }
+
+  @Test
+  void failedStreamShouldNotRecordSpeed() {
+    metrics
+        .advisor()
+        .aroundStream(null, request -> Flux.error(new IllegalStateException("boom")))
+        .onErrorComplete()
+        .blockLast();
+
+    assertThat(registry.get(ChatMetrics.DURATION_METRIC).tag("outcome", "error").timer().count())
+        .isEqualTo(1);
+    assertThat(registry.get(ChatMetrics.TTFT_METRIC).timer().count()).isZero();
+    assertThat(registry.get(ChatMetrics.TOKENS_PER_SECOND_METRIC).summary().count()).isZero();
+  }
+
+  @Test
+  void functionCallsShouldBeTimedByOutcome() {
+    FunctionCallback ok = metrics.timed(stub("querySleepRecords", false));
+    FunctionCallback failing = metrics.timed(stub("addSleepRecord", true));
+
+    assertThat(ok.call("{}")).isEqualTo("ok");
+    assertThatThrownBy(() -> failing.call("{}")).isInstanceOf(IllegalArgumentException.class);
+
+    assertThat(
+            registry
+                .get(ChatMetrics.FUNCTION_METRIC)
+                .tags("function", "querySleepRecords", "outcome", "success")
+                .timer()
+                .totalTime(TimeUnit.MILLISECONDS))
+        .isEqualTo(30);
+    assertThat(
+            registry
+                .get(ChatMetrics.FUNCTION_METRIC)
+                .tags("function", "addSleepRecord", "outcome", "error")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void errorsShouldBeClassified() {
+    WebClientResponseException tooManyRequests =
+        WebClientResponseException.create(429, "Too Many Requests", HttpHeaders.EMPTY, null, null);
+
+    assertThat(metrics.recordError(tooManyRequests)).isEqualTo(ChatMetrics.ErrorClass.RATE_LIMITED);
+    assertThat(metrics.recordError(new RuntimeException("503 - Service Unavailable")))
+        .isEqualTo(ChatMetrics.ErrorClass.UNAVAILABLE);
+    assertThat(metrics.recordError(new TimeoutException("Did not observe any item")))
+        .isEqualTo(ChatMetrics.ErrorClass.TIMEOUT);
+    assertThat(metrics.recordError(new LlmCallScheduler.BusyException("忙")))
+        .isEqualTo(ChatMetrics.ErrorClass.BUSY);
+    assertThat(metrics.recordError(new NullPointerException()))
+        .isEqualTo(ChatMetrics.ErrorClass.OTHER);
+
+    assertThat(
+            registry.get(ChatMetrics.ERRORS_METRIC).tag("class", "rate-limited").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  private FunctionCallback stub(String name, boolean fail) {
+    return new FunctionCallback() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public String getDescription() {
+        return name;
+      }
+
+      @Override
+      public String getInputTypeSchema() {
+        return "{}";
+      }
+
+      @Override
+      public String call(String functionInput) {
+        clock.add(Duration.ofMillis(30));
+        if (fail) {
+          throw new IllegalArgumentException("参数错误");
+        }
+        return "ok";
+      }
+    };
+  }
+}
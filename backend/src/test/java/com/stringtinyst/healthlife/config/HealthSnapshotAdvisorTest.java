@@ -0,0 +1,75 @@
+package com.stringtinyst.healthlife.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.InMemoryChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+class HealthSnapshotAdvisorTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.parse("2024-05-10T08:30:00");
+
+  @Test
+  void snapshotShouldReachModelButNotChatMemory() {
+    AtomicReference<Prompt> sent = new AtomicReference<>();
+    ChatModel model =
+        new ChatModel() {
+          @Override
+          public ChatResponse call(Prompt prompt) {
+            sent.set(prompt);
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("好的"))));
+          }
+        };
+    InMemoryChatMemory memory = new InMemoryChatMemory();
+    HealthSnapshot snapshot = new HealthSnapshot();
+    snapshot.setHeightCM(new BigDecimal("175"));
+    snapshot.setWeightKG(new BigDecimal("70"));
+    snapshot.setBodyRecordDate(LocalDate.parse("2024-05-09"));
+    String message = "[用户ID: u1] 跑步前吃什么";
+
+    ChatClient.create(model)
+        .prompt()
+        .user(AiPromptTemplate.buildUserMessage(message, NOW))
+        .advisors(
+            new MessageChatMemoryAdvisor(memory, "u1", 10),
+            new HealthSnapshotAdvisor(message, NOW, snapshot))
+        .call()
+        .content();
+
+    String sentText =
+        sent.get().getInstructions().stream()
+            .filter(m -> m.getMessageType() == MessageType.USER)
+            .reduce((first, second) -> second)
+            .map(Message::getText)
+            .orElseThrow();
+    assertThat(sentText).isEqualTo(AiPromptTemplate.buildUserMessage(message, NOW, snapshot));
+    assertThat(sentText).contains("[健康快照: 身高 175cm 体重 70kg");
+    assertThat(memory.get("u1", 10).get(0).getText())
+        .isEqualTo("[服务器时间: 2024-05-10 08:30:00] [用户ID: u1] 跑步前吃什么");
+  }
+
+  @Test
+  void missingSnapshotShouldLeaveRequestUntouched() {
+    HealthSnapshotAdvisor advisor = new HealthSnapshotAdvisor("你好", NOW, null);
+
+    assertThat(advisor.withSnapshot(null)).isNull();
+    assertThat(advisor.getOrder())
+        .isGreaterThan(
+            MessageChatMemoryAdvisor.builder(new InMemoryChatMemory()).build().getOrder());
+  }
+}
@@ -0,0 +1,143 @@
+package com.stringtinyst.healthlife.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+class LlmCallSchedulerTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong clock = new AtomicLong();
+  private final List<String> started = new CopyOnWriteArrayList<>();
+  private final Map<String, Sinks.Many<String>> calls = new ConcurrentHashMap<>();
+
+  private LlmCallScheduler scheduler(int perUser, int maxQueued, int limit) {
+    return new LlmCallScheduler(
+        perUser, maxQueued, limit, 1, 100, Duration.ofSeconds(5), registry, clock::get);
+  }
+
+  /** 模拟一次模型调用：被放行时记录名称，输出由测试控制 */
+  private Flux<String> call(LlmCallScheduler scheduler, String userId, String name) {
+    return scheduler.submit(
+        userId,
+        () -> {
+          Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+          calls.put(name, sink);
+          started.add(name);
+          return sink.asFlux();
+        });
+  }
+
+  private void complete(String name) {
+    calls.get(name).tryEmitNext("ok");
+    calls.get(name).tryEmitComplete();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+
+  @Test
+  void perUserLimitShouldQueueSecondMessage() throws InterruptedException {
+    LlmCallScheduler scheduler = scheduler(1, 3, 10);
+
+    call(scheduler, "u1", "a1").subscribe();
+    call(scheduler, "u1", "a2").subscribe();
+    call(scheduler, "u2", "b1").subscribe();
+    await(() -> started.size() == 2);
+
+    assertThat(started).containsExactlyInAnyOrder("a1", "b1");
+    assertThat(scheduler.snapshot()).containsExactly(2, 1);
+
+    complete("a1");
+    await(() -> started.contains("a2"));
+  }
+
+  @Test
+  void freeSlotsShouldRotateAcrossUsers() throws InterruptedException {
+    LlmCallScheduler scheduler =
+        new LlmCallScheduler(5, 5, 1, 1, 1, Duration.ofSeconds(5), registry, clock::get);
+
+    call(scheduler, "u1", "a1").subscribe();
+    await(() -> started.size() == 1);
+    call(scheduler, "u1", "a2").subscribe();
+    call(scheduler, "u1", "a3").subscribe();
+    call(scheduler, "u2", "b1").subscribe();
+
+    complete("a1");
+    await(() -> started.size() == 2);
+    complete(started.get(1));
+    await(() -> started.size() == 3);
+
+    // u1 连发的 a2、a3 不会排在 u2 之前全部执行
+    assertThat(started).containsExactly("a1", "a2", "b1");
+  }
+
+  @Test
+  void fullQueueShouldBeRejected() throws InterruptedException {
+    LlmCallScheduler scheduler = scheduler(1, 1, 10);
+    call(scheduler, "u1", "a1").subscribe();
+    call(scheduler, "u1", "a2").subscribe();
+    await(() -> started.size() == 1);
+
+    assertThatThrownBy(() -> call(scheduler, "u1", "a3").blockLast())
+        .isInstanceOf(LlmCallScheduler.BusyException.class);
+    assertThat(registry.get("ai.chat.scheduler.rejected").counter().count()).isEqualTo(1.0);
+  }
+
+  /** blockLast 返回时 doFinally 可能还没在弹性线程上执行完，等槽位释放后上限才已调整 */
+  private static void awaitIdle(LlmCallScheduler scheduler) throws InterruptedException {
+    await(() -> scheduler.snapshot()[0] == 0 && scheduler.snapshot()[1] == 0);
+  }
+
+  @Test
+  void rateLimitedResponseShouldLowerLimit() throws InterruptedException {
+    LlmCallScheduler scheduler = scheduler(1, 3, 10);
+    WebClientResponseException tooManyRequests =
+        WebClientResponseException.create(429, "Too Many Requests", HttpHeaders.EMPTY, null, null);
+
+    assertThatThrownBy(
+            () -> scheduler.submit("u1", () -> Flux.<String>error(tooManyRequests)).blockLast())
+        .isSameAs(tooManyRequests);
+    awaitIdle(scheduler);
+
+    assertThat(scheduler.currentLimit()).isEqualTo(7);
+    assertThat(scheduler.snapshot()).containsExactly(0, 0);
+  }
+
+  @Test
+  void slowFirstTokenShouldLowerLimitWhileIdleCallsKeepIt() throws InterruptedException {
+    LlmCallScheduler scheduler = scheduler(1, 3, 10);
+    Flux<String> fast = Flux.defer(() -> Flux.just("ok").doOnNext(item -> clock.addAndGet(100)));
+    Flux<String> slow = Flux.defer(() -> Flux.just("ok").doOnNext(item -> clock.addAndGet(500)));
+
+    scheduler.submit("u1", () -> fast).blockLast();
+    awaitIdle(scheduler);
+    scheduler.submit("u1", () -> slow).blockLast();
+    awaitIdle(scheduler);
+    assertThat(scheduler.currentLimit()).isEqualTo(9);
+
+    for (int i = 0; i < 20; i++) {
+      scheduler.submit("u1", () -> fast).blockLast();
+      awaitIdle(scheduler);
+    }
+    assertThat(scheduler.currentLimit()).isEqualTo(9);
+  }
+}
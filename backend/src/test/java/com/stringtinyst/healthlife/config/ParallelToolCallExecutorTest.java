@@ -0,0 +1,159 @@
+package com.stringtinyst.healthlife.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.AssistantMessage.ToolCall;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.model.function.FunctionCallback;
+
+class ParallelToolCallExecutorTest {
+
+  private final ParallelToolCallExecutor executor = new ParallelToolCallExecutor(4);
+  private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  private FunctionCallback stub(String name, Function<String, String> body) {
+    return new FunctionCallback() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public String getDescription() {
+        return name;
+      }
+
+      @Override
+      public String getInputTypeSchema() {
+        return "{}";
+      }
+
+      @Override
+      public String call(String functionInput) {
+        String result = body.apply(functionInput);
+        executed.add(name);
+        return result;
+      }
+    };
+  }
+
+  /** 与 Spring AI 一样按助手消息中的顺序逐个调用，toolContext 在同一轮内共享 */
+  private static List<String> runTurn(List<FunctionCallback> toolbox, List<ToolCall> toolCalls) {
+    AssistantMessage message = new AssistantMessage("", Map.of(), toolCalls);
+    ToolContext toolContext =
+        new ToolContext(
+            Map.of(
+                ParallelToolCallExecutor.USER_ID_KEY,
+                "u1",
+                ToolContext.TOOL_CALL_HISTORY,
+                List.of(new UserMessage("这周怎么样"), message)));
+    List<String> results = new ArrayList<>();
+    for (ToolCall toolCall : toolCalls) {
+      FunctionCallback callback =
+          toolbox.stream().filter(c -> c.getName().equals(toolCall.name())).findFirst().get();
+      results.add(callback.call(toolCall.arguments(), toolContext));
+    }
+    return results;
+  }
+
+  private static ToolCall toolCall(String id, String name) {
+    return new ToolCall(id, "function", name, "{\"userID\":\"u1\"}");
+  }
+
+  @Test
+  void readOnlyCallsInOneMessageShouldRunConcurrently() {
+    CountDownLatch allStarted = new CountDownLatch(3);
+    Function<String, String> query =
+        input -> {
+          allStarted.countDown();
+          try {
+            // 顺序执行时第一个调用会在这里等满超时
+            return allStarted.await(5, TimeUnit.SECONDS) ? "ok" : "timeout";
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+          }
+        };
+    List<FunctionCallback> toolbox =
+        executor.wrap(
+            List.of(
+                stub("queryBodyMetrics", query),
+                stub("querySleepRecords", query),
+                stub("queryDietRecords", query)));
+
+    long start = System.nanoTime();
+    List<String> results =
+        runTurn(
+            toolbox,
+            List.of(
+                toolCall("1", "queryBodyMetrics"),
+                toolCall("2", "querySleepRecords"),
+                toolCall("3", "queryDietRecords")));
+
+    assertThat(results).containsExactly("ok", "ok", "ok");
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test
+  void queriesAfterWriteShouldWaitForTheWrite() {
+    List<FunctionCallback> toolbox =
+        executor.wrap(
+            List.of(
+                stub("queryDietRecords", input -> "rows"),
+                stub("addDietRecord", input -> "added"),
+                stub("getDietRecordDetail", input -> "detail")));
+
+    List<String> results =
+        runTurn(
+            toolbox,
+            List.of(
+                toolCall("1", "queryDietRecords"),
+                toolCall("2", "addDietRecord"),
+                toolCall("3", "getDietRecordDetail")));
+
+    assertThat(results).containsExactly("rows", "added", "detail");
+    assertThat(executed)
+        .containsExactly("queryDietRecords", "addDietRecord", "getDietRecordDetail");
+  }
+
+  @Test
+  void callWithoutToolContextShouldRunInline() {
+    FunctionCallback callback =
+        executor
+            .wrap(List.of(stub("queryBodyMetrics", input -> Thread.currentThread().getName())))
+            .get(0);
+
+    assertThat(callback.call("{}", null)).isEqualTo(Thread.currentThread().getName());
+    assertThat(callback.getName()).isEqualTo("queryBodyMetrics");
+  }
+
+  @Test
+  void invokedFunctionsShouldBeRecordedInToolContext() {
+    Set<String> toolCalls = ConcurrentHashMap.newKeySet();
+    FunctionCallback callback =
+        executor.wrap(List.of(stub("addDietRecord", input -> "added"))).get(0);
+
+    callback.call(
+        "{}", new ToolContext(Map.of(ParallelToolCallExecutor.TOOL_CALLS_KEY, toolCalls)));
+
+    assertThat(toolCalls).containsExactly("addDietRecord");
+  }
+}
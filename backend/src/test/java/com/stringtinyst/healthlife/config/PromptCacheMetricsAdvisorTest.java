@@ -0,0 +1,64 @@
+package com.stringtinyst.healthlife.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.metadata.OpenAiUsage;
+import reactor.core.publisher.Flux;
+
+class PromptCacheMetricsAdvisorTest {
+
+  private static AdvisedResponse response(OpenAiApi.Usage usage) {
+    ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+    if (usage != null) {
+      metadata.usage(OpenAiUsage.from(usage));
+    }
+    ChatResponse chatResponse =
+        new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))), metadata.build());
+    return new AdvisedResponse(chatResponse, Map.of());
+  }
+
+  private static double count(SimpleMeterRegistry registry, String cache) {
+    return registry
+        .get(PromptCacheMetricsAdvisor.METRIC_NAME)
+        .tag("cache", cache)
+        .counter()
+        .count();
+  }
+
+  @Test
+  void streamShouldCountCachedPromptTokensFromFinalChunk() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PromptCacheMetricsAdvisor advisor = new PromptCacheMetricsAdvisor(registry);
+    OpenAiApi.Usage usage =
+        new OpenAiApi.Usage(
+            20, 1500, 1520, new OpenAiApi.Usage.PromptTokensDetails(null, 1280), null);
+
+    advisor
+        .aroundStream(null, request -> Flux.just(response(null), response(null), response(usage)))
+        .blockLast();
+
+    assertThat(count(registry, "hit")).isEqualTo(1280);
+    assertThat(count(registry, "miss")).isEqualTo(220);
+  }
+
+  @Test
+  void systemPromptShouldNotDependOnTime() {
+    LocalDateTime now = LocalDateTime.parse("2024-05-01T08:30:15");
+
+    assertThat(AiPromptTemplate.systemPrompt()).isSameAs(AiPromptTemplate.systemPrompt());
+    assertThat(AiPromptTemplate.systemPrompt()).doesNotContain("2024-05-01");
+    assertThat(AiPromptTemplate.buildUserMessage("早餐吃了鸡蛋", now))
+        .isEqualTo("[服务器时间: 2024-05-01 08:30:15] 早餐吃了鸡蛋");
+  }
+}
@@ -0,0 +1,197 @@
+package com.stringtinyst.healthlife.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.stringtinyst.healthlife.config.ToolSelector.Selection;
+import com.stringtinyst.healthlife.config.ToolSelector.ToolGroup;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import com.stringtinyst.healthlife.utils.ChatResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.model.function.FunctionCallback;
+
+class ToolSelectorTest {
+
+  private SimpleMeterRegistry registry;
+  private ToolSelector selector;
+
+  /** 桩回调只需要名称，schema 与调用都不会用到 */
+  private static FunctionCallback stub(String name) {
+    return FunctionCallback.builder()
+        .function(name, (String input) -> "ok")
+        .description(name)
+        .inputType(String.class)
+        .build();
+  }
+
+  private static List<String> names(Selection selection) {
+    return Arrays.stream(selection.callbacks()).map(FunctionCallback::getName).toList();
+  }
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    selector =
+        new ToolSelector(
+            ToolSelectorTest::stub,
+            new ParallelToolCallExecutor(1),
+            new ChatMetrics(registry),
+            true,
+            registry);
+  }
+
+  @Test
+  void selectShouldRegisterOnlyMatchingGroupInToolboxOrder() {
+    Selection selection = selector.select("今天早餐吃了两个鸡蛋", List.of());
+
+    assertThat(selection.fallback()).isFalse();
+    assertThat(selection.groups()).containsExactly(ToolGroup.DIET);
+    assertThat(names(selection))
+        .containsExactly(
+            "queryDietRecords",
+            "addDietRecord",
+            "updateDietRecord",
+            "getDietRecordDetail",
+            "deleteDietRecord",
+            "lookupFoodCalories");
+    assertThat(ToolSelector.readsUserData("addDietRecord")).isTrue();
+    assertThat(ToolSelector.readsUserData("lookupFoodCalories")).isFalse();
+  }
+
+  @Test
+  void selectShouldAddBodyGroupForExercise() {
+    Selection selection = selector.select("下午跑步 30 分钟", List.of());
+
+    assertThat(selection.groups()).containsExactly(ToolGroup.BODY, ToolGroup.EXERCISE);
+    assertThat(names(selection)).hasSize(10).startsWith("queryBodyMetrics");
+  }
+
+  @Test
+  void selectShouldFollowRecentUserMessagesForFollowUps() {
+    List<Message> history =
+        List.of(
+            new UserMessage("[服务器时间: 2024-05-01 08:00:00] 昨晚 11 点睡的，早上 7 点起床"),
+            new AssistantMessage("已为您记录睡眠，记录 ID: 12"));
+
+    Selection selection = selector.select("改成 11 点半", history);
+
+    assertThat(selection.fallback()).isFalse();
+    assertThat(selection.groups()).containsExactly(ToolGroup.SLEEP);
+  }
+
+  @Test
+  void snapshotInHistoryShouldNotSelectEveryDataGroup() {
+    HealthSnapshot snapshot =
+        new HealthSnapshot(
+            LocalDate.parse("2024-05-10"),
+            new BigDecimal("175"),
+            new BigDecimal("70"),
+            new BigDecimal("22.9"),
+            LocalDate.parse("2024-05-09"),
+            12600,
+            2100,
+            new BigDecimal("7.5"),
+            LocalDate.parse("2024-05-09"));
+    List<Message> history =
+        List.of(
+            new UserMessage(
+                AiPromptTemplate.buildUserMessage(
+                    "[用户ID: u1] 今天早餐吃了两个鸡蛋", LocalDateTime.parse("2024-05-10T08:00:00"), snapshot)),
+            new AssistantMessage("已为您记录早餐，记录 ID: 3"));
+
+    Selection selection = selector.select("把它删掉", history);
+
+    assertThat(selection.fallback()).isFalse();
+    assertThat(selection.groups()).containsExactly(ToolGroup.DIET);
+  }
+
+  @Test
+  void onlyMessagesReferringToTheUserShouldBePersonal() {
+    assertThat(selector.refersToUser("跑步前应该吃什么")).isFalse();
+    assertThat(selector.refersToUser("运动后肌肉酸痛是什么原因")).isFalse();
+    assertThat(selector.refersToUser("搜一下流感疫苗的最新指南")).isFalse();
+    assertThat(selector.refersToUser("我适合跑多久")).isTrue();
+    assertThat(selector.refersToUser("昨天睡了几个小时")).isTrue();
+    assertThat(selector.refersToUser("把 ID 3 的饮食记录删掉")).isTrue();
+  }
+
+  @Test
+  void genericHealthQuestionShouldBeStoredAndReplayed() {
+    ChatResponseCache cache = new ChatResponseCache(true, 100, 60, 0.8, registry);
+    String question = "跑步前应该吃什么";
+    String answer = "跑步前 1-2 小时吃点香蕉或全麦面包等易消化的碳水。";
+
+    // 与 ChatController 相同的判定：新对话、不指向本人时不附带快照，回复写入缓存
+    HealthSnapshot snapshot = selector.refersToUser(question) ? new HealthSnapshot() : null;
+    cache.put(question, answer, snapshot);
+
+    assertThat(cache.lookup("跑步前应该吃什么？")).contains(answer);
+  }
+
+  @Test
+  void selectShouldFallBackToFullToolboxWhenIntentUnknown() {
+    Selection selection = selector.select("帮我总结一下这周的情况", List.of());
+
+    assertThat(selection.fallback()).isTrue();
+    assertThat(names(selection)).containsExactlyElementsOf(AiConfig.FUNCTION_TOOLBOX);
+    assertThat(registry.get(ToolSelector.SELECTED_METRIC).tag("groups", "ALL").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void selectShouldRecordGroupsAndCallbackCount() {
+    selector.select("体重 70kg", List.of());
+    selector.select("搜索一下最新的膳食指南", List.of());
+
+    assertThat(registry.get(ToolSelector.SELECTED_METRIC).tag("groups", "BODY").counter().count())
+        .isEqualTo(1.0);
+    assertThat(
+            registry
+                .get(ToolSelector.SELECTED_METRIC)
+                .tag("groups", "KNOWLEDGE+WEB_SEARCH")
+                .counter()
+                .count())
+        .isEqualTo(1.0);
+    assertThat(registry.get(ToolSelector.REGISTERED_METRIC).summary().totalAmount()).isEqualTo(7.0);
+  }
+
+  @Test
+  void knowledgeQuestionShouldRegisterLocalKnowledgeBeforeWebSearch() {
+    Selection nutrition = selector.select("一碗米饭的热量是多少", List.of());
+    Selection search = selector.select("搜一下失眠的最新研究", List.of());
+
+    assertThat(nutrition.groups()).containsExactly(ToolGroup.DIET, ToolGroup.KNOWLEDGE);
+    assertThat(names(nutrition)).endsWith("searchHealthKnowledge");
+    assertThat(names(search)).endsWith("searchHealthKnowledge", "webSearch");
+    assertThat(ToolSelector.readsUserData("searchHealthKnowledge")).isFalse();
+  }
+
+  @Test
+  void disabledSelectorShouldAlwaysRegisterEverything() {
+    ToolSelector disabled =
+        new ToolSelector(
+            ToolSelectorTest::stub,
+            new ParallelToolCallExecutor(1),
+            new ChatMetrics(registry),
+            false,
+            registry);
+
+    assertThat(disabled.select("今天早餐吃了两个鸡蛋", List.of()).fallback()).isTrue();
+  }
+
+  @Test
+  void unknownFunctionNameShouldFailFast() {
+    assertThatThrownBy(() -> ToolGroup.of("queryBloodPressure"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,58 @@
+package com.stringtinyst.healthlife.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.stringtinyst.healthlife.interceptor.LoginCheckInterceptor;
+import com.stringtinyst.healthlife.pojo.Food;
+import com.stringtinyst.healthlife.service.FoodDictionaryService;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(FoodController.class)
+class FoodControllerTest {
+
+  @Autowired private MockMvc mockMvc;
+
+  @MockitoBean private FoodDictionaryService foodDictionaryService;
+  @MockitoBean private LoginCheckInterceptor loginCheckInterceptor;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(loginCheckInterceptor.preHandle(any(), any(), any())).thenReturn(true);
+  }
+
+  @Test
+  @DisplayName("食物补全返回词典中的条目")
+  void suggestFoods() throws Exception {
+    Food egg = new Food("鸡蛋", "jidan", "蛋类", 144, 13.3, 8.8, 2.8, 50, "1个", 12, 75);
+    when(foodDictionaryService.suggest("ji", 5)).thenReturn(List.of(egg));
+
+    mockMvc
+        .perform(get("/foods/suggest").param("q", "ji").param("limit", "5"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.code").value(1))
+        .andExpect(jsonPath("$.data[0].name").value("鸡蛋"))
+        .andExpect(jsonPath("$.data[0].kcal").value(144));
+  }
+
+  @Test
+  @DisplayName("未传 q 时返回空列表")
+  void suggestWithoutQuery() throws Exception {
+    when(foodDictionaryService.suggest("", 10)).thenReturn(List.of());
+
+    mockMvc
+        .perform(get("/foods/suggest"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data").isEmpty());
+  }
+}
@@ -6,7 +6,6 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.stringtinyst.healthlife.interceptor.LoginCheckInterceptor;
-import com.stringtinyst.healthlife.utils.JwtUtils;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.impl.DefaultClaims;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,7 +21,6 @@ class UploadControllerTest {
 
   @Autowired private MockMvc mockMvc;
 
-  @MockitoBean private JwtUtils jwtUtils;
   @MockitoBean private LoginCheckInterceptor loginCheckInterceptor;
 
   @BeforeEach
@@ -45,10 +43,9 @@ class UploadControllerTest {
   @Test
   @DisplayName("携带 token 但文件不存在返回 404")
   void getAvatarNotFound() throws Exception {
-    when(jwtUtils.parseJWT("token-1")).thenReturn(claims("u1"));
-
     mockMvc
-        .perform(get("/user/avatar").header("token", "token-1"))
+        .perform(
+            get("/user/avatar").requestAttr(LoginCheckInterceptor.CLAIMS_ATTRIBUTE, claims("u1")))
         .andExpect(status().isNotFound());
   }
 }
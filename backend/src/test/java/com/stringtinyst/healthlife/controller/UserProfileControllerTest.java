@@ -11,7 +11,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stringtinyst.healthlife.interceptor.LoginCheckInterceptor;
 import com.stringtinyst.healthlife.pojo.User;
 import com.stringtinyst.healthlife.service.UserService;
-import com.stringtinyst.healthlife.utils.JwtUtils;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.impl.DefaultClaims;
 import java.time.LocalDate;
@@ -30,7 +29,6 @@ class UserProfileControllerTest {
   @Autowired private MockMvc mockMvc;
 
   @MockitoBean private UserService userService;
-  @MockitoBean private JwtUtils jwtUtils;
   @MockitoBean private LoginCheckInterceptor loginCheckInterceptor;
 
   private ObjectMapper objectMapper;
@@ -51,13 +49,13 @@ class UserProfileControllerTest {
   @Test
   @DisplayName("获取用户资料成功")
   void getProfile_success() throws Exception {
-    when(jwtUtils.parseJWT("token-1")).thenReturn(claims("u1"));
     User user =
         new User("u1", "u1@example.com", null, "Tom", "M", LocalDate.parse("1990-01-01"), null);
     when(userService.getUser("u1")).thenReturn(user);
 
     mockMvc
-        .perform(get("/user/profile").header("Authorization", "Bearer token-1"))
+        .perform(
+            get("/user/profile").requestAttr(LoginCheckInterceptor.CLAIMS_ATTRIBUTE, claims("u1")))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.code").value(1))
         .andExpect(jsonPath("$.data.userID").value("u1"))
@@ -67,20 +65,30 @@ class UserProfileControllerTest {
   @Test
   @DisplayName("获取用户资料不存在")
   void getProfile_notFound() throws Exception {
-    when(jwtUtils.parseJWT("token-404")).thenReturn(claims("u404"));
     when(userService.getUser("u404")).thenReturn(null);
 
     mockMvc
-        .perform(get("/user/profile").header("Authorization", "Bearer token-404"))
+        .perform(
+            get("/user/profile")
+                .requestAttr(LoginCheckInterceptor.CLAIMS_ATTRIBUTE, claims("u404")))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.code").value(0))
         .andExpect(jsonPath("$.msg").value("用户不存在"));
   }
 
+  @Test
+  @DisplayName("缺少登录信息时提示无效 token")
+  void getProfile_withoutClaims() throws Exception {
+    mockMvc
+        .perform(get("/user/profile"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.code").value(0))
+        .andExpect(jsonPath("$.msg").value("无效的 token 或 token 中无 userId"));
+  }
+
   @Test
   @DisplayName("更新用户资料成功")
   void updateProfile_success() throws Exception {
-    when(jwtUtils.parseJWT("token-2")).thenReturn(claims("u2"));
     when(userService.updateUser(any(User.class))).thenReturn(true);
 
     User update = new User(null, null, null, "Jerry", "M", LocalDate.parse("1991-02-02"), null);
@@ -89,7 +97,7 @@ class UserProfileControllerTest {
     mockMvc
         .perform(
             put("/user/profile")
-                .header("Authorization", "Bearer token-2")
+                .requestAttr(LoginCheckInterceptor.CLAIMS_ATTRIBUTE, claims("u2"))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(payload))
         .andExpect(status().isOk())
@@ -101,7 +109,6 @@ class UserProfileControllerTest {
   @Test
   @DisplayName("更新用户资料失败")
   void updateProfile_fail() throws Exception {
-    when(jwtUtils.parseJWT("token-3")).thenReturn(claims("u3"));
     when(userService.updateUser(any(User.class))).thenReturn(false);
 
     User update = new User(null, null, null, "Fail", null, null, null);
@@ -110,7 +117,7 @@ class UserProfileControllerTest {
     mockMvc
         .perform(
             put("/user/profile")
-                .header("Authorization", "Bearer token-3")
+                .requestAttr(LoginCheckInterceptor.CLAIMS_ATTRIBUTE, claims("u3"))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(payload))
         .andExpect(status().isOk())
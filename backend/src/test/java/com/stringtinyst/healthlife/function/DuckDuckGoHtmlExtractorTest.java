@@ -0,0 +1,92 @@
+package com.stringtinyst.healthlife.function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.function.WebSearchFunction.SearchResult;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DuckDuckGoHtmlExtractorTest {
+
+  private static final String PAGE =
+      "<html><head><style>.result__a{color:red}</style>"
+          + "<script>var fake = '<a class=\"result__a\" href=\"https://evil.example\">假结果</a>';</script>"
+          + "</head><body><div id=\"links\" class=\"results\">"
+          + "<div class=\"result results_links result--ad\">"
+          + "<h2 class=\"result__title\"><a class=\"result__a\" href=\"https://ads.example/pillow\">助眠枕头</a></h2>"
+          + "<a class=\"result__snippet\" href=\"https://ads.example/pillow\">限时特价</a></div>"
+          + "<div class=\"result results_links web-result\">"
+          + "<h2 class=\"result__title\">\n  <a rel=\"nofollow\" class=\"result__a\""
+          + " href=\"//duckduckgo.com/l/?uddg=https%3A%2F%2Fexample.com%2Fsleep%3Fa%3D1%26b%3D2&amp;rut=abc\">"
+          + "睡眠 &amp; 健康</a>\n</h2>"
+          + "<a class=\"result__url\" href=\"#\">example.com/sleep</a>"
+          + "<a class=\"result__snippet\" href=\"#\">多数<b>成年人</b>每晚需要 7&#x2013;9 小时，\n   不要少于&nbsp;6&nbsp;小时&hellip;</a>"
+          + "</div>"
+          + "<div class=\"result results_links web-result\">"
+          + "<h2 class=\"result__title\"><a class=\"result__a\" href=\"https://example.org/nap\">午睡 &quot;多久&quot;</a></h2>"
+          + "</div>"
+          + "<div class=\"result results_links web-result\">"
+          + "<h2 class=\"result__title\"><a class='result__a' href='https://example.org/caffeine'>咖啡因 &lt;与&gt; 睡眠</a></h2>"
+          + "<a class=\"result__snippet\">半衰期约 5 小时 &unknown; 照原样保留</a>"
+          + "</div></div></body></html>";
+
+  @Test
+  void shouldExtractTitleUrlAndRealSnippet() throws IOException {
+    List<SearchResult> results = DuckDuckGoHtmlExtractor.extract(new StringReader(PAGE), 10);
+
+    assertThat(results)
+        .extracting(SearchResult::getTitle)
+        .containsExactly("睡眠 & 健康", "午睡 \"多久\"", "咖啡因 <与> 睡眠");
+    assertThat(results.get(0).getUrl()).isEqualTo("https://example.com/sleep?a=1&b=2");
+    assertThat(results.get(0).getSnippet()).isEqualTo("多数成年人每晚需要 7–9 小时， 不要少于 6 小时…");
+    assertThat(results.get(1).getUrl()).isEqualTo("https://example.org/nap");
+    assertThat(results.get(1).getSnippet()).isEmpty();
+    assertThat(results.get(2).getSnippet()).isEqualTo("半衰期约 5 小时 &unknown; 照原样保留");
+  }
+
+  @Test
+  void shouldGiveSameResultsWhenTagsSpanReadBoundaries() throws IOException {
+    List<SearchResult> whole = DuckDuckGoHtmlExtractor.extract(new StringReader(PAGE), 10);
+    List<SearchResult> oneCharAtATime =
+        DuckDuckGoHtmlExtractor.extract(new OneCharReader(PAGE), 10);
+
+    assertThat(oneCharAtATime).isEqualTo(whole);
+  }
+
+  @Test
+  void shouldStopReadingOnceEnoughResults() throws IOException {
+    String page = PAGE + "<div>" + "x".repeat(1_000_000) + "</div>";
+    OneCharReader reader = new OneCharReader(page);
+
+    List<SearchResult> results = DuckDuckGoHtmlExtractor.extract(reader, 1);
+
+    assertThat(results).extracting(SearchResult::getTitle).containsExactly("睡眠 & 健康");
+    assertThat(reader.consumed).isLessThan(PAGE.length());
+  }
+
+  /** 每次只返回一个字符，覆盖标签、实体与属性被读取边界切开的情况 */
+  private static final class OneCharReader extends Reader {
+
+    private final String content;
+    private int consumed;
+
+    private OneCharReader(String content) {
+      this.content = content;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (consumed >= content.length()) {
+        return -1;
+      }
+      buffer[offset] = content.charAt(consumed++);
+      return 1;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
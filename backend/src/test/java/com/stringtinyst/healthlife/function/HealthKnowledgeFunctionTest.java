@@ -0,0 +1,53 @@
+package com.stringtinyst.healthlife.function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.function.HealthKnowledgeFunction.KnowledgeRequest;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HealthKnowledgeFunctionTest {
+
+  @TempDir Path segmentDir;
+
+  private HealthKnowledgeFunction function;
+
+  @BeforeEach
+  void setUp() {
+    function = new HealthKnowledgeFunction(true, segmentDir.toString());
+  }
+
+  private String ask(String query) {
+    return function.searchHealthKnowledge().apply(new KnowledgeRequest(query, 3));
+  }
+
+  @Test
+  void bundledCorpusShouldAnswerCommonQuestions() {
+    assertThat(ask("成年人每天应该睡几个小时")).contains("1. **成年人每天需要睡多久**").contains("7 到 9 小时");
+    assertThat(ask("米饭热量")).contains("1. **米饭 热量与营养成分**").contains("116 千卡");
+    assertThat(ask("高血压怎么吃")).contains("高血压患者的饮食与运动");
+  }
+
+  @Test
+  void unknownTopicShouldPointToWebSearch() {
+    assertThat(ask("火星探测器")).contains("webSearch");
+  }
+
+  @Test
+  void searchShouldStayWellUnderOneMillisecond() {
+    String[] queries = {"成年人每天睡多久", "鸡胸肉蛋白质", "跑步膝盖疼", "每天喝多少水", "减肥热量缺口"};
+    for (int i = 0; i < 2_000; i++) {
+      ask(queries[i % queries.length]);
+    }
+    long start = System.nanoTime();
+    int rounds = 2_000;
+    for (int i = 0; i < rounds; i++) {
+      ask(queries[i % queries.length]);
+    }
+    double averageMicros = (System.nanoTime() - start) / 1_000.0 / rounds;
+
+    assertThat(averageMicros).isLessThan(1_000);
+  }
+}
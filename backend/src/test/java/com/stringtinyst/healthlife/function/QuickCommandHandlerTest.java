@@ -0,0 +1,129 @@
+package com.stringtinyst.healthlife.function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Exer;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import com.stringtinyst.healthlife.service.BodyService;
+import com.stringtinyst.healthlife.service.DietService;
+import com.stringtinyst.healthlife.service.ExerService;
+import com.stringtinyst.healthlife.service.FoodDictionaryService;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import com.stringtinyst.healthlife.utils.FunctionResultCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class QuickCommandHandlerTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2024, 5, 10);
+
+  @Mock private BodyService bodyService;
+  @Mock private DietService dietService;
+  @Mock private ExerService exerService;
+  @Mock private FoodDictionaryService foodDictionaryService;
+  @Mock private HealthSnapshotService healthSnapshotService;
+
+  private SimpleMeterRegistry registry;
+  private QuickCommandHandler handler;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, null);
+    handler =
+        new QuickCommandHandler(
+            new BodyFunctions(bodyService, cache),
+            new DietFunctions(dietService, foodDictionaryService, cache),
+            new ExerciseFunctions(exerService, healthSnapshotService, cache),
+            healthSnapshotService,
+            registry);
+  }
+
+  private void latestBody(String heightCM, String weightKG) {
+    HealthSnapshot snapshot = new HealthSnapshot();
+    snapshot.setHeightCM(new BigDecimal(heightCM));
+    snapshot.setWeightKG(new BigDecimal(weightKG));
+    when(healthSnapshotService.getSnapshot("u1")).thenReturn(snapshot);
+  }
+
+  @Test
+  void dietCommandShouldAddRecordWithoutModel() {
+    Optional<String> reply = handler.tryHandle("u1", "午饭吃了米饭 300 大卡。", TODAY);
+
+    ArgumentCaptor<Diet> diet = ArgumentCaptor.forClass(Diet.class);
+    verify(dietService).addDiet(diet.capture());
+    assertThat(diet.getValue().getMealType()).isEqualTo("午餐");
+    assertThat(diet.getValue().getFoodName()).isEqualTo("米饭");
+    assertThat(diet.getValue().getEstimatedCalories()).isEqualTo(300);
+    assertThat(diet.getValue().getRecordDate()).isEqualTo(TODAY);
+    assertThat(reply).hasValueSatisfying(text -> assertThat(text).startsWith("成功添加饮食记录"));
+    assertThat(registry.get(QuickCommandHandler.METRIC_NAME).tag("type", "diet").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void weightCommandShouldReuseLatestHeight() {
+    latestBody("175.0", "72.0");
+
+    Optional<String> reply = handler.tryHandle("u1", "昨天记录体重 140斤", TODAY);
+
+    ArgumentCaptor<Body> body = ArgumentCaptor.forClass(Body.class);
+    verify(bodyService).addBody(body.capture());
+    assertThat(body.getValue().getHeightCM()).isEqualByComparingTo("175");
+    assertThat(body.getValue().getWeightKG()).isEqualByComparingTo("70");
+    assertThat(body.getValue().getRecordDate()).isEqualTo(TODAY.minusDays(1));
+    assertThat(reply).hasValueSatisfying(text -> assertThat(text).contains("BMI"));
+  }
+
+  @Test
+  void weightCommandWithoutKnownHeightShouldFallThrough() {
+    when(healthSnapshotService.getSnapshot("u1")).thenReturn(new HealthSnapshot());
+
+    assertThat(handler.tryHandle("u1", "记录体重 70kg", TODAY)).isEmpty();
+    verify(bodyService, never()).addBody(any());
+  }
+
+  @Test
+  void exerciseCommandShouldConvertHoursAndComputeCalories() {
+    latestBody("175.0", "70.0");
+
+    Optional<String> reply = handler.tryHandle("u1", "跑步 1小时", TODAY);
+
+    ArgumentCaptor<Exer> exer = ArgumentCaptor.forClass(Exer.class);
+    verify(exerService).addExer(exer.capture());
+    assertThat(exer.getValue().getExerciseType()).isEqualTo("跑步");
+    assertThat(exer.getValue().getDurationMinutes()).isEqualTo(60);
+    // MET 9.8 × 70 kg × 1 h
+    assertThat(exer.getValue().getEstimatedCaloriesBurned()).isEqualTo(686);
+    assertThat(reply).isPresent();
+  }
+
+  @Test
+  void ambiguousMessagesShouldFallThroughToModel() {
+    assertThat(handler.tryHandle("u1", "午餐吃了米饭", TODAY)).isEmpty();
+    assertThat(handler.tryHandle("u1", "午餐吃了米饭 300 大卡，会胖吗？", TODAY)).isEmpty();
+    assertThat(handler.tryHandle("u1", "早餐吃了2个鸡蛋 150 大卡", TODAY)).isEmpty();
+    assertThat(handler.tryHandle("u1", "打太极 30 分钟", TODAY)).isEmpty();
+    assertThat(handler.tryHandle("u1", "体重 500kg", TODAY)).isEmpty();
+    assertThat(handler.tryHandle("u1", "我想减掉体重 5kg", TODAY)).isEmpty();
+
+    verify(dietService, never()).addDiet(any());
+    verify(exerService, never()).addExer(any());
+    verify(healthSnapshotService, never()).getSnapshot(any());
+  }
+}
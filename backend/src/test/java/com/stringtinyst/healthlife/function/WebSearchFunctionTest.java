@@ -0,0 +1,139 @@
+package com.stringtinyst.healthlife.function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WebSearchFunctionTest {
+
+  private static final String HTML =
+      "<div><a rel=\"nofollow\" class=\"result__a\" href=\"https://example.com/sleep\">睡眠指南</a></div>";
+  private static final String INSTANT_ANSWER =
+      "{\"Abstract\":\"成年人每晚建议睡 7 到 9 小时\",\"AbstractSource\":\"百科\","
+          + "\"AbstractURL\":\"https://example.com/wiki\",\"RelatedTopics\":[]}";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicInteger htmlCalls = new AtomicInteger();
+  private final AtomicInteger apiCalls = new AtomicInteger();
+  private volatile long htmlDelayMillis;
+  private volatile long apiDelayMillis;
+  private volatile int status = 200;
+  private HttpServer server;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/html/", exchange -> reply(exchange, htmlCalls, htmlDelayMillis, HTML));
+    server.createContext(
+        "/api/", exchange -> reply(exchange, apiCalls, apiDelayMillis, INSTANT_ANSWER));
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  private void reply(HttpExchange exchange, AtomicInteger calls, long delayMillis, String body)
+      throws IOException {
+    try (exchange) {
+      calls.incrementAndGet();
+      Thread.sleep(delayMillis);
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status, bytes.length);
+      exchange.getResponseBody().write(bytes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private WebSearchFunction search(long timeoutMillis, long hedgeMillis, int failureThreshold) {
+    String base = "http://127.0.0.1:" + server.getAddress().getPort();
+    return new WebSearchFunction(
+        true,
+        base + "/html/",
+        base + "/api/",
+        100,
+        30,
+        timeoutMillis,
+        hedgeMillis,
+        failureThreshold,
+        60,
+        registry);
+  }
+
+  private static String query(WebSearchFunction function, String query) {
+    return function.webSearch().apply(new WebSearchFunction.SearchRequest(query, 5));
+  }
+
+  @Test
+  void sameQueryShouldShareOneUpstreamCall() {
+    htmlDelayMillis = 200;
+    WebSearchFunction function = search(2000, 1000, 5);
+
+    // 全角、大小写与多余空白不同的同一问题
+    List<CompletableFuture<String>> concurrent =
+        List.of("Sleep 时长", "  ＳＬＥＥＰ   时长 ", "sleep 时长").stream()
+            .map(q -> CompletableFuture.supplyAsync(() -> query(function, q)))
+            .toList();
+
+    assertThat(concurrent).allSatisfy(answer -> assertThat(answer.join()).contains("睡眠指南"));
+    assertThat(htmlCalls.get()).isEqualTo(1);
+    assertThat(query(function, "SLEEP 时长")).contains("睡眠指南");
+    assertThat(htmlCalls.get()).isEqualTo(1);
+    assertThat(apiCalls.get()).isZero();
+  }
+
+  @Test
+  void slowHtmlSearchShouldBeHedgedWithInstantAnswer() {
+    htmlDelayMillis = 1500;
+    WebSearchFunction function = search(1000, 100, 5);
+
+    long start = System.nanoTime();
+    String answer = query(function, "睡多久合适");
+
+    assertThat(answer).contains("成年人每晚建议睡 7 到 9 小时");
+    assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1000);
+  }
+
+  @Test
+  void slowUpstreamShouldTimeOutWithinBudget() {
+    htmlDelayMillis = 1500;
+    apiDelayMillis = 1500;
+    WebSearchFunction function = search(300, 100, 5);
+
+    long start = System.nanoTime();
+    String answer = query(function, "睡多久合适");
+
+    assertThat(answer).contains("超时");
+    assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1000);
+  }
+
+  @Test
+  void repeatedFailuresShouldOpenCircuit() {
+    status = 503;
+    WebSearchFunction function = search(1000, 100, 2);
+
+    assertThat(query(function, "问题一")).startsWith("网络搜索失败");
+    assertThat(query(function, "问题二")).startsWith("网络搜索失败");
+    int upstreamCalls = htmlCalls.get() + apiCalls.get();
+
+    assertThat(query(function, "问题三")).contains("暂时不可用");
+    assertThat(htmlCalls.get() + apiCalls.get()).isEqualTo(upstreamCalls);
+    assertThat(registry.get(WebSearchFunction.SHORT_CIRCUITED_METRIC).counter().count())
+        .isEqualTo(1.0);
+  }
+}
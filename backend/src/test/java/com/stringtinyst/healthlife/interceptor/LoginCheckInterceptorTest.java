@@ -5,6 +5,8 @@ import static org.mockito.Mockito.when;
 
 import com.stringtinyst.healthlife.pojo.Result;
 import com.stringtinyst.healthlife.utils.JwtUtils;
+import io.jsonwebtoken.impl.DefaultClaims;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
@@ -50,6 +52,23 @@ class LoginCheckInterceptorTest {
     assertThat(allowed).isTrue();
   }
 
+  @Test
+  void preHandleShouldExposeVerifiedClaimsAsRequestAttribute() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setRequestURI("/user/profile");
+    request.setCookies(new Cookie("token", "cookie-token"));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    DefaultClaims claims = new DefaultClaims();
+    claims.put("userID", "u1");
+
+    when(jwtUtils.parseJWT("cookie-token")).thenReturn(claims);
+
+    boolean allowed = interceptor.preHandle(request, response, new Object());
+
+    assertThat(allowed).isTrue();
+    assertThat(request.getAttribute(LoginCheckInterceptor.CLAIMS_ATTRIBUTE)).isSameAs(claims);
+  }
+
   @Test
   void preHandleShouldRejectWhenTokenInvalid() throws Exception {
     MockHttpServletRequest request = new MockHttpServletRequest();
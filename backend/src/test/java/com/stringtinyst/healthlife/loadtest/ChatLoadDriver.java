@@ -0,0 +1,183 @@
+package com.stringtinyst.healthlife.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * {@code POST /chat/stream} 的负载驱动
+ *
+ * <p>N 个用户同时开始，每个用户按顺序发送若干条消息并读完整个 SSE 流，记录每轮的首帧延迟（请求发出到收到第一个 data 帧）与总耗时
+ */
+public class ChatLoadDriver {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** 一个虚拟用户：登录 token 与要发送的消息 */
+  public record VirtualUser(String token, List<String> messages) {}
+
+  /** 一轮对话的结果；失败时 error 非空，content 为拼接后的回复 */
+  public record Turn(long firstFrameNanos, long totalNanos, String content, String error) {}
+
+  private final String baseUrl;
+  private final HttpClient client;
+  private final Duration timeout;
+
+  public ChatLoadDriver(String baseUrl, Duration timeout) {
+    this.baseUrl = baseUrl;
+    this.timeout = timeout;
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+  }
+
+  /** 所有用户同时开始，等待全部完成后汇总 */
+  public Report run(int users, IntFunction<VirtualUser> userFactory) throws InterruptedException {
+    List<Turn> turns = Collections.synchronizedList(new ArrayList<>());
+    ExecutorService executor = Executors.newFixedThreadPool(users);
+    CountDownLatch start = new CountDownLatch(1);
+    long began = System.nanoTime();
+    try {
+      for (int i = 0; i < users; i++) {
+        VirtualUser user = userFactory.apply(i);
+        executor.execute(
+            () -> {
+              try {
+                start.await();
+                for (String message : user.messages()) {
+                  turns.add(send(user.token(), message));
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+      }
+      start.countDown();
+      executor.shutdown();
+      if (!executor.awaitTermination(timeout.toMillis() * 4, TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return new Report(users, List.copyOf(turns), System.nanoTime() - began);
+  }
+
+  /** 发送一条消息并读完整个流 */
+  public Turn send(String token, String message) {
+    long start = System.nanoTime();
+    try {
+      HttpRequest request =
+          HttpRequest.newBuilder(URI.create(baseUrl + "/chat/stream"))
+              .timeout(timeout)
+              .header("Content-Type", "application/json")
+              .header("Accept", "text/event-stream")
+              .header("token", token)
+              .POST(
+                  HttpRequest.BodyPublishers.ofString(
+                      MAPPER.writeValueAsString(Map.of("query", message))))
+              .build();
+      HttpResponse<InputStream> response =
+          client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      if (response.statusCode() != 200) {
+        return new Turn(0, System.nanoTime() - start, "", "HTTP " + response.statusCode());
+      }
+      long firstFrame = 0;
+      StringBuilder content = new StringBuilder();
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (!line.startsWith("data:")) {
+            continue;
+          }
+          if (firstFrame == 0) {
+            firstFrame = System.nanoTime() - start;
+          }
+          JsonNode frame = MAPPER.readTree(line.substring("data:".length()));
+          content.append(frame.path("content").asText());
+        }
+      }
+      return new Turn(firstFrame, System.nanoTime() - start, content.toString(), null);
+    } catch (IOException e) {
+      return new Turn(0, System.nanoTime() - start, "", e.toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new Turn(0, System.nanoTime() - start, "", "interrupted");
+    }
+  }
+
+  /** 一次压测的汇总 */
+  public record Report(int users, List<Turn> turns, long elapsedNanos) {
+
+    public long failures() {
+      return turns.stream().filter(turn -> turn.error() != null).count();
+    }
+
+    /** 首帧延迟的百分位，单位毫秒；只统计成功的轮次 */
+    public double firstFramePercentile(double percentile) {
+      return percentile(
+          turns.stream()
+              .filter(t -> t.error() == null)
+              .mapToLong(Turn::firstFrameNanos)
+              .sorted()
+              .toArray(),
+          percentile);
+    }
+
+    /** 总耗时的百分位，单位毫秒；只统计成功的轮次 */
+    public double totalPercentile(double percentile) {
+      return percentile(
+          turns.stream()
+              .filter(t -> t.error() == null)
+              .mapToLong(Turn::totalNanos)
+              .sorted()
+              .toArray(),
+          percentile);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "用户 %d，轮次 %d，失败 %d，用时 %.0f ms；首帧 p50/p95/p99 = %.0f/%.0f/%.0f ms；总耗时 p50/p95/p99 = %.0f/%.0f/%.0f ms",
+          users,
+          turns.size(),
+          failures(),
+          elapsedNanos / 1e6,
+          firstFramePercentile(50),
+          firstFramePercentile(95),
+          firstFramePercentile(99),
+          totalPercentile(50),
+          totalPercentile(95),
+          totalPercentile(99));
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.stringtinyst.healthlife.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.utils.JwtUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * 以进程内模型桩代替 DeepSeek 的聊天链路端到端测试
+ *
+ * <p>默认 20 个用户各发 2 条消息，只验证链路正确；压测时调大并发与模型参数，例如：
+ *
+ * <pre>
+ * ./gradlew test --tests '*ChatLoadTest' -Pchat.load.users=200 -Pchat.load.messages=5 \
+ *     -Pchat.load.ttft-ms=800 -Pchat.load.tokens-per-second=30
+ * </pre>
+ *
+ * 汇总的首帧延迟与总耗时百分位输出在日志中
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "ai.chat.response-cache.enabled=false")
+@ActiveProfiles("test")
+class ChatLoadTest {
+
+  private static final Logger log = LoggerFactory.getLogger(ChatLoadTest.class);
+
+  private static final MockOpenAiServer MODEL = MockOpenAiServer.start();
+
+  @DynamicPropertySource
+  static void model(DynamicPropertyRegistry registry) {
+    registry.add("spring.ai.openai.base-url", MODEL::baseUrl);
+  }
+
+  @AfterAll
+  static void stopModel() {
+    MODEL.close();
+  }
+
+  @LocalServerPort private int port;
+  @Autowired private JwtUtils jwtUtils;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private ChatLoadDriver driver;
+
+  @BeforeEach
+  void setUp() {
+    MODEL.reset();
+    MODEL
+        .timeToFirstToken(Duration.ofMillis(Long.getLong("chat.load.ttft-ms", 50)))
+        .tokensPerSecond(
+            Double.parseDouble(System.getProperty("chat.load.tokens-per-second", "200")))
+        .replyTokens(20);
+    driver = new ChatLoadDriver("http://127.0.0.1:" + port, Duration.ofSeconds(60));
+  }
+
+  private String token(String userId) {
+    return jwtUtils.generateJwt(Map.of("userID", userId));
+  }
+
+  @Test
+  void concurrentUsersShouldAllReceiveCompleteReplies() throws InterruptedException {
+    int users = Integer.getInteger("chat.load.users", 20);
+    int messages = Integer.getInteger("chat.load.messages", 2);
+    for (int i = 0; i < users; i++) {
+      jdbcTemplate.update(
+          "INSERT INTO bodymetrics (UserID, HeightCM, WeightKG, RecordDate) VALUES (?, 170, ?, CURRENT_DATE)",
+          "load-" + i,
+          60 + i % 30);
+    }
+    MODEL.callFunctionWhen("体重", "queryBodyMetrics", "{\"userID\":\"{userID}\"}");
+
+    ChatLoadDriver.Report report =
+        driver.run(
+            users,
+            i ->
+                new ChatLoadDriver.VirtualUser(
+                    token("load-" + i),
+                    IntStream.range(0, messages)
+                        .mapToObj(k -> k == 0 ? "我最近体重怎么样" : "第 " + k + " 个问题：怎样提高睡眠质量")
+                        .toList()));
+    log.info("聊天负载测试：{}，模型桩并发峰值 {}", report, MODEL.maxActiveStreams());
+
+    assertThat(report.turns()).hasSize(users * messages);
+    assertThat(report.failures()).isZero();
+    assertThat(report.turns())
+        .allSatisfy(
+            turn -> {
+              assertThat(turn.content()).isNotBlank().doesNotContain("请稍后重试");
+              assertThat(turn.firstFrameNanos()).isPositive();
+            });
+    assertThat(MODEL.functionCalls("queryBodyMetrics")).isEqualTo(users);
+  }
+
+  @Test
+  void functionCallShouldReadRecordsFromDatabase() {
+    MODEL.callFunctionWhen("体重", "queryBodyMetrics", "{\"userID\":\"{userID}\"}");
+
+    ChatLoadDriver.Turn turn = driver.send(token("user-1"), "查一下我的体重记录");
+
+    assertThat(turn.error()).isNull();
+    assertThat(turn.content()).contains("共找到 2 条");
+    assertThat(MODEL.functionCalls("queryBodyMetrics")).isEqualTo(1);
+  }
+
+  @Test
+  void upstreamFaultsShouldReachUserAsRetryHints() {
+    double rateLimitedBefore = errors("rate-limited");
+
+    MODEL.failRandomly(1.0, 429);
+    ChatLoadDriver.Turn rateLimited = driver.send(token("fault-1"), "今天适合跑步吗");
+    MODEL.failRandomly(1.0, 503);
+    ChatLoadDriver.Turn unavailable = driver.send(token("fault-2"), "今天适合跑步吗");
+
+    assertThat(rateLimited.content()).isEqualTo("请求过于频繁，请稍后重试");
+    assertThat(unavailable.content()).isEqualTo("AI 服务暂时不可用，请稍后重试");
+    assertThat(errors("rate-limited")).isEqualTo(rateLimitedBefore + 1);
+  }
+
+  private double errors(String errorClass) {
+    return meterRegistry.get("ai.chat.errors").tag("class", errorClass).counter().count();
+  }
+}
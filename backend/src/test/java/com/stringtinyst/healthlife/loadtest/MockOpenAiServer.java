@@ -0,0 +1,333 @@
+package com.stringtinyst.healthlife.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的 OpenAI 兼容模型桩，只实现流式 {@code POST /v1/chat/completions}
+ *
+ * <p>用于在不消耗 DeepSeek 配额的情况下对聊天链路做端到端测试和压测：
+ *
+ * <ul>
+ *   <li>首字延迟与每秒 token 数可调，每个 token 单独作为一个片段发送，最后一个片段带 usage
+ *   <li>用户消息包含某个关键词时先返回脚本化的函数调用，参数中的 {@code {userID}} 替换为消息里的用户 ID；收到函数结果后再以文本回复，回复开头原样带上函数结果的第一行
+ *   <li>可让接下来若干次请求或按比例的请求直接返回 429/503
+ * </ul>
+ */
+public class MockOpenAiServer implements AutoCloseable {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Pattern USER_ID = Pattern.compile("\\[用户ID: ([^\\]]+)]");
+  private static final String DEFAULT_REPLY = "根据您的情况，建议保持规律作息，均衡饮食，每周进行适量运动。";
+
+  /** 函数调用脚本：用户消息包含 trigger 时调用 function */
+  private record ToolScript(String trigger, String function, String arguments) {}
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<ToolScript> toolScripts = new CopyOnWriteArrayList<>();
+  private final Map<String, AtomicInteger> functionCalls = new ConcurrentHashMap<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger activeStreams = new AtomicInteger();
+  private final AtomicInteger maxActiveStreams = new AtomicInteger();
+  private final AtomicInteger pendingFailures = new AtomicInteger();
+
+  private volatile Duration timeToFirstToken = Duration.ofMillis(200);
+  private volatile double tokensPerSecond = 50;
+  private volatile int replyTokens = 40;
+  private volatile int failureStatus = 503;
+  private volatile double failureRate;
+
+  private MockOpenAiServer(HttpServer server) {
+    this.server = server;
+    server.createContext("/v1/chat/completions", this::handle);
+    server.setExecutor(executor);
+  }
+
+  /** 在随机端口启动 */
+  public static MockOpenAiServer start() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+      MockOpenAiServer mock = new MockOpenAiServer(server);
+      server.start();
+      return mock;
+    } catch (IOException e) {
+      throw new IllegalStateException("模型桩启动失败", e);
+    }
+  }
+
+  /** 填入 {@code spring.ai.openai.base-url} 的地址 */
+  public String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  public MockOpenAiServer timeToFirstToken(Duration timeToFirstToken) {
+    this.timeToFirstToken = timeToFirstToken;
+    return this;
+  }
+
+  public MockOpenAiServer tokensPerSecond(double tokensPerSecond) {
+    this.tokensPerSecond = tokensPerSecond;
+    return this;
+  }
+
+  public MockOpenAiServer replyTokens(int replyTokens) {
+    this.replyTokens = replyTokens;
+    return this;
+  }
+
+  /**
+   * 用户消息包含 trigger 时返回对 function 的调用
+   *
+   * @param arguments JSON 参数，{@code {userID}} 会被替换为消息中的用户 ID
+   */
+  public MockOpenAiServer callFunctionWhen(String trigger, String function, String arguments) {
+    toolScripts.add(new ToolScript(trigger, function, arguments));
+    return this;
+  }
+
+  /** 接下来的 count 次请求返回 status */
+  public MockOpenAiServer failNext(int count, int status) {
+    this.failureStatus = status;
+    pendingFailures.set(count);
+    return this;
+  }
+
+  /** 按 rate 的比例让请求返回 status，设为 0 关闭 */
+  public MockOpenAiServer failRandomly(double rate, int status) {
+    this.failureStatus = status;
+    this.failureRate = rate;
+    return this;
+  }
+
+  /** 恢复默认行为并清空计数 */
+  public void reset() {
+    toolScripts.clear();
+    functionCalls.clear();
+    requests.set(0);
+    maxActiveStreams.set(0);
+    pendingFailures.set(0);
+    failureRate = 0;
+    timeToFirstToken = Duration.ofMillis(200);
+    tokensPerSecond = 50;
+    replyTokens = 40;
+  }
+
+  public int requests() {
+    return requests.get();
+  }
+
+  /** 同时进行中的流式响应的峰值 */
+  public int maxActiveStreams() {
+    return maxActiveStreams.get();
+  }
+
+  /** 以函数结果回传给模型的调用次数 */
+  public int functionCalls(String function) {
+    AtomicInteger count = functionCalls.get(function);
+    return count == null ? 0 : count.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requests.incrementAndGet();
+      JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+      if (shouldFail()) {
+        fail(exchange);
+        return;
+      }
+      int active = activeStreams.incrementAndGet();
+      maxActiveStreams.accumulateAndGet(active, Math::max);
+      try {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        respond(request, exchange.getResponseBody());
+      } finally {
+        activeStreams.decrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean shouldFail() {
+    if (pendingFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+      return true;
+    }
+    return failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+  }
+
+  private void fail(HttpExchange exchange) throws IOException {
+    String type = failureStatus == 429 ? "rate_limit_exceeded" : "service_unavailable";
+    byte[] body =
+        ("{\"error\":{\"message\":\"mock " + failureStatus + "\",\"type\":\"" + type + "\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(failureStatus, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  private void respond(JsonNode request, OutputStream out)
+      throws IOException, InterruptedException {
+    JsonNode messages = request.path("messages");
+    JsonNode last = messages.isEmpty() ? MAPPER.nullNode() : messages.get(messages.size() - 1);
+    sleep(timeToFirstToken.toNanos());
+
+    if ("tool".equals(last.path("role").asText())) {
+      // 函数结果回传后给出文本回复，开头带上结果的第一行便于断言
+      String name = functionName(messages, last.path("tool_call_id").asText());
+      functionCalls.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+      String firstLine = last.path("content").asText().lines().findFirst().orElse("");
+      streamText(out, firstLine + "\n" + DEFAULT_REPLY);
+      return;
+    }
+    String userMessage = "user".equals(last.path("role").asText()) ? text(last) : "";
+    // 只匹配用户原话，消息开头的服务器时间与健康快照不参与
+    Matcher matcher = USER_ID.matcher(userMessage);
+    boolean found = matcher.find();
+    String userId = found ? matcher.group(1) : "";
+    String question = found ? userMessage.substring(matcher.end()) : userMessage;
+    for (ToolScript script : toolScripts) {
+      if (question.contains(script.trigger)) {
+        streamToolCall(out, script, userId);
+        return;
+      }
+    }
+    streamText(out, DEFAULT_REPLY);
+  }
+
+  private void streamText(OutputStream out, String seed) throws IOException, InterruptedException {
+    long intervalNanos = tokensPerSecond > 0 ? (long) (1e9 / tokensPerSecond) : 0;
+    int tokens = Math.max(1, replyTokens);
+    // 每个 token 两个字符，不够时循环使用回复文本
+    StringBuilder text = new StringBuilder(seed);
+    while (text.length() < tokens * 2) {
+      text.append(DEFAULT_REPLY);
+    }
+    for (int i = 0; i < tokens; i++) {
+      if (i > 0) {
+        sleep(intervalNanos);
+      }
+      int end = i == tokens - 1 ? text.length() : (i + 1) * 2;
+      ObjectNode delta = MAPPER.createObjectNode();
+      if (i == 0) {
+        delta.put("role", "assistant");
+      }
+      delta.put("content", text.substring(i * 2, Math.min(end, text.length())));
+      send(out, chunk(delta, null, null));
+    }
+    send(out, chunk(MAPPER.createObjectNode(), "stop", usage(tokens)));
+    done(out);
+  }
+
+  private void streamToolCall(OutputStream out, ToolScript script, String userId)
+      throws IOException {
+    ObjectNode call = MAPPER.createObjectNode();
+    call.put("index", 0);
+    call.put("id", "call_" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    call.put("type", "function");
+    call.putObject("function")
+        .put("name", script.function)
+        .put("arguments", script.arguments.replace("{userID}", userId));
+    ObjectNode delta = MAPPER.createObjectNode();
+    delta.put("role", "assistant");
+    delta.putArray("tool_calls").add(call);
+    send(out, chunk(delta, null, null));
+    send(out, chunk(MAPPER.createObjectNode(), "tool_calls", usage(20)));
+    done(out);
+  }
+
+  private static String functionName(JsonNode messages, String toolCallId) {
+    for (JsonNode message : messages) {
+      for (JsonNode call : message.path("tool_calls")) {
+        if (toolCallId.equals(call.path("id").asText())) {
+          return call.path("function").path("name").asText();
+        }
+      }
+    }
+    return "";
+  }
+
+  /** content 可能是字符串，也可能是多段内容的数组 */
+  private static String text(JsonNode message) {
+    JsonNode content = message.path("content");
+    if (content.isTextual()) {
+      return content.asText();
+    }
+    StringBuilder text = new StringBuilder();
+    content.forEach(part -> text.append(part.path("text").asText()));
+    return text.toString();
+  }
+
+  private static ObjectNode chunk(ObjectNode delta, String finishReason, ObjectNode usage) {
+    ObjectNode chunk = MAPPER.createObjectNode();
+    chunk.put("id", "chatcmpl-mock");
+    chunk.put("object", "chat.completion.chunk");
+    chunk.put("created", System.currentTimeMillis() / 1000);
+    chunk.put("model", "mock");
+    ArrayNode choices = chunk.putArray("choices");
+    ObjectNode choice = choices.addObject();
+    choice.put("index", 0);
+    choice.set("delta", delta);
+    if (finishReason == null) {
+      choice.putNull("finish_reason");
+    } else {
+      choice.put("finish_reason", finishReason);
+    }
+    if (usage != null) {
+      chunk.set("usage", usage);
+    }
+    return chunk;
+  }
+
+  private static ObjectNode usage(int completionTokens) {
+    ObjectNode usage = MAPPER.createObjectNode();
+    usage.put("prompt_tokens", 1000);
+    usage.put("completion_tokens", completionTokens);
+    usage.put("total_tokens", 1000 + completionTokens);
+    return usage;
+  }
+
+  private static void send(OutputStream out, JsonNode chunk) throws IOException {
+    out.write(
+        ("data: " + MAPPER.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  private static void done(OutputStream out) throws IOException {
+    out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  private static void sleep(long nanos) throws InterruptedException {
+    if (nanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+  }
+}
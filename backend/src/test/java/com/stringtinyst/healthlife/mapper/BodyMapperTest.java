@@ -5,7 +5,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.stringtinyst.healthlife.pojo.Body;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import org.apache.ibatis.cursor.Cursor;
 import org.junit.jupiter.api.Test;
 import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +35,35 @@ class BodyMapperTest {
         .containsExactly(LocalDate.parse("2024-06-01"), LocalDate.parse("2024-05-01"));
   }
 
+  @Test
+  void listAfterShouldSeekPastCursorInDateOrder() {
+    List<Body> firstPage = bodyMapper.listAfter("user-1", null, null, null, null, 1);
+
+    assertThat(firstPage)
+        .extracting(Body::getRecordDate)
+        .containsExactly(LocalDate.parse("2024-06-01"));
+
+    Body last = firstPage.get(0);
+    List<Body> nextPage =
+        bodyMapper.listAfter(
+            "user-1", null, null, last.getRecordDate(), last.getBodyMetricID(), 10);
+
+    assertThat(nextPage)
+        .extracting(Body::getRecordDate)
+        .containsExactly(LocalDate.parse("2024-05-01"));
+  }
+
+  @Test
+  void streamListShouldIterateAllRowsInDateOrder() throws Exception {
+    List<LocalDate> dates = new ArrayList<>();
+
+    try (Cursor<Body> cursor = bodyMapper.streamList("user-1", null, null)) {
+      cursor.forEach(body -> dates.add(body.getRecordDate()));
+    }
+
+    assertThat(dates).containsExactly(LocalDate.parse("2024-06-01"), LocalDate.parse("2024-05-01"));
+  }
+
   @Test
   void insertUpdateAndDeleteLifecycleShouldWork() {
     Body body = new Body();
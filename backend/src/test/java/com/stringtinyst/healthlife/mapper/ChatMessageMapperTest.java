@@ -0,0 +1,69 @@
+package com.stringtinyst.healthlife.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.pojo.ChatMessage;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.test.context.ActiveProfiles;
+
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class ChatMessageMapperTest {
+
+  @Autowired private ChatMessageMapper chatMessageMapper;
+
+  private static ChatMessage message(String conversationId, String type, String content) {
+    return new ChatMessage(0, conversationId, type, content, LocalDateTime.now());
+  }
+
+  @Test
+  void listRecentShouldReturnLatestMessagesInWriteOrder() {
+    chatMessageMapper.insertBatch(
+        List.of(
+            message("c1", "USER", "q1"),
+            message("c1", "ASSISTANT", "a1"),
+            message("c2", "USER", "other"),
+            message("c1", "USER", "q2"),
+            message("c1", "ASSISTANT", "a2")));
+
+    List<ChatMessage> recent = chatMessageMapper.listRecent("c1", 3);
+
+    assertThat(recent).extracting(ChatMessage::getContent).containsExactly("a1", "q2", "a2");
+    assertThat(recent.get(0).getMessageType()).isEqualTo("ASSISTANT");
+  }
+
+  @Test
+  void deleteByConversationShouldOnlyDropThatConversation() {
+    chatMessageMapper.insertBatch(
+        List.of(message("c1", "USER", "q1"), message("c2", "USER", "q2")));
+
+    int rows = chatMessageMapper.deleteByConversation("c1");
+
+    assertThat(rows).isEqualTo(1);
+    assertThat(chatMessageMapper.listRecent("c1", 10)).isEmpty();
+    assertThat(chatMessageMapper.listRecent("c2", 10)).hasSize(1);
+  }
+
+  @Test
+  void lastMessageIdShouldChangeOnAppendAndClear() {
+    assertThat(chatMessageMapper.lastMessageId("c1")).isZero();
+
+    chatMessageMapper.insertBatch(List.of(message("c1", "USER", "q1")));
+    long first = chatMessageMapper.lastMessageId("c1");
+    chatMessageMapper.insertBatch(List.of(message("c2", "USER", "other")));
+    assertThat(chatMessageMapper.lastMessageId("c1")).isPositive().isEqualTo(first);
+
+    chatMessageMapper.insertBatch(List.of(message("c1", "ASSISTANT", "a1")));
+    assertThat(chatMessageMapper.lastMessageId("c1")).isGreaterThan(first);
+
+    chatMessageMapper.deleteByConversation("c1");
+    assertThat(chatMessageMapper.lastMessageId("c1")).isZero();
+  }
+}
@@ -0,0 +1,55 @@
+package com.stringtinyst.healthlife.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Food;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.test.context.ActiveProfiles;
+
+@MybatisTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+class DietMapperTest {
+
+  @Autowired private DietMapper dietMapper;
+
+  private void insert(String userID, String foodName, int calories) {
+    dietMapper.insertDiet(
+        new Diet(0, userID, LocalDate.parse("2024-05-10"), foodName, "午餐", calories));
+  }
+
+  @Test
+  void listLoggedFoodsShouldGroupNamesAcrossUsersByFrequency() {
+    insert("u1", "螺蛳粉", 500);
+    insert("u2", "螺蛳粉", 600);
+    insert("u2", "螺蛳粉", 701);
+    insert("u1", "凉皮", 400);
+
+    List<Food> foods = dietMapper.listLoggedFoods(1, 100);
+    Food first = foods.get(0);
+
+    assertThat(first.getName()).isEqualTo("螺蛳粉");
+    assertThat(first.getLoggedCount()).isEqualTo(3);
+    assertThat(first.getLoggedCalories()).isEqualTo(600);
+    assertThat(foods).extracting(Food::getName).contains("凉皮");
+    assertThat(dietMapper.listLoggedFoods(1, 1)).hasSize(1);
+  }
+
+  @Test
+  void listLoggedFoodsShouldSkipNamesLoggedByTooFewUsers() {
+    insert("u1", "螺蛳粉", 500);
+    insert("u2", "螺蛳粉", 600);
+    insert("u1", "凉皮", 400);
+    insert("u1", "凉皮", 400);
+    insert("u1", "凉皮", 400);
+
+    assertThat(dietMapper.listLoggedFoods(2, 100)).extracting(Food::getName).containsExactly("螺蛳粉");
+  }
+}
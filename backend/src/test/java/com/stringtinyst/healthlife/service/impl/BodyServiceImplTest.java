@@ -9,9 +9,13 @@ import static org.mockito.Mockito.when;
 import com.github.pagehelper.Page;
 import com.stringtinyst.healthlife.mapper.BodyMapper;
 import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.CursorPageBean;
 import com.stringtinyst.healthlife.pojo.PageBean;
+import com.stringtinyst.healthlife.service.HealthSnapshotService;
+import com.stringtinyst.healthlife.utils.PageCursor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -22,6 +26,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 class BodyServiceImplTest {
 
   @Mock private BodyMapper bodyMapper;
+  @Mock private HealthSnapshotService healthSnapshotService;
 
   @InjectMocks private BodyServiceImpl bodyService;
 
@@ -46,6 +51,39 @@ class BodyServiceImplTest {
     verify(bodyMapper).list(eq("user-1"), isNull(), isNull());
   }
 
+  @Test
+  void pageByCursorShouldTrimExtraRowAndEmitNextCursor() {
+    Body newer = bodyRow(2, "2024-06-01");
+    Body older = bodyRow(1, "2024-05-01");
+    when(bodyMapper.listAfter(eq("user-1"), isNull(), isNull(), isNull(), isNull(), eq(2)))
+        .thenReturn(List.of(newer, older));
+
+    CursorPageBean<Body> firstPage = bodyService.pageByCursor(null, 1, "user-1", null, null);
+
+    assertThat(firstPage.getRows()).containsExactly(newer);
+    assertThat(firstPage.getNextCursor()).isEqualTo(PageCursor.encode(newer.getRecordDate(), 2));
+
+    when(bodyMapper.listAfter(
+            eq("user-1"), isNull(), isNull(), eq(LocalDate.parse("2024-06-01")), eq(2), eq(2)))
+        .thenReturn(List.of(older));
+
+    CursorPageBean<Body> lastPage =
+        bodyService.pageByCursor(firstPage.getNextCursor(), 1, "user-1", null, null);
+
+    assertThat(lastPage.getRows()).containsExactly(older);
+    assertThat(lastPage.getNextCursor()).isNull();
+  }
+
+  private Body bodyRow(int id, String recordDate) {
+    Body row = new Body();
+    row.setBodyMetricID(id);
+    row.setUserID("user-1");
+    row.setHeightCM(new BigDecimal("175.0"));
+    row.setWeightKG(new BigDecimal("70.0"));
+    row.setRecordDate(LocalDate.parse(recordDate));
+    return row;
+  }
+
   @Test
   void addBodyShouldDelegateToMapper() {
     Body body = new Body();
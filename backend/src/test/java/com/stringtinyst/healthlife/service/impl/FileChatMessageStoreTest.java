@@ -0,0 +1,73 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+
+class FileChatMessageStoreTest {
+
+  @TempDir Path dir;
+
+  private FileChatMessageStore createSubject() throws Exception {
+    return new FileChatMessageStore(dir.toString(), 100, 20, 1_000);
+  }
+
+  @Test
+  void appendedMessagesShouldSurviveRestart() throws Exception {
+    FileChatMessageStore store = createSubject();
+    store.append("u1", List.of(new UserMessage("q1"), new AssistantMessage("a1")));
+    store.append("u1", List.of(new UserMessage("q2"), new AssistantMessage("a2")));
+    store.shutdown();
+
+    FileChatMessageStore restarted = createSubject();
+    List<Message> recent = restarted.loadRecent("u1", 3);
+    restarted.shutdown();
+
+    assertThat(recent).extracting(Message::getText).containsExactly("a1", "q2", "a2");
+    assertThat(recent.get(1).getMessageType()).isEqualTo(MessageType.USER);
+  }
+
+  @Test
+  void clearShouldRunAfterEarlierAppends() throws Exception {
+    FileChatMessageStore store = createSubject();
+    store.append("u1", List.of(new UserMessage("old")));
+    store.clear("u1");
+    store.append("u1", List.of(new UserMessage("new")));
+    store.shutdown();
+
+    assertThat(store.loadRecent("u1", 10)).extracting(Message::getText).containsExactly("new");
+  }
+
+  @Test
+  void readsShouldSeeEarlierAppendsAndClearsWithoutWaitingForShutdown() throws Exception {
+    FileChatMessageStore store = createSubject();
+    store.append("u1", List.of(new UserMessage("old")));
+    assertThat(store.loadRecent("u1", 10)).extracting(Message::getText).containsExactly("old");
+
+    store.clear("u1");
+    assertThat(store.loadRecent("u1", 10)).isEmpty();
+    store.append("u1", List.of(new UserMessage("new")));
+    assertThat(store.loadRecent("u1", 10)).extracting(Message::getText).containsExactly("new");
+    store.shutdown();
+  }
+
+  @Test
+  void unsafeConversationIdShouldStayInsideDirectory() throws Exception {
+    FileChatMessageStore store = createSubject();
+    store.append("../escape", List.of(new UserMessage("hi")));
+    store.shutdown();
+
+    try (var files = Files.list(dir)) {
+      assertThat(files).hasSize(1).allMatch(file -> file.getParent().equals(dir));
+    }
+    assertThat(store.loadRecent("../escape", 10)).hasSize(1);
+  }
+}
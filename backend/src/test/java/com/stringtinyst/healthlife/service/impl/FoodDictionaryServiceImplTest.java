@@ -0,0 +1,106 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Food;
+import com.stringtinyst.healthlife.utils.FoodTable;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FoodDictionaryServiceImplTest {
+
+  private static Food logged(String name, int count, int calories) {
+    Food food = new Food();
+    food.setName(name);
+    food.setLoggedCount(count);
+    food.setLoggedCalories(calories);
+    return food;
+  }
+
+  private static Diet diet(String userID, String foodName, int calories) {
+    return new Diet(0, userID, LocalDate.of(2024, 5, 10), foodName, "午餐", calories);
+  }
+
+  private static List<String> names(List<Food> foods) {
+    return foods.stream().map(Food::getName).toList();
+  }
+
+  @Test
+  void bundledFoodsShouldBeMergedWithLoggedNames() {
+    FoodDictionaryServiceImpl service =
+        new FoodDictionaryServiceImpl(
+            FoodTable.load(),
+            List.of(logged("鸡胸肉", 20, 180), logged("鸡腿饭", 8, 650), logged("鸡排", 1, 400)),
+            100,
+            1,
+            60);
+
+    List<Food> suggestions = service.suggest("鸡", 10);
+
+    assertThat(names(suggestions)).startsWith("鸡胸肉", "鸡腿饭");
+    assertThat(suggestions.get(0).getKcal()).isNotNull();
+    assertThat(suggestions.get(0).getLoggedCalories()).isEqualTo(180);
+    // 只被记录过一次的名称排在内置条目之后
+    assertThat(names(suggestions).indexOf("鸡排")).isGreaterThan(names(suggestions).indexOf("鸡蛋"));
+    assertThat(service.lookup("mifan").getName()).isEqualTo("米饭");
+    assertThat(service.lookup("鸡腿饭").getKcal()).isNull();
+    assertThat(service.lookup("不存在的食物")).isNull();
+  }
+
+  @Test
+  void loggedFoodsShouldAppearAfterRebuild() {
+    FoodDictionaryServiceImpl service =
+        new FoodDictionaryServiceImpl(FoodTable.load(), List.of(), 100, 1, 60);
+
+    service.onFoodLogged(diet("u1", "螺蛳粉", 550));
+    service.onFoodLogged(diet("u1", "螺蛳粉", 650));
+    service.onFoodLogged(diet("u1", " ", 100));
+    service.onFoodLogged(diet("u1", "今天中午在公司楼下的面馆吃了一大碗加了很多辣椒的牛肉拉面和两个卤蛋还有一杯豆浆", 900));
+
+    assertThat(service.suggest("螺", 10)).isEmpty();
+
+    service.rebuild();
+
+    Food food = service.lookup("螺蛳粉");
+    assertThat(food.getLoggedCount()).isEqualTo(2);
+    assertThat(food.getLoggedCalories()).isEqualTo(600);
+    assertThat(service.suggest("今天", 10)).isEmpty();
+  }
+
+  @Test
+  void loggedNamesShouldBeCappedAtConfiguredLimit() {
+    FoodDictionaryServiceImpl service =
+        new FoodDictionaryServiceImpl(List.of(), List.of(logged("酸奶碗", 3, 300)), 1, 1, 0);
+
+    service.onFoodLogged(diet("u1", "燕麦碗", 350));
+    service.rebuild();
+
+    assertThat(service.lookup("酸奶碗")).isNotNull();
+    assertThat(service.lookup("燕麦碗")).isNull();
+  }
+
+  @Test
+  void namesLoggedByTooFewUsersShouldStayPrivate() {
+    FoodDictionaryServiceImpl service =
+        new FoodDictionaryServiceImpl(FoodTable.load(), List.of(), 100, 3, 0);
+
+    service.onFoodLogged(diet("u1", "外婆家的红烧肉", 700));
+    service.onFoodLogged(diet("u1", "外婆家的红烧肉", 700));
+    service.onFoodLogged(diet("u2", "外婆家的红烧肉", 800));
+    service.onFoodLogged(diet("u1", "米饭", 300));
+    service.rebuild();
+
+    assertThat(service.lookup("外婆家的红烧肉")).isNull();
+    // 内置条目照常可见，但不带未公开的记录统计
+    assertThat(service.lookup("米饭").getLoggedCalories()).isNull();
+
+    service.onFoodLogged(diet("u3", "外婆家的红烧肉", 600));
+    service.rebuild();
+
+    Food food = service.lookup("外婆家的红烧肉");
+    assertThat(food.getLoggedCount()).isEqualTo(4);
+    assertThat(food.getLoggedCalories()).isEqualTo(700);
+  }
+}
@@ -0,0 +1,186 @@
+package com.stringtinyst.healthlife.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.stringtinyst.healthlife.mapper.BodyMapper;
+import com.stringtinyst.healthlife.mapper.DietMapper;
+import com.stringtinyst.healthlife.mapper.ExerMapper;
+import com.stringtinyst.healthlife.mapper.SleepMapper;
+import com.stringtinyst.healthlife.pojo.Body;
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.pojo.Exer;
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import com.stringtinyst.healthlife.pojo.Sleep;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class HealthSnapshotServiceImplTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2024, 5, 10);
+
+  @Mock private BodyMapper bodyMapper;
+  @Mock private DietMapper dietMapper;
+  @Mock private ExerMapper exerMapper;
+  @Mock private SleepMapper sleepMapper;
+
+  private MutableClock clock;
+  private HealthSnapshotServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MutableClock(TODAY);
+    service =
+        new HealthSnapshotServiceImpl(
+            bodyMapper, dietMapper, exerMapper, sleepMapper, 100, 10, clock);
+    lenient()
+        .when(bodyMapper.listAfter(eq("u1"), isNull(), isNull(), isNull(), isNull(), eq(1)))
+        .thenReturn(List.of(body(TODAY.minusDays(3), "70")));
+    lenient()
+        .when(dietMapper.list("u1", TODAY.minusDays(6), TODAY, null))
+        .thenReturn(List.of(diet(TODAY.minusDays(6), 500), diet(TODAY, 800)));
+    lenient()
+        .when(exerMapper.list("u1", TODAY.minusDays(6), TODAY, null))
+        .thenReturn(List.of(exer(TODAY.minusDays(1), 300)));
+    lenient()
+        .when(sleepMapper.listAfter(eq("u1"), isNull(), isNull(), isNull(), isNull(), eq(1)))
+        .thenReturn(List.of(sleep(TODAY, 23, 6, 30)));
+  }
+
+  @Test
+  void firstReadShouldLoadFromMappers() {
+    HealthSnapshot snapshot = service.getSnapshot("u1");
+
+    assertThat(snapshot.getAsOf()).isEqualTo(TODAY);
+    assertThat(snapshot.getWeightKG()).isEqualByComparingTo("70");
+    assertThat(snapshot.getBmi()).isEqualByComparingTo("22.9");
+    assertThat(snapshot.getBodyRecordDate()).isEqualTo(TODAY.minusDays(3));
+    assertThat(snapshot.getCaloriesIn7d()).isEqualTo(1300);
+    assertThat(snapshot.getCaloriesOut7d()).isEqualTo(300);
+    assertThat(snapshot.getLastSleepHours()).isEqualByComparingTo("7.5");
+    assertThat(snapshot.getLastSleepDate()).isEqualTo(TODAY);
+  }
+
+  @Test
+  void addsShouldUpdateLoadedStateWithoutQuerying() {
+    service.getSnapshot("u1");
+
+    service.onDietAdded(diet(TODAY, 200));
+    service.onExerciseAdded(exer(TODAY, 150));
+    service.onBodyAdded(body(TODAY, "68"));
+    // 补录的旧数据不覆盖更新的记录
+    service.onBodyAdded(body(TODAY.minusDays(10), "80"));
+    HealthSnapshot snapshot = service.getSnapshot("u1");
+
+    assertThat(snapshot.getCaloriesIn7d()).isEqualTo(1500);
+    assertThat(snapshot.getCaloriesOut7d()).isEqualTo(450);
+    assertThat(snapshot.getWeightKG()).isEqualByComparingTo("68");
+    verify(dietMapper, times(1)).list(any(), any(), any(), any());
+  }
+
+  @Test
+  void windowShouldRollForwardAcrossDays() {
+    service.getSnapshot("u1");
+
+    clock.today = TODAY.plusDays(1);
+    HealthSnapshot snapshot = service.getSnapshot("u1");
+
+    // 6 天前的 500 kcal 移出窗口
+    assertThat(snapshot.getCaloriesIn7d()).isEqualTo(800);
+    assertThat(snapshot.getAsOf()).isEqualTo(TODAY.plusDays(1));
+  }
+
+  @Test
+  void invalidateShouldReloadOnNextRead() {
+    service.getSnapshot("u1");
+
+    service.invalidate("u1");
+    service.getSnapshot("u1");
+
+    verify(sleepMapper, times(2)).listAfter(eq("u1"), any(), any(), any(), any(), anyInt());
+  }
+
+  @Test
+  void userWithoutRecordsShouldGetEmptySnapshot() {
+    HealthSnapshot snapshot = service.getSnapshot("u2");
+
+    assertThat(snapshot.getWeightKG()).isNull();
+    assertThat(snapshot.getCaloriesIn7d()).isNull();
+    assertThat(snapshot.getLastSleepHours()).isNull();
+  }
+
+  private static Body body(LocalDate date, String weightKG) {
+    Body body = new Body();
+    body.setUserID("u1");
+    body.setHeightCM(new BigDecimal("175"));
+    body.setWeightKG(new BigDecimal(weightKG));
+    body.setRecordDate(date);
+    return body;
+  }
+
+  private static Diet diet(LocalDate date, int calories) {
+    Diet diet = new Diet();
+    diet.setUserID("u1");
+    diet.setRecordDate(date);
+    diet.setEstimatedCalories(calories);
+    return diet;
+  }
+
+  private static Exer exer(LocalDate date, int calories) {
+    Exer exer = new Exer();
+    exer.setUserID("u1");
+    exer.setRecordDate(date);
+    exer.setEstimatedCaloriesBurned(calories);
+    return exer;
+  }
+
+  private static Sleep sleep(LocalDate date, int bedHour, int wakeHour, int wakeMinute) {
+    Sleep sleep = new Sleep();
+    sleep.setUserID("u1");
+    sleep.setRecordDate(date);
+    sleep.setBedTime(date.minusDays(1).atTime(bedHour, 0));
+    sleep.setWakeTime(date.atTime(wakeHour, wakeMinute));
+    return sleep;
+  }
+
+  private static final class MutableClock extends Clock {
+
+    private LocalDate today;
+
+    private MutableClock(LocalDate today) {
+      this.today = today;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return today.atTime(12, 0).toInstant(ZoneOffset.UTC);
+    }
+  }
+}
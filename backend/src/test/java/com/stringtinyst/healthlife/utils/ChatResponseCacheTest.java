@@ -0,0 +1,85 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.stringtinyst.healthlife.pojo.HealthSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class ChatResponseCacheTest {
+
+  private static final String ANSWER = "跑步前 1-2 小时吃点香蕉或全麦面包等易消化的碳水。";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ChatResponseCache cache = new ChatResponseCache(true, 100, 60, 0.8, registry);
+
+  @Test
+  void normalizedTextShouldHitExactly() {
+    cache.put("跑步前应该吃什么？", ANSWER, new HealthSnapshot());
+
+    assertThat(cache.lookup(" 跑步前 应该吃什么?")).contains(ANSWER);
+    assertThat(registry.get(ChatResponseCache.HITS_METRIC).tag("match", "exact").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void similarQuestionShouldHitAboveThreshold() {
+    cache.put("跑步前应该吃什么", ANSWER, new HealthSnapshot());
+
+    assertThat(cache.lookup("跑步前应该吃什么呢")).contains(ANSWER);
+    // 一字之差但意思相反，二元组相似度只有 0.56
+    assertThat(cache.lookup("跑步后应该吃什么")).isEmpty();
+    assertThat(
+            registry.get(ChatResponseCache.HITS_METRIC).tag("match", "similar").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void answerMentioningSnapshotValuesShouldNotBeCached() {
+    HealthSnapshot snapshot = new HealthSnapshot();
+    snapshot.setWeightKG(new BigDecimal("68.50"));
+
+    cache.put("我适合跑多久", "按你 68.5kg 的体重，建议每次 30 分钟。", snapshot);
+
+    assertThat(cache.lookup("我适合跑多久")).isEmpty();
+  }
+
+  @Test
+  void answerTailoredToSnapshotShouldNotBeCachedWithoutQuotingNumbers() {
+    HealthSnapshot snapshot = new HealthSnapshot();
+    snapshot.setBmi(new BigDecimal("27.3"));
+    snapshot.setLastSleepHours(new BigDecimal("5.5"));
+
+    cache.put("晚上总是睡不好怎么办", "您的 BMI 偏高，最近睡眠也不足，建议先把体重控制在约 70 公斤以内。", snapshot);
+    cache.put("维生素 D 有什么好处", ANSWER, null);
+
+    assertThat(cache.lookup("晚上总是睡不好怎么办")).isEmpty();
+    assertThat(cache.lookup("维生素 D 有什么好处")).contains(ANSWER);
+  }
+
+  @Test
+  void shortMessagesShouldNotBeCached() {
+    cache.put("那呢？", ANSWER, new HealthSnapshot());
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void purgeShouldDropEverything() {
+    cache.put("跑步前应该吃什么", ANSWER, new HealthSnapshot());
+
+    assertThat(cache.purge()).isEqualTo(1);
+    assertThat(cache.lookup("跑步前应该吃什么")).isEmpty();
+    assertThat(cache.lookup("跑步前应该吃什么呢")).isEmpty();
+  }
+
+  @Test
+  void jaccardShouldCompareBigrams() {
+    assertThat(
+            ChatResponseCache.jaccard(
+                ChatResponseCache.shingles("跑步前应该吃什么"), ChatResponseCache.shingles("跑步后应该吃什么")))
+        .isCloseTo(5.0 / 9, within(1e-9));
+  }
+}
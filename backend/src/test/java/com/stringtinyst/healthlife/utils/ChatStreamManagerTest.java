@@ -0,0 +1,149 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+class ChatStreamManagerTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ChatStreamManager manager =
+      new ChatStreamManager(64, 60_000, 60_000, registry, Schedulers.parallel());
+
+  private static String readAll(Flux<String> chunks) {
+    return String.join("", chunks.collectList().block(Duration.ofSeconds(5)));
+  }
+
+  @Test
+  void readShouldReturnWholeGeneration() {
+    ChatStreamManager.ChatStream stream =
+        manager.start("u1", "今天怎么样", Flux.just("你好", "，", "今天不错"));
+
+    assertThat(readAll(stream.read(0))).isEqualTo("你好，今天不错");
+  }
+
+  @Test
+  void reconnectShouldReplayMissedContentThenFollowLiveOutput() {
+    Sinks.Many<String> generation = Sinks.many().unicast().onBackpressureBuffer();
+    manager.start("u1", "今天怎么样", generation.asFlux());
+    generation.tryEmitNext("你好");
+    generation.tryEmitNext("，今天");
+
+    // 客户端只收到了前 2 个字符（id=2）后断线
+    ChatStreamManager.ChatStream resumed = manager.resume("u1", "今天怎么样", "2").orElseThrow();
+    List<String> chunks = new CopyOnWriteArrayList<>();
+    resumed.read(2).subscribe(chunks::add);
+    generation.tryEmitNext("不错");
+    generation.tryEmitComplete();
+
+    assertThat(String.join("", chunks)).isEqualTo("，今天不错");
+    assertThat(registry.get(ChatStreamManager.RESUMED_METRIC).counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void resumeShouldRequireSameQueryAndValidOffset() {
+    manager.start("u1", "今天怎么样", Flux.just("你好"));
+
+    assertThat(manager.resume("u1", "换个问题", "1")).isEmpty();
+    assertThat(manager.resume("u1", "今天怎么样", null)).isEmpty();
+    assertThat(manager.resume("u1", "今天怎么样", "abc")).isEmpty();
+    assertThat(manager.resume("u1", "今天怎么样", "3")).isEmpty();
+    assertThat(manager.resume("u2", "今天怎么样", "1")).isEmpty();
+    assertThat(manager.resume("u1", "今天怎么样", "1")).isPresent();
+  }
+
+  @Test
+  void overwrittenOffsetsShouldNotBeResumable() {
+    ChatStreamManager small =
+        new ChatStreamManager(4, 60_000, 60_000, registry, Schedulers.parallel());
+    ChatStreamManager.ChatStream stream = small.start("u1", "q", Flux.just("abc", "defgh"));
+
+    assertThat(small.resume("u1", "q", "2")).isEmpty();
+    assertThat(small.resume("u1", "q", "4")).isPresent();
+    assertThat(readAll(stream.read(4))).isEqualTo("efgh");
+    assertThatThrownBy(() -> readAll(stream.read(0))).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void finishedStreamShouldExpireAfterRetention() throws InterruptedException {
+    ChatStreamManager shortLived =
+        new ChatStreamManager(64, 0, 60_000, registry, Schedulers.parallel());
+    shortLived.start("u1", "q", Flux.just("abc"));
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (shortLived.resume("u1", "q", "0").isPresent() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+
+    assertThat(shortLived.resume("u1", "q", "0")).isEmpty();
+  }
+
+  @Test
+  void newGenerationShouldCancelPreviousOne() {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+    ChatStreamManager.ChatStream old =
+        manager.start("u1", "q1", first.asFlux().doOnCancel(() -> cancelled.set(true)));
+    first.tryEmitNext("半句");
+
+    manager.start("u1", "q2", Flux.just("新的回答"));
+
+    assertThat(cancelled).isTrue();
+    // 旧连接按已生成的内容正常结束
+    assertThat(readAll(old.read(0))).isEqualTo("半句");
+    assertThat(
+            registry
+                .get(ChatStreamManager.CANCELLED_METRIC)
+                .tag("reason", "superseded")
+                .counter()
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void abandonedGenerationShouldBeCancelledAfterGracePeriod() throws InterruptedException {
+    ChatStreamManager graceful =
+        new ChatStreamManager(64, 60_000, 50, registry, Schedulers.parallel());
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Sinks.Many<String> generation = Sinks.many().unicast().onBackpressureBuffer();
+    ChatStreamManager.ChatStream stream =
+        graceful.start("u1", "q", generation.asFlux().doOnCancel(() -> cancelled.set(true)));
+
+    stream.read(0).subscribe().dispose();
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (!cancelled.get() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(cancelled).isTrue();
+    assertThat(graceful.resume("u1", "q", "0")).isEmpty();
+  }
+
+  @Test
+  void reconnectWithinGracePeriodShouldKeepGenerating() throws InterruptedException {
+    ChatStreamManager graceful =
+        new ChatStreamManager(64, 60_000, 200, registry, Schedulers.parallel());
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Sinks.Many<String> generation = Sinks.many().unicast().onBackpressureBuffer();
+    ChatStreamManager.ChatStream stream =
+        graceful.start("u1", "q", generation.asFlux().doOnCancel(() -> cancelled.set(true)));
+
+    stream.read(0).subscribe().dispose();
+    List<String> chunks = new CopyOnWriteArrayList<>();
+    graceful.resume("u1", "q", "0").orElseThrow().read(0).subscribe(chunks::add);
+    Thread.sleep(500);
+    generation.tryEmitNext("还在生成");
+
+    assertThat(cancelled).isFalse();
+    assertThat(String.join("", chunks)).isEqualTo("还在生成");
+  }
+}
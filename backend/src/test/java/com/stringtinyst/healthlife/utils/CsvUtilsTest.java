@@ -0,0 +1,53 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class CsvUtilsTest {
+
+  private static final String[] HEADERS = {"ID", "Name"};
+
+  @Test
+  void exportCsvStreamShouldWriteEveryRowFromSource() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    CsvUtils.exportCsvStream(
+        response,
+        "rows.csv",
+        HEADERS,
+        false,
+        2,
+        sink -> List.of(1, 2, 3).forEach(sink),
+        id -> List.of(id, "row-" + id));
+
+    String body = response.getContentAsString(StandardCharsets.UTF_8);
+    assertThat(response.getHeader("Content-Encoding")).isNull();
+    assertThat(body).contains("ID,Name").contains("1,row-1").contains("3,row-3");
+  }
+
+  @Test
+  void exportCsvStreamShouldGzipWhenRequested() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    CsvUtils.exportCsvStream(
+        response,
+        "rows.csv",
+        HEADERS,
+        true,
+        sink -> List.of(7).forEach(sink),
+        id -> List.of(id, "row-" + id));
+
+    assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+    try (GZIPInputStream in =
+        new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      assertThat(body).startsWith("\uFEFFID,Name").contains("7,row-7");
+    }
+  }
+}
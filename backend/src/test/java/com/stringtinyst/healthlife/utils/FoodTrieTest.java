@@ -0,0 +1,65 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.pojo.Food;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FoodTrieTest {
+
+  private static Food food(String name, String pinyin) {
+    Food food = new Food();
+    food.setName(name);
+    food.setPinyin(pinyin);
+    return food;
+  }
+
+  private static List<String> names(List<Food> foods) {
+    return foods.stream().map(Food::getName).toList();
+  }
+
+  private final FoodTrie trie =
+      FoodTrie.build(
+          List.of(
+              food("鸡蛋", "jidan"),
+              food("米饭", "mifan"),
+              food("鸡胸肉", "jixiongrou"),
+              food("鸡蛋羹", "jidangeng"),
+              food("米粉", "mifen"),
+              food("鸡", null)));
+
+  @Test
+  void suggestShouldMatchNameAndPinyinPrefixesInRankOrder() {
+    assertThat(names(trie.suggest("鸡", 10))).containsExactly("鸡蛋", "鸡胸肉", "鸡蛋羹", "鸡");
+    assertThat(names(trie.suggest("鸡蛋", 10))).containsExactly("鸡蛋", "鸡蛋羹");
+    assertThat(names(trie.suggest("ji", 10))).containsExactly("鸡蛋", "鸡胸肉", "鸡蛋羹");
+    assertThat(names(trie.suggest(" Mi F", 10))).containsExactly("米饭", "米粉");
+    assertThat(names(trie.suggest("ＭＩＦＡ", 10))).containsExactly("米饭");
+    assertThat(names(trie.suggest("鸡", 2))).containsExactly("鸡蛋", "鸡胸肉");
+    assertThat(trie.suggest("面", 10)).isEmpty();
+    assertThat(trie.suggest("", 10)).isEmpty();
+  }
+
+  @Test
+  void getShouldOnlyMatchWholeKeys() {
+    assertThat(trie.get("鸡蛋").getName()).isEqualTo("鸡蛋");
+    assertThat(trie.get("JiDan").getName()).isEqualTo("鸡蛋");
+    assertThat(trie.get("鸡").getName()).isEqualTo("鸡");
+    assertThat(trie.get("鸡胸")).isNull();
+    assertThat(trie.get(null)).isNull();
+  }
+
+  @Test
+  void suggestShouldKeepOnlyTopRankedPerPrefix() {
+    List<Food> foods = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      foods.add(food("苹果" + (char) ('甲' + i), null));
+    }
+    FoodTrie large = FoodTrie.build(foods);
+
+    assertThat(large.suggest("苹", 50)).hasSize(FoodTrie.MAX_SUGGESTIONS);
+    assertThat(large.suggest("苹果", 50)).containsExactlyElementsOf(foods.subList(0, 10));
+  }
+}
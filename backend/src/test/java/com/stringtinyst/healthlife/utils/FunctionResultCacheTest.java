@@ -0,0 +1,205 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class FunctionResultCacheTest {
+
+  @Test
+  void getOrComputeShouldReuseCachedValueWithinTtl() {
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, null);
+    AtomicInteger calls = new AtomicInteger();
+
+    String first = cache.getOrCompute("diet.query:u1:1", () -> "v" + calls.incrementAndGet());
+    String second = cache.getOrCompute("diet.query:u1:1", () -> "v" + calls.incrementAndGet());
+
+    assertThat(first).isEqualTo("v1");
+    assertThat(second).isEqualTo("v1");
+    assertThat(calls).hasValue(1);
+  }
+
+  @Test
+  void evictByPrefixShouldOnlyDropMatchingKeys() {
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, null);
+    cache.getOrCompute("diet.query:u1:1", () -> "a");
+    cache.getOrCompute("diet.query:u2:1", () -> "b");
+
+    cache.evictByPrefix("diet.query:u1");
+
+    assertThat(cache.getOrCompute("diet.query:u1:1", () -> "fresh")).isEqualTo("fresh");
+    assertThat(cache.getOrCompute("diet.query:u2:1", () -> "fresh")).isEqualTo("b");
+  }
+
+  @Test
+  void evictByPrefixShouldDetachSegmentAndSupportDomainWidePrefix() {
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, null);
+    cache.getOrCompute("body.query:u1:null:null:1:10", () -> "a");
+    cache.getOrCompute("body.query:u1:null:null:2:10", () -> "b");
+    cache.getOrCompute("body.query:u2:null:null:1:10", () -> "c");
+    cache.getOrCompute("body.detail:u1:5", () -> "d");
+
+    cache.evictByPrefix("body.query:u1");
+
+    assertThat(cache.segmentCount()).isEqualTo(2);
+    assertThat(cache.estimatedSize()).isEqualTo(2);
+
+    cache.evictByPrefix("body.query");
+
+    assertThat(cache.segmentCount()).isEqualTo(1);
+    assertThat(cache.getOrCompute("body.detail:u1:5", () -> "fresh")).isEqualTo("d");
+  }
+
+  @Test
+  void segmentOfShouldTakeDomainAndUser() {
+    assertThat(FunctionResultCache.segmentOf("diet.query:u1:2024-01-01:null"))
+        .isEqualTo("diet.query:u1");
+    assertThat(FunctionResultCache.segmentOf("diet.query:u1")).isEqualTo("diet.query:u1");
+  }
+
+  @Test
+  void cacheShouldStayWithinWeightBound() {
+    int maxWeight = 16 * 1024;
+    FunctionResultCache cache = new FunctionResultCache(60, 0, maxWeight, null);
+    String payload = "x".repeat(500);
+
+    for (int i = 0; i < 1_000; i++) {
+      cache.getOrCompute("body.query:u" + i, () -> payload);
+    }
+
+    long perEntry = FunctionResultCache.estimateBytes("body.query:u999", payload);
+    assertThat(cache.estimatedSize()).isLessThanOrEqualTo(maxWeight / perEntry + 1);
+    assertThat(cache.segmentCount()).isEqualTo((int) cache.estimatedSize());
+  }
+
+  @Test
+  void statsShouldBeRegisteredAsCacheMetrics() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, registry);
+
+    cache.getOrCompute("sleep.query:u1", () -> "a");
+    cache.getOrCompute("sleep.query:u1", () -> "a");
+
+    assertThat(
+            registry
+                .get("cache.gets")
+                .tag("cache", FunctionResultCache.CACHE_NAME)
+                .tag("result", "hit")
+                .functionCounter()
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void concurrentMissesShouldComputeOnce() throws Exception {
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, null);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(
+            pool.submit(
+                () ->
+                    cache.getOrCompute(
+                        "exercise.query:u1:1",
+                        () -> {
+                          calls.incrementAndGet();
+                          awaitQuietly(release);
+                          return "v";
+                        })));
+      }
+      Thread.sleep(200);
+      release.countDown();
+
+      for (Future<String> result : results) {
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+      }
+      assertThat(calls).hasValue(1);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void staleEntryShouldBeServedWhileRefreshingOnce() throws Exception {
+    FunctionResultCache cache = new FunctionResultCache(1, 60, 1024 * 1024, null);
+    try {
+      cache.getOrCompute("sleep.query:u1", () -> "old");
+      Thread.sleep(1_100);
+
+      AtomicInteger refreshes = new AtomicInteger();
+      CountDownLatch release = new CountDownLatch(1);
+      for (int i = 0; i < 5; i++) {
+        String value =
+            cache.getOrCompute(
+                "sleep.query:u1",
+                () -> {
+                  refreshes.incrementAndGet();
+                  awaitQuietly(release);
+                  return "new";
+                });
+        assertThat(value).isEqualTo("old");
+      }
+      release.countDown();
+
+      long deadline = System.currentTimeMillis() + 5_000;
+      String latest = "old";
+      while (!"new".equals(latest) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+        latest = cache.getOrCompute("sleep.query:u1", () -> "unexpected");
+      }
+      assertThat(latest).isEqualTo("new");
+      assertThat(refreshes).hasValue(1);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  void evictionDuringComputeShouldNotCacheOutdatedResult() throws Exception {
+    FunctionResultCache cache = new FunctionResultCache(60, 0, 1024 * 1024, null);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> pending =
+          pool.submit(
+              () ->
+                  cache.getOrCompute(
+                      "diet.query:u1:1",
+                      () -> {
+                        started.countDown();
+                        awaitQuietly(release);
+                        return "before-write";
+                      }));
+      started.await(5, TimeUnit.SECONDS);
+      cache.evictByPrefix("diet.query:u1");
+      release.countDown();
+
+      assertThat(pending.get(5, TimeUnit.SECONDS)).isEqualTo("before-write");
+      assertThat(cache.getOrCompute("diet.query:u1:1", () -> "after-write"))
+          .isEqualTo("after-write");
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
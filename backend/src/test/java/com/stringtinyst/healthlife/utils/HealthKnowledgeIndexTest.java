@@ -0,0 +1,91 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.utils.HealthKnowledgeIndex.Document;
+import com.stringtinyst.healthlife.utils.HealthKnowledgeIndex.Hit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HealthKnowledgeIndexTest {
+
+  private static final List<Document> DOCUMENTS =
+      List.of(
+          new Document("成年人每天需要睡多久", "睡眠指南", "成年人每晚建议睡 7 到 9 小时，老年人 7 到 8 小时。"),
+          new Document("午睡多久合适", "睡眠科普", "午睡以 20 到 30 分钟为宜，超过 1 小时容易睡眠惯性。"),
+          new Document("米饭 热量与营养成分", "食物成分表", "米饭每 100 克约含热量 116 千卡。"),
+          new Document("BMI 的计算", "肥胖指南", "BMI = 体重 ÷ 身高的平方，24 以上为超重。"));
+
+  @TempDir Path directory;
+
+  private static List<String> titles(List<Hit> hits) {
+    return hits.stream().map(hit -> hit.document().title()).toList();
+  }
+
+  @Test
+  void tokenizeShouldSplitHanIntoBigramsAndKeepWords() {
+    assertThat(HealthKnowledgeIndex.tokenize("米饭热量 BMI＝24"))
+        .containsExactly("米饭", "饭热", "热量", "bmi", "24");
+    assertThat(HealthKnowledgeIndex.tokenize("睡 多久")).containsExactly("睡", "多久");
+  }
+
+  @Test
+  void searchShouldRankByBm25AndStoreOriginalText() {
+    HealthKnowledgeIndex index = HealthKnowledgeIndex.inMemory(DOCUMENTS);
+
+    List<Hit> hits = index.search("成年人一天睡几个小时", 3);
+
+    assertThat(titles(hits)).first().isEqualTo("成年人每天需要睡多久");
+    assertThat(hits.get(0).document().source()).isEqualTo("睡眠指南");
+    assertThat(hits.get(0).document().content()).startsWith("成年人每晚建议睡 7 到 9 小时");
+    assertThat(titles(index.search("米饭的热量", 3))).first().isEqualTo("米饭 热量与营养成分");
+    assertThat(titles(index.search("bmi", 3))).containsExactly("BMI 的计算");
+    assertThat(index.search("篮球规则", 3)).isEmpty();
+  }
+
+  @Test
+  void segmentShouldBeReusedForSameCorpusAndRebuiltWhenItChanges() throws IOException {
+    HealthKnowledgeIndex first = HealthKnowledgeIndex.open(directory, DOCUMENTS, 1L);
+    Path segment = singleSegment();
+    long writtenAt = Files.getLastModifiedTime(segment).toMillis();
+
+    // 语料不变时直接映射已有段文件，即使传入的文档为空
+    HealthKnowledgeIndex reopened = HealthKnowledgeIndex.open(directory, List.of(), 1L);
+
+    assertThat(first.isMapped()).isTrue();
+    assertThat(reopened.isMapped()).isTrue();
+    assertThat(reopened.size()).isEqualTo(DOCUMENTS.size());
+    assertThat(titles(reopened.search("午睡", 1))).containsExactly("午睡多久合适");
+    assertThat(Files.getLastModifiedTime(segment).toMillis()).isEqualTo(writtenAt);
+
+    HealthKnowledgeIndex changed =
+        HealthKnowledgeIndex.open(directory, DOCUMENTS.subList(0, 2), 2L);
+
+    assertThat(changed.size()).isEqualTo(2);
+    assertThat(singleSegment()).isNotEqualTo(segment);
+  }
+
+  @Test
+  void corruptSegmentShouldBeRebuilt() throws IOException {
+    HealthKnowledgeIndex.open(directory, DOCUMENTS, 3L);
+    Files.write(singleSegment(), new byte[] {1, 2, 3});
+
+    HealthKnowledgeIndex rebuilt = HealthKnowledgeIndex.open(directory, DOCUMENTS, 3L);
+
+    assertThat(rebuilt.size()).isEqualTo(DOCUMENTS.size());
+    assertThat(titles(rebuilt.search("米饭", 1))).containsExactly("米饭 热量与营养成分");
+  }
+
+  private Path singleSegment() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> segments = files.filter(file -> file.toString().endsWith(".seg")).toList();
+      assertThat(segments).hasSize(1);
+      return segments.get(0);
+    }
+  }
+}
@@ -49,4 +49,29 @@ class JwtUtilsTest {
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessageContaining("无效的 token");
   }
+
+  @Test
+  void parseShouldReuseVerifiedClaimsForSameToken() {
+    JwtUtils jwtUtils = createSubject(60_000L);
+    String token = jwtUtils.generateJwt(Map.of("userID", "user-123"));
+
+    Claims first = jwtUtils.parseJWT(token);
+    Claims second = jwtUtils.parseJWT(token);
+
+    assertThat(second).isSameAs(first);
+    assertThat(jwtUtils.verifiedCacheSize()).isEqualTo(1);
+  }
+
+  @Test
+  void parseShouldStillRejectTamperedTokenAfterCaching() {
+    JwtUtils jwtUtils = createSubject(60_000L);
+    String token = jwtUtils.generateJwt(Map.of("userID", "user-123"));
+    jwtUtils.parseJWT(token);
+
+    String tampered = token.substring(0, token.length() - 2) + "xx";
+
+    assertThatThrownBy(() -> jwtUtils.parseJWT(tampered))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("无效的 token");
+  }
 }
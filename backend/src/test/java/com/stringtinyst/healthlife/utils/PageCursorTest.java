@@ -0,0 +1,40 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class PageCursorTest {
+
+  @Test
+  void encodeAndDecodeShouldRoundTrip() {
+    String cursor = PageCursor.encode(LocalDate.parse("2024-06-01"), 42);
+
+    PageCursor decoded = PageCursor.decode(cursor);
+
+    assertThat(decoded.recordDate()).isEqualTo(LocalDate.parse("2024-06-01"));
+    assertThat(decoded.id()).isEqualTo(42);
+  }
+
+  @Test
+  void decodeShouldTreatBlankAsFirstPage() {
+    assertThat(PageCursor.decode(null)).isNull();
+    assertThat(PageCursor.decode("")).isNull();
+  }
+
+  @Test
+  void decodeShouldRejectTamperedCursor() {
+    assertThatThrownBy(() -> PageCursor.decode("not-a-cursor"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("无效的分页游标");
+  }
+
+  @Test
+  void normalizePageSizeShouldClampToBounds() {
+    assertThat(PageCursor.normalizePageSize(null)).isEqualTo(10);
+    assertThat(PageCursor.normalizePageSize(0)).isEqualTo(10);
+    assertThat(PageCursor.normalizePageSize(500)).isEqualTo(100);
+  }
+}
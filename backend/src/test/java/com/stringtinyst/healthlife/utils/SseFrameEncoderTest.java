@@ -0,0 +1,129 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+class SseFrameEncoderTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private String content(byte[] frame) throws Exception {
+    return objectMapper.readTree(frame).get("content").asText();
+  }
+
+  private static String text(byte[] frame) {
+    return new String(frame, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void frameShouldEscapeAndEncodeInOnePass() throws Exception {
+    String message = "体重 \"70kg\"\\\n\r\t\u0001 é 😀";
+
+    byte[] frame = SseFrameEncoder.frame(message);
+
+    assertThat(content(frame)).isEqualTo(message);
+    assertThat(text(frame)).isEqualTo("{\"content\":\"体重 \\\"70kg\\\"\\\\\\n\\r\\t\\u0001 é 😀\"}");
+    assertThat(SseFrameEncoder.frame(""))
+        .isEqualTo("{\"content\":\"\"}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void loneSurrogateShouldBeReplaced() {
+    assertThat(text(SseFrameEncoder.frame("a\uD83Db"))).isEqualTo("{\"content\":\"a?b\"}");
+  }
+
+  @Test
+  void deltasShouldBeCoalescedBySize() throws Exception {
+    SseFrameEncoder encoder = new SseFrameEncoder(8, 10_000, 1024, Schedulers.parallel());
+
+    List<byte[]> frames =
+        encoder
+            .encode(Flux.just("ab", "cd", "", "ef", "gh", "ij", "kl", "mn", "op", "q"))
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    List<String> contents = new ArrayList<>();
+    for (byte[] frame : frames) {
+      contents.add(content(frame));
+    }
+    // 最后不足 8 字节的部分在完成时输出
+    assertThat(contents).containsExactly("abcdefgh", "ijklmnop", "q");
+  }
+
+  @Test
+  void pendingDeltasShouldBeFlushedAfterWindow() throws Exception {
+    SseFrameEncoder encoder = new SseFrameEncoder(1024, 20, 4096, Schedulers.parallel());
+    Flux<String> deltas =
+        Flux.just("你", "好").concatWith(Flux.just("！").delaySubscription(Duration.ofMillis(300)));
+
+    List<byte[]> frames = encoder.encode(deltas).collectList().block(Duration.ofSeconds(5));
+
+    assertThat(frames).hasSize(2);
+    assertThat(content(frames.get(0))).isEqualTo("你好");
+    assertThat(content(frames.get(1))).isEqualTo("！");
+  }
+
+  @Test
+  void eventsShouldCarryEndOffsetAsId() throws Exception {
+    SseFrameEncoder encoder = new SseFrameEncoder(4, 10_000, 1024, Schedulers.parallel());
+
+    List<ServerSentEvent<byte[]>> events =
+        encoder
+            .encodeEvents(Flux.just("你好", "今天", "不错"), 10)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(events).extracting(ServerSentEvent::id).containsExactly("12", "14", "16");
+    assertThat(content(events.get(1).data())).isEqualTo("今天");
+  }
+
+  @Test
+  void slowSubscriberShouldPauseUpstreamAndReceiveMergedFrames() throws Exception {
+    SseFrameEncoder encoder = new SseFrameEncoder(4, 10_000, 16, Schedulers.parallel());
+    AtomicInteger produced = new AtomicInteger();
+    Flux<String> deltas =
+        Flux.range(0, 1000).map(i -> "abcd").doOnNext(d -> produced.getAndIncrement());
+    List<byte[]> received = new ArrayList<>();
+    BaseSubscriber<byte[]> subscriber =
+        new BaseSubscriber<>() {
+          @Override
+          protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+          }
+
+          @Override
+          protected void hookOnNext(byte[] frame) {
+            received.add(frame);
+          }
+        };
+
+    encoder.encode(deltas).subscribe(subscriber);
+
+    // 第一帧发出后不再有需求：攒满 16 字节即停止读取上游
+    assertThat(received).hasSize(1);
+    assertThat(produced.get()).isEqualTo(5);
+
+    subscriber.request(1);
+    assertThat(content(received.get(1))).isEqualTo("abcd".repeat(4));
+
+    subscriber.requestUnbounded();
+    StringBuilder all = new StringBuilder();
+    for (byte[] frame : received) {
+      all.append(content(frame));
+    }
+    assertThat(all).hasSize(4000);
+    assertThat(produced.get()).isEqualTo(1000);
+  }
+}
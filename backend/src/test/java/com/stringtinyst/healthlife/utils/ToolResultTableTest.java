@@ -0,0 +1,112 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.pojo.Diet;
+import com.stringtinyst.healthlife.utils.ToolResultTable.Column;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class ToolResultTableTest {
+
+  private static final ToolResultTable<Diet> TABLE =
+      ToolResultTable.of(
+          Column.of("ID", Diet::getDietItemID),
+          Column.range("日期", Diet::getRecordDate),
+          Column.of("食物", Diet::getFoodName),
+          Column.count("餐次", Diet::getMealType),
+          Column.sum("热量kcal", Diet::getEstimatedCalories));
+
+  private static final String[] FOODS = {"鸡蛋", "全麦面包", "牛奶", "鸡胸肉沙拉", "米饭", "清蒸鱼", "苹果"};
+  private static final String[] MEALS = {"早餐", "午餐", "晚餐", "加餐"};
+
+  @Test
+  void encodeShouldEmitHeaderOnceAndOmitUserId() {
+    List<Diet> rows = dietRows(3);
+
+    String encoded = TABLE.encode(rows, 2000);
+
+    assertThat(encoded.lines())
+        .containsExactly(
+            "ID|日期|食物|餐次|热量kcal",
+            "1|2024-05-01|鸡蛋|早餐|150",
+            "2|2024-05-02|全麦面包|午餐|170",
+            "3|2024-05-03|牛奶|晚餐|190");
+    assertThat(encoded).doesNotContain(rows.get(0).getUserID());
+  }
+
+  @Test
+  void encodeShouldSummarizeRowsOverBudget() {
+    List<Diet> rows = dietRows(50);
+
+    String encoded = TABLE.encode(rows, 400);
+
+    assertThat(encoded.length()).isLessThanOrEqualTo(400);
+    String summary = encoded.lines().reduce((first, second) -> second).orElseThrow();
+    int listed = (int) encoded.lines().count() - 2;
+    int overflowCalories =
+        rows.subList(listed, rows.size()).stream().mapToInt(Diet::getEstimatedCalories).sum();
+    assertThat(summary)
+        .startsWith("另有 " + (50 - listed) + " 条未逐行列出")
+        .contains("热量kcal 合计 " + overflowCalories)
+        .contains("日期 " + rows.get(listed).getRecordDate() + "~2024-06-19")
+        .contains("餐次 ");
+  }
+
+  @Test
+  void encodeShouldEscapeSeparatorsAndHandleEmptyRows() {
+    Diet diet = new Diet(1, "u1", LocalDate.of(2024, 5, 1), "豆浆|油条\n套餐", "早餐", 500);
+
+    assertThat(TABLE.encode(List.of(diet), 2000)).endsWith("1|2024-05-01|豆浆/油条 套餐|早餐|500");
+    assertThat(TABLE.encode(List.of(), 2000)).isEqualTo("（无记录）");
+  }
+
+  @Test
+  void encodeShouldUseFarFewerTokensThanToString() {
+    List<Diet> rows = dietRows(10);
+
+    int before = estimateTokens(rows.toString());
+    int after = estimateTokens(TABLE.encode(rows, 2000));
+
+    // toString 每行都重复 36 位 userID 与全部字段名
+    assertThat(after).isLessThan(before / 3);
+  }
+
+  private static List<Diet> dietRows(int count) {
+    String userID = UUID.randomUUID().toString();
+    List<Diet> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(
+          new Diet(
+              i + 1,
+              userID,
+              LocalDate.of(2024, 5, 1).plusDays(i),
+              FOODS[i % FOODS.length],
+              MEALS[i % MEALS.length],
+              150 + 20 * (i % 10)));
+    }
+    return rows;
+  }
+
+  /** 粗略的 BPE token 估算：汉字按 1 token 计，其余字符中字母数字约 4 个一组，标点各占 1 个，与 DeepSeek/OpenAI 分词器在中英混合文本上的量级一致 */
+  private static int estimateTokens(String text) {
+    int tokens = 0;
+    int run = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isLetterOrDigit(c) && c < 0x80) {
+        run++;
+        continue;
+      }
+      tokens += (run + 3) / 4;
+      run = 0;
+      if (!Character.isWhitespace(c)) {
+        tokens++;
+      }
+    }
+    return tokens + (run + 3) / 4;
+  }
+}
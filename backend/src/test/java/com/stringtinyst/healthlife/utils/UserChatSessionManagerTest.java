@@ -0,0 +1,188 @@
+package com.stringtinyst.healthlife.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stringtinyst.healthlife.service.ChatMessageStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+class UserChatSessionManagerTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private UserChatSessionManager createSubject(
+      long maxSessions, int maxMessages, long maxWeightBytes, SimpleMeterRegistry registry) {
+    return new UserChatSessionManager(
+        maxSessions, 30, maxMessages, maxWeightBytes, registry, null, nanos::get);
+  }
+
+  @Test
+  void memoryShouldKeepOnlyMostRecentMessages() {
+    UserChatSessionManager manager = createSubject(100, 4, 1024 * 1024, null);
+    ChatMemory memory = manager.getChatMemory("u1");
+
+    for (int i = 0; i < 6; i++) {
+      memory.add("u1", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+    }
+
+    List<Message> recent = memory.get("u1", 10);
+    assertThat(recent).extracting(Message::getText).containsExactly("q4", "a4", "q5", "a5");
+    assertThat(memory.get("u1", 2)).extracting(Message::getText).containsExactly("q5", "a5");
+  }
+
+  @Test
+  void idleSessionsShouldExpire() {
+    UserChatSessionManager manager = createSubject(100, 10, 1024 * 1024, null);
+    manager.getChatMemory("u1").add("u1", new UserMessage("hello"));
+
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(31));
+
+    assertThat(manager.sessionCount()).isZero();
+    assertThat(manager.bytesHeld()).isZero();
+    assertThat(manager.getChatMemory("u1").get("u1", 10)).isEmpty();
+  }
+
+  @Test
+  void sessionCountShouldStayWithinLimit() {
+    UserChatSessionManager manager = createSubject(10, 10, 1024 * 1024, null);
+
+    for (int i = 0; i < 100; i++) {
+      manager.getChatMemory("u" + i).add("u" + i, new UserMessage("hi"));
+    }
+
+    assertThat(manager.sessionCount()).isLessThanOrEqualTo(10);
+  }
+
+  @Test
+  void heavySessionsShouldBeEvictedByWeight() {
+    long maxWeight = 64 * 1024;
+    UserChatSessionManager manager = createSubject(1_000, 50, maxWeight, null);
+    String longText = "很长的回答".repeat(1_000);
+
+    for (int i = 0; i < 20; i++) {
+      manager.getChatMemory("u" + i).add("u" + i, new AssistantMessage(longText));
+    }
+
+    assertThat(manager.bytesHeld()).isLessThanOrEqualTo(maxWeight);
+    assertThat(manager.sessionCount()).isLessThan(20);
+  }
+
+  @Test
+  void clearShouldDropSessionAndReportMetrics() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    UserChatSessionManager manager = createSubject(100, 10, 1024 * 1024, registry);
+    manager.getChatMemory("u1").add("u1", new UserMessage("hello"));
+
+    assertThat(registry.get(UserChatSessionManager.BYTES_GAUGE).gauge().value()).isPositive();
+    assertThat(
+            registry
+                .get("cache.size")
+                .tag("cache", UserChatSessionManager.CACHE_NAME)
+                .gauge()
+                .value())
+        .isEqualTo(1.0);
+
+    manager.clearChatMemory("u1");
+
+    assertThat(manager.bytesHeld()).isZero();
+    assertThat(manager.getChatMemory("u1").get("u1", 10)).isEmpty();
+  }
+
+  @Test
+  void coldSessionShouldRestoreFromStoreAndAppendThroughIt() {
+    List<Message> persisted =
+        new ArrayList<>(List.of(new UserMessage("早餐吃了什么"), new AssistantMessage("两个鸡蛋")));
+    List<String> cleared = new ArrayList<>();
+    ChatMessageStore store =
+        new ChatMessageStore() {
+          @Override
+          public void append(String conversationId, List<Message> messages) {
+            persisted.addAll(messages);
+          }
+
+          @Override
+          public List<Message> loadRecent(String conversationId, int limit) {
+            return List.copyOf(
+                persisted.subList(Math.max(0, persisted.size() - limit), persisted.size()));
+          }
+
+          @Override
+          public void clear(String conversationId) {
+            cleared.add(conversationId);
+          }
+        };
+    UserChatSessionManager manager =
+        new UserChatSessionManager(100, 30, 10, 1024 * 1024, null, store, nanos::get);
+
+    ChatMemory memory = manager.getChatMemory("u1");
+    assertThat(memory.get("u1", 10)).extracting(Message::getText).containsExactly("早餐吃了什么", "两个鸡蛋");
+    assertThat(manager.bytesHeld()).isPositive();
+
+    memory.add("u1", new UserMessage("午餐呢"));
+    assertThat(persisted).extracting(Message::getText).endsWith("午餐呢");
+
+    manager.clearChatMemory("u1");
+    assertThat(cleared).containsExactly("u1");
+  }
+
+  /** 多个实例共享的存储，每次写入或清空后序号递增 */
+  private static final class SharedStore implements ChatMessageStore {
+
+    private final List<Message> persisted = new ArrayList<>();
+    private long sequence;
+
+    @Override
+    public synchronized void append(String conversationId, List<Message> messages) {
+      persisted.addAll(messages);
+      sequence++;
+    }
+
+    @Override
+    public synchronized List<Message> loadRecent(String conversationId, int limit) {
+      return List.copyOf(
+          persisted.subList(Math.max(0, persisted.size() - limit), persisted.size()));
+    }
+
+    @Override
+    public synchronized void clear(String conversationId) {
+      persisted.clear();
+      sequence++;
+    }
+
+    @Override
+    public synchronized long lastSequence(String conversationId) {
+      return sequence;
+    }
+  }
+
+  @Test
+  void sharedStoreWritesFromOtherReplicasShouldReplaceHotTail() {
+    SharedStore store = new SharedStore();
+    UserChatSessionManager replicaA =
+        new UserChatSessionManager(100, 30, 10, 1024 * 1024, null, store, nanos::get);
+    UserChatSessionManager replicaB =
+        new UserChatSessionManager(100, 30, 10, 1024 * 1024, null, store, nanos::get);
+
+    replicaA.getChatMemory("u1").add("u1", new UserMessage("早餐吃了什么"));
+    assertThat(replicaB.getChatMemory("u1").get("u1", 10))
+        .extracting(Message::getText)
+        .containsExactly("早餐吃了什么");
+
+    replicaA.getChatMemory("u1").add("u1", new AssistantMessage("两个鸡蛋"));
+    assertThat(replicaB.getChatMemory("u1").get("u1", 10))
+        .extracting(Message::getText)
+        .containsExactly("早餐吃了什么", "两个鸡蛋");
+
+    replicaA.clearChatMemory("u1");
+    assertThat(replicaB.getChatMemory("u1").get("u1", 10)).isEmpty();
+    assertThat(replicaB.bytesHeld()).isZero();
+  }
+}
@@ -7,6 +7,35 @@ CREATE TABLE bodymetrics (
     RecordDate DATE NOT NULL
 );
 
+DROP TABLE IF EXISTS dietitem;
+CREATE TABLE dietitem (
+    DietItemID INTEGER PRIMARY KEY AUTO_INCREMENT,
+    UserID VARCHAR(64) NOT NULL,
+    RecordDate DATE NOT NULL,
+    FoodName VARCHAR(255) NOT NULL,
+    MealType VARCHAR(50) NOT NULL,
+    EstimatedCalories INTEGER
+);
+
+DROP TABLE IF EXISTS exerciseitem;
+CREATE TABLE exerciseitem (
+    ExerciseItemID INTEGER PRIMARY KEY AUTO_INCREMENT,
+    UserID VARCHAR(64) NOT NULL,
+    RecordDate DATE NOT NULL,
+    ExerciseType VARCHAR(100) NOT NULL,
+    DurationMinutes INTEGER NOT NULL,
+    EstimatedCaloriesBurned INTEGER
+);
+
+DROP TABLE IF EXISTS sleepitem;
+CREATE TABLE sleepitem (
+    SleepItemID INTEGER PRIMARY KEY AUTO_INCREMENT,
+    UserID VARCHAR(64) NOT NULL,
+    RecordDate DATE NOT NULL,
+    BedTime TIMESTAMP,
+    WakeTime TIMESTAMP
+);
+
 DROP TABLE IF EXISTS users;
 CREATE TABLE users (
     UserID VARCHAR(64) PRIMARY KEY,
@@ -17,3 +46,12 @@ CREATE TABLE users (
     DateOfBirth DATE,
     RegistrationDate DATE
 );
+
+DROP TABLE IF EXISTS chat_message;
+CREATE TABLE chat_message (
+    MessageID BIGINT PRIMARY KEY AUTO_INCREMENT,
+    ConversationID VARCHAR(64) NOT NULL,
+    MessageType VARCHAR(16) NOT NULL,
+    Content CLOB NOT NULL,
+    CreatedAt TIMESTAMP NOT NULL
+);
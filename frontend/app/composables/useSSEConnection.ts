@@ -2,6 +2,8 @@
  * SSE 连接管理
  */
 
+import type { SSEResumeState } from '~/utils/sse'
+
 export type ConnectionStatus = 'connected' | 'connecting' | 'disconnected' | 'failed'
 
 export interface UseSSEConnectionOptions {
@@ -33,23 +35,24 @@ export function useSSEConnection(options: UseSSEConnectionOptions = {}) {
     isRetrying.value = false
   }
 
-  // 执行带重试的 SSE 请求
+  // 执行带重试的 SSE 请求；同一次请求的各次重连共享续传状态，重连时带上 Last-Event-ID 从断点续传
   const executeWithRetry = async <T>(
-    requestFn: () => AsyncGenerator<T>,
-    onChunk: (data: T) => void | Promise<void>
+    requestFn: (resume: SSEResumeState) => AsyncGenerator<T>,
+    onChunk: (data: T, resume: SSEResumeState) => void | Promise<void>
   ): Promise<void> => {
     let attempt = 0
+    const resume: SSEResumeState = {}
 
     while (attempt <= maxRetries) {
       try {
         updateStatus('connecting')
 
-        const stream = requestFn()
+        const stream = requestFn(resume)
         updateStatus('connected')
         resetRetry()
 
         for await (const chunk of stream) {
-          await onChunk(chunk)
+          await onChunk(chunk, resume)
         }
 
         updateStatus('disconnected')
@@ -357,5 +357,49 @@ describe('sse', () => {
       expect(results[0]?.test).toBe(1)
       expect(results[1]?.test).toBe(2)
     })
+
+    it('应该记录帧 id 并在重连时带上 Last-Event-ID', async () => {
+      const mockStream = new ReadableStream({
+        start(controller) {
+          const encoder = new TextEncoder()
+          controller.enqueue(encoder.encode('id:4\ndata:{"content":"续传内容"}\n\nid:'))
+          controller.enqueue(encoder.encode('6\ndata:{"content":"结束"}\n\nevent:close\n\n'))
+          controller.close()
+        }
+      })
+
+      mockFetch.mockResolvedValueOnce({
+        ok: true,
+        body: mockStream,
+        headers: new Headers({ 'X-Stream-Offset': '0' })
+      })
+
+      const { ssePost } = await import('~/utils/sse')
+      const controller = new AbortController()
+      const resume: { lastEventId?: string; offset?: number } = { lastEventId: '2' }
+
+      const offsets: (number | undefined)[] = []
+      for await (const _ of ssePost<{ content: string }>('/api/test', {
+        params: {},
+        signal: controller.signal,
+        resume
+      })) {
+        offsets.push(resume.offset)
+      }
+
+      expect(mockFetch).toHaveBeenCalledWith(
+        '/api/test',
+        expect.objectContaining({
+          headers: expect.objectContaining({
+            Accept: 'text/event-stream',
+            'Last-Event-ID': '2'
+          })
+        })
+      )
+      // 每帧交给调用方时 offset 是该帧的起始位置；续传失败时服务端从 0 重新生成
+      expect(offsets).toEqual([0, 4])
+      expect(resume.lastEventId).toBe('6')
+      expect(resume.offset).toBe(6)
+    })
   })
 })
@@ -1,25 +1,50 @@
 /**
  * SSE 流式请求工具
- * 后端返回格式：连续的 JSON 对象流 {"content":"a"}{"content":"b"}
+ * 后端返回格式：连续的 JSON 对象流 {"content":"a"}{"content":"b"}，或带 id 的 SSE 帧 id:2\ndata:{"content":"a"}
  */
 
+/**
+ * 断线续传状态，在同一问题的多次连接之间共享
+ * - lastEventId：已处理完的最后一帧 id，重连时作为 Last-Event-ID 发送
+ * - offset：下一帧内容在整段回复中的起始位置，来自响应头 X-Stream-Offset，之后随帧 id 推进；
+ *   续传失败、服务端重新生成时为 0，调用方据此丢弃上次连接已收到的部分
+ */
+export interface SSEResumeState {
+  lastEventId?: string
+  offset?: number
+}
+
 export interface SSEPostOptions {
   params: Record<string, unknown>
   signal: AbortSignal
+  resume?: SSEResumeState
+}
+
+/** 取 JSON 之前最后一个 id: 行 */
+function parseEventId(text: string): string | undefined {
+  let id: string | undefined
+  for (const line of text.split(/\r?\n/)) {
+    if (line.startsWith('id:')) {
+      id = line.slice(3).trim()
+    }
+  }
+  return id
 }
 
 /**
  * 使用 fetch 发送 POST 请求处理 JSON 流
  */
 export async function* ssePost<T>(path: string, options: SSEPostOptions): AsyncGenerator<T> {
-  const { params, signal } = options
+  const { params, signal, resume } = options
   const token = useCookie('token').value
 
   const response = await fetch(path, {
     method: 'POST',
     headers: {
       'Content-Type': 'application/json',
-      ...(token ? { Authorization: `Bearer ${token}` } : {})
+      Accept: 'text/event-stream',
+      ...(token ? { Authorization: `Bearer ${token}` } : {}),
+      ...(resume?.lastEventId ? { 'Last-Event-ID': resume.lastEventId } : {})
     },
     body: JSON.stringify(params),
     signal
@@ -34,6 +59,20 @@ export async function* ssePost<T>(path: string, options: SSEPostOptions): AsyncG
     throw new Error('No response body')
   }
 
+  if (resume) {
+    const offset = Number(response.headers?.get('X-Stream-Offset'))
+    resume.offset = Number.isFinite(offset) ? offset : undefined
+  }
+
+  // 帧处理完（调用方取下一帧）后才记录 id，重连时不会跳过未处理的内容
+  const markDone = (id: string | undefined) => {
+    if (resume && id) {
+      resume.lastEventId = id
+      const end = Number(id)
+      if (Number.isFinite(end)) resume.offset = end
+    }
+  }
+
   const reader = response.body.getReader()
   const decoder = new TextDecoder()
   let buffer = ''
@@ -50,6 +89,7 @@ export async function* ssePost<T>(path: string, options: SSEPostOptions): AsyncG
             try {
               const parsed = JSON.parse(buffer.slice(jsonStart))
               yield parsed
+              markDone(parseEventId(buffer.slice(0, jsonStart)))
             } catch {
               // 忽略解析错误
             }
@@ -107,17 +147,20 @@ export async function* ssePost<T>(path: string, options: SSEPostOptions): AsyncG
           }
         }
 
-        // 如果没找到完整的 JSON，保留 buffer 等待更多数据
+        // 如果没找到完整的 JSON，保留 buffer（连同前面的 id 行）等待更多数据
         if (jsonEnd === -1) {
-          buffer = buffer.slice(jsonStart)
+          buffer = buffer.slice(searchStart)
+          searchStart = 0
           break
         }
 
         // 解析并输出 JSON
+        const eventId = parseEventId(buffer.slice(searchStart, jsonStart))
         const jsonStr = buffer.slice(jsonStart, jsonEnd + 1)
         try {
           const parsed = JSON.parse(jsonStr)
           yield parsed
+          markDone(eventId)
         } catch {
           // 忽略解析错误
         }